@@ -100,5 +100,40 @@ public interface Request extends AdminObject, DomainAware {
      * @return The thread state
      */
 	ThreadState getThreadState();
+	
+    /**  
+     * @return The buffer bytes currently reserved for processing
+     */
+	long getReservedBytes();
+	
+    /**  
+     * @return The bytes of batches held in memory
+     */
+	long getBatchBytes();
+	
+    /**  
+     * @return The maximum of the reserved bytes plus the batch bytes
+     */
+	long getPeakUsedBytes();
+	
+    /**  
+     * @return The number of batches written to buffer storage
+     */
+	long getBatchesWritten();
+	
+    /**  
+     * @return The bytes of batches written to buffer storage
+     */
+	long getBytesWritten();
+	
+    /**  
+     * @return The bytes of batches read from buffer storage
+     */
+	long getBytesRead();
+	
+    /**  
+     * @return The bytes of lob values persisted to buffer storage
+     */
+	long getLobBytesPersisted();
     
 }
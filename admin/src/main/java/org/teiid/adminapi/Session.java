@@ -106,5 +106,47 @@ public interface Session extends AdminObject, DomainAware {
      * @return
      */
     public String getSecurityDomain();
+    
+    /**
+     * Get the buffer bytes currently reserved for processing by the requests of this session
+     * @return
+     */
+    public long getReservedBytes();
+    
+    /**
+     * Get the bytes of the batches of this session held in memory
+     * @return
+     */
+    public long getBatchBytes();
+    
+    /**
+     * Get the maximum of the reserved bytes plus the batch bytes of this session
+     * @return
+     */
+    public long getPeakUsedBytes();
+    
+    /**
+     * Get the number of batches of this session written to buffer storage
+     * @return
+     */
+    public long getBatchesWritten();
+    
+    /**
+     * Get the bytes of the batches of this session written to buffer storage
+     * @return
+     */
+    public long getBytesWritten();
+    
+    /**
+     * Get the bytes of the batches of this session read from buffer storage
+     * @return
+     */
+    public long getBytesRead();
+    
+    /**
+     * Get the bytes of the lob values of this session persisted to buffer storage
+     * @return
+     */
+    public long getLobBytesPersisted();
 
 }
\ No newline at end of file
@@ -42,6 +42,13 @@ public class RequestMetadata extends AdminObjectImpl implements Request {
     private String transactionId;
     private ProcessingState processingState = ProcessingState.PROCESSING;
     private ThreadState threadState = ThreadState.RUNNING;
+    private long reservedBytes;
+    private long batchBytes;
+    private long peakUsedBytes;
+    private long batchesWritten;
+    private long bytesWritten;
+    private long bytesRead;
+    private long lobBytesPersisted;
     
     @Override
     public long getExecutionId() {
@@ -124,6 +131,69 @@ public class RequestMetadata extends AdminObjectImpl implements Request {
 		this.transactionId = id;
 	}
 	
+	@Override
+	public long getReservedBytes() {
+		return reservedBytes;
+	}
+	
+	public void setReservedBytes(long reservedBytes) {
+		this.reservedBytes = reservedBytes;
+	}
+	
+	@Override
+	public long getBatchBytes() {
+		return batchBytes;
+	}
+	
+	public void setBatchBytes(long batchBytes) {
+		this.batchBytes = batchBytes;
+	}
+	
+	@Override
+	public long getPeakUsedBytes() {
+		return peakUsedBytes;
+	}
+	
+	public void setPeakUsedBytes(long peakUsedBytes) {
+		this.peakUsedBytes = peakUsedBytes;
+	}
+	
+	@Override
+	public long getBatchesWritten() {
+		return batchesWritten;
+	}
+	
+	public void setBatchesWritten(long batchesWritten) {
+		this.batchesWritten = batchesWritten;
+	}
+	
+	@Override
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+	
+	public void setBytesWritten(long bytesWritten) {
+		this.bytesWritten = bytesWritten;
+	}
+	
+	@Override
+	public long getBytesRead() {
+		return bytesRead;
+	}
+	
+	public void setBytesRead(long bytesRead) {
+		this.bytesRead = bytesRead;
+	}
+	
+	@Override
+	public long getLobBytesPersisted() {
+		return lobBytesPersisted;
+	}
+	
+	public void setLobBytesPersisted(long lobBytesPersisted) {
+		this.lobBytesPersisted = lobBytesPersisted;
+	}
+	
     @Override
 	public boolean equals(Object obj) {
     	if (!(obj instanceof RequestMetadata)) {
@@ -50,6 +50,13 @@ public class SessionMetadata extends AdminObjectImpl implements Session {
     private int vdbVersion;
     private String sessionId;
     private String securityDomain;
+    private long reservedBytes;
+    private long batchBytes;
+    private long peakUsedBytes;
+    private long batchesWritten;
+    private long bytesWritten;
+    private long bytesRead;
+    private long lobBytesPersisted;
     
     //server session state
     private transient VDBMetaData vdb;
@@ -148,6 +155,69 @@ public class SessionMetadata extends AdminObjectImpl implements Session {
 		this.securityDomain = domain;
 	}	
 	
+	@Override
+	public long getReservedBytes() {
+		return this.reservedBytes;
+	}
+	
+	public void setReservedBytes(long reservedBytes) {
+		this.reservedBytes = reservedBytes;
+	}
+	
+	@Override
+	public long getBatchBytes() {
+		return this.batchBytes;
+	}
+	
+	public void setBatchBytes(long batchBytes) {
+		this.batchBytes = batchBytes;
+	}
+	
+	@Override
+	public long getPeakUsedBytes() {
+		return this.peakUsedBytes;
+	}
+	
+	public void setPeakUsedBytes(long peakUsedBytes) {
+		this.peakUsedBytes = peakUsedBytes;
+	}
+	
+	@Override
+	public long getBatchesWritten() {
+		return this.batchesWritten;
+	}
+	
+	public void setBatchesWritten(long batchesWritten) {
+		this.batchesWritten = batchesWritten;
+	}
+	
+	@Override
+	public long getBytesWritten() {
+		return this.bytesWritten;
+	}
+	
+	public void setBytesWritten(long bytesWritten) {
+		this.bytesWritten = bytesWritten;
+	}
+	
+	@Override
+	public long getBytesRead() {
+		return this.bytesRead;
+	}
+	
+	public void setBytesRead(long bytesRead) {
+		this.bytesRead = bytesRead;
+	}
+	
+	@Override
+	public long getLobBytesPersisted() {
+		return this.lobBytesPersisted;
+	}
+	
+	public void setLobBytesPersisted(long lobBytesPersisted) {
+		this.lobBytesPersisted = lobBytesPersisted;
+	}
+	
     @SuppressWarnings("nls")
 	public String toString() {
     	StringBuilder str = new StringBuilder();
@@ -1092,6 +1092,13 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 		private static final String EXECUTION_ID = "execution-id"; //$NON-NLS-1$
 		private static final String STATE = "processing-state"; //$NON-NLS-1$
 		private static final String THREAD_STATE = "thread-state"; //$NON-NLS-1$
+		private static final String RESERVED_BYTES = "reserved-bytes"; //$NON-NLS-1$
+		private static final String BATCH_BYTES = "batch-bytes"; //$NON-NLS-1$
+		private static final String PEAK_USED_BYTES = "peak-used-bytes"; //$NON-NLS-1$
+		private static final String BATCHES_WRITTEN = "batches-written"; //$NON-NLS-1$
+		private static final String BYTES_WRITTEN = "bytes-written"; //$NON-NLS-1$
+		private static final String BYTES_READ = "bytes-read"; //$NON-NLS-1$
+		private static final String LOB_BYTES_PERSISTED = "lob-bytes-persisted"; //$NON-NLS-1$
 		
 		public static RequestMetadataMapper INSTANCE = new RequestMetadataMapper();
 		
@@ -1113,6 +1120,13 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 			}
 			node.get(STATE).set(request.getState().name());
 			node.get(THREAD_STATE).set(request.getThreadState().name());
+			node.get(RESERVED_BYTES).set(request.getReservedBytes());
+			node.get(BATCH_BYTES).set(request.getBatchBytes());
+			node.get(PEAK_USED_BYTES).set(request.getPeakUsedBytes());
+			node.get(BATCHES_WRITTEN).set(request.getBatchesWritten());
+			node.get(BYTES_WRITTEN).set(request.getBytesWritten());
+			node.get(BYTES_READ).set(request.getBytesRead());
+			node.get(LOB_BYTES_PERSISTED).set(request.getLobBytesPersisted());
 			
 			wrapDomain(request, node);
 			return node;
@@ -1136,6 +1150,15 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 			}
 			request.setState(ProcessingState.valueOf(node.get(STATE).asString()));
 			request.setThreadState(ThreadState.valueOf(node.get(THREAD_STATE).asString()));
+			if (node.has(RESERVED_BYTES)) {
+				request.setReservedBytes(node.get(RESERVED_BYTES).asLong());
+				request.setBatchBytes(node.get(BATCH_BYTES).asLong());
+				request.setPeakUsedBytes(node.get(PEAK_USED_BYTES).asLong());
+				request.setBatchesWritten(node.get(BATCHES_WRITTEN).asLong());
+				request.setBytesWritten(node.get(BYTES_WRITTEN).asLong());
+				request.setBytesRead(node.get(BYTES_READ).asLong());
+				request.setLobBytesPersisted(node.get(LOB_BYTES_PERSISTED).asLong());
+			}
 			
 			unwrapDomain(request, node);
 			return request;
@@ -1151,6 +1174,13 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 			addAttribute(node, TRANSACTION_ID, ModelType.STRING, false);
 			addAttribute(node, STATE, ModelType.STRING, true);
 			addAttribute(node, THREAD_STATE, ModelType.STRING, true);
+			addAttribute(node, RESERVED_BYTES, ModelType.LONG, false);
+			addAttribute(node, BATCH_BYTES, ModelType.LONG, false);
+			addAttribute(node, PEAK_USED_BYTES, ModelType.LONG, false);
+			addAttribute(node, BATCHES_WRITTEN, ModelType.LONG, false);
+			addAttribute(node, BYTES_WRITTEN, ModelType.LONG, false);
+			addAttribute(node, BYTES_READ, ModelType.LONG, false);
+			addAttribute(node, LOB_BYTES_PERSISTED, ModelType.LONG, false);
 			return node; 		
 		}
 	}
@@ -1167,6 +1197,13 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 		private static final String CREATED_TIME = "created-time"; //$NON-NLS-1$
 		private static final String APPLICATION_NAME = "application-name"; //$NON-NLS-1$
 		private static final String CLIENT_HARDWARE_ADRESS = "client-hardware-address"; //$NON-NLS-1$
+		private static final String RESERVED_BYTES = "reserved-bytes"; //$NON-NLS-1$
+		private static final String BATCH_BYTES = "batch-bytes"; //$NON-NLS-1$
+		private static final String PEAK_USED_BYTES = "peak-used-bytes"; //$NON-NLS-1$
+		private static final String BATCHES_WRITTEN = "batches-written"; //$NON-NLS-1$
+		private static final String BYTES_WRITTEN = "bytes-written"; //$NON-NLS-1$
+		private static final String BYTES_READ = "bytes-read"; //$NON-NLS-1$
+		private static final String LOB_BYTES_PERSISTED = "lob-bytes-persisted"; //$NON-NLS-1$
 		
 		public static SessionMetadataMapper INSTANCE = new SessionMetadataMapper();
 		
@@ -1198,6 +1235,13 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 			if (session.getClientHardwareAddress() != null) {
 				node.get(CLIENT_HARDWARE_ADRESS).set(session.getClientHardwareAddress());
 			}
+			node.get(RESERVED_BYTES).set(session.getReservedBytes());
+			node.get(BATCH_BYTES).set(session.getBatchBytes());
+			node.get(PEAK_USED_BYTES).set(session.getPeakUsedBytes());
+			node.get(BATCHES_WRITTEN).set(session.getBatchesWritten());
+			node.get(BYTES_WRITTEN).set(session.getBytesWritten());
+			node.get(BYTES_READ).set(session.getBytesRead());
+			node.get(LOB_BYTES_PERSISTED).set(session.getLobBytesPersisted());
 			wrapDomain(session, node);
 			return node;
 		}
@@ -1231,6 +1275,15 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 			if (node.has(CLIENT_HARDWARE_ADRESS)) {
 				session.setClientHardwareAddress(node.get(CLIENT_HARDWARE_ADRESS).asString());
 			}
+			if (node.has(RESERVED_BYTES)) {
+				session.setReservedBytes(node.get(RESERVED_BYTES).asLong());
+				session.setBatchBytes(node.get(BATCH_BYTES).asLong());
+				session.setPeakUsedBytes(node.get(PEAK_USED_BYTES).asLong());
+				session.setBatchesWritten(node.get(BATCHES_WRITTEN).asLong());
+				session.setBytesWritten(node.get(BYTES_WRITTEN).asLong());
+				session.setBytesRead(node.get(BYTES_READ).asLong());
+				session.setLobBytesPersisted(node.get(LOB_BYTES_PERSISTED).asLong());
+			}
 			unwrapDomain(session, node);
 			return session;
 		}
@@ -1246,6 +1299,13 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 			addAttribute(node, VDB_NAME, ModelType.STRING, true);
 			addAttribute(node, VDB_VERSION, ModelType.INT, true);
 			addAttribute(node, SECURITY_DOMAIN, ModelType.STRING, false);
+			addAttribute(node, RESERVED_BYTES, ModelType.LONG, false);
+			addAttribute(node, BATCH_BYTES, ModelType.LONG, false);
+			addAttribute(node, PEAK_USED_BYTES, ModelType.LONG, false);
+			addAttribute(node, BATCHES_WRITTEN, ModelType.LONG, false);
+			addAttribute(node, BYTES_WRITTEN, ModelType.LONG, false);
+			addAttribute(node, BYTES_READ, ModelType.LONG, false);
+			addAttribute(node, LOB_BYTES_PERSISTED, ModelType.LONG, false);
 			return node;
 		}
 	}	
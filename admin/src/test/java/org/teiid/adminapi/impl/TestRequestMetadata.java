@@ -40,6 +40,8 @@ public class TestRequestMetadata {
 		
 		assertEquals(request, actual);
 		assertEquals(request.getState(), actual.getState());
+		assertEquals(request.getBatchBytes(), actual.getBatchBytes());
+		assertEquals(request.getPeakUsedBytes(), actual.getPeakUsedBytes());
 	}
 
 	private RequestMetadata buildRequest() {
@@ -53,6 +55,8 @@ public class TestRequestMetadata {
 		request.setStartTime(12345L);
 		request.setTransactionId("transaction-id");//$NON-NLS-1$
 		request.setThreadState(ThreadState.RUNNING);
+		request.setBatchBytes(1 << 19);
+		request.setPeakUsedBytes(1 << 20);
 		//request.setNodeId(1);
 		return request;
 	}
@@ -120,6 +124,55 @@ public class TestRequestMetadata {
 			"        },\n" + 
 			"        \"description\" : \"Thread state\",\n" + 
 			"        \"required\" : true\n" + 
+			"    },\n" + 
+			"    \"reserved-bytes\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Buffer bytes currently reserved for processing\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"batch-bytes\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Bytes of batches held in memory\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"peak-used-bytes\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Maximum of the reserved bytes plus the batch bytes\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"batches-written\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Number of batches written to buffer storage\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"bytes-written\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Bytes of batches written to buffer storage\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"bytes-read\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Bytes of batches read from buffer storage\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"lob-bytes-persisted\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Bytes of lob values persisted to buffer storage\",\n" + 
+			"        \"required\" : false\n" + 
 			"    }\n" + 
 			"}";
 	@Test public void testDescribe() {
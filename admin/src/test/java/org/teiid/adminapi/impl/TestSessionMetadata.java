@@ -41,6 +41,8 @@ public class TestSessionMetadata {
 		session.setVDBVersion(2);
 		session.setSecurityContext("auth-domain");
 		session.setUserName("user");
+		session.setBatchBytes(1 << 19);
+		session.setPeakUsedBytes(1 << 20);
 
 		ModelNode node = VDBMetadataMapper.SessionMetadataMapper.INSTANCE.wrap(session, new ModelNode());
 		
@@ -48,6 +50,8 @@ public class TestSessionMetadata {
 		
 		assertEquals(session.getSessionId(), session1.getSessionId());
 		assertEquals(session.getApplicationName(), session1.getApplicationName());
+		assertEquals(session.getBatchBytes(), session1.getBatchBytes());
+		assertEquals(session.getPeakUsedBytes(), session1.getPeakUsedBytes());
 		
 	}
 	
@@ -121,6 +125,55 @@ public class TestSessionMetadata {
 			"        },\n" + 
 			"        \"description\" : \"Security domain that session used for login\",\n" + 
 			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"reserved-bytes\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Buffer bytes currently reserved for processing\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"batch-bytes\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Bytes of batches held in memory\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"peak-used-bytes\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Maximum of the reserved bytes plus the batch bytes\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"batches-written\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Number of batches written to buffer storage\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"bytes-written\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Bytes of batches written to buffer storage\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"bytes-read\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Bytes of batches read from buffer storage\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"lob-bytes-persisted\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Bytes of lob values persisted to buffer storage\",\n" + 
+			"        \"required\" : false\n" + 
 			"    }\n" + 
 			"}"; 
 	
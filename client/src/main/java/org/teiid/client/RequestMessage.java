@@ -95,6 +95,7 @@ public class RequestMessage implements Externalizable {
     private int transactionIsolation;
     private boolean noExec;
     private boolean autoGeneratedKeys;
+    private int streamingWindow;
     
     /*
      * Used by embedded connections, could change if we add support
@@ -402,6 +403,8 @@ public class RequestMessage implements Externalizable {
 		try {
 			//8.3 property
 			this.autoGeneratedKeys = in.readBoolean();
+			//8.4 property
+			this.streamingWindow = in.readInt();
 		} catch (OptionalDataException e) {
 		} catch (EOFException e) {
 		}
@@ -430,6 +433,7 @@ public class RequestMessage implements Externalizable {
 		out.writeInt(transactionIsolation);
 		out.writeBoolean(noExec);
 		out.writeBoolean(autoGeneratedKeys);
+		out.writeInt(streamingWindow);
 	}
 
 	public RequestOptions getRequestOptions() {
@@ -451,4 +455,16 @@ public class RequestMessage implements Externalizable {
 		return this.autoGeneratedKeys;
 	}
 	
+	/**
+	 * The number of rows beyond those requested that the server may 
+	 * produce for a forward only cursor.  0 means the server default.
+	 */
+	public int getStreamingWindow() {
+		return streamingWindow;
+	}
+	
+	public void setStreamingWindow(int streamingWindow) {
+		this.streamingWindow = streamingWindow;
+	}
+	
 }
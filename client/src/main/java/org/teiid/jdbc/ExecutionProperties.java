@@ -117,6 +117,24 @@ public interface ExecutionProperties {
     
     public static final String JDBC4COLUMNNAMEANDLABELSEMANTICS = "useJDBC4ColumnNameAndLabelSemantics"; //$NON-NLS-1$
     
+    /**
+     * The fraction (0-1] of the current batch that a forward only cursor must consume 
+     * before the next batch is requested in the background.  
+     * Not set or 0 disables read ahead.
+     */
+    public static final String READ_AHEAD_THRESHOLD = "readAheadThreshold"; //$NON-NLS-1$
+    
+    /**
+     * The number of rows a forward only cursor allows the server to produce ahead 
+     * of the rows that have been consumed.  When set the client will keep a 
+     * batch request outstanding so that the server sends each batch as soon 
+     * as it is produced.  Consumed rows are returned as credits with each request.
+     * <br>
+     * By default the window can only reduce the server's output buffer of 20 batches.
+     * A larger window is honored only up to the server's maxStreamingWindow setting. 
+     */
+    public static final String STREAMING_WINDOW = "streamingWindow"; //$NON-NLS-1$
+    
     
 }
     
\ No newline at end of file
@@ -63,7 +63,9 @@ public class JDBCURL {
 	            ExecutionProperties.PROP_XML_VALIDATION,
 	            EmbeddedProfile.USE_CALLING_THREAD,
 	            ExecutionProperties.DISABLE_LOCAL_TRANSACTIONS,
-	            ExecutionProperties.JDBC4COLUMNNAMEANDLABELSEMANTICS}) {
+	            ExecutionProperties.JDBC4COLUMNNAMEANDLABELSEMANTICS,
+	            ExecutionProperties.READ_AHEAD_THRESHOLD,
+	            ExecutionProperties.STREAMING_WINDOW}) {
 			result.put(key, key);
 		}
 		return result;
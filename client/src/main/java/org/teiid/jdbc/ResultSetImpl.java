@@ -95,6 +95,13 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
 	//results requested
 	private ResultsFuture<ResultsMessage> asynchResults;
     boolean asynch;
+    
+    //read ahead state for forward only cursors
+    private float readAheadThreshold;
+    private boolean streaming;
+    private ResultsFuture<ResultsMessage> readAheadResults;
+    private int readAheadBeginRow;
+    private int lastBatchRows;
 
 	/**
 	 * Constructor.
@@ -132,11 +139,32 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
 			rmetadata = new FilteredResultsMetadata(rmetadata, resultColumns);
 		}
 		this.fetchSize = statement.getFetchSize();
+		if (this.cursorType == ResultSet.TYPE_FORWARD_ONLY) {
+			this.readAheadThreshold = getReadAheadThreshold(statement.getExecutionProperty(ExecutionProperties.READ_AHEAD_THRESHOLD));
+			//keep a request outstanding so that the server can send each batch as it's produced
+			this.streaming = StatementImpl.getStreamingWindow(statement.getExecutionProperty(ExecutionProperties.STREAMING_WINDOW)) > 0;
+		}
 		if (logger.isLoggable(Level.FINER)) {
 			logger.finer("Creating ResultSet requestID: " + requestID + " beginRow: " + resultsMsg.getFirstRow() + " resultsColumns: " + resultColumns + " parameters: " + parameters); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 		}
 	}
 	
+	static float getReadAheadThreshold(String value) {
+		if (value == null) {
+			return 0;
+		}
+		try {
+			float result = Float.parseFloat(value);
+			if (result > 0 && result <= 1) {
+				return result;
+			}
+		} catch (NumberFormatException e) {
+			//ignore
+		}
+		logger.warning(JDBCPlugin.Util.getString("ResultsImpl.invalid_read_ahead", value)); //$NON-NLS-1$
+		return 0;
+	}
+	
 	public void setMaxFieldSize(int maxFieldSize) {
 		this.maxFieldSize = maxFieldSize;
 	}
@@ -156,6 +184,7 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
 					throw TeiidSQLException.create(e);
 				}
     		}
+    		this.readAheadResults = null;
             isClosed = true;
         }
     }
@@ -240,7 +269,11 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
     public boolean next() throws SQLException {
         checkClosed();
         if (hasNext()) {
-    		return batchResults.next();
+    		boolean result = batchResults.next();
+    		if (this.streaming || this.readAheadThreshold > 0) {
+    			readAhead();
+    		}
+    		return result;
     	}
         batchResults.next();
     	return false;
@@ -351,10 +384,42 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
     	return updatedPlanDescription;
     }
     
+    /**
+     * Issue the request for the next batch in the background once the
+     * cursor has consumed the threshold fraction of the last batch received,
+     * or immediately when streaming.  The server may return fewer rows than
+     * the fetch size, so the received batch size is used rather than the fetch size.
+     */
+    private void readAhead() throws SQLException {
+    	if (this.readAheadResults != null || this.asynch || this.requestID < 0 || batchResults.getFinalRowNumber() != -1) {
+    		return;
+    	}
+    	int current = batchResults.getCurrentRowNumber();
+    	int highest = batchResults.getHighestRowNumber();
+    	int batchSize = Math.max(1, this.lastBatchRows);
+    	if (!this.streaming && highest - current > batchSize * (1 - this.readAheadThreshold)) {
+    		return;
+    	}
+    	this.readAheadBeginRow = highest + 1;
+    	this.readAheadResults = submitRequestBatch(this.readAheadBeginRow);
+    }
+    
     public Batch requestBatch(int beginRow) throws SQLException{
     	checkClosed();
         try {
-        	ResultsFuture<ResultsMessage> results = submitRequestBatch(beginRow);
+        	ResultsFuture<ResultsMessage> results = null;
+        	if (this.readAheadResults != null) {
+        		if (this.readAheadBeginRow == beginRow) {
+        			results = this.readAheadResults;
+        		} else {
+        			//wait for the outstanding request so that the replies are not interleaved
+        			getResults(this.readAheadResults);
+        		}
+        		this.readAheadResults = null;
+        	}
+        	if (results == null) {
+        		results = submitRequestBatch(beginRow);
+        	}
         	if (asynch && !results.isDone()) {
         		synchronized (this) {
             		asynchResults = results;
@@ -419,6 +484,7 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
 	private Batch getCurrentBatch(ResultsMessage currentResultMsg) {
 		this.updatedPlanDescription = currentResultMsg.getPlanDescription();
 		Batch result = new Batch(currentResultMsg.getResults(), currentResultMsg.getFirstRow(), currentResultMsg.getLastRow());
+		this.lastBatchRows = result.getLength();
 		result.setLastRow(currentResultMsg.getFinalRow());
 		return result;
 	}
@@ -898,6 +898,25 @@ public class StatementImpl extends WrapperImpl implements TeiidStatement {
         if (noExec != null) {
     		res.setNoExec(noExec.equalsIgnoreCase("ON")); //$NON-NLS-1$
         }
+        if (res.getCursorType() == ResultSet.TYPE_FORWARD_ONLY) {
+        	res.setStreamingWindow(getStreamingWindow(getExecutionProperty(ExecutionProperties.STREAMING_WINDOW)));
+        }
+    }
+    
+    static int getStreamingWindow(String value) {
+    	if (value == null) {
+    		return 0;
+    	}
+    	try {
+    		int result = Integer.parseInt(value);
+    		if (result >= 0) {
+    			return result;
+    		}
+    	} catch (NumberFormatException e) {
+    		//ignore
+    	}
+    	logger.warning(JDBCPlugin.Util.getString("MMStatement.invalid_streaming_window", value)); //$NON-NLS-1$
+    	return 0;
     }
 
     /**
@@ -41,6 +41,7 @@ public class Handshake implements Externalizable {
     private String version = ApplicationInfo.getInstance().getReleaseNumber();
     private byte[] publicKey;
     private AuthenticationType authType = AuthenticationType.CLEARTEXT;
+    private boolean compression;
     
     /** 
      * @return Returns the version.
@@ -78,6 +79,18 @@ public class Handshake implements Externalizable {
 		this.authType = authType;
 	}
     
+    /**
+     * Sent by the server if it will compress large messages, the client
+     * returns true if it accepts compressed messages.
+     */
+    public boolean isCompression() {
+		return compression;
+	}
+    
+    public void setCompression(boolean compression) {
+		this.compression = compression;
+	}
+    
     @Override
     public void readExternal(ObjectInput in) throws IOException,
     		ClassNotFoundException {
@@ -85,6 +98,7 @@ public class Handshake implements Externalizable {
     	publicKey = (byte[])in.readObject();
     	try {
     		authType = AuthenticationType.values()[in.readByte()];
+    		compression = in.readBoolean();
     	} catch (EOFException e) {
     		
     	}
@@ -95,6 +109,7 @@ public class Handshake implements Externalizable {
     	out.writeObject(version);
     	out.writeObject(publicKey);
     	out.writeByte(authType.ordinal());
+    	out.writeBoolean(compression);
     }
     
 }
@@ -0,0 +1,667 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.net.socket;
+
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.teiid.client.util.ResultsFuture;
+import org.teiid.client.util.ResultsReceiver;
+import org.teiid.core.util.AccessibleBufferedInputStream;
+import org.teiid.core.util.NamedThreadFactory;
+import org.teiid.core.util.PropertiesUtils;
+import org.teiid.net.CommunicationException;
+import org.teiid.netty.handler.codec.serialization.ObjectDecoderInputStream;
+import org.teiid.netty.handler.codec.serialization.ObjectEncoderOutputStream;
+
+/**
+ * An {@link ObjectChannelFactory} using non-blocking sockets.  All channels created by 
+ * a factory share a small number of selector threads that perform the socket reads and writes.
+ * <br/>
+ * The selector thread decodes each message as soon as it has been fully received.  The message is 
+ * passed to the channel listener, see {@link NioObjectChannel#setListener(ResultsReceiver)}, or 
+ * is queued for {@link ObjectChannel#read()} if there is no listener.
+ * <br/>
+ * SSL connections are delegated to the {@link OioOjbectChannelFactory}.
+ */
+public final class NioObjectChannelFactory implements ObjectChannelFactory {
+	
+	private final static int STREAM_BUFFER_SIZE = 1<<13;
+	private final static int DEFAULT_MAX_OBJECT_SIZE = 1 << 25;
+	private final static int MAX_POOLED_BUFFERS = 4;
+	
+	private static Logger log = Logger.getLogger("org.teiid.client.sockets"); //$NON-NLS-1$
+	private static NamedThreadFactory threadFactory = new NamedThreadFactory("Teiid NIO Client "); //$NON-NLS-1$
+	
+	/**
+	 * Performs the socket operations for the channels registered with its {@link Selector}
+	 */
+	final static class IoThread implements Runnable {
+		private final Selector selector;
+		private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+		
+		private volatile boolean shutdown;
+		
+		IoThread() throws IOException {
+			this.selector = Selector.open();
+		}
+		
+		/**
+		 * Run the task on the selector thread
+		 */
+		void execute(Runnable task) {
+			tasks.add(task);
+			selector.wakeup();
+			if (shutdown) {
+				//the thread may have already finished
+				runTasks();
+			}
+		}
+		
+		/**
+		 * Stop the thread, which will close the registered channels and the selector
+		 */
+		void shutdown() {
+			shutdown = true;
+			selector.wakeup();
+		}
+		
+		@Override
+		public void run() {
+			try {
+				while (!shutdown) {
+					try {
+						selector.select();
+					} catch (IOException e) {
+						log.log(Level.WARNING, "Unexpected selector exception", e); //$NON-NLS-1$
+						continue;
+					}
+					runTasks();
+					Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+					while (iter.hasNext()) {
+						SelectionKey key = iter.next();
+						iter.remove();
+						NioObjectChannel channel = (NioObjectChannel)key.attachment();
+						try {
+							if (key.isReadable()) {
+								channel.doRead();
+							}
+							if (key.isValid() && key.isWritable()) {
+								channel.doWrite();
+							}
+						} catch (CancelledKeyException e) {
+							channel.close();
+						} catch (IOException e) {
+							channel.closed(e);
+						} catch (RuntimeException e) {
+							//don't let a single channel stop the servicing of the others
+							log.log(Level.WARNING, "Unexpected exception processing channel " + channel.getRemoteAddress(), e); //$NON-NLS-1$
+							channel.closed(new IOException(e));
+						}
+					}
+				}
+			} finally {
+				close();
+			}
+		}
+		
+		private void close() {
+			try {
+				for (SelectionKey key : selector.keys()) {
+					((NioObjectChannel)key.attachment()).close();
+				}
+				selector.close();
+			} catch (IOException e) {
+				log.log(Level.FINE, "Exception closing selector", e); //$NON-NLS-1$
+			} catch (RuntimeException e) {
+				log.log(Level.FINE, "Exception closing selector", e); //$NON-NLS-1$
+			}
+			runTasks();
+		}
+		
+		private void runTasks() {
+			Runnable task = null;
+			while ((task = tasks.poll()) != null) {
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					log.log(Level.WARNING, "Unexpected exception running selector task", e); //$NON-NLS-1$
+				}
+			}
+		}
+	}
+	
+	final static class NioObjectChannel implements ObjectChannel {
+		private final SocketChannel socketChannel;
+		private final IoThread ioThread;
+		private final int soTimeout;
+		private volatile SelectionKey key;
+		
+		private final ObjectOutputStream outputStream;
+		private final List<ByteBuffer> encoded = new ArrayList<ByteBuffer>();
+		private final LinkedList<ByteBuffer> outgoing = new LinkedList<ByteBuffer>();
+		private final LinkedList<ResultsFuture<Void>> outgoingFutures = new LinkedList<ResultsFuture<Void>>();
+		private final LinkedList<ByteBuffer> pool = new LinkedList<ByteBuffer>();
+		
+		private final ObjectDecoderInputStream inputStream;
+		private ByteBuffer inBuffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+		private final LinkedList<Object> received = new LinkedList<Object>();
+		private ResultsReceiver<Object> listener;
+		private boolean eof;
+		private IOException failure;
+		
+		/**
+		 * The received bytes.  Only used by the selector thread. 
+		 */
+		private final InputStream in = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				if (!inBuffer.hasRemaining()) {
+					return -1;
+				}
+				return inBuffer.get() & 0xff;
+			}
+			
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if (!inBuffer.hasRemaining()) {
+					return -1;
+				}
+				len = Math.min(len, inBuffer.remaining());
+				inBuffer.get(b, off, len);
+				return len;
+			}
+			
+			@Override
+			public int available() throws IOException {
+				return inBuffer.remaining();
+			}
+		};
+		
+		/**
+		 * Copies the encoded bytes into buffers, which are queued once the whole message is encoded
+		 */
+		private final OutputStream out = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				getEncodeBuffer().put((byte)b);
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				while (len > 0) {
+					ByteBuffer buffer = getEncodeBuffer();
+					int toCopy = Math.min(len, buffer.remaining());
+					buffer.put(b, off, toCopy);
+					off += toCopy;
+					len -= toCopy;
+				}
+			}
+		};
+		
+		private final Runnable flush = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					doWrite();
+				} catch (IOException e) {
+					closed(e);
+				}
+			}
+		};
+		
+		NioObjectChannel(SocketChannel socketChannel, IoThread ioThread, int maxObjectSize, int soTimeout) throws IOException {
+			log.fine("creating new NioObjectChannel"); //$NON-NLS-1$
+			this.socketChannel = socketChannel;
+			this.ioThread = ioThread;
+			this.soTimeout = soTimeout;
+			this.outputStream = new ObjectEncoderOutputStream(new DataOutputStream(out), STREAM_BUFFER_SIZE);
+			this.inputStream = new ObjectDecoderInputStream(new AccessibleBufferedInputStream(in, STREAM_BUFFER_SIZE), this.getClass().getClassLoader(), maxObjectSize);
+		}
+		
+		void register() throws IOException {
+			final IOException[] result = new IOException[1];
+			final ResultsFuture<Void> registered = new ResultsFuture<Void>();
+			ioThread.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						key = socketChannel.register(ioThread.selector, SelectionKey.OP_READ, NioObjectChannel.this);
+					} catch (IOException e) {
+						result[0] = e;
+					} catch (RuntimeException e) {
+						//the selector has been closed
+						result[0] = new IOException(e);
+					} finally {
+						registered.getResultsReceiver().receiveResults(null);
+					}
+				}
+			});
+			try {
+				registered.get();
+			} catch (Exception e) {
+				throw new IOException(e.getMessage());
+			}
+			if (result[0] != null) {
+				throw result[0];
+			}
+		}
+		
+		/**
+		 * Pass each received message to the listener rather than queuing it for {@link #read()}.
+		 * The listener is called by the selector thread, so it must not block.
+		 * A closed channel is reported to the listener as an exception.
+		 */
+		void setListener(ResultsReceiver<Object> listener) {
+			List<Object> messages = null;
+			IOException e = null;
+			synchronized (received) {
+				this.listener = listener;
+				messages = new ArrayList<Object>(received);
+				received.clear();
+				if (eof) {
+					e = failure != null?failure:new EOFException();
+				}
+			}
+			for (Object message : messages) {
+				listener.receiveResults(message);
+			}
+			if (e != null) {
+				listener.exceptionOccurred(e);
+			}
+		}
+		
+		/**
+		 * Called by the selector thread when the socket is readable.  Each message 
+		 * that has been fully received is decoded and dispatched.
+		 */
+		void doRead() throws IOException {
+			int read = socketChannel.read(inBuffer);
+			if (read < 0) {
+				closed(new EOFException());
+				return;
+			}
+			if (read == 0) {
+				return;
+			}
+			inBuffer.flip();
+			try {
+				Object message = null;
+				while ((message = inputStream.readAvailableObject()) != null) {
+					received(message);
+				}
+			} catch (ClassNotFoundException e) {
+				throw new IOException(e);
+			} finally {
+				inBuffer.compact();
+			}
+			if (!inBuffer.hasRemaining()) {
+				//the message is larger than the buffer
+				inBuffer = resize(inBuffer.capacity() << 1);
+			} else if (inBuffer.capacity() > STREAM_BUFFER_SIZE && inBuffer.position() < STREAM_BUFFER_SIZE) {
+				//don't hold onto the larger buffer
+				inBuffer = resize(STREAM_BUFFER_SIZE);
+			}
+		}
+		
+		private ByteBuffer resize(int size) {
+			ByteBuffer buffer = ByteBuffer.allocate(size);
+			inBuffer.flip();
+			buffer.put(inBuffer);
+			return buffer;
+		}
+		
+		private void received(Object message) {
+			ResultsReceiver<Object> receiver = null;
+			synchronized (received) {
+				receiver = this.listener;
+				if (receiver == null) {
+					received.add(message);
+					received.notifyAll();
+					return;
+				}
+			}
+			receiver.receiveResults(message);
+		}
+		
+		/**
+		 * Called by the selector thread when the socket is writable or a write is pending
+		 */
+		void doWrite() throws IOException {
+			synchronized (outgoing) {
+				writePending();
+				if (key == null || !key.isValid()) {
+					return;
+				}
+				if (outgoing.isEmpty()) {
+					key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+				} else {
+					key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+				}
+			}
+		}
+
+		/**
+		 * Write as much of the pending data as possible without blocking. 
+		 * @return true if all pending data was written 
+		 */
+		private boolean writePending() throws IOException {
+			while (!outgoing.isEmpty()) {
+				ByteBuffer buffer = outgoing.getFirst();
+				socketChannel.write(buffer);
+				if (buffer.hasRemaining()) {
+					return false;
+				}
+				outgoing.removeFirst();
+				if (pool.size() < MAX_POOLED_BUFFERS) {
+					buffer.clear();
+					pool.add(buffer);
+				}
+				ResultsFuture<Void> future = outgoingFutures.removeFirst();
+				if (future != null) {
+					future.getResultsReceiver().receiveResults(null);
+				}
+			}
+			return true;
+		}
+		
+		/**
+		 * Get the buffer to encode into, which is taken from the pool when the last one is full
+		 */
+		private ByteBuffer getEncodeBuffer() {
+			if (!encoded.isEmpty()) {
+				ByteBuffer buffer = encoded.get(encoded.size() - 1);
+				if (buffer.hasRemaining()) {
+					return buffer;
+				}
+			}
+			ByteBuffer buffer = null;
+			synchronized (outgoing) {
+				buffer = pool.poll();
+			}
+			if (buffer == null) {
+				buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+			}
+			encoded.add(buffer);
+			return buffer;
+		}
+		
+		void closed(IOException e) {
+			synchronized (received) {
+				if (this.failure == null && !eof) {
+					this.failure = e;
+				}
+			}
+			close();
+		}
+
+		@Override
+		public void close() {
+			log.finer("closing socket"); //$NON-NLS-1$
+			try {
+				socketChannel.close();
+			} catch (IOException e) {
+				// ignore
+			}
+			ResultsReceiver<Object> receiver = null;
+			IOException e = null;
+			synchronized (received) {
+				if (!eof) {
+					eof = true;
+					receiver = listener;
+					e = failure != null?failure:new EOFException();
+				}
+				received.notifyAll();
+			}
+			List<ResultsFuture<Void>> futures = null;
+			synchronized (outgoing) {
+				futures = new ArrayList<ResultsFuture<Void>>(outgoingFutures);
+				outgoing.clear();
+				outgoingFutures.clear();
+				pool.clear();
+			}
+			for (ResultsFuture<Void> future : futures) {
+				if (future != null) {
+					future.getResultsReceiver().exceptionOccurred(new EOFException());
+				}
+			}
+			if (receiver != null) {
+				receiver.exceptionOccurred(e);
+			}
+		}
+
+		@Override
+		public SocketAddress getRemoteAddress() {
+			return socketChannel.socket().getRemoteSocketAddress();
+		}
+
+		@Override
+		public boolean isOpen() {
+			return socketChannel.isOpen();
+		}
+
+		/**
+		 * Wait for the next received message.  Should not be used once a listener has been set.
+		 */
+		@Override
+		public Object read() throws IOException, ClassNotFoundException {
+			log.finer("reading message from socket"); //$NON-NLS-1$
+			synchronized (received) {
+				long timeout = soTimeout;
+				long end = System.currentTimeMillis() + timeout;
+				while (received.isEmpty()) {
+					if (failure != null) {
+						throw failure;
+					}
+					if (eof) {
+						throw new EOFException();
+					}
+					if (timeout <= 0 && soTimeout > 0) {
+						throw new SocketTimeoutException();
+					}
+					try {
+						received.wait(soTimeout > 0?timeout:0);
+					} catch (InterruptedException e) {
+						throw new IOException(e.getMessage());
+					}
+					timeout = end - System.currentTimeMillis();
+				}
+				return received.removeFirst();
+			}
+		}
+
+		@Override
+		public synchronized Future<?> write(Object msg) {
+			log.finer("writing message to socket"); //$NON-NLS-1$
+		    ResultsFuture<Void> result = new ResultsFuture<Void>();
+		    try {
+		        outputStream.writeObject(msg);
+		        outputStream.flush();
+		        synchronized (outgoing) {
+		        	boolean idle = outgoing.isEmpty();
+		        	for (int i = 0; i < encoded.size(); i++) {
+		        		ByteBuffer buffer = encoded.get(i);
+		        		buffer.flip();
+		        		outgoing.add(buffer);
+		        		//the write is complete with the last buffer
+		        		outgoingFutures.add(i == encoded.size() - 1?result:null);
+		        	}
+		        	encoded.clear();
+		        	//try to write from the calling thread, if not the selector thread will finish
+		        	if (idle && writePending()) {
+		        		return result;
+		        	}
+				}
+		        ioThread.execute(flush);
+		    } catch (IOException e) {
+		    	encoded.clear();
+		        close();
+		        if (!result.isDone()) {
+		        	result.getResultsReceiver().exceptionOccurred(e);
+		        }
+		    }
+		    return result;
+		}
+	}
+
+	private Properties props;
+	private int receiveBufferSize = 0;
+	private int sendBufferSize = 0;
+	private boolean conserveBandwidth;
+	private int soTimeout = 3000;
+	private int maxObjectSize = DEFAULT_MAX_OBJECT_SIZE;
+	private int ioThreads = 2;
+	private IoThread[] threads;
+	private AtomicInteger nextThread = new AtomicInteger();
+	private volatile OioOjbectChannelFactory sslChannelFactory;
+
+	public NioObjectChannelFactory(Properties props) {
+		this.props = props;
+		PropertiesUtils.setBeanProperties(this, props, "org.teiid.sockets"); //$NON-NLS-1$
+	}
+
+	@Override
+	public ObjectChannel createObjectChannel(SocketAddress address, boolean ssl) throws IOException,
+			CommunicationException {
+		if (ssl) {
+			if (this.sslChannelFactory == null) {
+				this.sslChannelFactory = new OioOjbectChannelFactory(props);
+			}
+			return this.sslChannelFactory.createObjectChannel(address, ssl);
+		}
+		SocketChannel channel = SocketChannel.open();
+		try {
+			Socket socket = channel.socket();
+			if (receiveBufferSize > 0) {
+				socket.setReceiveBufferSize(receiveBufferSize);
+			}
+			if (sendBufferSize > 0) {
+				socket.setSendBufferSize(sendBufferSize);
+			}
+		    socket.setTcpNoDelay(!conserveBandwidth); // enable Nagle's algorithm to conserve bandwidth
+		    socket.connect(address, soTimeout);
+		    channel.configureBlocking(false);
+		    NioObjectChannel result = new NioObjectChannel(channel, getIoThread(), maxObjectSize, soTimeout);
+		    result.register();
+		    return result;
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	private synchronized IoThread getIoThread() throws IOException {
+		if (threads == null) {
+			IoThread[] newThreads = new IoThread[Math.max(1, ioThreads)];
+			for (int i = 0; i < newThreads.length; i++) {
+				newThreads[i] = new IoThread();
+				threadFactory.newThread(newThreads[i]).start();
+			}
+			threads = newThreads;
+		}
+		return threads[(nextThread.getAndIncrement() & Integer.MAX_VALUE) % threads.length];
+	}
+	
+	/**
+	 * Stop the selector threads and close the non-SSL channels created by this factory.
+	 * New channels may still be created, which will start new threads. 
+	 */
+	public synchronized void shutdown() {
+		if (threads != null) {
+			for (IoThread thread : threads) {
+				thread.shutdown();
+			}
+			threads = null;
+		}
+	}
+	
+	public int getSendBufferSize() {
+		return sendBufferSize;
+	}
+
+	public void setSendBufferSize(int sendBufferSize) {
+		this.sendBufferSize = sendBufferSize;
+	}
+
+	public int getReceiveBufferSize() {
+		return receiveBufferSize;
+	}
+
+	public void setReceiveBufferSize(int receiveBufferSize) {
+		this.receiveBufferSize = receiveBufferSize;
+	}
+
+	public boolean isConserveBandwidth() {
+		return conserveBandwidth;
+	}
+
+	public void setConserveBandwidth(boolean conserveBandwidth) {
+		this.conserveBandwidth = conserveBandwidth;
+	}
+	
+	public void setSoTimeout(int soTimeout) {
+		this.soTimeout = soTimeout;
+	}
+	
+	public int getSoTimeout() {
+		return soTimeout;
+	}
+	
+	public void setMaxObjectSize(int maxObjectSize) {
+		this.maxObjectSize = maxObjectSize;
+	}
+	
+	/**
+	 * The number of selector threads shared by all channels from this factory.
+	 */
+	public void setIoThreads(int ioThreads) {
+		this.ioThreads = ioThreads;
+	}
+	
+	public int getIoThreads() {
+		return ioThreads;
+	}
+
+}
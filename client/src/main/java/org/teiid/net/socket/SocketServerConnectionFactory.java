@@ -152,6 +152,7 @@ public class SocketServerConnectionFactory implements ServerConnectionFactory, S
 	//config properties
 	private long synchronousTtl = 240000l;
 	private int maxCachedInstances=16;
+	private boolean nio;
 
 	public static synchronized SocketServerConnectionFactory getInstance() {
 		if (INSTANCE == null) {
@@ -227,7 +228,11 @@ public class SocketServerConnectionFactory implements ServerConnectionFactory, S
 				}
 			}
 		}, ServerConnection.PING_INTERVAL, ServerConnection.PING_INTERVAL);
-		this.channelFactory = new OioOjbectChannelFactory(info);
+		if (nio) {
+			this.channelFactory = new NioObjectChannelFactory(info);
+		} else {
+			this.channelFactory = new OioOjbectChannelFactory(info);
+		}
 	}
 	
 	@Override
@@ -349,6 +354,30 @@ public class SocketServerConnectionFactory implements ServerConnectionFactory, S
 		this.maxCachedInstances = maxCachedInstances;
 	}
 	
+	/**
+	 * Stop the keep-alive pings and release the resources of the channel factory.
+	 * Should only be called once the connections from this factory are no longer in use.
+	 */
+	public void shutdown() {
+		if (this.pingTimer != null) {
+			this.pingTimer.cancel();
+		}
+		if (this.channelFactory instanceof NioObjectChannelFactory) {
+			((NioObjectChannelFactory)this.channelFactory).shutdown();
+		}
+	}
+	
+	public boolean isNio() {
+		return nio;
+	}
+	
+	/**
+	 * Use non-blocking sockets serviced by a shared set of selector threads.
+	 */
+	public void setNio(boolean nio) {
+		this.nio = nio;
+	}
+	
 	@Override
 	public void connected(SocketServerInstance instance, SessionToken session) {
 		synchronized (sessions) {
@@ -56,6 +56,7 @@ import org.teiid.core.crypto.NullCryptor;
 import org.teiid.jdbc.JDBCPlugin;
 import org.teiid.net.CommunicationException;
 import org.teiid.net.HostInfo;
+import org.teiid.net.socket.NioObjectChannelFactory.NioObjectChannel;
 
 
 /**
@@ -81,6 +82,7 @@ public class SocketServerInstanceImpl implements SocketServerInstance {
     private HashMap<Class<?>, Object> serviceMap = new HashMap<Class<?>, Object>();
     
     private boolean hasReader;
+    private volatile boolean dispatched;
     
     public SocketServerInstanceImpl(HostInfo info, long synchTimeout) {
     	if (!info.isResolved()) {
@@ -101,6 +103,21 @@ public class SocketServerInstanceImpl implements SocketServerInstance {
         	this.socketChannel.close();
         	throw e;
         }
+        if (this.socketChannel instanceof NioObjectChannel) {
+        	//the selector thread decodes each message, so the callers don't need to read
+        	((NioObjectChannel)this.socketChannel).setListener(new ResultsReceiver<Object>() {
+        		@Override
+        		public void receiveResults(Object results) {
+        			receivedMessage(results);
+        		}
+        		
+        		@Override
+        		public void exceptionOccurred(Throwable e) {
+        			SocketServerInstanceImpl.this.exceptionOccurred(e);
+        		}
+        	});
+        	this.dispatched = true;
+        }
     }
     
     @Override
@@ -239,6 +256,10 @@ public class SocketServerInstanceImpl implements SocketServerInstance {
     }
     
     public void read(long timeout, TimeUnit unit, ResultsFuture<?> future) throws TimeoutException, InterruptedException {
+    	if (dispatched) {
+    		//the message will be passed to the future's receiver by the channel
+    		return;
+    	}
     	long timeoutMillis = (int)Math.min(unit.toMillis(timeout), Integer.MAX_VALUE);
 		long start = System.currentTimeMillis();
 		while (!future.isDone()) {
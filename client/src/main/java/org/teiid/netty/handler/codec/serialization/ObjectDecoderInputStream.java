@@ -24,12 +24,12 @@ package org.teiid.netty.handler.codec.serialization;
 
 import java.io.*;
 import java.util.List;
+import java.util.zip.InflaterInputStream;
 
 import org.teiid.core.types.InputStreamFactory;
 import org.teiid.core.types.InputStreamFactory.StreamFactoryReference;
 import org.teiid.core.util.AccessibleBufferedInputStream;
 import org.teiid.core.util.ExternalizeUtil;
-import org.teiid.core.util.ObjectConverterUtil;
 import org.teiid.jdbc.JDBCPlugin;
 
 
@@ -51,6 +51,7 @@ public class ObjectDecoderInputStream extends ObjectInputStream {
 
     private int remaining;
     private boolean foundLength;
+    private boolean compressed;
     
     private InputStream subStream = new InputStream() {
     	
@@ -91,11 +92,33 @@ public class ObjectDecoderInputStream extends ObjectInputStream {
     @Override
     protected final Object readObjectOverride() throws IOException,
     		ClassNotFoundException {
+    	return decode(true);
+    }
+    
+    /**
+     * Read the next object only from the bytes that have already been received.
+     * The underlying stream must report all of the received bytes as available.
+     * @return the object or null if more bytes are needed, in which case the next 
+     * call will resume from where this one stopped
+     */
+    public Object readAvailableObject() throws IOException, ClassNotFoundException {
+    	return decode(false);
+    }
+    
+    private Object decode(boolean block) throws IOException, ClassNotFoundException {
     	if (result == null) {
 	        if (!foundLength) {
 	        	clearRemaining();
+	        	if (!block && in.available() < 4) {
+	        		return null;
+	        	}
 	        	remaining = dis.readInt();
 	        	foundLength = true;
+	        	//a negative length indicates a compressed object
+	        	compressed = remaining < 0;
+	        	if (compressed) {
+	        		remaining = -remaining;
+	        	}
 	        	if (remaining <= 0) {
 	    		    throw new StreamCorruptedException("invalid data length: " + remaining); //$NON-NLS-1$
 	    		}
@@ -103,20 +126,34 @@ public class ObjectDecoderInputStream extends ObjectInputStream {
 	    		    throw new StreamCorruptedException(JDBCPlugin.Util.gs(JDBCPlugin.Event.TEIID20028, remaining, maxObjectSize));
 	    		}
 	        }
+	        if (!block && in.available() < remaining) {
+	        	return null;
+	        }
 	        foundLength = false;
-	        CompactObjectInputStream cois = new CompactObjectInputStream(subStream, classLoader);
+	        InputStream is = subStream;
+	        if (compressed) {
+	        	int length = new DataInputStream(subStream).readInt();
+	        	if (length > maxObjectSize) {
+	    		    throw new StreamCorruptedException(JDBCPlugin.Util.gs(JDBCPlugin.Event.TEIID20028, length, maxObjectSize));
+	    		}
+	        	is = new InflaterInputStream(subStream);
+	        }
+	        CompactObjectInputStream cois = new CompactObjectInputStream(is, classLoader);
 	        result = cois.readObject();
 	        streams = ExternalizeUtil.readList(cois, StreamFactoryReference.class);
 	        streamIndex = 0;
+	        if (compressed) {
+	        	is.close(); //release the inflater
+	        }
     	}
     	while (streamIndex < streams.size()) {
     		if (!foundLength) {
     			clearRemaining();
-	        	remaining = dis.readShort();
+    			if (!block && in.available() < 2) {
+    				return null;
+    			}
+	        	remaining = dis.readUnsignedShort();
 	        	foundLength = true;
-		        if (remaining < 0) {
-		        	throw new StreamCorruptedException("Invalid stream chunk length"); //$NON-NLS-1$
-		        }
     		}
 	        if (stream == null) {
 	        	final File f = File.createTempFile("teiid", null); //$NON-NLS-1$
@@ -137,22 +174,35 @@ public class ObjectDecoderInputStream extends ObjectInputStream {
 				});
 		        this.stream = new FileOutputStream(f);
 	        }
-        	foundLength = false;
-	        if (remaining != 0) {
-	        	int available = Math.min(remaining, in.getCount() - in.getPosition());
-				if (available > 0) {
+	        if (remaining == 0) {
+	        	//the end of the stream
+	        	foundLength = false;
+	        	stream.close();
+	        	stream = null;
+	        	streamIndex++;
+	        	continue;
+	        }
+	        while (remaining > 0) {
+	        	int available = in.getCount() - in.getPosition();
+	        	if (available > 0) {
+	        		available = Math.min(remaining, available);
 	        		this.stream.write(in.getBuffer(), in.getPosition(), available);
 	        		in.setPosition(in.getPosition() + available);
-					remaining -= available;
+	        		remaining -= available;
+	        		continue;
 	        	}
-				if (remaining > 0) {
-					ObjectConverterUtil.write(this.stream, in, in.getBuffer(), remaining, false);
-				}
-				continue;
+	        	if (!block && in.available() <= 0) {
+	        		return null;
+	        	}
+	        	//refill the buffer
+	        	int b = in.read();
+	        	if (b < 0) {
+	        		throw new EOFException();
+	        	}
+	        	this.stream.write(b);
+	        	remaining--;
 	        }
-        	stream.close();
-        	stream = null;
-        	streamIndex++;
+	        foundLength = false;
     	}
         Object toReturn = result;
         result = null;
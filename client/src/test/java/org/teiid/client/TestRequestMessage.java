@@ -67,6 +67,7 @@ public class TestRequestMessage extends TestCase {
         message.setXMLFormat("xMLFormat"); //$NON-NLS-1$
         message.setShowPlan(ShowPlan.ON);
         message.setRowLimit(1313);
+        message.setStreamingWindow(2048);
         return message;
     }
 
@@ -90,6 +91,7 @@ public class TestRequestMessage extends TestCase {
         assertEquals("xMLFormat", copy.getXMLFormat()); //$NON-NLS-1$
         assertEquals(ShowPlan.ON, copy.getShowPlan());
         assertEquals(1313, copy.getRowLimit());
+        assertEquals(2048, copy.getStreamingWindow());
         
     }
     
@@ -695,6 +695,82 @@ public class TestAllResultsImpl {
 		}
 	}
     
+	@Test public void testReadAhead() throws Exception {
+		statement = TestResultSet.createMockStatement(TYPE_FORWARD_ONLY);
+		stub(statement.getExecutionProperty(ExecutionProperties.READ_AHEAD_THRESHOLD)).toReturn("0.5"); //$NON-NLS-1$
+		int totalLength = 10;
+		
+		ResultSetImpl rs = helpTestBatching(statement, 4, 4, totalLength);
+		DQP dqp = statement.getDQP();
+		
+		assertTrue(rs.next());
+		verify(dqp, never()).processCursorRequest(REQUEST_ID, 5, 4);
+		assertTrue(rs.next());
+		//half of the first batch has been read, so the next should already be requested
+		verify(dqp).processCursorRequest(REQUEST_ID, 5, 4);
+		
+		for (int i = 3; i <= totalLength; i++) {
+			assertTrue(rs.next());
+			assertEquals(i, rs.getInt(1));
+		}
+		assertFalse(rs.next());
+		verify(dqp).processCursorRequest(REQUEST_ID, 5, 4);
+		verify(dqp).processCursorRequest(REQUEST_ID, 9, 4);
+		verify(dqp, times(2)).processCursorRequest(Matchers.eq(REQUEST_ID), Matchers.anyInt(), Matchers.eq(4));
+	}
+	
+	@Test public void testReadAheadSmallerBatches() throws Exception {
+		statement = TestResultSet.createMockStatement(TYPE_FORWARD_ONLY);
+		stub(statement.getExecutionProperty(ExecutionProperties.READ_AHEAD_THRESHOLD)).toReturn("0.5"); //$NON-NLS-1$
+		int totalLength = 10;
+
+		//the server returns fewer rows than the fetch size
+		ResultSetImpl rs = helpTestBatching(statement, 8, 4, totalLength);
+		DQP dqp = statement.getDQP();
+
+		assertTrue(rs.next());
+		verify(dqp, never()).processCursorRequest(REQUEST_ID, 5, 8);
+		assertTrue(rs.next());
+		//half of the received batch has been read
+		verify(dqp).processCursorRequest(REQUEST_ID, 5, 8);
+
+		for (int i = 3; i <= 5; i++) {
+			assertTrue(rs.next());
+		}
+		verify(dqp, never()).processCursorRequest(REQUEST_ID, 9, 8);
+		assertTrue(rs.next());
+		verify(dqp).processCursorRequest(REQUEST_ID, 9, 8);
+		for (int i = 7; i <= totalLength; i++) {
+			assertTrue(rs.next());
+			assertEquals(i, rs.getInt(1));
+		}
+		assertFalse(rs.next());
+		verify(dqp, times(2)).processCursorRequest(Matchers.eq(REQUEST_ID), Matchers.anyInt(), Matchers.eq(8));
+	}
+
+	@Test public void testStreaming() throws Exception {
+		statement = TestResultSet.createMockStatement(TYPE_FORWARD_ONLY);
+		stub(statement.getExecutionProperty(ExecutionProperties.STREAMING_WINDOW)).toReturn("16"); //$NON-NLS-1$
+		int totalLength = 10;
+		
+		ResultSetImpl rs = helpTestBatching(statement, 4, 4, totalLength);
+		DQP dqp = statement.getDQP();
+		
+		assertTrue(rs.next());
+		//a request should be outstanding as soon as the batch is being read
+		verify(dqp).processCursorRequest(REQUEST_ID, 5, 4);
+		for (int i = 2; i <= 5; i++) {
+			assertTrue(rs.next());
+		}
+		verify(dqp).processCursorRequest(REQUEST_ID, 9, 4);
+		for (int i = 6; i <= totalLength; i++) {
+			assertTrue(rs.next());
+			assertEquals(i, rs.getInt(1));
+		}
+		assertFalse(rs.next());
+		verify(dqp, times(2)).processCursorRequest(Matchers.eq(REQUEST_ID), Matchers.anyInt(), Matchers.eq(4));
+	}
+	
     @Test(expected=TeiidSQLException.class) public void testResultsMessageException() throws Exception {
         ResultsMessage resultsMsg = exampleMessage(exampleResults1(1), new String[] { "IntNum" }, new String[] { DataTypeManager.DefaultDataTypes.INTEGER }); //$NON-NLS-1$
         resultsMsg.setFinalRow(-1);
@@ -37,6 +37,14 @@ public class TestHandshake {
 		ObjectInputStream ois = new ObjectInputStream(new FileInputStream(UnitTestUtil.getTestDataFile("handshake.ser")));
 		Handshake hs = (Handshake)ois.readObject();
 		assertEquals(AuthenticationType.CLEARTEXT, hs.getAuthType());
+		assertFalse(hs.isCompression());
+	}
+	
+	@Test public void testCompression() throws Exception {
+		Handshake hs = new Handshake();
+		hs.setCompression(true);
+		hs = UnitTestUtil.helpSerialize(hs);
+		assertTrue(hs.isCompression());
 	}
 	
 }
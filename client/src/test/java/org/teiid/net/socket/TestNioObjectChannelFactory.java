@@ -0,0 +1,172 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.net.socket;
+
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.teiid.client.util.ResultsFuture;
+import org.teiid.client.util.ResultsReceiver;
+import org.teiid.core.util.AccessibleBufferedInputStream;
+import org.teiid.net.socket.NioObjectChannelFactory.NioObjectChannel;
+import org.teiid.netty.handler.codec.serialization.ObjectDecoderInputStream;
+import org.teiid.netty.handler.codec.serialization.ObjectEncoderOutputStream;
+
+@SuppressWarnings("nls")
+public class TestNioObjectChannelFactory {
+	
+	private ServerSocket serverSocket;
+	private Thread echo;
+	private NioObjectChannelFactory factory;
+	
+	@Before public void setUp() throws Exception {
+		serverSocket = new ServerSocket(0);
+		echo = new Thread() {
+			public void run() {
+				try {
+					Socket socket = serverSocket.accept();
+					ObjectOutputStream out = new ObjectEncoderOutputStream(new DataOutputStream(socket.getOutputStream()), 1 << 10);
+					ObjectInputStream in = new ObjectDecoderInputStream(new AccessibleBufferedInputStream(socket.getInputStream(), 1 << 10), getClass().getClassLoader(), 1 << 25);
+					while (true) {
+						Object o = in.readObject();
+						out.writeObject(o);
+						out.flush();
+					}
+				} catch (Exception e) {
+					//closed
+				}
+			}
+		};
+		echo.setDaemon(true);
+		echo.start();
+	}
+	
+	@After public void tearDown() throws Exception {
+		serverSocket.close();
+		if (factory != null) {
+			factory.shutdown();
+		}
+	}
+
+	private ObjectChannel createChannel(Properties p) throws Exception {
+		factory = new NioObjectChannelFactory(p);
+		return factory.createObjectChannel(new InetSocketAddress("localhost", serverSocket.getLocalPort()), false);
+	}
+	
+	@Test public void testRoundTrip() throws Exception {
+		ObjectChannel channel = createChannel(new Properties());
+		//larger than the encode and receive buffers
+		List<String> large = new ArrayList<String>();
+		for (int i = 0; i < 10000; i++) {
+			large.add(String.valueOf(i));
+		}
+		for (int i = 0; i < 5; i++) {
+			channel.write("hello" + i).get(1, TimeUnit.SECONDS);
+		}
+		channel.write(large);
+		for (int i = 0; i < 5; i++) {
+			assertEquals("hello" + i, channel.read());
+		}
+		assertEquals(large, channel.read());
+		channel.close();
+		assertFalse(channel.isOpen());
+	}
+	
+	@Test public void testListener() throws Exception {
+		NioObjectChannel channel = (NioObjectChannel)createChannel(new Properties());
+		//may be queued before the listener is set
+		channel.write("queued").get(1, TimeUnit.SECONDS);
+		final List<Object> messages = new ArrayList<Object>();
+		final ResultsFuture<Void> closed = new ResultsFuture<Void>();
+		channel.setListener(new ResultsReceiver<Object>() {
+			@Override
+			public void receiveResults(Object results) {
+				synchronized (messages) {
+					messages.add(results);
+					messages.notifyAll();
+				}
+			}
+			
+			@Override
+			public void exceptionOccurred(Throwable e) {
+				closed.getResultsReceiver().receiveResults(null);
+			}
+		});
+		channel.write("dispatched").get(1, TimeUnit.SECONDS);
+		synchronized (messages) {
+			long end = System.currentTimeMillis() + 1000;
+			while (messages.size() < 2 && System.currentTimeMillis() < end) {
+				messages.wait(100);
+			}
+			assertEquals(Arrays.asList("queued", "dispatched"), messages);
+		}
+		channel.close();
+		closed.get(1, TimeUnit.SECONDS);
+	}
+	
+	@Test(expected=SocketTimeoutException.class) public void testTimeout() throws Exception {
+		Properties p = new Properties();
+		p.setProperty("org.teiid.sockets.soTimeout", "100");
+		ObjectChannel channel = createChannel(p);
+		try {
+			channel.read();
+		} finally {
+			channel.close();
+		}
+	}
+	
+	@Test public void testShutdown() throws Exception {
+		ObjectChannel channel = createChannel(new Properties());
+		channel.write("hello").get(1, TimeUnit.SECONDS);
+		assertEquals("hello", channel.read());
+		factory.shutdown();
+		try {
+			channel.read();
+			fail();
+		} catch (IOException e) {
+			//expected
+		}
+		assertFalse(channel.isOpen());
+		//a new channel starts new threads
+		channel = factory.createObjectChannel(new InetSocketAddress("localhost", serverSocket.getLocalPort()), false);
+		channel.write("hello").get(1, TimeUnit.SECONDS);
+		channel.close();
+	}
+	
+}
@@ -32,14 +32,19 @@ import java.io.InputStream;
 import java.io.StringReader;
 import java.net.SocketTimeoutException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
 
 import org.junit.Test;
+import org.teiid.core.types.BlobImpl;
 import org.teiid.core.types.ClobImpl;
 import org.teiid.core.types.InputStreamFactory;
 import org.teiid.core.types.Streamable;
 import org.teiid.core.util.AccessibleBufferedInputStream;
+import org.teiid.core.util.ObjectConverterUtil;
 import org.teiid.core.util.ReaderInputStream;
 
 public class TestObjectDecoderInputStream {
@@ -90,5 +95,87 @@ public class TestObjectDecoderInputStream {
 		ObjectDecoderInputStream in = new ObjectDecoderInputStream(new AccessibleBufferedInputStream(new ByteArrayInputStream(baos.toByteArray()), 1024), Thread.currentThread().getContextClassLoader(), 1024);
 		Object result = in.readObject();
 		assertTrue(result instanceof ClobImpl);
-	}	
+	}
+	
+	@Test public void testCompressed() throws Exception {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ObjectEncoderOutputStream oeos = new ObjectEncoderOutputStream(new DataOutputStream(baos), 1 << 16);
+		List<String> obj = new ArrayList<String>();
+		for (int i = 0; i < 1000; i++) {
+			obj.add("hello world " + (i%10)); //$NON-NLS-1$
+		}
+		oeos.writeObject(obj);
+		oeos.writeObject(Arrays.asList(1, 2, 3));
+		oeos.close();
+		byte[] bytes = baos.toByteArray();
+		int length = ((bytes[0] & 0xff) << 24) + ((bytes[1] & 0xff) << 16) + ((bytes[2] & 0xff) << 8) + (bytes[3] & 0xff);
+		
+		//compress the first object in the same form as the server encoder
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		DeflaterOutputStream dos = new DeflaterOutputStream(compressed);
+		dos.write(bytes, 4, length);
+		dos.finish();
+		ByteArrayOutputStream frames = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(frames);
+		out.writeInt(-(compressed.size() + 4));
+		out.writeInt(length);
+		compressed.writeTo(out);
+		out.write(bytes, length + 4, bytes.length - length - 4);
+		out.close();
+		assertTrue(frames.size() < bytes.length);
+		
+		ObjectDecoderInputStream in = new ObjectDecoderInputStream(new AccessibleBufferedInputStream(new ByteArrayInputStream(frames.toByteArray()), 1024), Thread.currentThread().getContextClassLoader(), 1 << 15);
+		assertEquals(obj, in.readObject());
+		assertEquals(Arrays.asList(1, 2, 3), in.readObject());
+	}
+	
+	@Test public void testReadAvailableObject() throws Exception {
+		final byte[] lob = new byte[100000];
+		new Random(1).nextBytes(lob);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ObjectEncoderOutputStream out = new ObjectEncoderOutputStream(new DataOutputStream(baos), 512);
+		BlobImpl blob = new BlobImpl(new InputStreamFactory() {
+			@Override
+			public InputStream getInputStream() throws IOException {
+				return new ByteArrayInputStream(lob);
+			}
+		});
+		out.writeObject(blob);
+		out.writeObject(Arrays.asList(1, 2, 3));
+		out.close();
+		final byte[] bytes = baos.toByteArray();
+		
+		//make the bytes available a little at a time
+		final int[] limit = new int[1];
+		InputStream is = new InputStream() {
+			int pos;
+			@Override
+			public int read() throws IOException {
+				if (pos >= limit[0]) {
+					return -1;
+				}
+				return bytes[pos++] & 0xff;
+			}
+			@Override
+			public int available() throws IOException {
+				return limit[0] - pos;
+			}
+		};
+		ObjectDecoderInputStream in = new ObjectDecoderInputStream(new AccessibleBufferedInputStream(is, 1024), Thread.currentThread().getContextClassLoader(), 1024);
+		List<Object> results = new ArrayList<Object>();
+		while (true) {
+			Object result = in.readAvailableObject();
+			if (result != null) {
+				results.add(result);
+				continue;
+			}
+			if (limit[0] == bytes.length) {
+				break;
+			}
+			limit[0] = Math.min(bytes.length, limit[0] + 7);
+		}
+		assertEquals(2, results.size());
+		assertTrue(Arrays.equals(lob, ObjectConverterUtil.convertToByteArray(((BlobImpl)results.get(0)).getBinaryStream())));
+		assertEquals(Arrays.asList(1, 2, 3), results.get(1));
+	}
 }
@@ -40,4 +40,13 @@ public class TestMultiArrayOutputStream {
 		assertEquals(1, maos.getIndex());
 	}
 	
+	@Test public void testCountAfterFirstBuffer() throws IOException {
+		MultiArrayOutputStream maos = new MultiArrayOutputStream(4);
+		maos.write(new byte[6], 0, 6);
+		maos.write(1);
+		maos.write(new byte[2], 0, 2);
+		assertEquals(9, maos.getCount());
+		assertEquals(5, maos.getIndex());
+	}
+	
 }
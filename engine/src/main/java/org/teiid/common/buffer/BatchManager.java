@@ -49,4 +49,14 @@ public interface BatchManager {
 	String[] getTypes();
 	
 	int getRowSizeEstimate();
+	
+	void setColumnar(boolean columnar);
+	
+	boolean isColumnar();
+	
+	/**
+	 * Charge the batches held in memory to the given account, or to no account if null.
+	 * Used when the batches outlive the work that created them, such as in a shared cache.
+	 */
+	void setOwnerAccount(BufferAccount owner);
 }
@@ -0,0 +1,263 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the buffer space reserved, the batch memory held, and the storage used by a unit of work, 
+ * such as a request, independent of the thread that is currently performing the work.
+ * <br/>
+ * Usage is also charged to the parent account if one is set, such as the account of the session.
+ */
+public class BufferAccount {
+	
+	/**
+	 * The action taken when a reservation would exceed the limit of an account.
+	 * In all cases optional reservations are restricted to the bytes available. 
+	 */
+	public enum LimitPolicy {
+		/**
+		 * Write batches to storage as they are created
+		 */
+		SPILL,
+		/**
+		 * Requeue the work before forcing a reservation, which yields to other work
+		 */
+		THROTTLE,
+		/**
+		 * Fail the forced reservation or the batch creation
+		 */
+		FAIL
+	}
+	
+	private volatile BufferAccount parent;
+	private long limit = -1;
+	private LimitPolicy limitPolicy = LimitPolicy.SPILL;
+	private AtomicLong reservedBytes = new AtomicLong();
+	private AtomicLong peakUsedBytes = new AtomicLong();
+	private AtomicLong batchBytes = new AtomicLong();
+	private AtomicLong batchesWritten = new AtomicLong();
+	private AtomicLong bytesWritten = new AtomicLong();
+	private AtomicLong bytesRead = new AtomicLong();
+	private AtomicLong lobBytesPersisted = new AtomicLong();
+	private volatile long lastBlocked = Long.MIN_VALUE;
+	
+	public BufferAccount() {
+		
+	}
+	
+	public BufferAccount(BufferAccount parent) {
+		this.parent = parent;
+	}
+	
+	public BufferAccount getParent() {
+		return parent;
+	}
+	
+	/**
+	 * Should only be called when there are no bytes charged to this account, 
+	 * otherwise the usage of the old and new parents will be incorrect.
+	 */
+	public void setParent(BufferAccount parent) {
+		this.parent = parent;
+	}
+	
+	/**
+	 * Set the maximum bytes that may be used, or -1 if there is no limit.
+	 */
+	public void setLimit(long limit, LimitPolicy limitPolicy) {
+		this.limit = limit;
+		this.limitPolicy = limitPolicy;
+	}
+	
+	public long getLimit() {
+		return limit;
+	}
+	
+	public LimitPolicy getLimitPolicy() {
+		return limitPolicy;
+	}
+	
+	/**
+	 * @return the bytes that may be used before this or a parent account exceeds its limit
+	 */
+	public long getAvailableBytes() {
+		long result = Long.MAX_VALUE;
+		if (limit >= 0) {
+			result = Math.max(0, limit - getUsedBytes());
+		}
+		if (parent != null) {
+			result = Math.min(result, parent.getAvailableBytes());
+		}
+		return result;
+	}
+	
+	/**
+	 * @return the first account, starting with this one, that would exceed its limit if count more bytes were used, or null 
+	 */
+	public BufferAccount getExceededAccount(long count) {
+		if (limit >= 0 && getUsedBytes() + count > limit) {
+			return this;
+		}
+		if (parent != null) {
+			return parent.getExceededAccount(count);
+		}
+		return null;
+	}
+	
+	public long getReservedBytes() {
+		return reservedBytes.get();
+	}
+	
+	public long addReservedBytes(long count) {
+		long result = reservedBytes.addAndGet(count);
+		if (count > 0) {
+			updatePeak();
+		}
+		if (parent != null) {
+			parent.addReservedBytes(count);
+		}
+		return result;
+	}
+	
+	private void updatePeak() {
+		long used = getUsedBytes();
+		while (true) {
+			long peak = peakUsedBytes.get();
+			if (used <= peak || peakUsedBytes.compareAndSet(peak, used)) {
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * @return the maximum of the reserved bytes plus the batch bytes
+	 */
+	public long getPeakUsedBytes() {
+		return peakUsedBytes.get();
+	}
+	
+	/**
+	 * @return the estimated bytes of the batches created under this account that are held in memory
+	 */
+	public long getBatchBytes() {
+		return batchBytes.get();
+	}
+	
+	public void addBatchBytes(long count) {
+		batchBytes.addAndGet(count);
+		if (count > 0) {
+			updatePeak();
+		}
+		if (parent != null) {
+			parent.addBatchBytes(count);
+		}
+	}
+	
+	/**
+	 * @return the reserved bytes plus the batch bytes, which is the usage checked against the limit
+	 */
+	public long getUsedBytes() {
+		return reservedBytes.get() + batchBytes.get();
+	}
+	
+	/**
+	 * @return the number of batches evicted to the storage cache
+	 */
+	public long getBatchesWritten() {
+		return batchesWritten.get();
+	}
+	
+	public void batchWritten() {
+		batchesWritten.incrementAndGet();
+		if (parent != null) {
+			parent.batchWritten();
+		}
+	}
+	
+	/**
+	 * @return the bytes of serialized batches written to the storage cache
+	 */
+	public long getBytesWritten() {
+		return bytesWritten.get();
+	}
+	
+	public void addBytesWritten(long count) {
+		bytesWritten.addAndGet(count);
+		if (parent != null) {
+			parent.addBytesWritten(count);
+		}
+	}
+	
+	/**
+	 * @return the bytes of serialized batches read from storage
+	 */
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+	
+	public void addBytesRead(long count) {
+		bytesRead.addAndGet(count);
+		if (parent != null) {
+			parent.addBytesRead(count);
+		}
+	}
+	
+	public long getLobBytesPersisted() {
+		return lobBytesPersisted.get();
+	}
+	
+	public void addLobBytesPersisted(long count) {
+		lobBytesPersisted.addAndGet(count);
+		if (parent != null) {
+			parent.addLobBytesPersisted(count);
+		}
+	}
+	
+	/**
+	 * @return the time of the last blocked reservation attempt or {@link Long#MIN_VALUE} if there has not been one
+	 */
+	public long getLastBlocked() {
+		return lastBlocked;
+	}
+	
+	public void setLastBlocked(long lastBlocked) {
+		this.lastBlocked = lastBlocked;
+	}
+	
+	public List<String> getStatisticsList() {
+		ArrayList<String> statisticsList = new ArrayList<String>(7);
+		statisticsList.add("Reserved Bytes: " + getReservedBytes()); //$NON-NLS-1$
+		statisticsList.add("Batch Bytes: " + getBatchBytes()); //$NON-NLS-1$
+		statisticsList.add("Peak Used Bytes: " + getPeakUsedBytes()); //$NON-NLS-1$
+		statisticsList.add("Batches Written: " + getBatchesWritten()); //$NON-NLS-1$
+		statisticsList.add("Bytes Written: " + getBytesWritten()); //$NON-NLS-1$
+		statisticsList.add("Bytes Read: " + getBytesRead()); //$NON-NLS-1$
+		statisticsList.add("Lob Bytes Persisted: " + getLobBytesPersisted()); //$NON-NLS-1$
+		return statisticsList;
+	}
+
+}
@@ -129,4 +129,17 @@ public interface BufferManager extends StorageManager, TupleBufferCache {
 			final FileStore store, byte[] bytes) throws TeiidComponentException;
 
 	int reserveBuffersBlocking(int count, int attempts, boolean force) throws BlockedException;
+	
+	/**
+	 * Get the {@link BufferAccount} that reservations by the calling thread are charged to.
+	 */
+	BufferAccount getBufferAccount();
+	
+	/**
+	 * Charge reservations by the calling thread to the given account.  Work that 
+	 * may be performed by several threads should set its own account while processing
+	 * and restore the previous account after.
+	 * @param account
+	 */
+	void setBufferAccount(BufferAccount account);
 }
@@ -29,6 +29,7 @@ public class CacheEntry extends BaseCacheEntry {
 	private Object object;
 	private final int sizeEstimate;
 	private WeakReference<? extends Serializer<?>> serializer;
+	private BufferAccount bufferAccount;
 	
 	public CacheEntry(Long oid) {
 		this(new CacheKey(oid, 0, 0), 0, null, null, false);
@@ -73,6 +74,17 @@ public class CacheEntry extends BaseCacheEntry {
 		this.serializer = serializer;
 	}
 
+	/**
+	 * @return the account charged while the entry is held in memory, may be null
+	 */
+	public BufferAccount getBufferAccount() {
+		return bufferAccount;
+	}
+	
+	public void setBufferAccount(BufferAccount bufferAccount) {
+		this.bufferAccount = bufferAccount;
+	}
+
 	public Serializer<?> getSerializer() {
 		WeakReference<? extends Serializer<?>> ref = this.serializer;
 		if (ref == null) {
@@ -0,0 +1,400 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An immutable column oriented batch of tuples.  Values of the fixed width 
+ * types (the same ones given special handling by the BatchSerializer) are held 
+ * in primitive arrays with a null bitmap, all other values are held in an 
+ * Object[] per column.
+ * <br/>
+ * The batch is also a {@link List} of {@link Row} views so that it may be used
+ * anywhere a row oriented batch is expected.  The views are created once per row,
+ * but values read through them are boxed.  Consumers that are aware of the
+ * columnar form may use the typed accessors to avoid boxing.
+ */
+public final class ColumnarBatch extends AbstractList<List<?>> implements RandomAccess {
+	
+	private static final byte OBJECT = 0;
+	private static final byte INT = 1;
+	private static final byte LONG = 2;
+	private static final byte DOUBLE = 3;
+	private static final byte FLOAT = 4;
+	private static final byte SHORT = 5;
+	private static final byte BYTE = 6;
+	private static final byte BOOLEAN = 7;
+	private static final byte CHAR = 8;
+	
+	/**
+	 * A read-only view of a single row of a {@link ColumnarBatch}
+	 */
+	public static final class Row extends AbstractList<Object> implements RandomAccess {
+		private final ColumnarBatch batch;
+		private final int row;
+		
+		Row(ColumnarBatch batch, int row) {
+			this.batch = batch;
+			this.row = row;
+		}
+		
+		@Override
+		public Object get(int index) {
+			return batch.getValue(row, index);
+		}
+		
+		@Override
+		public int size() {
+			return batch.kinds.length;
+		}
+		
+		public ColumnarBatch getBatch() {
+			return batch;
+		}
+		
+		public int getRowIndex() {
+			return row;
+		}
+		
+		public boolean isNull(int column) {
+			return batch.isNull(row, column);
+		}
+		
+		/**
+		 * @return true if the column values of both rows are held as the same primitive type 
+		 */
+		public boolean isPrimitiveComparable(Row other, int column) {
+			byte kind = batch.kinds[column];
+			return kind != OBJECT && kind == other.batch.kinds[column];
+		}
+		
+		/**
+		 * Compare the non-null primitive values of this and the other row. 
+		 * The result is consistent with the {@link Comparable} implementation of 
+		 * the boxed type.
+		 * @see #isPrimitiveComparable(Row, int)
+		 */
+		public int comparePrimitive(Row other, int column) {
+			Object vector = batch.columns[column];
+			Object otherVector = other.batch.columns[column];
+			int otherRow = other.row;
+			switch (batch.kinds[column]) {
+			case INT:
+				return compare(((int[])vector)[row], ((int[])otherVector)[otherRow]);
+			case LONG:
+				long l1 = ((long[])vector)[row];
+				long l2 = ((long[])otherVector)[otherRow];
+				return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+			case DOUBLE:
+				return Double.compare(((double[])vector)[row], ((double[])otherVector)[otherRow]);
+			case FLOAT:
+				return Float.compare(((float[])vector)[row], ((float[])otherVector)[otherRow]);
+			case SHORT:
+				return ((short[])vector)[row] - ((short[])otherVector)[otherRow];
+			case BYTE:
+				return ((byte[])vector)[row] - ((byte[])otherVector)[otherRow];
+			case BOOLEAN:
+				boolean b1 = ((boolean[])vector)[row];
+				return b1 == ((boolean[])otherVector)[otherRow] ? 0 : (b1 ? 1 : -1);
+			case CHAR:
+				return ((char[])vector)[row] - ((char[])otherVector)[otherRow];
+			}
+			throw new IllegalStateException();
+		}
+		
+	}
+	
+	private final int rowCount;
+	private final byte[] kinds;
+	private final Object[] columns;
+	private final BitSet[] nulls;
+	private final Row[] rows;
+	
+	private ColumnarBatch(int rowCount, byte[] kinds) {
+		this.rowCount = rowCount;
+		this.kinds = kinds;
+		this.columns = new Object[kinds.length];
+		this.nulls = new BitSet[kinds.length];
+		this.rows = new Row[rowCount];
+	}
+	
+	/**
+	 * @return true if there is at least one column that can be held in primitive form
+	 */
+	public static boolean hasPrimitiveColumns(Class<?>[] types) {
+		for (int i = 0; i < types.length; i++) {
+			if (getKind(types[i]) != OBJECT) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Create a columnar copy of the given tuples.  
+	 * @return the columnar batch or null if the tuples do not conform to the types
+	 */
+	public static ColumnarBatch create(Class<?>[] types, List<? extends List<?>> tuples) {
+		if (tuples instanceof ColumnarBatch) {
+			return (ColumnarBatch)tuples;
+		}
+		int rowCount = tuples.size();
+		byte[] kinds = new byte[types.length];
+		for (int i = 0; i < types.length; i++) {
+			kinds[i] = getKind(types[i]);
+		}
+		ColumnarBatch result = new ColumnarBatch(rowCount, kinds);
+		for (int col = 0; col < kinds.length; col++) {
+			result.columns[col] = createVector(kinds[col], rowCount);
+		}
+		for (int row = 0; row < rowCount; row++) {
+			List<?> tuple = tuples.get(row);
+			if (tuple.size() != kinds.length) {
+				return null;
+			}
+			for (int col = 0; col < kinds.length; col++) {
+				Object value = tuple.get(col);
+				if (value == null) {
+					if (kinds[col] != OBJECT) {
+						BitSet colNulls = result.nulls[col];
+						if (colNulls == null) {
+							colNulls = new BitSet(rowCount);
+							result.nulls[col] = colNulls;
+						}
+						colNulls.set(row);
+					}
+					continue;
+				}
+				if (kinds[col] != OBJECT && value.getClass() != types[col]) {
+					return null;
+				}
+				result.setValue(row, col, value);
+			}
+		}
+		return result;
+	}
+	
+	private static byte getKind(Class<?> type) {
+		if (type == Integer.class) {
+			return INT;
+		}
+		if (type == Long.class) {
+			return LONG;
+		}
+		if (type == Double.class) {
+			return DOUBLE;
+		}
+		if (type == Float.class) {
+			return FLOAT;
+		}
+		if (type == Short.class) {
+			return SHORT;
+		}
+		if (type == Byte.class) {
+			return BYTE;
+		}
+		if (type == Boolean.class) {
+			return BOOLEAN;
+		}
+		if (type == Character.class) {
+			return CHAR;
+		}
+		return OBJECT;
+	}
+	
+	private static Object createVector(byte kind, int size) {
+		switch (kind) {
+		case INT:
+			return new int[size];
+		case LONG:
+			return new long[size];
+		case DOUBLE:
+			return new double[size];
+		case FLOAT:
+			return new float[size];
+		case SHORT:
+			return new short[size];
+		case BYTE:
+			return new byte[size];
+		case BOOLEAN:
+			return new boolean[size];
+		case CHAR:
+			return new char[size];
+		}
+		return new Object[size];
+	}
+	
+	private void setValue(int row, int col, Object value) {
+		Object vector = columns[col];
+		switch (kinds[col]) {
+		case INT:
+			((int[])vector)[row] = ((Integer)value).intValue();
+			break;
+		case LONG:
+			((long[])vector)[row] = ((Long)value).longValue();
+			break;
+		case DOUBLE:
+			((double[])vector)[row] = ((Double)value).doubleValue();
+			break;
+		case FLOAT:
+			((float[])vector)[row] = ((Float)value).floatValue();
+			break;
+		case SHORT:
+			((short[])vector)[row] = ((Short)value).shortValue();
+			break;
+		case BYTE:
+			((byte[])vector)[row] = ((Byte)value).byteValue();
+			break;
+		case BOOLEAN:
+			((boolean[])vector)[row] = ((Boolean)value).booleanValue();
+			break;
+		case CHAR:
+			((char[])vector)[row] = ((Character)value).charValue();
+			break;
+		default:
+			((Object[])vector)[row] = value;
+		}
+	}
+	
+	private static int compare(int i1, int i2) {
+		return i1 < i2 ? -1 : (i1 == i2 ? 0 : 1);
+	}
+	
+	@Override
+	public Row get(int index) {
+		if (index < 0 || index >= rowCount) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+		//the views are immutable, so a racing creation is harmless
+		Row result = rows[index];
+		if (result == null) {
+			result = new Row(this, index);
+			rows[index] = result;
+		}
+		return result;
+	}
+	
+	@Override
+	public int size() {
+		return rowCount;
+	}
+	
+	public int getColumnCount() {
+		return kinds.length;
+	}
+	
+	/**
+	 * @return true if the column is held in a primitive array
+	 */
+	public boolean isPrimitive(int column) {
+		return kinds[column] != OBJECT;
+	}
+	
+	public boolean isNull(int row, int column) {
+		if (kinds[column] == OBJECT) {
+			return ((Object[])columns[column])[row] == null;
+		}
+		BitSet colNulls = nulls[column];
+		return colNulls != null && colNulls.get(row);
+	}
+	
+	/**
+	 * Get the primitive array backing the column or null if the column is not
+	 * held in primitive form.  The array must not be modified and values at null
+	 * positions are undefined.
+	 */
+	public Object getVector(int column) {
+		if (kinds[column] == OBJECT) {
+			return null;
+		}
+		return columns[column];
+	}
+	
+	public int getInt(int row, int column) {
+		return ((int[])columns[column])[row];
+	}
+	
+	public long getLong(int row, int column) {
+		if (kinds[column] == INT) {
+			return getInt(row, column);
+		}
+		return ((long[])columns[column])[row];
+	}
+	
+	/**
+	 * Get the value of a numeric primitive column widened to a double 
+	 */
+	public double getDouble(int row, int column) {
+		Object vector = columns[column];
+		switch (kinds[column]) {
+		case INT:
+			return ((int[])vector)[row];
+		case LONG:
+			return ((long[])vector)[row];
+		case FLOAT:
+			return ((float[])vector)[row];
+		case SHORT:
+			return ((short[])vector)[row];
+		case BYTE:
+			return ((byte[])vector)[row];
+		}
+		return ((double[])vector)[row];
+	}
+	
+	/**
+	 * Get the, possibly boxed, value at the given position
+	 */
+	public Object getValue(int row, int column) {
+		Object vector = columns[column];
+		byte kind = kinds[column];
+		if (kind == OBJECT) {
+			return ((Object[])vector)[row];
+		}
+		if (isNull(row, column)) {
+			return null;
+		}
+		switch (kind) {
+		case INT:
+			return ((int[])vector)[row];
+		case LONG:
+			return ((long[])vector)[row];
+		case DOUBLE:
+			return ((double[])vector)[row];
+		case FLOAT:
+			return ((float[])vector)[row];
+		case SHORT:
+			return ((short[])vector)[row];
+		case BYTE:
+			return ((byte[])vector)[row];
+		case BOOLEAN:
+			return ((boolean[])vector)[row];
+		default:
+			return ((char[])vector)[row];
+		}
+	}
+
+}
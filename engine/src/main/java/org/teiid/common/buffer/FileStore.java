@@ -147,7 +147,7 @@ public abstract class FileStore implements Removable {
 		return readWrite(fileOffset, b, offSet, length, false);
 	}
 
-	private void checkRemoved() throws IOException {
+	protected void checkRemoved() throws IOException {
 		if (removed.get()) {
 			throw new IOException("already removed"); //$NON-NLS-1$
 		}
@@ -186,6 +186,34 @@ public abstract class FileStore implements Removable {
     	} while (n < length);
 	}
 
+	/**
+	 * Write the remaining bytes of the buffers starting at the given position.
+	 * The buffer positions are advanced by the bytes written.
+	 * <br/>
+	 * Implementations should override to perform a gathering write.
+	 */
+	public void write(long start, ByteBuffer[] buffers) throws IOException {
+		byte[] copy = null;
+		for (ByteBuffer bb : buffers) {
+			int length = bb.remaining();
+			if (bb.hasArray()) {
+				write(start, bb.array(), bb.arrayOffset() + bb.position(), length);
+				bb.position(bb.limit());
+				start += length;
+				continue;
+			}
+			if (copy == null) {
+				copy = new byte[1 << 13];
+			}
+			while (bb.hasRemaining()) {
+				int toCopy = Math.min(copy.length, bb.remaining());
+				bb.get(copy, 0, toCopy);
+				write(start, copy, 0, toCopy);
+				start += toCopy;
+			}
+		}
+	}
+	
 	public void remove() {
 		if (removed.compareAndSet(false, true)) {
 			this.removeDirect();
@@ -81,6 +81,7 @@ public class LobManager {
 	private int maxMemoryBytes = DataTypeManager.MAX_LOB_MEMORY_BYTES;
 	private int[] lobIndexes;
 	private FileStore lobStore;
+	private BufferAccount bufferAccount;
 	
 	public LobManager(int[] lobIndexes, FileStore lobStore) {
 		this.lobIndexes = lobIndexes;
@@ -91,6 +92,7 @@ public class LobManager {
 		LobManager clone = new LobManager(lobIndexes, null);
 		clone.inlineLobs = inlineLobs;
 		clone.maxMemoryBytes = maxMemoryBytes;
+		clone.bufferAccount = bufferAccount;
 		synchronized (lobReferences) {
 			for (Map.Entry<String, LobHolder> entry : lobReferences.entrySet()) {
 				LobHolder lobHolder = new LobHolder(entry.getValue().lob);
@@ -109,6 +111,13 @@ public class LobManager {
 		this.maxMemoryBytes = maxMemoryBytes;
 	}
 	
+	/**
+	 * Set the account charged for persisted lob bytes
+	 */
+	public void setBufferAccount(BufferAccount bufferAccount) {
+		this.bufferAccount = bufferAccount;
+	}
+	
 	@SuppressWarnings("unchecked")
 	public void updateReferences(List<?> tuple, ReferenceMode mode)
 			throws TeiidComponentException {
@@ -201,7 +210,16 @@ public class LobManager {
 			return lob;
 		}
 		
-		return persistLob(lob, store, bytes, inlineLobs, maxMemoryBytes);
+		if (bufferAccount == null) {
+			return persistLob(lob, store, bytes, inlineLobs, maxMemoryBytes);
+		}
+		long length = store.getLength();
+		Streamable<?> result = persistLob(lob, store, bytes, inlineLobs, maxMemoryBytes);
+		long persisted = store.getLength() - length;
+		if (persisted > 0) {
+			bufferAccount.addLobBytesPersisted(persisted);
+		}
+		return result;
 	}
 
 	public static Streamable<?> persistLob(final Streamable<?> lob,
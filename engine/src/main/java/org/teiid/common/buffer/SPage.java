@@ -26,6 +26,7 @@ import java.lang.ref.PhantomReference;
 import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -137,7 +138,7 @@ class SPage implements Cloneable {
 		List<List<?>> previousValues = null;
 		for (;;) {
 			List<List<?>> values = page.getValues();
-			int index = Collections.binarySearch(values, k, page.stree.comparator);
+			int index = binarySearch(values, k, page.stree.comparator);
 			int flippedIndex = - index - 1;
 			if (previousValues != null) {
 				if (flippedIndex == 0) {
@@ -147,7 +148,7 @@ class SPage implements Cloneable {
 				if (parent != null && index != 0) {
 					page.stree.updateLock.lock();
 					try {
-						index = Collections.binarySearch(values, k, page.stree.comparator);
+						index = binarySearch(values, k, page.stree.comparator);
 						if (index != 0) {
 							//for non-matches move the previous pointer over to this page
 							SPage childPage = page;
@@ -181,6 +182,19 @@ class SPage implements Cloneable {
 		}
 	}
 	
+	/**
+	 * Binary search the values, searching {@link SlottedPage}s in place
+	 */
+	static int binarySearch(List<List<?>> values, List k, Comparator comparator) {
+		if (values instanceof LightWeightCopyOnWriteList<?>) {
+			values = ((LightWeightCopyOnWriteList<List<?>>)values).getList();
+		}
+		if (values instanceof SlottedPage) {
+			return ((SlottedPage)values).binarySearch(k, comparator);
+		}
+		return Collections.binarySearch(values, k, comparator);
+	}
+	
 	protected void setValues(List<List<?>> values) throws TeiidComponentException {
 		if (values instanceof LightWeightCopyOnWriteList<?>) {
 			values = ((LightWeightCopyOnWriteList<List<?>>)values).getList();
@@ -193,6 +207,12 @@ class SPage implements Cloneable {
 			stree.incompleteInsert = this;
 			return;
 		}
+		if (stree.slottedTypes != null && children == null) {
+			SlottedPage page = SlottedPage.create(stree.slottedTypes, values);
+			if (page != null) {
+				values = page;
+			}
+		}
 		this.values = null;
 		managedBatch = stree.getBatchManager(children == null).createManagedBatch(values, managedBatch, trackingObject == null);
 		this.trackingObject = null;
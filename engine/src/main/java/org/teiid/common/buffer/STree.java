@@ -40,6 +40,7 @@ import org.teiid.common.buffer.LobManager.ReferenceMode;
 import org.teiid.common.buffer.SPage.SearchResult;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidRuntimeException;
+import org.teiid.core.types.DataTypeManager;
 import org.teiid.query.QueryPlugin;
 import org.teiid.query.processor.relational.ListNestedSortComparator;
 
@@ -69,6 +70,7 @@ public class STree implements Cloneable {
     protected int minPageSize;
     protected int keyLength;
 	protected boolean batchInsert;
+	protected Class<?>[] slottedTypes;
 	protected SPage incompleteInsert;
 	protected LobManager lobManager;
     
@@ -155,9 +157,34 @@ public class STree implements Cloneable {
 			if (page.next == null) {
 				break;
 			}
+			page = page.next;
 		}
 	}
 	
+	/**
+	 * Hold full leaf pages as {@link SlottedPage}s, which are searched and updated in place.
+	 * Has no effect if the leaf types are not supported.
+	 * Should be set prior to any inserts.
+	 */
+	public void setSlottedPages(boolean slottedPages) {
+		this.slottedTypes = null;
+		if (!slottedPages) {
+			return;
+		}
+		String[] types = leafManager.getTypes();
+		Class<?>[] typeClasses = new Class<?>[types.length];
+		for (int i = 0; i < types.length; i++) {
+			typeClasses[i] = DataTypeManager.getDataTypeClass(types[i]);
+		}
+		if (SlottedPage.isSupported(typeClasses)) {
+			this.slottedTypes = typeClasses;
+		}
+	}
+	
+	public boolean isSlottedPages() {
+		return slottedTypes != null;
+	}
+	
 	public void setBatchInsert(boolean batchInsert) throws TeiidComponentException {
 		if (this.batchInsert == batchInsert) {
 			return;
@@ -539,6 +566,14 @@ public class STree implements Cloneable {
 		return this.leafManager.prefersMemory();
 	}
 	
+	/**
+	 * @see BatchManager#setOwnerAccount(BufferAccount)
+	 */
+	public void setOwnerAccount(BufferAccount owner) {
+		this.keyManager.setOwnerAccount(owner);
+		this.leafManager.setOwnerAccount(owner);
+	}
+	
 	public ListNestedSortComparator getComparator() {
 		return comparator;
 	}
@@ -35,4 +35,8 @@ public interface Serializer<T> {
 	T deserialize(ObjectInput ois) throws IOException, ClassNotFoundException;
 	boolean useSoftCache();
 	Long getId();
+	/**
+	 * @return the account charged for the storage of serialized objects, may be null
+	 */
+	BufferAccount getBufferAccount();
 }
\ No newline at end of file
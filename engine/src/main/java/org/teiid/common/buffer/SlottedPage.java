@@ -0,0 +1,624 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A row oriented page of tuples held in a single byte array with a slot array
+ * of row offsets.  Each column value is written as a null flag followed by the
+ * fixed or length prefixed encoding of the value.
+ * <br/>
+ * Modifications only append row bytes and update the slot array, so a page
+ * may be updated without re-encoding the other rows.  The space of replaced or
+ * removed rows is reclaimed once it exceeds the live space.
+ * {@link #binarySearch(List, Comparator)} reads only the compared columns of the
+ * probed rows in place.
+ * <br/>
+ * Only the types with a compact encoding are supported, see {@link #isSupported(Class[])}.
+ */
+public final class SlottedPage extends AbstractList<List<?>> implements RandomAccess {
+
+	private static final byte UNSUPPORTED = -1;
+	private static final byte INT = 0;
+	private static final byte LONG = 1;
+	private static final byte DOUBLE = 2;
+	private static final byte FLOAT = 3;
+	private static final byte SHORT = 4;
+	private static final byte BYTE = 5;
+	private static final byte BOOLEAN = 6;
+	private static final byte CHAR = 7;
+	private static final byte STRING = 8;
+	private static final byte DATE = 9;
+	private static final byte TIME = 10;
+	private static final byte TIMESTAMP = 11;
+	private static final byte BIG_INTEGER = 12;
+	private static final byte BIG_DECIMAL = 13;
+
+	private static final int MIN_CAPACITY = 64;
+
+	/**
+	 * A reusable view of the row at an offset that decodes only the requested columns
+	 */
+	private final class Probe extends AbstractList<Object> {
+		private byte[] bytes;
+		private int offset;
+		private int lastColumn;
+		private int lastPosition;
+
+		void setOffset(int offset) {
+			this.offset = offset;
+			this.lastColumn = 0;
+			this.lastPosition = offset;
+		}
+
+		@Override
+		public Object get(int index) {
+			int column = 0;
+			int pos = offset;
+			if (index >= lastColumn) {
+				column = lastColumn;
+				pos = lastPosition;
+			}
+			for (; column < index; column++) {
+				pos = skipValue(bytes, pos, kinds[column]);
+			}
+			lastColumn = column;
+			lastPosition = pos;
+			return readValue(bytes, pos, kinds[column]);
+		}
+
+		@Override
+		public int size() {
+			return kinds.length;
+		}
+	}
+
+	private final Class<?>[] types;
+	private final byte[] kinds;
+	private byte[] data;
+	private int length;
+	private int garbage;
+	private int[] slots;
+	private int size;
+
+	private SlottedPage(Class<?>[] types, byte[] kinds, byte[] data, int[] slots) {
+		this.types = types;
+		this.kinds = kinds;
+		this.data = data;
+		this.slots = slots;
+	}
+
+	/**
+	 * @return true if all of the types can be held in a slotted page
+	 */
+	public static boolean isSupported(Class<?>[] types) {
+		for (int i = 0; i < types.length; i++) {
+			if (getKind(types[i]) == UNSUPPORTED) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Create a slotted page copy of the given tuples.
+	 * @return the page or null if the types are not supported or the tuples do not conform to the types
+	 */
+	public static SlottedPage create(Class<?>[] types, List<? extends List<?>> tuples) {
+		if (tuples instanceof SlottedPage) {
+			return (SlottedPage)tuples;
+		}
+		if (!isSupported(types)) {
+			return null;
+		}
+		SlottedPage result = new SlottedPage(types, getKinds(types), new byte[MIN_CAPACITY], new int[Math.max(1, tuples.size())]);
+		for (List<?> tuple : tuples) {
+			if (!result.conforms(tuple)) {
+				return null;
+			}
+			result.slots[result.size++] = result.append(tuple);
+		}
+		return result;
+	}
+
+	private static byte[] getKinds(Class<?>[] types) {
+		byte[] kinds = new byte[types.length];
+		for (int i = 0; i < types.length; i++) {
+			kinds[i] = getKind(types[i]);
+		}
+		return kinds;
+	}
+
+	private static byte getKind(Class<?> type) {
+		if (type == Integer.class) {
+			return INT;
+		}
+		if (type == Long.class) {
+			return LONG;
+		}
+		if (type == Double.class) {
+			return DOUBLE;
+		}
+		if (type == Float.class) {
+			return FLOAT;
+		}
+		if (type == Short.class) {
+			return SHORT;
+		}
+		if (type == Byte.class) {
+			return BYTE;
+		}
+		if (type == Boolean.class) {
+			return BOOLEAN;
+		}
+		if (type == Character.class) {
+			return CHAR;
+		}
+		if (type == String.class) {
+			return STRING;
+		}
+		if (type == Date.class) {
+			return DATE;
+		}
+		if (type == Time.class) {
+			return TIME;
+		}
+		if (type == Timestamp.class) {
+			return TIMESTAMP;
+		}
+		if (type == BigInteger.class) {
+			return BIG_INTEGER;
+		}
+		if (type == BigDecimal.class) {
+			return BIG_DECIMAL;
+		}
+		return UNSUPPORTED;
+	}
+
+	private boolean conforms(List<?> tuple) {
+		if (tuple.size() != kinds.length) {
+			return false;
+		}
+		for (int col = 0; col < kinds.length; col++) {
+			Object value = tuple.get(col);
+			if (value != null && value.getClass() != types[col]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void checkConforms(List<?> tuple) {
+		if (!conforms(tuple)) {
+			throw new IllegalArgumentException("Tuple does not conform to the page types " + tuple); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Append the encoded tuple to the data array
+	 * @return the offset of the row
+	 */
+	private int append(List<?> tuple) {
+		int rowLength = 0;
+		for (int col = 0; col < kinds.length; col++) {
+			rowLength += 1 + getEncodedLength(tuple.get(col), kinds[col]);
+		}
+		int offset = length;
+		if (offset + rowLength > data.length) {
+			//always use a new array so that readers of the old one are not affected
+			data = Arrays.copyOf(data, Math.max(offset + rowLength, data.length + (data.length>>1)));
+		}
+		int pos = offset;
+		for (int col = 0; col < kinds.length; col++) {
+			pos = writeValue(data, pos, tuple.get(col), kinds[col]);
+		}
+		length = pos;
+		return offset;
+	}
+
+	private static int getEncodedLength(Object value, byte kind) {
+		if (value == null) {
+			return 0;
+		}
+		switch (kind) {
+		case INT:
+		case FLOAT:
+			return 4;
+		case LONG:
+		case DOUBLE:
+		case DATE:
+		case TIME:
+			return 8;
+		case SHORT:
+		case CHAR:
+			return 2;
+		case BYTE:
+		case BOOLEAN:
+			return 1;
+		case STRING:
+			return 4 + 2 * ((String)value).length();
+		case TIMESTAMP:
+			return 12;
+		case BIG_INTEGER:
+			return 4 + ((BigInteger)value).bitLength()/8 + 1;
+		default:
+			return 8 + ((BigDecimal)value).unscaledValue().bitLength()/8 + 1;
+		}
+	}
+
+	private static int writeValue(byte[] b, int pos, Object value, byte kind) {
+		if (value == null) {
+			b[pos] = 0;
+			return pos + 1;
+		}
+		b[pos++] = 1;
+		switch (kind) {
+		case INT:
+			return putInt(b, pos, ((Integer)value).intValue());
+		case LONG:
+			return putLong(b, pos, ((Long)value).longValue());
+		case DOUBLE:
+			return putLong(b, pos, Double.doubleToLongBits(((Double)value).doubleValue()));
+		case FLOAT:
+			return putInt(b, pos, Float.floatToIntBits(((Float)value).floatValue()));
+		case SHORT:
+			return putShort(b, pos, ((Short)value).shortValue());
+		case BYTE:
+			b[pos] = ((Byte)value).byteValue();
+			return pos + 1;
+		case BOOLEAN:
+			b[pos] = (byte)(((Boolean)value).booleanValue()?1:0);
+			return pos + 1;
+		case CHAR:
+			return putShort(b, pos, ((Character)value).charValue());
+		case STRING:
+			String s = (String)value;
+			pos = putInt(b, pos, s.length());
+			for (int i = 0; i < s.length(); i++) {
+				pos = putShort(b, pos, s.charAt(i));
+			}
+			return pos;
+		case DATE:
+		case TIME:
+			return putLong(b, pos, ((java.util.Date)value).getTime());
+		case TIMESTAMP:
+			Timestamp ts = (Timestamp)value;
+			pos = putLong(b, pos, ts.getTime());
+			return putInt(b, pos, ts.getNanos());
+		case BIG_INTEGER:
+			return putBytes(b, pos, ((BigInteger)value).toByteArray());
+		default:
+			BigDecimal bd = (BigDecimal)value;
+			pos = putInt(b, pos, bd.scale());
+			return putBytes(b, pos, bd.unscaledValue().toByteArray());
+		}
+	}
+
+	private static Object readValue(byte[] b, int pos, byte kind) {
+		if (b[pos++] == 0) {
+			return null;
+		}
+		switch (kind) {
+		case INT:
+			return getInt(b, pos);
+		case LONG:
+			return getLong(b, pos);
+		case DOUBLE:
+			return Double.longBitsToDouble(getLong(b, pos));
+		case FLOAT:
+			return Float.intBitsToFloat(getInt(b, pos));
+		case SHORT:
+			return getShort(b, pos);
+		case BYTE:
+			return b[pos];
+		case BOOLEAN:
+			return b[pos] != 0;
+		case CHAR:
+			return (char)getShort(b, pos);
+		case STRING:
+			char[] chars = new char[getInt(b, pos)];
+			pos += 4;
+			for (int i = 0; i < chars.length; i++, pos += 2) {
+				chars[i] = (char)getShort(b, pos);
+			}
+			return new String(chars);
+		case DATE:
+			return new Date(getLong(b, pos));
+		case TIME:
+			return new Time(getLong(b, pos));
+		case TIMESTAMP:
+			Timestamp ts = new Timestamp(getLong(b, pos));
+			ts.setNanos(getInt(b, pos + 8));
+			return ts;
+		case BIG_INTEGER:
+			return new BigInteger(Arrays.copyOfRange(b, pos + 4, pos + 4 + getInt(b, pos)));
+		default:
+			int scale = getInt(b, pos);
+			pos += 4;
+			return new BigDecimal(new BigInteger(Arrays.copyOfRange(b, pos + 4, pos + 4 + getInt(b, pos))), scale);
+		}
+	}
+
+	private static int skipValue(byte[] b, int pos, byte kind) {
+		if (b[pos++] == 0) {
+			return pos;
+		}
+		switch (kind) {
+		case INT:
+		case FLOAT:
+			return pos + 4;
+		case LONG:
+		case DOUBLE:
+		case DATE:
+		case TIME:
+			return pos + 8;
+		case SHORT:
+		case CHAR:
+			return pos + 2;
+		case BYTE:
+		case BOOLEAN:
+			return pos + 1;
+		case STRING:
+			return pos + 4 + 2 * getInt(b, pos);
+		case TIMESTAMP:
+			return pos + 12;
+		case BIG_INTEGER:
+			return pos + 4 + getInt(b, pos);
+		default:
+			return pos + 8 + getInt(b, pos + 4);
+		}
+	}
+
+	private int skipRow(byte[] b, int pos) {
+		for (int col = 0; col < kinds.length; col++) {
+			pos = skipValue(b, pos, kinds[col]);
+		}
+		return pos;
+	}
+
+	private static int putBytes(byte[] b, int pos, byte[] bytes) {
+		pos = putInt(b, pos, bytes.length);
+		System.arraycopy(bytes, 0, b, pos, bytes.length);
+		return pos + bytes.length;
+	}
+
+	private static int putShort(byte[] b, int pos, int value) {
+		b[pos] = (byte)(value >>> 8);
+		b[pos + 1] = (byte)value;
+		return pos + 2;
+	}
+
+	private static int putInt(byte[] b, int pos, int value) {
+		b[pos] = (byte)(value >>> 24);
+		b[pos + 1] = (byte)(value >>> 16);
+		b[pos + 2] = (byte)(value >>> 8);
+		b[pos + 3] = (byte)value;
+		return pos + 4;
+	}
+
+	private static int putLong(byte[] b, int pos, long value) {
+		pos = putInt(b, pos, (int)(value >>> 32));
+		return putInt(b, pos, (int)value);
+	}
+
+	private static short getShort(byte[] b, int pos) {
+		return (short)(((b[pos] & 0xff) << 8) | (b[pos + 1] & 0xff));
+	}
+
+	private static int getInt(byte[] b, int pos) {
+		return ((b[pos] & 0xff) << 24) | ((b[pos + 1] & 0xff) << 16) | ((b[pos + 2] & 0xff) << 8) | (b[pos + 3] & 0xff);
+	}
+
+	private static long getLong(byte[] b, int pos) {
+		return ((long)getInt(b, pos) << 32) | (getInt(b, pos + 4) & 0xffffffffL);
+	}
+
+	/**
+	 * Reclaim the space of replaced and removed rows once it exceeds the live space.
+	 */
+	private void compactIfNeeded() {
+		if (garbage <= length - garbage) {
+			return;
+		}
+		byte[] b = data;
+		int[] s = slots;
+		byte[] newData = new byte[Math.max(MIN_CAPACITY, length - garbage)];
+		int[] newSlots = new int[Math.max(1, size)];
+		int pos = 0;
+		for (int i = 0; i < size; i++) {
+			int start = s[i];
+			int rowLength = skipRow(b, start) - start;
+			System.arraycopy(b, start, newData, pos, rowLength);
+			newSlots[i] = pos;
+			pos += rowLength;
+		}
+		this.data = newData;
+		this.slots = newSlots;
+		this.length = pos;
+		this.garbage = 0;
+	}
+
+	private void checkIndex(int index, int bound) {
+		if (index < 0 || index >= bound) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+	}
+
+	@Override
+	public List<?> get(int index) {
+		checkIndex(index, size);
+		byte[] b = data;
+		int pos = slots[index];
+		Object[] result = new Object[kinds.length];
+		for (int col = 0; col < kinds.length; col++) {
+			result[col] = readValue(b, pos, kinds[col]);
+			pos = skipValue(b, pos, kinds[col]);
+		}
+		return Arrays.asList(result);
+	}
+
+	@Override
+	public List<?> set(int index, List<?> element) {
+		checkIndex(index, size);
+		checkConforms(element);
+		List<?> old = get(index);
+		int start = slots[index];
+		garbage += skipRow(data, start) - start;
+		slots[index] = append(element);
+		modCount++;
+		compactIfNeeded();
+		return old;
+	}
+
+	@Override
+	public void add(int index, List<?> element) {
+		checkIndex(index, size + 1);
+		checkConforms(element);
+		int offset = append(element);
+		if (size == slots.length) {
+			slots = Arrays.copyOf(slots, size + (size>>1) + 1);
+		}
+		System.arraycopy(slots, index, slots, index + 1, size - index);
+		slots[index] = offset;
+		size++;
+		modCount++;
+	}
+
+	@Override
+	public List<?> remove(int index) {
+		checkIndex(index, size);
+		List<?> old = get(index);
+		removeRange(index, index + 1);
+		return old;
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		if (fromIndex >= toIndex) {
+			return;
+		}
+		for (int i = fromIndex; i < toIndex; i++) {
+			int start = slots[i];
+			garbage += skipRow(data, start) - start;
+		}
+		System.arraycopy(slots, toIndex, slots, fromIndex, size - toIndex);
+		size -= toIndex - fromIndex;
+		modCount++;
+		compactIfNeeded();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	public int getModCount() {
+		return modCount;
+	}
+
+	/**
+	 * @return the approximate heap bytes held by this page
+	 */
+	public int getByteSize() {
+		return data.length + 4 * slots.length;
+	}
+
+	/**
+	 * Search the page, in the manner of {@link java.util.Collections#binarySearch(List, Object, Comparator)},
+	 * without decoding whole rows.  The rows passed to the comparator are only valid
+	 * for the duration of the compare call.
+	 */
+	@SuppressWarnings("unchecked")
+	public int binarySearch(List<?> key, Comparator<?> comparator) {
+		Comparator<Object> c = (Comparator<Object>)comparator;
+		Probe probe = new Probe();
+		probe.bytes = data;
+		int[] s = slots;
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			probe.setOffset(s[mid]);
+			int cmp = c.compare(probe, key);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Write the live rows of the page
+	 */
+	public void writeTo(ObjectOutput out) throws IOException {
+		byte[] b = data;
+		int[] s = slots;
+		int count = size;
+		out.writeInt(count);
+		out.writeInt(length - garbage);
+		for (int i = 0; i < count; i++) {
+			int start = s[i];
+			out.write(b, start, skipRow(b, start) - start);
+		}
+	}
+
+	/**
+	 * Read a page written by {@link #writeTo(ObjectOutput)}
+	 */
+	public static SlottedPage readFrom(ObjectInput in, Class<?>[] types) throws IOException {
+		int count = in.readInt();
+		int length = in.readInt();
+		byte[] data = new byte[Math.max(MIN_CAPACITY, length)];
+		in.readFully(data, 0, length);
+		SlottedPage result = new SlottedPage(types, getKinds(types), data, new int[Math.max(1, count)]);
+		int pos = 0;
+		for (int i = 0; i < count; i++) {
+			result.slots[i] = pos;
+			pos = result.skipRow(data, pos);
+		}
+		if (pos != length) {
+			throw new IOException("Invalid page length " + length); //$NON-NLS-1$
+		}
+		result.size = count;
+		result.length = length;
+		return result;
+	}
+
+}
@@ -74,6 +74,18 @@ public class TupleBatch {
         this.rowOffset = beginRow;
         this.tuples = new ArrayList<List<?>>(listOfTupleLists);
     }
+    
+    /**
+     * Constructor that uses the columnar batch directly, rather than copying
+     * to a row oriented list.  The tuples of the resulting batch cannot be modified.
+     * @param beginRow indicates the row of the tuple source which is the
+     * first row contained in this batch
+     * @param columnarBatch
+     */
+    public TupleBatch(int beginRow, ColumnarBatch columnarBatch) {
+    	this.rowOffset = beginRow;
+    	this.tuples = columnarBatch;
+    }
 
     /**
      * Return the number of the first row of the tuple source that is
@@ -113,6 +125,16 @@ public class TupleBatch {
 		return tuples;
 	}
     
+    /**
+     * @return the {@link ColumnarBatch} backing this batch or null if the batch is row oriented 
+     */
+    public ColumnarBatch getColumnarBatch() {
+    	if (tuples instanceof ColumnarBatch) {
+    		return (ColumnarBatch)tuples;
+    	}
+    	return null;
+    }
+    
     /**
      * Get all tuples 
      * @return All tuples
@@ -184,7 +184,7 @@ public class TupleBrowser implements TupleSource {
 					continue;
 				}
 				if (values != null) {
-					int possibleIndex = Collections.binarySearch(values, newValue, tree.comparator);
+					int possibleIndex = SPage.binarySearch(values, newValue, tree.comparator);
 					if (possibleIndex >= 0) {
 						//value exists in the current page
 						index = possibleIndex;
@@ -120,6 +120,9 @@ public class TupleBuffer {
 	private String tupleSourceID;
 	private List<? extends Expression> schema;
 	private int batchSize;
+	private int targetBatchBytes = -1;
+	private int minBatchSize;
+	private int maxBatchSize;
 	
 	private int rowCount;
 	private boolean isFinal;
@@ -252,6 +255,22 @@ public class TupleBuffer {
 		Long mbatch = manager.createManagedBatch(batchBuffer, null, false);
 		this.batches.put(rowCount - batchBuffer.size() + 1, mbatch);
         batchBuffer = null;
+        if (targetBatchBytes > 0) {
+        	int rowSize = manager.getRowSizeEstimate();
+        	if (rowSize > 0) {
+        		this.batchSize = Math.max(minBatchSize, Math.min(maxBatchSize, targetBatchBytes / rowSize));
+        	}
+        }
+	}
+	
+	/**
+	 * Resize subsequent batches to approximate the target bytes based upon
+	 * the observed size of the rows that have been saved.
+	 */
+	public void setTargetBatchBytes(int targetBatchBytes, int minBatchSize, int maxBatchSize) {
+		this.targetBatchBytes = targetBatchBytes;
+		this.minBatchSize = minBatchSize;
+		this.maxBatchSize = maxBatchSize;
 	}
 	
 	public void close() throws TeiidComponentException {
@@ -288,7 +307,11 @@ public class TupleBuffer {
 			Assertion.isNotNull(entry);
 			Long batch = entry.getValue();
 	    	List<List<?>> rows = manager.getBatch(batch, !forwardOnly);
-	    	result = new TupleBatch(entry.getKey(), rows);
+	    	if (rows instanceof ColumnarBatch) {
+	    		result = new TupleBatch(entry.getKey(), (ColumnarBatch)rows);
+	    	} else {
+	    		result = new TupleBatch(entry.getKey(), rows);
+	    	}
 	    	if (isFinal && result.getEndRow() == rowCount) {
 	    		result.setTerminationFlag(true);
 	    	}
@@ -399,6 +422,29 @@ public class TupleBuffer {
 		this.manager.setPrefersMemory(prefersMemory);
 	}
 	
+	/**
+	 * @see BatchManager#setOwnerAccount(BufferAccount)
+	 */
+	public void setOwnerAccount(BufferAccount owner) {
+		this.manager.setOwnerAccount(owner);
+	}
+	
+	/**
+	 * Opt in to holding batches in a column oriented form, see {@link ColumnarBatch}.
+	 * Should only be used when the consumer reads the columnar form, for example
+	 * with a {@link org.teiid.query.processor.relational.ListNestedSortComparator}.
+	 */
+	public void setColumnar(boolean columnar) {
+		this.manager.setColumnar(columnar);
+	}
+	
+	/**
+	 * @return true if batches are held in the column oriented form
+	 */
+	public boolean isColumnar() {
+		return this.manager.isColumnar();
+	}
+	
 	public String[] getTypes() {
 		return manager.getTypes();
 	}
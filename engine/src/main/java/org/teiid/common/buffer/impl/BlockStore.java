@@ -24,6 +24,7 @@ package org.teiid.common.buffer.impl;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.teiid.common.buffer.FileStore;
@@ -68,6 +69,34 @@ class BlockStore {
 		return result;
 	}
 	
+	/**
+	 * Write the memory blocks to a storage block with a single gathering write.
+	 */
+	int writeToStorageBlock(PhysicalInfo info,
+			BlockManager bm, int memoryBlockCount) throws IOException {
+		int block = getAndSetNextClearBit(info);
+		int segment = block/blocksInUse.getBitsPerSegment();
+		boolean success = false;
+		this.locks[segment].writeLock().lock();
+		try {
+			FileStore fs = stores[segment];
+			long blockOffset = (block%blocksInUse.getBitsPerSegment())*blockSize;
+			ByteBuffer[] buffers = new ByteBuffer[memoryBlockCount];
+			for (int i = 0; i < memoryBlockCount; i++) {
+				buffers[i] = bm.getBlock(i).slice();
+			}
+			fs.write(blockOffset, buffers);
+			success = true;
+		} finally {
+			locks[segment].writeLock().unlock();
+			if (!success) {
+				blocksInUse.clear(block);
+				block = BufferFrontedFileStoreCache.EMPTY_ADDRESS;
+			}
+		}
+		return block;
+	}
+	
 	int writeToStorageBlock(PhysicalInfo info,
 			InputStream is) throws IOException {
 		int block = getAndSetNextClearBit(info);
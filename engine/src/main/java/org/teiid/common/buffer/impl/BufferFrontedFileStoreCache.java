@@ -29,6 +29,7 @@ import java.io.ObjectInput;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -43,13 +44,19 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import org.teiid.common.buffer.AutoCleanupUtil;
+import org.teiid.common.buffer.BufferAccount;
 import org.teiid.common.buffer.Cache;
 import org.teiid.common.buffer.CacheEntry;
 import org.teiid.common.buffer.CacheKey;
@@ -105,6 +112,12 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 	private static final int DEFAULT_MIN_DEFRAG = 1 << 26;
 	private static final byte[] HEADER_SKIP_BUFFER = new byte[16];
 	private static final int EVICTION_SCANS = 2;
+	private static final int UNCOMPRESSED = 0;
+	private static final int COMPRESSED = 1;
+	//the ratio above which we consider the data incompressible
+	private static final double INCOMPRESSIBLE_RATIO = .9;
+	//the number of adds to skip compression after seeing incompressible data
+	private static final int COMPRESSION_BYPASS_COUNT = 64;
 
 	public static final int DEFAuLT_MAX_OBJECT_SIZE = 1 << 23;
 	
@@ -497,6 +510,11 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 	private AtomicLong storageWrites = new AtomicLong();
 	private AtomicLong storageReads = new AtomicLong();
 	
+	private boolean compress;
+	private AtomicInteger compressionBypass = new AtomicInteger();
+	private AtomicLong uncompressedBytes = new AtomicLong();
+	private AtomicLong compressedBytes = new AtomicLong();
+	
 	private long minDefrag = DEFAULT_MIN_DEFRAG;
 	
 	@Override
@@ -557,6 +575,7 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 		PhysicalInfo info = null;
 		boolean success = false;
 		int memoryBlocks = this.maxMemoryBlocks;
+		Deflater deflater = null;
 		try {
 			Map<Long, PhysicalInfo> map = physicalMapping.get(s.getId());
 			if (map == null) {
@@ -596,12 +615,27 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 			hasPermit = true;
 			blockManager = getBlockManager(s.getId(), entry.getId(), EMPTY_ADDRESS);
 			BlockOutputStream bos = new BlockOutputStream(blockManager, memoryBlocks);
-			ObjectOutput dos = new ObjectOutputStream(bos);
+			boolean compressed = shouldCompress();
+			bos.write(compressed?COMPRESSED:UNCOMPRESSED);
+			OutputStream os = bos;
+			if (compressed) {
+				deflater = new Deflater(Deflater.BEST_SPEED);
+				os = new DeflaterOutputStream(bos, deflater, BLOCK_SIZE) {
+					@Override
+					public void flush() throws IOException {
+						//a flush of the block stream would start a new block, the deflater will be finished on close
+					}
+				};
+			}
+			ObjectOutput dos = new ObjectOutputStream(os);
 			dos.writeLong(s.getId());
 			dos.writeLong(entry.getId());
 			dos.writeInt(entry.getSizeEstimate());
             s.serialize(entry.getObject(), dos);
             dos.close();
+            if (compressed) {
+            	recordCompression(deflater.getBytesRead(), deflater.getBytesWritten());
+            }
         	//synchronized to ensure proper cleanup from a concurrent removal 
             synchronized (map) {
             	if (physicalMapping.containsKey(s.getId()) && map.containsKey(entry.getId())) {
@@ -614,6 +648,12 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
             		success = true;
             	}
 			}
+            if (success) {
+            	BufferAccount account = s.getBufferAccount();
+            	if (account != null) {
+            		account.addBytesWritten(bos.getBytesWritten());
+            	}
+            }
 		} catch (Throwable e) {
 			if ((e == BlockOutputStream.exceededMax && newEntry) || e == PhysicalInfo.sizeChanged) {
 				//entries are mutable after adding, the original should be removed shortly so just ignore
@@ -639,9 +679,38 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 			if (!success && blockManager != null) {
 				blockManager.free(false);
 			}
+			if (deflater != null) {
+				deflater.end();
+			}
 		}
         return true;
 	}
+	
+	/**
+	 * Compress unless a recent sample was incompressible.
+	 */
+	private boolean shouldCompress() {
+		if (!compress) {
+			return false;
+		}
+		while (true) {
+			int bypass = compressionBypass.get();
+			if (bypass <= 0) {
+				return true;
+			}
+			if (compressionBypass.compareAndSet(bypass, bypass - 1)) {
+				return false;
+			}
+		}
+	}
+	
+	private void recordCompression(long bytesIn, long bytesOut) {
+		uncompressedBytes.addAndGet(bytesIn);
+		compressedBytes.addAndGet(bytesOut);
+		if (bytesOut > bytesIn * INCOMPRESSIBLE_RATIO) {
+			compressionBypass.set(COMPRESSION_BYPASS_COUNT);
+		}
+	}
 
 	private void checkForLowMemory() {
 		//proactively create freespace
@@ -691,6 +760,7 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 		InputStream is = null;
 		Lock lock = null;
 		int memoryBlocks = 0;
+		Inflater inflater = null;
 		try {
 			synchronized (info) {
 				assert !info.pinned && info.loading; //load should be locked
@@ -723,6 +793,14 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 			}
 			if (lock != null) {
 				is = readIntoMemory(info, is, lock, memoryBlocks);
+				BufferAccount account = serializer.getBufferAccount();
+				if (account != null) {
+					account.addBytesRead(memoryBlocks<<LOG_BLOCK_SIZE);
+				}
+			}
+			if (is.read() == COMPRESSED) {
+				inflater = new Inflater();
+				is = new InflaterInputStream(is, inflater, BLOCK_SIZE);
 			}
 			ObjectInput dis = new ObjectInputStream(is);
 			dis.readFully(HEADER_SKIP_BUFFER);
@@ -740,6 +818,9 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 				info.pinned = false;
 				info.notifyAll();
 			}
+        	if (inflater != null) {
+        		inflater.end();
+        	}
         }
 	}
 
@@ -903,9 +984,8 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 		try {
 			if (demote && block == EMPTY_ADDRESS) {
 				storageWrites.getAndIncrement();
-				BlockInputStream is = new BlockInputStream(bm, memoryBlockCount); 
 				BlockStore blockStore = sizeBasedStores[sizeIndex];
-				block = blockStore.writeToStorageBlock(info, is);
+				block = blockStore.writeToStorageBlock(info, bm, memoryBlockCount);
 			}
 		} catch (IOException e) {
 			LogManager.logError(LogConstants.CTX_BUFFER_MGR, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30016, oid));
@@ -1089,10 +1169,49 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 		this.minDefrag = minDefrag;
 	}
 	
+	/**
+	 * Set whether the memory buffer eviction queue should be sampled rather than totally ordered.
+	 * Should be set prior to use.
+	 */
+	public void setSampledEviction(boolean sampledEviction) {
+		if (sampledEviction) {
+			this.memoryBufferEntries = new SampledLrfuEvictionQueue<PhysicalInfo>(readAttempts);
+		} else {
+			this.memoryBufferEntries = new LrfuEvictionQueue<PhysicalInfo>(readAttempts);
+		}
+	}
+	
+	public boolean isSampledEviction() {
+		return this.memoryBufferEntries instanceof SampledLrfuEvictionQueue;
+	}
+	
 	public int getMaxMemoryBlocks() {
 		return maxMemoryBlocks;
 	}
 	
+	/**
+	 * Set whether serialized objects should be compressed.  Compression is skipped 
+	 * for a time when a sample is found to be incompressible. 
+	 */
+	public void setCompress(boolean compress) {
+		this.compress = compress;
+	}
+	
+	public boolean isCompress() {
+		return compress;
+	}
+	
+	/**
+	 * @return the ratio of compressed to uncompressed bytes for the objects that were compressed
+	 */
+	public double getCompressionRatio() {
+		long in = uncompressedBytes.get();
+		if (in == 0) {
+			return 1;
+		}
+		return compressedBytes.get()/(double)in;
+	}
+	
 	public long getMemoryInUseBytes() {
 		return this.blocksInuse.getBitsSet() * BLOCK_SIZE + this.inodesInuse.getBitsSet() * (1 << LOG_INODE_SIZE);
 	}
@@ -37,6 +37,8 @@ import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -45,15 +47,18 @@ import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.teiid.client.BatchSerializer;
+import org.teiid.client.BufferLimitExceededException;
 import org.teiid.client.ResizingArrayList;
 import org.teiid.common.buffer.*;
 import org.teiid.common.buffer.AutoCleanupUtil.Removable;
+import org.teiid.common.buffer.BufferAccount.LimitPolicy;
 import org.teiid.common.buffer.LobManager.ReferenceMode;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.types.DataTypeManager;
 import org.teiid.core.types.DataTypeManager.WeakReferenceHashedValueCache;
 import org.teiid.core.types.Streamable;
+import org.teiid.core.util.ExecutorUtils;
 import org.teiid.dqp.internal.process.DQPConfiguration;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
@@ -105,6 +110,31 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		}
 	}
 	
+	/**
+	 * Write-behind eviction task.  Evicts until the active batch bytes are below the low-water mark
+	 * so that processing threads do not need to write batches for other plans.
+	 */
+	private final class Evictor implements Runnable {
+		@Override
+		public void run() {
+			boolean progress = false;
+			try {
+				while (activeBatchBytes.get() > reserveBatchBytes.get() * .8) {
+					if (doEvictions(maxProcessingBytes, true) == 0) {
+						break;
+					}
+					progress = true;
+				}
+			} finally {
+				activeEvictors.decrementAndGet();
+			}
+			if (progress) {
+				//catch anything added during the last pass
+				scheduleEviction();
+			}
+		}
+	}
+	
 	private final class Remover implements Removable {
 		private Long id;
 		private AtomicBoolean prefersMemory;
@@ -124,6 +154,10 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 	 * This estimate is based upon adding the value to 2/3 maps and having CacheEntry/PhysicalInfo keys
 	 */
 	private static final long BATCH_OVERHEAD = 128;
+	/**
+	 * The number of blocked attempts a throttled reservation will wait before exceeding its limit
+	 */
+	private static final int THROTTLE_ATTEMPTS = 8;
 	
 	final class BatchManagerImpl implements BatchManager, Serializer<List<? extends List<?>>> {
 		final Long id;
@@ -135,10 +169,22 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		private LobManager lobManager;
 		private long totalSize;
 		private long rowsSampled;
+		private Class<?>[] typeClasses;
+		private Class<?>[] columnarTypes;
+		private boolean slottedPages;
+		/**
+		 * The batches are charged through an account of their own, so that the charge can move with ownership 
+		 */
+		private final BufferAccount account = new BufferAccount(reservedByThread.get());
+		private RowSizeSample rowSizeSample;
 
 		private BatchManagerImpl(Long newID, Class<?>[] types) {
 			this.id = newID;
+			this.typeClasses = types;
 			this.sizeUtility = new SizeUtility(types);
+			if (adaptiveBatchSizing) {
+				this.rowSizeSample = getRowSizeSample(Arrays.asList(types), true);
+			}
 			this.types = new String[types.length];
 			for (int i = 0; i < types.length; i++) {
 				this.types[i] = DataTypeManager.getDataTypeName(types[i]);
@@ -150,10 +196,60 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			return id;
 		}
 		
+		@Override
+		public BufferAccount getBufferAccount() {
+			return account;
+		}
+		
+		@Override
+		public void setOwnerAccount(BufferAccount owner) {
+			synchronized (account) {
+				BufferAccount current = account.getParent();
+				if (current == owner) {
+					return;
+				}
+				long batchBytes = account.getBatchBytes();
+				if (current != null) {
+					current.addBatchBytes(-batchBytes);
+				}
+				account.setParent(owner);
+				if (owner != null) {
+					owner.addBatchBytes(batchBytes);
+				}
+			}
+		}
+		
 		public void setLobManager(LobManager lobManager) {
 			this.lobManager = lobManager;
 		}
 		
+		/**
+		 * Hold added batches in memory in columnar form.  Should only be used 
+		 * if the batches are not modified after being added.  Has no effect 
+		 * unless columnar batches are enabled, and is not used with lobs as 
+		 * lob references are updated in place.
+		 */
+		@Override
+		public void setColumnar(boolean columnar) {
+			if (columnar && columnarBatches && lobManager == null && ColumnarBatch.hasPrimitiveColumns(typeClasses)) {
+				this.columnarTypes = typeClasses;
+			} else {
+				this.columnarTypes = null;
+			}
+		}
+		
+		@Override
+		public boolean isColumnar() {
+			return this.columnarTypes != null;
+		}
+		
+		/**
+		 * Expect {@link SlottedPage} batches, which are serialized in their own format.
+		 */
+		void setSlottedPages(boolean slottedPages) {
+			this.slottedPages = slottedPages;
+		}
+		
 		@Override
 		public String[] getTypes() {
 			return types;
@@ -189,6 +285,11 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 				cleanup = AutoCleanupUtil.setCleanupReference(this, new Remover(id, prefersMemory));
 			}
 			int sizeEstimate = getSizeEstimate(batch);
+			BufferAccount exceeded = checkLimit(account, sizeEstimate);
+			if (exceeded != null && exceeded.getLimitPolicy() != LimitPolicy.SPILL) {
+				exceeded = null;
+			}
+			batch = toColumnar(batch);
 			Long oid = batchAdded.getAndIncrement();
 			CacheEntry old = null;
 			if (previous != null) {
@@ -200,9 +301,14 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			} else {
 				totalSize += sizeEstimate;
 				rowsSampled += batch.size();
+				if (rowSizeSample != null) {
+					rowSizeSample.totalSize.addAndGet(sizeEstimate);
+					rowSizeSample.rowsSampled.addAndGet(batch.size());
+				}
 			}
 			CacheKey key = new CacheKey(oid, (int)readAttempts.get(), old!=null?old.getKey().getOrderingValue():0);
 			CacheEntry ce = new CacheEntry(key, sizeEstimate, batch, this.ref, false);
+			ce.setBufferAccount(account);
 			if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.TRACE)) {
 				LogManager.logTrace(LogConstants.CTX_BUFFER_MGR, "Add batch to BufferManager", ce.getId(), "with size estimate", ce.getSizeEstimate()); //$NON-NLS-1$ //$NON-NLS-2$
 			}
@@ -210,12 +316,19 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			reserveBatchBytes.addAndGet(-BATCH_OVERHEAD);
 			cache.addToCacheGroup(id, ce.getId());
 			addMemoryEntry(ce, true);
+			if (exceeded != null) {
+				//the request is over its limit, so don't grow the memory footprint
+				evictEntry(ce);
+			}
 			return oid;
 		}
 
 		@Override
 		public List<? extends List<?>> deserialize(ObjectInput ois)
 				throws IOException, ClassNotFoundException {
+			if (slottedPages && ois.readBoolean()) {
+				return SlottedPage.readFrom(ois, typeClasses);
+			}
 			List<? extends List<?>> batch = BatchSerializer.readBatch(ois, types);
 			if (lobManager != null) {
 				for (int i = batch.size() - 1; i >= 0; i--) {
@@ -229,9 +342,36 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			return batch;
 		}
 		
+		private List<? extends List<?>> toColumnar(List<? extends List<?>> batch) {
+			if (columnarTypes == null) {
+				return batch;
+			}
+			ColumnarBatch result = ColumnarBatch.create(columnarTypes, batch);
+			if (result == null) {
+				return batch;
+			}
+			return result;
+		}
+		
 		@Override
 		public void serialize(List<? extends List<?>> obj,
 				ObjectOutput oos) throws IOException {
+			if (slottedPages) {
+				oos.writeBoolean(obj instanceof SlottedPage);
+				if (obj instanceof SlottedPage) {
+					SlottedPage page = (SlottedPage)obj;
+					int expectedModCount = page.getModCount();
+					try {
+						page.writeTo(oos);
+					} catch (RuntimeException e) {
+						//there is a chance of a concurrent persist while modifying
+						if (page.getModCount() == expectedModCount) {
+							throw e;
+						}
+					}
+					return;
+				}
+			}
 			int expectedModCount = 0;
 			ResizingArrayList<?> list = null;
 			if (obj instanceof ResizingArrayList<?>) {
@@ -250,6 +390,9 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		}
 		
 		public int getSizeEstimate(List<? extends List<?>> obj) {
+			if (obj instanceof SlottedPage) {
+				return ((SlottedPage)obj).getByteSize();
+			}
 			return (int) Math.max(1, sizeUtility.getBatchSize(DataTypeManager.isValueCacheEnabled(), obj));
 		}
 		
@@ -284,6 +427,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 				if (!retain) {
 					removeFromCache(this.id, batch);
 				} else {
+					ce.setBufferAccount(account);
 					addMemoryEntry(ce, false);
 				}
 			} finally {
@@ -320,6 +464,14 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		}
 	}
 	
+	/**
+	 * The observed size of rows with a given schema
+	 */
+	private static class RowSizeSample {
+		AtomicLong totalSize = new AtomicLong();
+		AtomicLong rowsSampled = new AtomicLong();
+	}
+	
 	private static class BatchSoftReference extends SoftReference<CacheEntry> {
 
 		private int sizeEstimate;
@@ -335,6 +487,8 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 
 	static final int CONCURRENCY_LEVEL = 32; //TODO: make this configurable since it is roughly the same as max active plans
 	private static final int TARGET_BYTES_PER_ROW = 1 << 11; //2k bytes per row
+	private static final int MIN_ROWS_SAMPLED = 1 << 5;
+	private static final int MAX_ROW_SIZE_SAMPLES = 1 << 10;
 	private static ReferenceQueue<CacheEntry> SOFT_QUEUE = new ReferenceQueue<CacheEntry>();
 	
 	// Configuration 
@@ -347,12 +501,18 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     private int maxActivePlans = DQPConfiguration.DEFAULT_MAX_ACTIVE_PLANS; //used as a hint to set the reserveBatchKB
     private boolean useWeakReferences = true;
     private boolean inlineLobs = true;
+    private boolean slottedSTreePages;
+    private boolean adaptiveBatchSizing;
+    private ConcurrentHashMap<List<Class<?>>, RowSizeSample> rowSizeSamples = new ConcurrentHashMap<List<Class<?>>, RowSizeSample>();
+    private boolean columnarBatches;
     private int targetBytesPerRow = TARGET_BYTES_PER_ROW;
     private int maxSoftReferences;
     private int nominalProcessingMemoryMax = maxProcessingBytes;
 
-    private ReentrantLock lock = new ReentrantLock();
+    //only used when the reserve is exhausted
+    private ReentrantLock lock = new ReentrantLock(true);
     private Condition batchesFreed = lock.newCondition();
+    private AtomicInteger waitingForBuffers = new AtomicInteger();
     
     AtomicLong activeBatchBytes = new AtomicLong();
     
@@ -361,15 +521,13 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     LrfuEvictionQueue<CacheEntry> evictionQueue = new LrfuEvictionQueue<CacheEntry>(readAttempts);
     ConcurrentHashMap<Long, CacheEntry> memoryEntries = new ConcurrentHashMap<Long, CacheEntry>(16, .75f, CONCURRENCY_LEVEL);
     
-    private static class ResourceThreadLocal extends ThreadLocal<long[]> {
-    	protected long[] initialValue() {
-    		long[] result = new long[2];
-    		result[1] = Long.MIN_VALUE;
-    		return result;
+    private static class ResourceThreadLocal extends ThreadLocal<BufferAccount> {
+    	protected BufferAccount initialValue() {
+    		return new BufferAccount();
     	}
     };
     
-    private ThreadLocal<long[]> reservedByThread = new ResourceThreadLocal();
+    private ThreadLocal<BufferAccount> reservedByThread = new ResourceThreadLocal();
     
     //limited size reference caches based upon the memory settings
     private WeakReferenceHashedValueCache<CacheEntry> weakReferenceCache; 
@@ -402,6 +560,11 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 	private static final Timer timer = new Timer("BufferManager Cleaner", true); //$NON-NLS-1$
 	private Cleaner cleaner;
 	
+	private int evictionThreads;
+	private volatile ExecutorService evictionExecutor;
+	private AtomicInteger activeEvictors = new AtomicInteger();
+	private Evictor evictor = new Evictor();
+	
 	public BufferManagerImpl() {
 		this.cleaner = new Cleaner(this);
 		timer.schedule(cleaner, 1000, 100);
@@ -476,9 +639,13 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		if (lobIndexes != null) {
 			FileStore lobStore = createFileStore(newID + "_lobs"); //$NON-NLS-1$
 			lobManager = new LobManager(lobIndexes, lobStore);
+			lobManager.setBufferAccount(batchManager.getBufferAccount());
 			batchManager.setLobManager(lobManager);
 		}
     	TupleBuffer tupleBuffer = new TupleBuffer(batchManager, String.valueOf(newID), elements, lobManager, getProcessorBatchSize(elements));
+    	if (adaptiveBatchSizing) {
+    		tupleBuffer.setTargetBatchBytes(processorBatchSize * targetBytesPerRow, Math.max(1, processorBatchSize >> 3), processorBatchSize << 3);
+    	}
         if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL)) {
         	LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, "Creating TupleBuffer:", newID, elements, Arrays.toString(types), "batch size", tupleBuffer.getBatchSize(), "of type", tupleSourceType); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
         }
@@ -504,7 +671,12 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     	if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL)) {
     		LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, "Creating STree:", newID); //$NON-NLS-1$
     	}
-    	return new STree(keyManager, bm, new ListNestedSortComparator(compareIndexes), getProcessorBatchSize(elements.subList(0, keyLength)), getProcessorBatchSize(elements), keyLength, lobManager);
+    	STree tree = new STree(keyManager, bm, new ListNestedSortComparator(compareIndexes), getProcessorBatchSize(elements.subList(0, keyLength)), getProcessorBatchSize(elements), keyLength, lobManager);
+    	if (slottedSTreePages) {
+    		tree.setSlottedPages(true);
+    		bm.setSlottedPages(tree.isSlottedPages());
+    	}
+    	return tree;
     }
 
 	private static Class<?>[] getTypeClasses(final List<? extends Expression> elements) {
@@ -595,45 +767,65 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     	if (count < 1) {
     		return;
     	}
-    	long[] val = reservedByThread.get();
-    	val[0] -= count;
+    	reservedByThread.get().addReservedBytes(-count);
     	if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.TRACE)) {
     		LogManager.logTrace(LogConstants.CTX_BUFFER_MGR, "Releasing buffer space", count); //$NON-NLS-1$
     	}
-    	lock.lock();
-    	try {
-        	this.reserveBatchBytes.addAndGet(count);
-	    	batchesFreed.signal();
-    	} finally {
-    		lock.unlock();
+    	this.reserveBatchBytes.addAndGet(count);
+    	if (waitingForBuffers.get() > 0) {
+	    	lock.lock();
+	    	try {
+		    	batchesFreed.signal();
+	    	} finally {
+	    		lock.unlock();
+	    	}
     	}
     }
     
+    @Override
+    public BufferAccount getBufferAccount() {
+    	return reservedByThread.get();
+    }
+    
+    @Override
+    public void setBufferAccount(BufferAccount account) {
+    	reservedByThread.set(account);
+    }
+    
     @Override
     public int reserveBuffers(int count, BufferReserveMode mode) {
     	if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.TRACE)) {
     		LogManager.logTrace(LogConstants.CTX_BUFFER_MGR, "Reserving buffer space", count, mode); //$NON-NLS-1$
     	}
     	int result = count;
+    	BufferAccount account = reservedByThread.get();
     	if (mode == BufferReserveMode.FORCE) {
+    		checkLimit(account, count);
     		reserve(count);
     	} else {
-    		lock.lock();
-    		try {
-    			count = Math.min(count, nominalProcessingMemoryMax);
-    			result = noWaitReserve(count, false);
-    		} finally {
-    			lock.unlock();
-    		}
+			count = (int)Math.min(Math.min(count, nominalProcessingMemoryMax), account.getAvailableBytes());
+			result = noWaitReserve(count, false);
     	}
 		persistBatchReferences();
     	return result;
     }
+    
+    /**
+     * Fail a forced reservation or batch creation if it exceeds an account limit with the fail policy.
+     * The {@link BufferLimitExceededException} is wrapped as the callers do not expect processing exceptions.
+     * @return the exceeded account or null
+     */
+    private BufferAccount checkLimit(BufferAccount account, int count) {
+    	BufferAccount exceeded = account.getExceededAccount(count);
+    	if (exceeded != null && exceeded.getLimitPolicy() == LimitPolicy.FAIL) {
+    		throw new TeiidRuntimeException(QueryPlugin.Event.TEIID31136, new BufferLimitExceededException(QueryPlugin.Event.TEIID31136, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31136, count, exceeded.getLimit())));
+    	}
+    	return exceeded;
+    }
 
 	private void reserve(int count) {
 		this.reserveBatchBytes.addAndGet(-count);
-		long[] val = reservedByThread.get();
-		val[0] += count;
+		reservedByThread.get().addReservedBytes(count);
 	}
     
     @Override
@@ -645,13 +837,21 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     	if (count == 0) {
     		return 0;
     	}
-		long[] val = reservedByThread.get();
+		BufferAccount account = reservedByThread.get();
     	int result = 0;
 		int count_orig = count;
-		count = Math.min(count, (int)Math.min(Integer.MAX_VALUE, Math.max(0, nominalProcessingMemoryMax - val[0])));
+		long available = Math.min(nominalProcessingMemoryMax - account.getReservedBytes(), account.getAvailableBytes());
+		count = Math.min(count, (int)Math.min(Integer.MAX_VALUE, Math.max(0, available)));
 		if (count_orig != count && !force) {
 			return 0; //is not possible to reserve the desired amount
 		}
+		if (force) {
+			BufferAccount exceeded = checkLimit(account, count_orig);
+			if (exceeded != null && exceeded.getLimitPolicy() == LimitPolicy.THROTTLE && attempts < THROTTLE_ATTEMPTS) {
+				//yield to other work before exceeding the limit
+				throw BlockedException.BLOCKED_ON_MEMORY_EXCEPTION;
+			}
+		}
 		if (force && count == 0) {
 			reserve(count_orig);
 			result = count_orig;
@@ -659,14 +859,16 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			result = noWaitReserve(count, true);
 		}
 		if (result == 0) {
-			if (val[1] == Long.MIN_VALUE) {
-				val[1] = System.currentTimeMillis();
+			long last = account.getLastBlocked();
+			if (last == Long.MIN_VALUE) {
+				account.setLastBlocked(System.currentTimeMillis());
 			} else if (attempts > 1) {
-				long last = val[1];
-				val[1] = System.currentTimeMillis();
+				long now = System.currentTimeMillis();
+				account.setLastBlocked(now);
+				waitingForBuffers.incrementAndGet();
 				try {
 					lock.lock();
-					if (val[1] - last < 10) {
+					if (now - last < 10) {
 						//if the time difference is too close, then wait to prevent tight spins
 						//but we can't wait too long as we don't want to thread starve the system
 						batchesFreed.await(20, TimeUnit.MILLISECONDS);
@@ -696,6 +898,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 					throw new TeiidRuntimeException(e);
 				} finally {
 					lock.unlock();
+					waitingForBuffers.decrementAndGet();
 				}
 			}
 			if (result == 0) {
@@ -706,9 +909,12 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     	return result;
     }
 
+	/**
+	 * Take up to count from the reserve without taking it below 0.
+	 * The count is clamped against the latest value on each attempt.
+	 */
 	private int noWaitReserve(int count, boolean allOrNothing) {
-		boolean success = false;
-		for (int i = 0; !success && i < 2; i++) {
+		while (true) {
 			long reserveBatch = this.reserveBatchBytes.get();
 			if (allOrNothing && count > reserveBatch) {
 				return 0;
@@ -718,21 +924,19 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 				return 0;
 			}
 			if (this.reserveBatchBytes.compareAndSet(reserveBatch, reserveBatch - count)) {
-				success = true;
+				break;
 			}
 		}
-		//the value is changing rapidly, but we've already potentially adjusted the value twice, so just proceed
-		if (!success) {
-			this.reserveBatchBytes.addAndGet(-count);
-		}
-		long[] val = reservedByThread.get();
-    	val[0] += count;
+		reservedByThread.get().addReservedBytes(count);
 		return count;
 	}
     
 	void persistBatchReferences() {
 		long activeBatch = activeBatchBytes.get();
 		long reserveBatch = reserveBatchBytes.get();
+		if (evictionExecutor != null && activeBatch > reserveBatch * .9) {
+			scheduleEviction();
+		}
 		if (activeBatch <= reserveBatch) {
     		long memoryCount = activeBatch + getMaxReserveKB() - reserveBatch;
 			if (DataTypeManager.isValueCacheEnabled()) {
@@ -744,12 +948,41 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			}
 			return;
 		}
+		if (evictionExecutor != null && activeBatch - reserveBatch <= Math.max(maxProcessingBytes, maxReserveBytes.get()>>3)) {
+			//let the evictors catch up, unless we are over the hard limit
+			return;
+		}
 		long maxToFree = Math.min(maxProcessingBytes, (activeBatch - reserveBatch)<<1);
 		doEvictions(maxToFree, true);
 	}
+	
+	private void scheduleEviction() {
+		ExecutorService executor = this.evictionExecutor;
+		if (executor == null) {
+			return;
+		}
+		while (true) {
+			int active = activeEvictors.get();
+			if (active >= evictionThreads) {
+				return;
+			}
+			if (activeEvictors.compareAndSet(active, active + 1)) {
+				break;
+			}
+		}
+		try {
+			executor.execute(evictor);
+		} catch (RejectedExecutionException e) {
+			activeEvictors.decrementAndGet();
+		}
+	}
 
-	void doEvictions(long maxToFree, boolean checkActiveBatch) {
-		int freed = 0;
+	/**
+	 * @return the bytes freed
+	 */
+	long doEvictions(long maxToFree, boolean checkActiveBatch) {
+		long freed = 0;
+		long total = 0;
 		while (freed <= maxToFree && (!checkActiveBatch || (maxToFree == 0 && activeBatchBytes.get() > reserveBatchBytes.get() * .7) || (maxToFree > 0 && activeBatchBytes.get() > reserveBatchBytes.get() * .8))) {
 			CacheEntry ce = evictionQueue.firstEntry(checkActiveBatch);
 			if (ce == null) {
@@ -769,24 +1002,36 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 					continue;
 				}
 			}
-			boolean evicted = true;
-			try {
-				evicted = evict(ce);
-			} catch (Throwable e) {
-				LogManager.logError(LogConstants.CTX_BUFFER_MGR, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30017, ce.getId() ));
-			} finally {
-				synchronized (ce) {
-					if (evicted && memoryEntries.remove(ce.getId()) != null) {
-						if (maxToFree > 0) {
-							freed += ce.getSizeEstimate();
-						}
-						activeBatchBytes.addAndGet(-ce.getSizeEstimate());
-						evictionQueue.remove(ce); //ensures that an intervening get will still be cleaned
-						checkActiveBatch = true;
-					}
+			if (evictEntry(ce)) {
+				if (maxToFree > 0) {
+					freed += ce.getSizeEstimate();
 				}
+				total += ce.getSizeEstimate();
+				checkActiveBatch = true;
 			}
 		}
+		return total;
+	}
+	
+	/**
+	 * Evict the entry from memory regardless of its position in the eviction queue
+	 * @return true if the entry was removed from memory
+	 */
+	private boolean evictEntry(CacheEntry ce) {
+		boolean evicted = true;
+		try {
+			evicted = evict(ce);
+		} catch (Throwable e) {
+			LogManager.logError(LogConstants.CTX_BUFFER_MGR, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30017, ce.getId() ));
+		}
+		synchronized (ce) {
+			if (evicted && memoryEntries.remove(ce.getId()) != null) {
+				addActiveBatchBytes(ce, -ce.getSizeEstimate());
+				evictionQueue.remove(ce); //ensures that an intervening get will still be cleaned
+				return true;
+			}
+		}
+		return false;
 	}
 
 	boolean evict(CacheEntry ce) throws Exception {
@@ -802,6 +1047,10 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			}
 		}
 		if (persist) {
+			BufferAccount account = s.getBufferAccount();
+			if (account != null) {
+				account.batchWritten();
+			}
 			long count = writeCount.incrementAndGet();
 			if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL)) {
 				LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, ce.getId(), "writing batch to storage, total writes: ", count); //$NON-NLS-1$
@@ -897,7 +1146,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 
 	private void remove(CacheEntry ce, boolean inMemory) {
 		if (inMemory) {
-			activeBatchBytes.addAndGet(-ce.getSizeEstimate());
+			addActiveBatchBytes(ce, -ce.getSizeEstimate());
 		}
 		Serializer<?> s = ce.getSerializer();
 		if (s != null) {
@@ -918,7 +1167,20 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 				evictionQueue.touch(ce);
 			}
 		}
-		activeBatchBytes.getAndAdd(ce.getSizeEstimate());
+		addActiveBatchBytes(ce, ce.getSizeEstimate());
+	}
+	
+	/**
+	 * Track the memory held by batches both globally and against the account of the entry
+	 */
+	private void addActiveBatchBytes(CacheEntry ce, long count) {
+		activeBatchBytes.addAndGet(count);
+		BufferAccount account = ce.getBufferAccount();
+		if (account != null) {
+			synchronized (account) {
+				account.addBatchBytes(count);
+			}
+		}
 	}
 	
 	void removeCacheGroup(Long id, boolean prefersMemory) {
@@ -952,6 +1214,16 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 	}
 	
 	private int[] getSizeEstimates(List<? extends Expression> elements) {
+		if (adaptiveBatchSizing) {
+			RowSizeSample sample = getRowSizeSample(Arrays.asList(getTypeClasses(elements)), false);
+			long rows = 0;
+			if (sample != null && (rows = sample.rowsSampled.get()) >= MIN_ROWS_SAMPLED) {
+				//use the observed rather than the nominal row size
+				int total = (int)Math.min(Integer.MAX_VALUE, Math.max(1, sample.totalSize.get() / rows));
+				int rowCount = (int)Math.max(Math.max(1, processorBatchSize >> 3), Math.min(processorBatchSize << 3, (long)processorBatchSize * targetBytesPerRow / total));
+				return new int[]{rowCount, (int)Math.min(Integer.MAX_VALUE, (long)total * rowCount)};
+			}
+		}
 		int total = 0;
 		boolean isValueCacheEnabled = DataTypeManager.isValueCacheEnabled();
 		for (int i = elements.size() - 1; i >= 0; i--) {
@@ -988,6 +1260,18 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		return new int[]{rowCount, Math.max(1, total)};
 	}
 	
+	private RowSizeSample getRowSizeSample(List<Class<?>> types, boolean create) {
+		RowSizeSample sample = rowSizeSamples.get(types);
+		if (sample == null && create && rowSizeSamples.size() < MAX_ROW_SIZE_SAMPLES) {
+			sample = new RowSizeSample();
+			RowSizeSample existing = rowSizeSamples.putIfAbsent(types, sample);
+			if (existing != null) {
+				sample = existing;
+			}
+		}
+		return sample;
+	}
+	
 	@Override
 	public int getSchemaSize(List<? extends Expression> elements) {
 		return getSizeEstimates(elements)[1];
@@ -998,6 +1282,10 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		this.memoryEntries.clear();
 		this.evictionQueue.getEvictionQueue().clear();
 		this.cleaner.cancel();
+		if (this.evictionExecutor != null) {
+			this.evictionExecutor.shutdownNow();
+			this.evictionExecutor = null;
+		}
 	}
 
 	@Override
@@ -1068,9 +1356,10 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		out.writeInt(buffer.getRowCount());
 		out.writeInt(buffer.getBatchSize());
 		out.writeObject(buffer.getTypes());
-		for (int row = 1; row <= buffer.getRowCount(); row+=buffer.getBatchSize()) {
+		for (int row = 1; row <= buffer.getRowCount();) {
 			TupleBatch b = buffer.getBatch(row);
 			BatchSerializer.writeBatch(out, buffer.getTypes(), b.getTuples());
+			row = b.getEndRow() + 1;
 		}
 	}
 
@@ -1110,8 +1399,12 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		buffer.setBatchSize(batchSize);
 		buffer.setId(state_id);
 		
-		for (int row = 1; row <= rowCount; row+=batchSize) {
+		//batches may vary in size
+		while (buffer.getRowCount() < rowCount) {
 			List<List<Object>> batch = BatchSerializer.readBatch(in, types);
+			if (batch == null || batch.isEmpty()) {
+				break;
+			}
 			for (int i = 0; i < batch.size(); i++) {
 				buffer.addTuple(batch.get(i));
 			}
@@ -1135,6 +1428,84 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 	public void setInlineLobs(boolean inlineLobs) {
 		this.inlineLobs = inlineLobs;
 	}
+	
+	/**
+	 * Set whether tuple buffer batches with fixed width columns may be 
+	 * held in a column oriented primitive form.  Only buffers that opt in
+	 * via {@link TupleBuffer#setColumnar(boolean)} are affected.
+	 */
+	public void setColumnarBatches(boolean columnarBatches) {
+		this.columnarBatches = columnarBatches;
+	}
+	
+	public boolean isColumnarBatches() {
+		return columnarBatches;
+	}
+	
+	/**
+	 * Set the number of background threads that write evicted batches to storage.
+	 * With 0 threads (the default) evictions are performed by the thread that exceeds
+	 * the reserve.  Otherwise processing threads only perform evictions once the hard
+	 * limit over the reserve is exceeded.
+	 */
+	public void setEvictionThreads(int evictionThreads) {
+		this.evictionThreads = evictionThreads;
+		if (this.evictionExecutor != null) {
+			this.evictionExecutor.shutdown();
+			this.evictionExecutor = null;
+		}
+		if (evictionThreads > 0) {
+			this.evictionExecutor = ExecutorUtils.newFixedThreadPool(evictionThreads, "BufferManager Evictor"); //$NON-NLS-1$
+		}
+	}
+	
+	public int getEvictionThreads() {
+		return evictionThreads;
+	}
+	
+	/**
+	 * Set whether the eviction queue should be sampled rather than totally ordered.
+	 * Sampling approximates the LRFU ordering, but records accesses in constant time, 
+	 * which avoids contention with a large number of batches.  Should be set prior to use.
+	 */
+	public void setSampledEviction(boolean sampledEviction) {
+		if (sampledEviction) {
+			this.evictionQueue = new SampledLrfuEvictionQueue<CacheEntry>(readAttempts);
+		} else {
+			this.evictionQueue = new LrfuEvictionQueue<CacheEntry>(readAttempts);
+		}
+	}
+	
+	public boolean isSampledEviction() {
+		return this.evictionQueue instanceof SampledLrfuEvictionQueue;
+	}
+	
+	/**
+	 * Set whether full {@link STree} leaf pages, such as those of internal materialized views, 
+	 * should be held as {@link SlottedPage}s so that lookups and updates do not decode 
+	 * or re-encode the whole page.  The pages are still managed batches, so they are 
+	 * charged to the reserve and may be evicted to storage.
+	 */
+	public void setSlottedSTreePages(boolean slottedSTreePages) {
+		this.slottedSTreePages = slottedSTreePages;
+	}
+	
+	public boolean isSlottedSTreePages() {
+		return slottedSTreePages;
+	}
+	
+	/**
+	 * Set whether batch sizes should be based upon the observed size of rows 
+	 * with the same schema rather than the nominal size of their types.  
+	 * {@link TupleBuffer}s will also resize their batches as rows are added.
+	 */
+	public void setAdaptiveBatchSizing(boolean adaptiveBatchSizing) {
+		this.adaptiveBatchSizing = adaptiveBatchSizing;
+	}
+	
+	public boolean isAdaptiveBatchSizing() {
+		return adaptiveBatchSizing;
+	}
 
 	public int getMaxReserveKB() {
 		return (int)maxReserveBytes.get()>>10;
@@ -1160,7 +1531,13 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 	@Override
 	public Streamable<?> persistLob(Streamable<?> lob, FileStore store,
 			byte[] bytes) throws TeiidComponentException {
-		return LobManager.persistLob(lob, store, bytes, inlineLobs, DataTypeManager.MAX_LOB_MEMORY_BYTES);
+		long length = store.getLength();
+		Streamable<?> result = LobManager.persistLob(lob, store, bytes, inlineLobs, DataTypeManager.MAX_LOB_MEMORY_BYTES);
+		long persisted = store.getLength() - length;
+		if (persisted > 0) {
+			reservedByThread.get().addLobBytesPersisted(persisted);
+		}
+		return result;
 	}
 	
 }
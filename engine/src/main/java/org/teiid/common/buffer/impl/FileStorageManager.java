@@ -26,6 +26,9 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -65,13 +68,26 @@ public class FileStorageManager implements StorageManager {
         public RandomAccessFile open() throws FileNotFoundException {
         	if(this.fileData == null) {
         		this.fileData = fileCache.remove(this.file);
-        		if (this.fileData == null) {
+        		if (this.fileData == null || !this.fileData.getChannel().isOpen()) {
+        			//the channel will have been closed if a thread was interrupted during io
         			this.fileData = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
         		}
             }
         	return this.fileData;
         }
 
+        /**
+         * Replace the open file after its channel has been closed by an interrupt 
+         */
+        public RandomAccessFile reopen() throws FileNotFoundException {
+        	try {
+        		this.fileData.close();
+        	} catch (IOException e) {
+        	}
+        	this.fileData = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+        	return this.fileData;
+        }
+
         public void close() {
         	fileCache.put(this.file, this.fileData);
             this.fileData = null;
@@ -140,6 +156,51 @@ public class FileStorageManager implements StorageManager {
 	        }	    		
 	    	return length;
 	    }
+	    
+	    /**
+	     * Perform a gathering write with a single positioning of the channel.
+	     * <br/>
+	     * Channel io is interruptible and an interrupt closes the channel, so 
+	     * the other operations use the {@link RandomAccessFile} methods instead.
+	     */
+	    @Override
+	    public synchronized void write(long start, ByteBuffer[] buffers) throws IOException {
+	    	checkRemoved();
+	    	long length = 0;
+	    	for (ByteBuffer bb : buffers) {
+	    		length += bb.remaining();
+	    	}
+	    	if (length == 0) {
+	    		return;
+	    	}
+	    	if (fileInfo == null) {
+				fileInfo = new FileInfo(createFile(name));
+	        }
+	    	long unwritten = 0;
+	    	try {
+	        	RandomAccessFile fileAccess = fileInfo.open();
+	            setLength(fileAccess, start + length, false);
+	            FileChannel channel = fileAccess.getChannel();
+	            try {
+		            channel.position(start);
+		            long remaining = length;
+		            while (remaining > 0) {
+		            	remaining -= channel.write(buffers);
+		            }
+	            } catch (ClosedChannelException e) {
+	            	fileInfo.reopen();
+	            	for (ByteBuffer bb : buffers) {
+	            		unwritten += bb.remaining();
+	            	}
+	            }
+	        } finally {
+	        	fileInfo.close();
+	        }
+	        if (unwritten > 0) {
+	        	//finish without the channel, which an interrupt has closed
+	        	super.write(start + length - unwritten, buffers);
+	        }
+	    }
 
 		private void setLength(RandomAccessFile fileAccess, long newLength, boolean truncate)
 				throws IOException {
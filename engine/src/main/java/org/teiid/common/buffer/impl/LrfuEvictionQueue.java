@@ -39,7 +39,7 @@ import org.teiid.common.buffer.CacheKey;
 public class LrfuEvictionQueue<V extends BaseCacheEntry> {
 	
 	private static final long DEFAULT_HALF_LIFE = 1<<17;
-	private static final long MIN_INTERVAL = 1<<10;
+	protected static final long MIN_INTERVAL = 1<<10;
 	//TODO: until Java 7 ConcurrentSkipListMap has a scaling bug in that
 	//the level function limits the effective map size to ~ 2^16
 	//above which it performs comparably under multi-threaded load to a synchronized LinkedHashMap
@@ -0,0 +1,250 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.teiid.common.buffer.BaseCacheEntry;
+
+/**
+ * An approximate LRFU eviction queue for large numbers of entries.
+ * <br/>
+ * Entries are held unordered in hashed segments so that recording an access 
+ * only updates the entry key.  The first entry is instead chosen as the lowest 
+ * of a sample taken by a clock hand over the next segment. 
+ * @param <V>
+ */
+public class SampledLrfuEvictionQueue<V extends BaseCacheEntry> extends LrfuEvictionQueue<V> {
+	
+	static final int SAMPLE_SIZE = 16;
+	
+	private static class Segment<V> {
+		ConcurrentHashMap<Long, V> entries = new ConcurrentHashMap<Long, V>(16, .75f, 4);
+		Iterator<V> hand;
+	}
+	
+	private final Comparator<V> keyComparator = new Comparator<V>() {
+		@Override
+		public int compare(V o1, V o2) {
+			return o1.getKey().compareTo(o2.getKey());
+		}
+	};
+	
+	private Segment<V>[] segments;
+	private AtomicInteger nextSegment = new AtomicInteger();
+	
+	public SampledLrfuEvictionQueue(AtomicLong clock) {
+		this(clock, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors())) << 1);
+	}
+	
+	/**
+	 * @param segmentCount must be a power of 2
+	 */
+	@SuppressWarnings("unchecked")
+	SampledLrfuEvictionQueue(AtomicLong clock, int segmentCount) {
+		super(clock);
+		int count = segmentCount;
+		this.segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			this.segments[i] = new Segment<V>();
+		}
+	}
+	
+	private Segment<V> getSegment(Long id) {
+		int hash = id.hashCode();
+		hash ^= (hash >>> 16);
+		return segments[hash & (segments.length - 1)];
+	}
+	
+	@Override
+	public boolean remove(V value) {
+		return getSegment(value.getId()).entries.remove(value.getId()) != null;
+	}
+	
+	@Override
+	public boolean add(V value) {
+		return getSegment(value.getId()).entries.put(value.getId(), value) == null;
+	}
+	
+	@Override
+	public void touch(V value) {
+		long tick = clock.get();
+		if (tick - MIN_INTERVAL < value.getKey().getLastAccess()) {
+			return;
+		}
+		recordAccess(value);
+	}
+	
+	/**
+	 * Polling advances the clock hand.  Peeking does not modify the queue state and returns
+	 * the lowest entry from the start of the segment the next poll will use. 
+	 */
+	@Override
+	public V firstEntry(boolean poll) {
+		if (!poll) {
+			return peek();
+		}
+		for (int i = 0; i < segments.length; i++) {
+			Segment<V> segment = segments[nextSegment.getAndIncrement() & (segments.length - 1)];
+			while (true) {
+				V lowest = sample(segment);
+				if (lowest == null) {
+					break;
+				}
+				if (segment.entries.remove(lowest.getId(), lowest)) {
+					return lowest;
+				}
+			}
+		}
+		return null;
+	}
+	
+	private V peek() {
+		int start = nextSegment.get();
+		for (int i = 0; i < segments.length; i++) {
+			Segment<V> segment = segments[(start + i) & (segments.length - 1)];
+			V lowest = null;
+			Iterator<V> iter = segment.entries.values().iterator();
+			for (int j = 0; j < SAMPLE_SIZE && iter.hasNext(); j++) {
+				V value = iter.next();
+				if (lowest == null || keyComparator.compare(value, lowest) < 0) {
+					lowest = value;
+				}
+			}
+			if (lowest != null) {
+				return lowest;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Advance the clock hand over the segment and return the lowest entry seen.
+	 */
+	private V sample(Segment<V> segment) {
+		V lowest = null;
+		synchronized (segment) {
+			boolean restarted = false;
+			for (int i = 0; i < SAMPLE_SIZE; i++) {
+				if (segment.hand == null || !segment.hand.hasNext()) {
+					if (restarted) {
+						break;
+					}
+					restarted = true;
+					segment.hand = segment.entries.values().iterator();
+					if (!segment.hand.hasNext()) {
+						break;
+					}
+				}
+				V value = segment.hand.next();
+				if (lowest == null || keyComparator.compare(value, lowest) < 0) {
+					lowest = value;
+				}
+			}
+		}
+		return lowest;
+	}
+	
+	/**
+	 * Returns a view of the entries that iterates in sorted samples.
+	 */
+	@Override
+	public Collection<V> getEvictionQueue() {
+		return new AbstractCollection<V>() {
+			
+			@Override
+			public Iterator<V> iterator() {
+				return new SampleIterator();
+			}
+			
+			@Override
+			public int size() {
+				int size = 0;
+				for (Segment<V> segment : segments) {
+					size += segment.entries.size();
+				}
+				return size;
+			}
+			
+			@Override
+			public void clear() {
+				for (Segment<V> segment : segments) {
+					segment.entries.clear();
+				}
+			}
+		};
+	}
+	
+	private class SampleIterator implements Iterator<V> {
+		private int start = nextSegment.getAndIncrement();
+		private int segment;
+		private Iterator<V> values;
+		private List<V> sample = new ArrayList<V>(SAMPLE_SIZE);
+		private int index;
+		
+		@Override
+		public boolean hasNext() {
+			if (index < sample.size()) {
+				return true;
+			}
+			sample.clear();
+			index = 0;
+			while (sample.size() < SAMPLE_SIZE) {
+				if (values == null || !values.hasNext()) {
+					if (segment == segments.length) {
+						break;
+					}
+					values = segments[(start + segment++) & (segments.length - 1)].entries.values().iterator();
+					continue;
+				}
+				sample.add(values.next());
+			}
+			Collections.sort(sample, keyComparator);
+			return !sample.isEmpty();
+		}
+		
+		@Override
+		public V next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return sample.get(index++);
+		}
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+}
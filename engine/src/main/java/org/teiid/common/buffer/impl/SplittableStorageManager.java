@@ -23,6 +23,7 @@
 package org.teiid.common.buffer.impl;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -95,6 +96,29 @@ public class SplittableStorageManager implements StorageManager {
 			return length;
 	    }
 
+	    /**
+	     * Delegate the gathering write if it does not span files.
+	     */
+	    @Override
+	    public void write(long start, ByteBuffer[] buffers) throws IOException {
+	    	checkRemoved();
+	    	long length = 0;
+	    	for (ByteBuffer bb : buffers) {
+	    		length += bb.remaining();
+	    	}
+	    	long fileBegin = start%maxFileSize;
+	    	if (length == 0 || fileBegin + length > maxFileSize) {
+	    		super.write(start, buffers);
+	    		return;
+	    	}
+	    	FileStore store = null;
+	    	synchronized (this) {
+		    	ensureLength(start + length);
+	    		store = storageFiles.get((int)(start/maxFileSize));
+			}
+	    	store.write(fileBegin, buffers);
+	    }
+
 		private void ensureLength(long length) throws IOException {
 			if (length <= len) {
 				return;
@@ -22,6 +22,7 @@
 package org.teiid.dqp.internal.process;
 
 import org.teiid.client.RequestMessage;
+import org.teiid.common.buffer.BufferAccount.LimitPolicy;
 
 
 public class DQPConfiguration{
@@ -49,6 +50,10 @@ public class DQPConfiguration{
     private int userRequestSourceConcurrency = DEFAULT_USER_REQUEST_SOURCE_CONCURRENCY;
     private boolean detectingChangeEvents = true;
     private long queryTimeout;
+    private int maxRequestBufferSizeInKB = -1;
+    private int maxUserBufferSizeInKB = -1;
+    private LimitPolicy bufferLimitPolicy = LimitPolicy.SPILL;
+    private int maxStreamingWindow;
     
     private transient AuthorizationValidator authorizationValidator;
 
@@ -165,6 +170,52 @@ public class DQPConfiguration{
 		return queryTimeout;
 	}
 
+	/**
+	 * The maximum buffer bytes in KB that may be reserved or held in memory by a single request, or -1 for no limit
+	 */
+	public int getMaxRequestBufferSizeInKB() {
+		return maxRequestBufferSizeInKB;
+	}
+	
+	public void setMaxRequestBufferSizeInKB(int maxRequestBufferSizeInKB) {
+		this.maxRequestBufferSizeInKB = maxRequestBufferSizeInKB;
+	}
+	
+	/**
+	 * The maximum buffer bytes in KB that may be reserved or held in memory by all requests of a user, or -1 for no limit
+	 */
+	public int getMaxUserBufferSizeInKB() {
+		return maxUserBufferSizeInKB;
+	}
+	
+	public void setMaxUserBufferSizeInKB(int maxUserBufferSizeInKB) {
+		this.maxUserBufferSizeInKB = maxUserBufferSizeInKB;
+	}
+	
+	/**
+	 * The action taken when a request or user buffer limit is exceeded
+	 */
+	public LimitPolicy getBufferLimitPolicy() {
+		return bufferLimitPolicy;
+	}
+	
+	public void setBufferLimitPolicy(LimitPolicy bufferLimitPolicy) {
+		this.bufferLimitPolicy = bufferLimitPolicy;
+	}
+
+	/**
+	 * The maximum number of rows a client advertised streaming window may allow a forward only
+	 * request to buffer ahead of the client.  Values less than the default output buffer size
+	 * of 20 batches, including the default of 0, allow a window to only reduce the output buffer.
+	 */
+	public int getMaxStreamingWindow() {
+		return maxStreamingWindow;
+	}
+	
+	public void setMaxStreamingWindow(int maxStreamingWindow) {
+		this.maxStreamingWindow = maxStreamingWindow;
+	}
+
 	public TeiidExecutor getTeiidExecutor() {
 		return new ThreadReuseExecutor(DQPConfiguration.PROCESS_PLAN_QUEUE_NAME, getMaxThreads());
 	}
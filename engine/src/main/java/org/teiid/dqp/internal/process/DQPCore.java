@@ -26,6 +26,7 @@ import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -46,6 +47,7 @@ import org.teiid.adminapi.Request.ProcessingState;
 import org.teiid.adminapi.Request.ThreadState;
 import org.teiid.adminapi.VDB.Status;
 import org.teiid.adminapi.impl.RequestMetadata;
+import org.teiid.adminapi.impl.SessionMetadata;
 import org.teiid.adminapi.impl.TransactionMetadata;
 import org.teiid.adminapi.impl.WorkerPoolStatisticsMetadata;
 import org.teiid.client.DQP;
@@ -59,6 +61,7 @@ import org.teiid.client.util.ResultsFuture;
 import org.teiid.client.util.ResultsReceiver;
 import org.teiid.client.xa.XATransactionException;
 import org.teiid.client.xa.XidImpl;
+import org.teiid.common.buffer.BufferAccount;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
@@ -157,9 +160,12 @@ public class DQPCore implements DQP {
 	static class ClientState {
 		List<RequestID> requests;
 		TempTableStore sessionTables;
+		BufferAccount bufferAccount;
+		String bufferUserName;
 		
 		public ClientState(TempTableStore tableStoreImpl) {
 			this.sessionTables = tableStoreImpl;
+			this.bufferAccount = new BufferAccount();
 		}
 		
 		public synchronized void addRequest(RequestID requestID) {
@@ -183,6 +189,18 @@ public class DQPCore implements DQP {
 		}
 	}
 	
+	/**
+	 * The account shared by all sessions of a user and the number of sessions charged to it
+	 */
+	static class UserBufferAccount {
+		BufferAccount account;
+		int sessions;
+		
+		public UserBufferAccount(BufferAccount account) {
+			this.account = account;
+		}
+	}
+	
 	private TeiidExecutor processWorkerPool;
     
     // Resources
@@ -199,6 +217,7 @@ public class DQPCore implements DQP {
     
 	private Map<RequestID, RequestWorkItem> requests = new ConcurrentHashMap<RequestID, RequestWorkItem>();			
 	private Map<String, ClientState> clientState = new ConcurrentHashMap<String, ClientState>();
+	private Map<String, UserBufferAccount> userBufferAccounts = new HashMap<String, UserBufferAccount>();
     
     private int maxActivePlans = DQPConfiguration.DEFAULT_MAX_ACTIVE_PLANS;
     private int currentlyActivePlans;
@@ -235,6 +254,98 @@ public class DQPCore implements DQP {
         return buildRequestInfos(state.getRequests(), -1);
     }
     
+    /**
+     * Return the {@link BufferAccount} of the given session, which includes the buffer usage of all of its requests
+     */
+    public BufferAccount getSessionBufferAccount(String sessionId) {
+    	ClientState state = getClientState(sessionId, false);
+    	if (state == null) {
+    		return null;
+    	}
+    	return state.bufferAccount;
+    }
+    
+    /**
+     * Set the buffer usage of the given session from its {@link BufferAccount}
+     */
+    public void setSessionBufferStatistics(SessionMetadata session) {
+    	BufferAccount account = getSessionBufferAccount(session.getSessionId());
+    	if (account == null) {
+    		return;
+    	}
+    	session.setReservedBytes(account.getReservedBytes());
+    	session.setBatchBytes(account.getBatchBytes());
+    	session.setPeakUsedBytes(account.getPeakUsedBytes());
+    	session.setBatchesWritten(account.getBatchesWritten());
+    	session.setBytesWritten(account.getBytesWritten());
+    	session.setBytesRead(account.getBytesRead());
+    	session.setLobBytesPersisted(account.getLobBytesPersisted());
+    }
+    
+    /**
+     * Get the account shared by all sessions of the given user, or null if there is none
+     */
+    BufferAccount getUserBufferAccount(String userName) {
+    	synchronized (userBufferAccounts) {
+    		UserBufferAccount user = userBufferAccounts.get(userName);
+    		if (user == null) {
+    			return null;
+    		}
+    		return user.account;
+    	}
+    }
+    
+    /**
+     * Charge the session to the account shared by all sessions of the user, if user buffer usage is limited.  
+     * The session is charged from its first request until it is terminated, so that usage that 
+     * outlives a request, such as session scoped temp tables, remains limited. 
+     * The user account is tracked while any of the user's sessions are charged to it.
+     */
+    private void addUserSession(ClientState state, String userName) {
+    	if (this.config.getMaxUserBufferSizeInKB() < 0 || userName == null) {
+    		return;
+    	}
+    	synchronized (userBufferAccounts) {
+    		if (state.bufferUserName != null || state.bufferAccount.getUsedBytes() > 0) {
+    			//already charged, or usage from before the limit was set that cannot be moved
+    			return;
+    		}
+    		UserBufferAccount user = userBufferAccounts.get(userName);
+    		if (user == null) {
+    			user = new UserBufferAccount(new BufferAccount());
+    			user.account.setLimit((long)this.config.getMaxUserBufferSizeInKB() << 10, this.config.getBufferLimitPolicy());
+    			userBufferAccounts.put(userName, user);
+    		}
+    		user.sessions++;
+    		state.bufferUserName = userName;
+    		state.bufferAccount.setParent(user.account);
+    	}
+    }
+    
+    private void removeUserSession(ClientState state) {
+    	synchronized (userBufferAccounts) {
+    		if (state.bufferUserName == null) {
+    			return;
+    		}
+    		UserBufferAccount user = userBufferAccounts.get(state.bufferUserName);
+    		if (user != null && --user.sessions <= 0) {
+    			userBufferAccounts.remove(state.bufferUserName);
+    		}
+    		state.bufferUserName = null;
+    	}
+    }
+    
+    /**
+     * Create the account for a new request, which is limited by the max request buffer size
+     */
+    BufferAccount createRequestBufferAccount(ClientState state) {
+    	BufferAccount account = new BufferAccount(state != null?state.bufferAccount:null);
+    	if (this.config.getMaxRequestBufferSizeInKB() >= 0) {
+    		account.setLimit((long)this.config.getMaxRequestBufferSizeInKB() << 10, this.config.getBufferLimitPolicy());
+    	}
+    	return account;
+    }
+    
     public ClientState getClientState(String key, boolean create) {
     	if (key == null) {
     		return null;
@@ -287,6 +398,14 @@ public class DQPCore implements DQP {
             	if (holder.getTransactionContext() != null && holder.getTransactionContext().getTransactionType() != Scope.NONE) {
             		req.setTransactionId(holder.getTransactionContext().getTransactionId());
             	}
+            	BufferAccount account = holder.getBufferAccount();
+            	req.setReservedBytes(account.getReservedBytes());
+            	req.setBatchBytes(account.getBatchBytes());
+            	req.setPeakUsedBytes(account.getPeakUsedBytes());
+            	req.setBatchesWritten(account.getBatchesWritten());
+            	req.setBytesWritten(account.getBytesWritten());
+            	req.setBytesRead(account.getBytesRead());
+            	req.setLobBytesPersisted(account.getLobBytesPersisted());
 
                 for (DataTierTupleSource conInfo : holder.getConnectorRequests()) {
                     String connectorName = conInfo.getConnectorName();
@@ -406,6 +525,7 @@ public class DQPCore implements DQP {
 	}
 
 	void addRequest(RequestID requestID, RequestWorkItem workItem, ClientState state) {
+		addUserSession(state, workItem.getDqpWorkContext().getUserName());
 		this.requests.put(requestID, workItem);
 		state.addRequest(requestID);
 	}
@@ -531,6 +651,7 @@ public class DQPCore implements DQP {
         // situation we still need to clear the master request from our map
         ClientState state = this.clientState.remove(sessionId);
         if (state != null) {
+        	removeUserSession(state);
 	        for (RequestID reqId : state.getRequests()) {
 	            try {
 	                cancelRequest(reqId);
@@ -924,6 +1045,10 @@ public class DQPCore implements DQP {
 		return this.config.getMaxRowsFetchSize();
 	}
 	
+	public int getMaxStreamingWindow() {
+		return this.config.getMaxStreamingWindow();
+	}
+	
 	public void setResultsetCache(SessionAwareCache<CachedResults> cache) {
 		this.rsCache = cache;
 	}
@@ -237,6 +237,7 @@ public class Request implements SecurityFunctionEvaluator {
         	context.setReturnAutoGeneratedKeys(this.requestMsg.isReturnAutoGeneratedKeys());
         }
         this.context.setOptions(options);
+        this.context.setExchangeParallelism(getExchangeParallelism());
         this.context.setSession(workContext.getSession());
         this.context.setRequestId(this.requestId);
         this.context.setDQPWorkContext(this.workContext);
@@ -244,6 +245,29 @@ public class Request implements SecurityFunctionEvaluator {
         this.context.setVDBClassLoader(workContext.getVDB().getAttachment(ClassLoader.class));
     }
     
+    /**
+     * Determine the exchange parallelism from the query hint, then the vdb property.
+     * @return the parallelism or 0 to use the engine default 
+     */
+    private int getExchangeParallelism() {
+    	String[] commands = this.requestMsg.getCommands();
+    	if (commands != null && commands.length == 1) {
+    		Integer parallelism = QueryParser.getQueryParser().parseParallelHint(commands[0]);
+    		if (parallelism != null) {
+    			return parallelism;
+    		}
+    	}
+    	String value = workContext.getVDB().getPropertyValue(Options.EXCHANGE_PARALLELISM);
+    	if (value != null) {
+    		try {
+    			return Integer.parseInt(value.trim());
+    		} catch (NumberFormatException e) {
+    			//use the default
+    		}
+    	}
+    	return 0;
+    }
+    
     @Override
     public boolean hasRole(String roleType, String roleName)
     		throws TeiidComponentException {
@@ -34,14 +34,18 @@ import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ScheduledFuture;
 
+import org.teiid.client.BufferLimitExceededException;
 import org.teiid.client.RequestMessage;
 import org.teiid.client.RequestMessage.ShowPlan;
 import org.teiid.client.ResultsMessage;
 import org.teiid.client.lob.LobChunk;
 import org.teiid.client.metadata.ParameterInfo;
+import org.teiid.client.plan.PlanNode;
 import org.teiid.client.util.ResultsReceiver;
 import org.teiid.client.xa.XATransactionException;
 import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferAccount;
+import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
@@ -179,6 +183,8 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
     
     protected boolean useCallingThread;
     private volatile boolean hasThread;
+    //buffer usage by this request regardless of the processing thread
+    private BufferAccount bufferAccount;
     
     private Task cancelTask;
     
@@ -190,6 +196,8 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
         this.dqpCore = dqpCore;
         this.request = request;
         this.dqpWorkContext = workContext;
+        DQPCore.ClientState state = dqpCore.getClientState(workContext.getSessionId(), false);
+        this.bufferAccount = dqpCore.createRequestBufferAccount(state);
         this.requestResults(1, requestMsg.getFetchSize(), receiver);
     }
     
@@ -219,6 +227,12 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 	@Override
 	public void run() {
 		hasThread = true;
+		BufferManager bufferManager = dqpCore.getBufferManager();
+		BufferAccount previousAccount = null;
+		if (bufferManager != null) {
+			previousAccount = bufferManager.getBufferAccount();
+			bufferManager.setBufferAccount(this.bufferAccount);
+		}
 		try {
 			while (!isDoneProcessing()) {
 				super.run();
@@ -246,6 +260,9 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 			}
 		} finally {
 			hasThread = false;
+			if (bufferManager != null) {
+				bufferManager.setBufferAccount(previousAccount);
+			}
 		}
 	}
 
@@ -335,6 +352,13 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 	}
 
 	private void handleThrowable(Throwable e) {
+		//buffer limit failures are wrapped by the buffer manager, report them directly
+		for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+			if (cause instanceof BufferLimitExceededException) {
+				e = cause;
+				break;
+			}
+		}
 		if (!isCanceled()) {
 			dqpCore.logMMCommand(this, Event.ERROR, null);
 		    //Case 5558: Differentiate between system level errors and
@@ -605,7 +629,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 							&& !processor.hasFinalBuffer() //restrict the buffer size for forward only results
 							&& !batch.getTerminationFlag() 
 							&& transactionState != TransactionState.ACTIVE
-							&& resultsBuffer.getManagedRowCount() >= OUTPUT_BUFFER_MAX_BATCHES * resultsBuffer.getBatchSize()) {
+							&& resultsBuffer.getManagedRowCount() >= getOutputBufferMaxRows()) {
 						if (dqpCore.blockOnOutputBuffer(RequestWorkItem.this)) {
 							//requestMore will trigger more processing
 							throw BlockedException.block(requestID, "Blocking due to full results TupleBuffer", //$NON-NLS-1$
@@ -670,6 +694,8 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
     	CachedResults cr = new CachedResults();
     	cr.setCommand(originalCommand);
         cr.setResults(resultsBuffer, processor.getProcessorPlan());
+        //the cached results are shared, so they are no longer charged to this request
+        resultsBuffer.setOwnerAccount(null);
         if (requestMsg.getRowLimit() > 0 && resultsBuffer.getRowCount() == requestMsg.getRowLimit()) {
         	cr.setRowLimit(resultsBuffer.getRowCount());
         }
@@ -697,6 +723,21 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 		return dqpCore.getRsCache();
 	}
 
+	/**
+	 * The number of rows a forward only request may buffer ahead of the client.
+	 * A client advertised streaming window takes precedence over the default,
+	 * the client returns credits by requesting the following rows.  The window 
+	 * may exceed the default only up to the configured maximum streaming window.
+	 */
+	int getOutputBufferMaxRows() {
+		int max = OUTPUT_BUFFER_MAX_BATCHES * resultsBuffer.getBatchSize();
+		int window = this.requestMsg.getStreamingWindow();
+		if (window > 0) {
+			return Math.max(resultsBuffer.getBatchSize(), Math.min(window, Math.max(max, dqpCore.getMaxStreamingWindow())));
+		}
+		return max;
+	}
+	
 	/**
 	 * Send results if they have been requested.  This should only be called from the processing thread.
 	 */
@@ -832,7 +873,9 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 		if(analysisRecord != null) {
         	if (requestMsg.getShowPlan() != ShowPlan.OFF) {
         		if (processor != null) {
-            		response.setPlanDescription(processor.getProcessorPlan().getDescriptionProperties());
+            		PlanNode plan = processor.getProcessorPlan().getDescriptionProperties();
+            		plan.addProperty(AnalysisRecord.PROP_BUFFER_STATS_LIST, this.bufferAccount.getStatisticsList());
+            		response.setPlanDescription(plan);
         		}
         		if (analysisRecord.getAnnotations() != null && !analysisRecord.getAnnotations().isEmpty()) {
 		            response.setAnnotations(analysisRecord.getAnnotations());
@@ -1026,6 +1069,10 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 		return this.requestID.toString();
 	}
 
+	public BufferAccount getBufferAccount() {
+		return bufferAccount;
+	}
+	
 	public DQPWorkContext getDqpWorkContext() {
 		return dqpWorkContext;
 	}
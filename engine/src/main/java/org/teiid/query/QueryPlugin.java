@@ -548,5 +548,9 @@ public class QueryPlugin { // extends Plugin {
     	TEIID31133, 
     	TEIID31134,
     	TEIID31135,
+    	TEIID31136,
+    	TEIID31137,
+    	TEIID31138,
+    	TEIID31139,
 	}
 }
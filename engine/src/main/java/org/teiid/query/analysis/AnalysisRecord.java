@@ -77,8 +77,10 @@ public class AnalysisRecord {
     public static final String PROP_INTO_GROUP = "Into Target"; //$NON-NLS-1$
     public static final String PROP_SORT_COLS = "Sort Columns"; //$NON-NLS-1$
     public static final String PROP_SORT_MODE = "Sort Mode"; //$NON-NLS-1$
+    public static final String PROP_HASH_GROUPING = "Hash Grouping"; //$NON-NLS-1$
     public static final String PROP_NODE_STATS_LIST = "Statistics"; //$NON-NLS-1$
     public static final String PROP_NODE_COST_ESTIMATES = "Cost Estimates";  //$NON-NLS-1$
+    public static final String PROP_BUFFER_STATS_LIST = "Buffer Statistics"; //$NON-NLS-1$
     public static final String PROP_ROW_OFFSET = "Row Offset";  //$NON-NLS-1$
     public static final String PROP_ROW_LIMIT = "Row Limit";  //$NON-NLS-1$
     public static final String PROP_WITH = "With"; //$NON-NLS-1$
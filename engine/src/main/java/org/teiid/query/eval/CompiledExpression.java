@@ -0,0 +1,598 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.eval;
+
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.api.exception.query.ExpressionEvaluationException;
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.util.EquivalenceUtil;
+import org.teiid.query.QueryPlugin;
+import org.teiid.query.function.FunctionDescriptor;
+import org.teiid.query.function.FunctionLibrary;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.MatchCriteria;
+import org.teiid.query.sql.lang.NotCriteria;
+import org.teiid.query.sql.symbol.CaseExpression;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.DerivedExpression;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.ExpressionSymbol;
+import org.teiid.query.sql.symbol.Function;
+import org.teiid.query.sql.symbol.SearchedCaseExpression;
+import org.teiid.translator.SourceSystemFunctions;
+
+/**
+ * A resolved {@link Expression} or {@link Criteria} compiled against a fixed 
+ * element map into a tree of evaluation nodes.  Element references are resolved 
+ * to tuple indexes once and the per row instanceof dispatch of the {@link Evaluator}
+ * is avoided.  Integral arithmetic is performed directly rather than through the
+ * function descriptor.
+ * <br/>
+ * Constructs that are not compiled are delegated back to the {@link Evaluator},
+ * so the result and error handling is the same as that of the interpreted evaluation.
+ * <br/>
+ * Instances are immutable and may be shared between clones of a plan.
+ */
+public final class CompiledExpression {
+	
+	private static abstract class Node {
+		abstract Object evaluate(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException;
+	}
+	
+	private static abstract class CriteriaNode {
+		abstract Boolean evaluateTVL(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException;
+		
+		boolean evaluate(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			return Boolean.TRUE.equals(evaluateTVL(evaluator, tuple));
+		}
+	}
+	
+	private static class TupleValue extends Node {
+		private final int index;
+		
+		TupleValue(int index) {
+			this.index = index;
+		}
+		
+		@Override
+		Object evaluate(Evaluator evaluator, List<?> tuple) {
+			return tuple.get(index);
+		}
+	}
+	
+	private static class ConstantValue extends Node {
+		private final Object value;
+		
+		ConstantValue(Object value) {
+			this.value = value;
+		}
+		
+		@Override
+		Object evaluate(Evaluator evaluator, List<?> tuple) {
+			return value;
+		}
+	}
+	
+	private static class InterpretedExpression extends Node {
+		private final Expression expression;
+		
+		InterpretedExpression(Expression expression) {
+			this.expression = expression;
+		}
+		
+		@Override
+		Object evaluate(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			return evaluator.internalEvaluate(expression, tuple);
+		}
+	}
+	
+	/**
+	 * Mirrors {@link Evaluator#evaluate(Expression, List)}, which adds the expression to the 
+	 * message of an evaluation exception
+	 */
+	private static class WrappedExpression extends Node {
+		private final Expression expression;
+		private final Node node;
+		
+		WrappedExpression(Expression expression, Node node) {
+			this.expression = expression;
+			this.node = node;
+		}
+		
+		@Override
+		Object evaluate(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			try {
+				return node.evaluate(evaluator, tuple);
+			} catch (ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30328, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30328, new Object[] {expression, e.getMessage()}));
+			}
+		}
+	}
+	
+	private static class FunctionValue extends Node {
+		private final FunctionDescriptor fd;
+		private final Node[] args;
+		
+		FunctionValue(FunctionDescriptor fd, Node[] args) {
+			this.fd = fd;
+			this.args = args;
+		}
+		
+		@Override
+		Object evaluate(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object[] values = null;
+			int start = 0;
+			if (fd.requiresContext()) {
+				values = new Object[args.length+1];
+				values[0] = evaluator.context;
+				start = 1;
+			} else {
+				values = new Object[args.length];
+			}
+			for (int i = 0; i < args.length; i++) {
+				values[i+start] = args[i].evaluate(evaluator, tuple);
+			}
+			fd.checkNotPushdown();
+			return fd.invokeFunction(values, evaluator.context, null);
+		}
+	}
+	
+	/**
+	 * Integer and long addition, subtraction and multiplication without boxing the 
+	 * arguments into an array or invoking the function method.
+	 */
+	private static class IntegralArithmetic extends Node {
+		private final FunctionDescriptor fd;
+		private final char op;
+		private final boolean isLong;
+		private final Node left;
+		private final Node right;
+		
+		IntegralArithmetic(FunctionDescriptor fd, char op, boolean isLong, Node left, Node right) {
+			this.fd = fd;
+			this.op = op;
+			this.isLong = isLong;
+			this.left = left;
+			this.right = right;
+		}
+		
+		@Override
+		Object evaluate(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object l = left.evaluate(evaluator, tuple);
+			Object r = right.evaluate(evaluator, tuple);
+			fd.checkNotPushdown();
+			if (l == null || r == null) {
+				return null;
+			}
+			if (isLong) {
+				long x = (Long)l;
+				long y = (Long)r;
+				switch (op) {
+				case '+':
+					return x + y;
+				case '-':
+					return x - y;
+				default:
+					return x * y;
+				}
+			}
+			int x = (Integer)l;
+			int y = (Integer)r;
+			switch (op) {
+			case '+':
+				return x + y;
+			case '-':
+				return x - y;
+			default:
+				return x * y;
+			}
+		}
+	}
+	
+	private static class CaseValue extends Node {
+		private final Node expression;
+		private final Node[] when;
+		private final Node[] then;
+		private final Node elseNode;
+		
+		CaseValue(Node expression, Node[] when, Node[] then, Node elseNode) {
+			this.expression = expression;
+			this.when = when;
+			this.then = then;
+			this.elseNode = elseNode;
+		}
+		
+		@Override
+		Object evaluate(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object exprVal = expression.evaluate(evaluator, tuple);
+			for (int i = 0; i < when.length; i++) {
+				if (EquivalenceUtil.areEqual(exprVal, when[i].evaluate(evaluator, tuple))) {
+					return then[i].evaluate(evaluator, tuple);
+				}
+			}
+			if (elseNode != null) {
+				return elseNode.evaluate(evaluator, tuple);
+			}
+			return null;
+		}
+	}
+	
+	private static class SearchedCaseValue extends Node {
+		private final CriteriaNode[] when;
+		private final Node[] then;
+		private final Node elseNode;
+		
+		SearchedCaseValue(CriteriaNode[] when, Node[] then, Node elseNode) {
+			this.when = when;
+			this.then = then;
+			this.elseNode = elseNode;
+		}
+		
+		@Override
+		Object evaluate(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			for (int i = 0; i < when.length; i++) {
+				if (when[i].evaluate(evaluator, tuple)) {
+					return then[i].evaluate(evaluator, tuple);
+				}
+			}
+			if (elseNode != null) {
+				return elseNode.evaluate(evaluator, tuple);
+			}
+			return null;
+		}
+	}
+	
+	/**
+	 * A criteria used as a value is two valued  
+	 */
+	private static class CriteriaValue extends Node {
+		private final CriteriaNode criteria;
+		
+		CriteriaValue(CriteriaNode criteria) {
+			this.criteria = criteria;
+		}
+		
+		@Override
+		Object evaluate(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			return Boolean.valueOf(criteria.evaluate(evaluator, tuple));
+		}
+	}
+	
+	private static class InterpretedCriteria extends CriteriaNode {
+		private final Criteria criteria;
+		
+		InterpretedCriteria(Criteria criteria) {
+			this.criteria = criteria;
+		}
+		
+		@Override
+		Boolean evaluateTVL(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			return evaluator.evaluateTVL(criteria, tuple);
+		}
+	}
+	
+	private static class CompoundCriteriaNode extends CriteriaNode {
+		private final boolean and;
+		private final CriteriaNode[] crits;
+		
+		CompoundCriteriaNode(boolean and, CriteriaNode[] crits) {
+			this.and = and;
+			this.crits = crits;
+		}
+		
+		@Override
+		Boolean evaluateTVL(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Boolean result = and?Boolean.TRUE:Boolean.FALSE;
+			for (int i = 0; i < crits.length; i++) {
+				Boolean value = crits[i].evaluateTVL(evaluator, tuple);
+				if (value == null) {
+					result = null;
+				} else if (!value.booleanValue()) {
+					if (and) {
+						return Boolean.FALSE;
+					}
+				} else if (!and) {
+					return Boolean.TRUE;
+				}
+			}
+			return result;
+		}
+	}
+	
+	private static class NotCriteriaNode extends CriteriaNode {
+		private final CriteriaNode crit;
+		
+		NotCriteriaNode(CriteriaNode crit) {
+			this.crit = crit;
+		}
+		
+		@Override
+		Boolean evaluateTVL(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Boolean result = crit.evaluateTVL(evaluator, tuple);
+			if (result == null) {
+				return null;
+			}
+			return !result.booleanValue();
+		}
+	}
+	
+	private static class CompareCriteriaNode extends CriteriaNode {
+		private final CompareCriteria criteria;
+		private final Node left;
+		private final Node right;
+		
+		CompareCriteriaNode(CompareCriteria criteria, Node left, Node right) {
+			this.criteria = criteria;
+			this.left = left;
+			this.right = right;
+		}
+		
+		@Override
+		Boolean evaluateTVL(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object leftValue = null;
+			try {
+				leftValue = left.evaluate(evaluator, tuple);
+			} catch(ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30312, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30312, "left", criteria)); //$NON-NLS-1$
+			}
+			if (leftValue == null) {
+				return null;
+			}
+			Object rightValue = null;
+			try {
+				rightValue = right.evaluate(evaluator, tuple);
+			} catch(ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30312, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30312, "right", criteria)); //$NON-NLS-1$
+			}
+			if (rightValue == null) {
+				return null;
+			}
+			return Evaluator.compare(criteria, leftValue, rightValue);
+		}
+	}
+	
+	private static class MatchCriteriaNode extends CriteriaNode {
+		private final MatchCriteria criteria;
+		private final Node left;
+		private final PatternMatcher matcher;
+		
+		MatchCriteriaNode(MatchCriteria criteria, Node left, PatternMatcher matcher) {
+			this.criteria = criteria;
+			this.left = left;
+			this.matcher = matcher;
+		}
+		
+		@Override
+		Boolean evaluateTVL(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object value = null;
+			try {
+				value = left.evaluate(evaluator, tuple);
+			} catch(ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30312, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30312, "left", criteria)); //$NON-NLS-1$
+			}
+			if (value == null) {
+				return null;
+			}
+			return matcher.matches(Evaluator.toCharSequence(value)) ^ criteria.isNegated();
+		}
+	}
+	
+	private static class IsNullCriteriaNode extends CriteriaNode {
+		private final IsNullCriteria criteria;
+		private final Node expression;
+		
+		IsNullCriteriaNode(IsNullCriteria criteria, Node expression) {
+			this.criteria = criteria;
+			this.expression = expression;
+		}
+		
+		@Override
+		Boolean evaluateTVL(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object value = null;
+			try {
+				value = expression.evaluate(evaluator, tuple);
+			} catch(ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30323, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30323, criteria));
+			}
+			return (value == null ^ criteria.isNegated());
+		}
+	}
+	
+	private final Expression expression;
+	private final Node node;
+	private final CriteriaNode criteriaNode;
+	
+	private CompiledExpression(Expression expression, Node node, CriteriaNode criteriaNode) {
+		this.expression = expression;
+		this.node = node;
+		this.criteriaNode = criteriaNode;
+	}
+	
+	/**
+	 * Compile the expression.
+	 * @param expression a resolved expression or criteria
+	 * @param elements the map of expression to tuple index that will be used by the {@link Evaluator}
+	 */
+	public static CompiledExpression compile(Expression expression, Map<?, Integer> elements) {
+		if (expression instanceof Criteria) {
+			return new CompiledExpression(expression, null, new Compiler(elements).compileCriteria((Criteria)expression));
+		}
+		return new CompiledExpression(expression, new Compiler(elements).compileExpression(expression), null);
+	}
+	
+	/**
+	 * The expression that was compiled
+	 */
+	public Expression getExpression() {
+		return expression;
+	}
+	
+	/**
+	 * Evaluate as {@link Evaluator#evaluate(Expression, List)} would
+	 */
+	public Object evaluate(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+		try {
+			if (node != null) {
+				return node.evaluate(evaluator, tuple);
+			}
+			return Boolean.valueOf(criteriaNode.evaluate(evaluator, tuple));
+		} catch (ExpressionEvaluationException e) {
+			throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30328, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30328, new Object[] {expression, e.getMessage()}));
+		}
+	}
+	
+	/**
+	 * Evaluate the compiled criteria as {@link Evaluator#evaluate(Criteria, List)} would
+	 */
+	public boolean evaluateCriteria(Evaluator evaluator, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+		return criteriaNode.evaluate(evaluator, tuple);
+	}
+	
+	private static class Compiler {
+		private final Map<?, Integer> elements;
+		
+		Compiler(Map<?, Integer> elements) {
+			this.elements = elements;
+		}
+		
+		Node compileExpression(Expression expression) {
+			if (expression instanceof DerivedExpression) {
+				if (elements != null) {
+					Integer index = elements.get(expression);
+					if (index != null) {
+						return new TupleValue(index);
+					}
+				}
+				if (expression instanceof ExpressionSymbol) {
+					return compileExpression(((ExpressionSymbol)expression).getExpression());
+				}
+			} else if (expression instanceof Constant) {
+				return new ConstantValue(((Constant)expression).getValue());
+			} else if (expression instanceof Function) {
+				return compileFunction((Function)expression);
+			} else if (expression instanceof CaseExpression) {
+				CaseExpression expr = (CaseExpression)expression;
+				Node[] when = new Node[expr.getWhenCount()];
+				Node[] then = new Node[when.length];
+				for (int i = 0; i < when.length; i++) {
+					when[i] = compileExpression(expr.getWhenExpression(i));
+					then[i] = compileExpression(expr.getThenExpression(i));
+				}
+				return new CaseValue(compileExpression(expr.getExpression()), when, then, expr.getElseExpression() != null?compileExpression(expr.getElseExpression()):null);
+			} else if (expression instanceof SearchedCaseExpression) {
+				SearchedCaseExpression expr = (SearchedCaseExpression)expression;
+				CriteriaNode[] when = new CriteriaNode[expr.getWhenCount()];
+				Node[] then = new Node[when.length];
+				for (int i = 0; i < when.length; i++) {
+					when[i] = compileCriteria(expr.getWhenCriteria(i));
+					then[i] = compileExpression(expr.getThenExpression(i));
+				}
+				return new SearchedCaseValue(when, then, expr.getElseExpression() != null?compileExpression(expr.getElseExpression()):null);
+			} else if (expression instanceof Criteria) {
+				return new CriteriaValue(compileCriteria((Criteria)expression));
+			}
+			return new InterpretedExpression(expression);
+		}
+		
+		private Node compileFunction(Function function) {
+			FunctionDescriptor fd = function.getFunctionDescriptor();
+			if (fd == null || function.getName().equalsIgnoreCase(FunctionLibrary.LOOKUP)) {
+				return new InterpretedExpression(function);
+			}
+			Expression[] args = function.getArgs();
+			Node[] compiledArgs = new Node[args.length];
+			for (int i = 0; i < args.length; i++) {
+				compiledArgs[i] = compileExpression(args[i]);
+			}
+			if (args.length == 2 && !fd.requiresContext() && !fd.isNullDependent()) {
+				Class<?> type = fd.getReturnType();
+				boolean isLong = type == DataTypeManager.DefaultDataClasses.LONG;
+				if ((isLong || type == DataTypeManager.DefaultDataClasses.INTEGER) 
+						&& fd.getTypes()[0] == type && fd.getTypes()[1] == type) {
+					String[] ops = new String[] {SourceSystemFunctions.ADD_OP, SourceSystemFunctions.SUBTRACT_OP, SourceSystemFunctions.MULTIPLY_OP};
+					for (String op : ops) {
+						if (fd.isSystemFunction(op)) {
+							return new IntegralArithmetic(fd, op.charAt(0), isLong, compiledArgs[0], compiledArgs[1]);
+						}
+					}
+				}
+			}
+			return new FunctionValue(fd, compiledArgs);
+		}
+		
+		CriteriaNode compileCriteria(Criteria criteria) {
+			if (criteria instanceof CompoundCriteria) {
+				CompoundCriteria cc = (CompoundCriteria)criteria;
+				List<Criteria> subCrits = cc.getCriteria();
+				CriteriaNode[] crits = new CriteriaNode[subCrits.size()];
+				for (int i = 0; i < crits.length; i++) {
+					crits[i] = compileCriteria(subCrits.get(i));
+				}
+				return new CompoundCriteriaNode(cc.getOperator() == CompoundCriteria.AND, crits);
+			} 
+			if (criteria instanceof NotCriteria) {
+				return new NotCriteriaNode(compileCriteria(((NotCriteria)criteria).getCriteria()));
+			}
+			if (criteria instanceof CompareCriteria) {
+				CompareCriteria cc = (CompareCriteria)criteria;
+				return new CompareCriteriaNode(cc, wrap(cc.getLeftExpression()), wrap(cc.getRightExpression()));
+			}
+			if (criteria instanceof IsNullCriteria) {
+				IsNullCriteria inc = (IsNullCriteria)criteria;
+				return new IsNullCriteriaNode(inc, wrap(inc.getExpression()));
+			}
+			if (criteria instanceof MatchCriteria) {
+				MatchCriteria mc = (MatchCriteria)criteria;
+				if (mc.getRightExpression() instanceof Constant) {
+					Object pattern = ((Constant)mc.getRightExpression()).getValue();
+					if (pattern instanceof String) {
+						try {
+							PatternMatcher matcher = Evaluator.getMatcher((String)pattern, mc.getEscapeChar(), mc.getMode());
+							return new MatchCriteriaNode(mc, wrap(mc.getLeftExpression()), matcher);
+						} catch (ExpressionEvaluationException e) {
+							//invalid pattern, let the evaluator report the error
+						}
+					}
+				}
+			}
+			return new InterpretedCriteria(criteria);
+		}
+		
+		private Node wrap(Expression expression) {
+			Node result = compileExpression(expression);
+			if (result instanceof TupleValue || result instanceof ConstantValue) {
+				//can't throw an exception
+				return result;
+			}
+			return new WrappedExpression(expression, result);
+		}
+	}
+
+}
@@ -37,7 +37,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.xml.transform.stream.StreamResult;
@@ -58,6 +57,7 @@ import org.teiid.core.types.*;
 import org.teiid.core.types.XMLType.Type;
 import org.teiid.core.types.basic.StringToSQLXMLTransform;
 import org.teiid.core.util.EquivalenceUtil;
+import org.teiid.core.util.LRUCache;
 import org.teiid.jdbc.TeiidSQLException;
 import org.teiid.language.Like.MatchMode;
 import org.teiid.query.QueryPlugin;
@@ -165,14 +165,18 @@ public class Evaluator {
 	}
 
 	public final static char[] REGEX_RESERVED = new char[] {'$', '(', ')', '*', '+', '.', '?', '[', '\\', ']', '^', '{', '|', '}'}; //in sorted order
-    private final static MatchCriteria.PatternTranslator LIKE_TO_REGEX = new MatchCriteria.PatternTranslator(new char[] {'%', '_'}, new String[] {".*", "."},  REGEX_RESERVED, '\\', Pattern.DOTALL);  //$NON-NLS-1$ //$NON-NLS-2$
+    private final static char[] LIKE_SPECIAL = new char[] {'%', '_'};
+    private final static MatchCriteria.PatternTranslator LIKE_TO_REGEX = new MatchCriteria.PatternTranslator(LIKE_SPECIAL, new String[] {".*", "."},  REGEX_RESERVED, '\\', Pattern.DOTALL);  //$NON-NLS-1$ //$NON-NLS-2$
     
     private final static char[] SIMILAR_REGEX_RESERVED = new char[] {'$', '.', '\\', '^'}; //in sorted order
+    private final static char[] SIMILAR_SPECIAL = new char[] {'%', '(', ')', '*', '?', '+', '[', ']', '_', '{', '|', '}'};
     public final static MatchCriteria.PatternTranslator SIMILAR_TO_REGEX = new MatchCriteria.PatternTranslator(
-    		new char[] {'%', '(', ')', '*', '?', '+', '[', ']', '_', '{', '|', '}'}, 
+    		SIMILAR_SPECIAL, 
     		new String[] {"([a]|[^a])*", "(", ")", "*", "?", "+", //$NON-NLS-1$ //$NON-NLS-2$  //$NON-NLS-3$ //$NON-NLS-4$  //$NON-NLS-5$ //$NON-NLS-6$
     				"[", "]", "([a]|[^a])", "{", "|", "}"},  SIMILAR_REGEX_RESERVED, '\\', 0);  //$NON-NLS-1$ //$NON-NLS-2$  //$NON-NLS-3$ //$NON-NLS-4$  //$NON-NLS-5$ //$NON-NLS-6$  
     
+    private final static LRUCache<List<?>, PatternMatcher> MATCHER_CACHE = new LRUCache<List<?>, PatternMatcher>(100);
+    
     private Map elements;
     
     protected ProcessorDataManager dataMgr;
@@ -315,17 +319,7 @@ public class Evaluator {
             return null;
         }
         
-        CharSequence leftValue = null;
-        
-        if (value instanceof CharSequence) {
-            leftValue = (CharSequence)value;
-        } else {
-            try {
-                leftValue = ((Sequencable)value).getCharSequence();
-            } catch (SQLException err) {
-                 throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30316, err, err.getMessage());
-            }
-        }
+        CharSequence leftValue = toCharSequence(value);
 
 		// Evaluate right expression
 		String rightValue = null;
@@ -345,16 +339,50 @@ public class Evaluator {
         return Boolean.valueOf(result ^ criteria.isNegated());
 	}
 
+	static CharSequence toCharSequence(Object value) throws ExpressionEvaluationException {
+		if (value instanceof CharSequence) {
+			return (CharSequence)value;
+		}
+		try {
+			return ((Sequencable)value).getCharSequence();
+		} catch (SQLException err) {
+			throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30316, err, err.getMessage());
+		}
+	}
+
 	private boolean match(String pattern, char escape, CharSequence search, MatchMode mode)
 		throws ExpressionEvaluationException {
-
+		return getMatcher(pattern, escape, mode).matches(search);
+	}
+	
+	/**
+	 * Get the matcher for the given pattern.  Simple wildcard patterns are matched
+	 * directly, all others use the regex translation.
+	 */
+	static PatternMatcher getMatcher(String pattern, char escape, MatchMode mode) 
+		throws ExpressionEvaluationException {
+		List<?> key = Arrays.asList(pattern, escape, mode);
+		PatternMatcher result = null;
+		synchronized (MATCHER_CACHE) {
+			result = MATCHER_CACHE.get(key);
+		}
+		if (result != null) {
+			return result;
+		}
 		Pattern patternRegex = null;
 		switch (mode) {
 		case LIKE:
-			patternRegex = LIKE_TO_REGEX.translate(pattern, escape);
+			result = PatternMatcher.createWildcardMatcher(pattern, escape, LIKE_SPECIAL, null);
+			if (result == null) {
+				patternRegex = LIKE_TO_REGEX.translate(pattern, escape);
+			}
 			break;
 		case SIMILAR:
-			patternRegex = SIMILAR_TO_REGEX.translate(pattern, escape);
+			//literals that are regex reserved are not always escaped by the translation
+			result = PatternMatcher.createWildcardMatcher(pattern, escape, SIMILAR_SPECIAL, REGEX_RESERVED);
+			if (result == null) {
+				patternRegex = SIMILAR_TO_REGEX.translate(pattern, escape);
+			}
 			break;
 		case REGEX:
 			patternRegex = MatchCriteria.getPattern(pattern, pattern, 0);
@@ -362,9 +390,13 @@ public class Evaluator {
 		default:
 			throw new AssertionError();
 		}
-		
-        Matcher matcher = patternRegex.matcher(search);
-        return matcher.find();
+		if (result == null) {
+			result = new PatternMatcher.RegexMatcher(patternRegex);
+		}
+		synchronized (MATCHER_CACHE) {
+			MATCHER_CACHE.put(key, result);
+		}
+		return result;
 	}
 
 	private Boolean evaluate(AbstractSetCriteria criteria, List<?> tuple)
@@ -599,7 +631,7 @@ public class Evaluator {
 	    }
 	}
 	
-	private Object internalEvaluate(Expression expression, List<?> tuple)
+	Object internalEvaluate(Expression expression, List<?> tuple)
 	   throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
 	
 	   if(expression instanceof DerivedExpression) {
@@ -0,0 +1,258 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.eval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.teiid.query.sql.lang.MatchCriteria;
+
+/**
+ * A matcher for a LIKE, SIMILAR TO, or LIKE_REGEX pattern.
+ * <br/>
+ * Patterns consisting of literal text and the any sequence wildcard (%) - the
+ * prefix, suffix, contains, and exact forms - are matched with direct scans.
+ * All other patterns use the translated {@link Pattern}. 
+ */
+public abstract class PatternMatcher {
+	
+	public abstract boolean matches(CharSequence search);
+	
+	static class RegexMatcher extends PatternMatcher {
+		private final Pattern pattern;
+		
+		RegexMatcher(Pattern pattern) {
+			this.pattern = pattern;
+		}
+		
+		@Override
+		public boolean matches(CharSequence search) {
+			return pattern.matcher(search).find();
+		}
+	}
+	
+	/**
+	 * Matches literal segments separated by the any sequence wildcard.  The semantics
+	 * are the same as for the regex translation, which may allow the end anchor to
+	 * match before a final line terminator.
+	 */
+	static class WildcardMatcher extends PatternMatcher {
+		private final String[] segments;
+		private final int[][] shifts;
+		private final boolean anchoredStart;
+		private final boolean anchoredEnd;
+		
+		WildcardMatcher(String[] segments, boolean anchoredStart, boolean anchoredEnd) {
+			this.segments = segments;
+			this.anchoredStart = anchoredStart;
+			this.anchoredEnd = anchoredEnd;
+			this.shifts = new int[segments.length][];
+			for (int i = 0; i < segments.length; i++) {
+				String segment = segments[i];
+				int length = segment.length();
+				if (length < 3) {
+					continue;
+				}
+				//Boyer-Moore-Horspool bad character shifts, hashed to 256 buckets
+				//the minimum shift of colliding characters is retained
+				int[] shift = new int[256];
+				Arrays.fill(shift, length);
+				for (int j = 0; j < length - 1; j++) {
+					shift[segment.charAt(j) & 0xff] = length - 1 - j;
+				}
+				shifts[i] = shift;
+			}
+		}
+		
+		@Override
+		public boolean matches(CharSequence search) {
+			int pos = 0;
+			int first = 0;
+			int last = segments.length;
+			if (anchoredStart) {
+				String segment = segments[0];
+				if (!regionMatches(search, 0, segment)) {
+					return false;
+				}
+				pos = segment.length();
+				first = 1;
+				if (anchoredEnd && segments.length == 1) {
+					return endMatches(search, pos);
+				}
+			}
+			if (anchoredEnd) {
+				last--;
+			}
+			for (int i = first; i < last; i++) {
+				int index = indexOf(search, i, pos);
+				if (index < 0) {
+					return false;
+				}
+				pos = index + segments[i].length();
+			}
+			if (!anchoredEnd) {
+				return true;
+			}
+			String segment = segments[last];
+			int end = search.length();
+			for (int i = end; i >= end - 2; i--) {
+				int start = i - segment.length();
+				if (start >= pos && endMatches(search, i) && regionMatches(search, start, segment)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private int indexOf(CharSequence search, int segmentIndex, int from) {
+			String segment = segments[segmentIndex];
+			int length = segment.length();
+			int[] shift = shifts[segmentIndex];
+			int max = search.length() - length;
+			if (shift == null) {
+				for (int i = from; i <= max; i++) {
+					if (regionMatches(search, i, segment)) {
+						return i;
+					}
+				}
+				return -1;
+			}
+			char lastChar = segment.charAt(length - 1);
+			int i = from;
+			while (i <= max) {
+				char c = search.charAt(i + length - 1);
+				if (c == lastChar && regionMatches(search, i, segment)) {
+					return i;
+				}
+				i += shift[c & 0xff];
+			}
+			return -1;
+		}
+		
+		private static boolean regionMatches(CharSequence search, int start, String segment) {
+			int length = segment.length();
+			if (start < 0 || start + length > search.length()) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (search.charAt(start + i) != segment.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Mirror the non-multiline regex $, which matches at the end or before a final line terminator 
+		 */
+		private static boolean endMatches(CharSequence search, int i) {
+			int end = search.length();
+			if (i == end) {
+				return true;
+			}
+			if (i == end - 2) {
+				return search.charAt(i) == '\r' && search.charAt(i + 1) == '\n';
+			}
+			if (i == end - 1) {
+				char ch = search.charAt(i);
+				if (ch == '\n') {
+					return i == 0 || search.charAt(i - 1) != '\r';
+				}
+				return ch == '\r' || ch == '\u0085' || (ch|1) == '\u2029';
+			}
+			return false;
+		}
+	}
+	
+	/**
+	 * Create a direct matcher for the pattern if it consists only of literals and 
+	 * the any sequence wildcard.  The parsing mirrors {@link MatchCriteria.PatternTranslator}.
+	 * @param toReplace the special characters of the pattern syntax 
+	 * @param unsafe sorted characters that must not appear as literals, may be null
+	 * @return the matcher or null if the pattern requires a regex
+	 */
+	static PatternMatcher createWildcardMatcher(String pattern, char escape, char[] toReplace, char[] unsafe) {
+		int length = pattern.length();
+		int start = 0;
+		boolean anchoredStart = true;
+		boolean anchoredEnd = true;
+		if (length > 0 && pattern.charAt(0) == '%') {
+			anchoredStart = false;
+			start = 1;
+		}
+		List<String> segments = new ArrayList<String>();
+		StringBuilder literal = new StringBuilder();
+		boolean escaped = false;
+		for (int i = start; i < length; i++) {
+			char character = pattern.charAt(i);
+			if (character == escape && character != MatchCriteria.NULL_ESCAPE_CHAR) {
+				if (escaped && !appendLiteral(literal, character, unsafe)) {
+					return null;
+				}
+				escaped = !escaped;
+			} else if (Arrays.binarySearch(toReplace, character) >= 0) {
+				if (escaped) {
+					if (!appendLiteral(literal, character, unsafe)) {
+						return null;
+					}
+					escaped = false;
+				} else if (character == '%') {
+					if (i == length - 1) {
+						anchoredEnd = false;
+					}
+					if (literal.length() > 0) {
+						segments.add(literal.toString());
+						literal.setLength(0);
+					} else if (segments.isEmpty()) {
+						anchoredStart = false;
+					}
+				} else {
+					return null;
+				}
+			} else if (escaped || !appendLiteral(literal, character, unsafe)) {
+				return null;
+			}
+		}
+		if (escaped) {
+			return null;
+		}
+		if (literal.length() > 0) {
+			segments.add(literal.toString());
+		}
+		if (segments.isEmpty()) {
+			return null;
+		}
+		return new WildcardMatcher(segments.toArray(new String[segments.size()]), anchoredStart, anchoredEnd);
+	}
+	
+	private static boolean appendLiteral(StringBuilder literal, char character, char[] unsafe) {
+		if (unsafe != null && Arrays.binarySearch(unsafe, character) >= 0) {
+			return false;
+		}
+		literal.append(character);
+		return true;
+	}
+
+}
@@ -66,6 +66,9 @@ public class FunctionDescriptor implements Serializable, Cloneable {
     // a different VM.  This function descriptor can be used to look up 
     // the real VM descriptor for execution.
     private transient Method invocationMethod;
+    // Var arg invocation state bound once when the descriptor is created
+    private transient Class<?>[] parameterTypes;
+    private transient Class<?> varArgComponentType;
 	
     FunctionDescriptor() {
     }
@@ -78,6 +81,21 @@ public class FunctionDescriptor implements Serializable, Cloneable {
         this.invocationMethod = invocationMethod;
         this.requiresContext = requiresContext;
         this.method = method;
+        bindInvocationMethod();
+	}
+	
+	/**
+	 * Pre-compute the var arg parameter state needed by {@link #invokeFunction(Object[], CommandContext, Object)}
+	 * so that it is not looked up for each row.  Fixed arity methods need no additional state.
+	 */
+	private void bindInvocationMethod() {
+		if (invocationMethod == null || !method.isVarArgs()) {
+			return;
+		}
+		this.parameterTypes = invocationMethod.getParameterTypes();
+		if (this.parameterTypes.length > 0) {
+			this.varArgComponentType = this.parameterTypes[this.parameterTypes.length - 1].getComponentType();
+		}
 	}
 	
 	public Object newInstance() {
@@ -232,6 +250,12 @@ public class FunctionDescriptor implements Serializable, Cloneable {
         		}
         	}
         	if (method.isVarArgs()) {
+        		Class<?>[] paramTypes = this.parameterTypes;
+        		Class<?> componentType = this.varArgComponentType;
+        		if (paramTypes == null) {
+        			paramTypes = invocationMethod.getParameterTypes();
+        			componentType = paramTypes[paramTypes.length - 1].getComponentType();
+        		}
         		if (calledWithVarArgArrayParam) {
         			ArrayImpl av = (ArrayImpl)values[values.length -1];
         			if (av != null) {
@@ -246,10 +270,10 @@ public class FunctionDescriptor implements Serializable, Cloneable {
 	        				}
 	        				values[values.length - 1] = vals;
 	        			}
-	    				Class<?> arrayType = invocationMethod.getParameterTypes()[types.length - 1];
-						if (arrayType.getComponentType() != Object.class
+	    				Class<?> arrayType = paramTypes[types.length - 1];
+						if (componentType != Object.class
 	    						&& vals.getClass() != arrayType) {
-	    					Object varArgs = Array.newInstance(arrayType.getComponentType(), vals.length);
+	    					Object varArgs = Array.newInstance(componentType, vals.length);
 	    					for (int i = 0; i < vals.length; i++) {
 			        			Array.set(varArgs, i, vals[i]);
 			        		}
@@ -257,12 +281,12 @@ public class FunctionDescriptor implements Serializable, Cloneable {
 	    				}
         			}
         		} else {
-	        		int i = invocationMethod.getParameterTypes().length;
+	        		int i = paramTypes.length;
 	        		Object[] newValues = Arrays.copyOf(values, i);
 	        		Object varArgs = null;
-	        		if (invocationMethod.getParameterTypes()[i - 1].getComponentType() != Object.class) {
+	        		if (componentType != Object.class) {
 		        		int varArgCount = values.length - i + 1;
-		        		varArgs = Array.newInstance(invocationMethod.getParameterTypes()[i - 1].getComponentType(), varArgCount);
+		        		varArgs = Array.newInstance(componentType, varArgCount);
 		        		for (int j = 0; j < varArgCount; j++) {
 		        			Array.set(varArgs, j, values[i-1+j]);
 		        		}
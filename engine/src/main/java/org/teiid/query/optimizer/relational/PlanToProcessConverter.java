@@ -51,6 +51,8 @@ import org.teiid.query.analysis.AnalysisRecord;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.TempMetadataAdapter;
 import org.teiid.query.metadata.TempMetadataID;
+import org.teiid.query.function.FunctionDescriptor;
+import org.teiid.query.function.FunctionLibrary;
 import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities.Capability;
@@ -73,13 +75,20 @@ import org.teiid.query.sql.lang.ObjectTable.ObjectColumn;
 import org.teiid.query.sql.lang.SetQuery.Operation;
 import org.teiid.query.sql.lang.SourceHint.SpecificHint;
 import org.teiid.query.sql.lang.XMLTable.XMLColumn;
+import org.teiid.query.sql.LanguageObject;
+import org.teiid.query.sql.LanguageVisitor;
 import org.teiid.query.sql.navigator.PreOrPostOrderNavigator;
 import org.teiid.query.sql.symbol.AggregateSymbol;
+import org.teiid.query.sql.symbol.AliasSymbol;
+import org.teiid.query.sql.symbol.Array;
+import org.teiid.query.sql.symbol.CaseExpression;
 import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.ExpressionSymbol;
+import org.teiid.query.sql.symbol.Function;
 import org.teiid.query.sql.symbol.GroupSymbol;
+import org.teiid.query.sql.symbol.SearchedCaseExpression;
 import org.teiid.query.sql.symbol.WindowFunction;
 import org.teiid.query.sql.util.SymbolMap;
 import org.teiid.query.sql.visitor.EvaluatableVisitor;
@@ -131,6 +140,9 @@ public class PlanToProcessConverter {
 				}
 				throw new QueryPlannerException(e);
 			}
+	        if (context != null && context.getExchangeParallelism() > 1) {
+	        	processNode = addExchanges(processNode, null, context.getExchangeParallelism());
+	        }
 	        if(debug) {
 	            analysisRecord.println("\nPROCESS PLAN = \n" + processNode); //$NON-NLS-1$
 	            analysisRecord.println("============================================================================"); //$NON-NLS-1$
@@ -143,6 +155,103 @@ public class PlanToProcessConverter {
     	}
     }
 
+	/**
+	 * Replace union alls with exchanges when at least two children have a chain of 
+	 * project/select nodes that may be processed as a parallel fragment.
+	 */
+	private RelationalNode addExchanges(RelationalNode node, RelationalNode parent, int parallelism) {
+		RelationalNode[] children = node.getChildren();
+		for (int i = 0; i < node.getChildCount(); i++) {
+			RelationalNode child = addExchanges(children[i], node, parallelism);
+			if (child != children[i]) {
+				node.setChild(i, child);
+			}
+		}
+		//the union all is more selective about opening children under a limit
+		if (node.getClass() != UnionAllNode.class || node.getChildCount() < 2 || parent instanceof LimitNode) {
+			return node;
+		}
+		RelationalNode[] fragmentEnds = new RelationalNode[node.getChildCount()];
+		int fragments = 0;
+		for (int i = 0; i < node.getChildCount(); i++) {
+			RelationalNode current = children[i];
+			while ((current.getClass() == ProjectNode.class && isParallelSafe(((ProjectNode)current).getSelectSymbols()))
+					|| (current.getClass() == SelectNode.class && isParallelSafe(Arrays.asList(((SelectNode)current).getCriteria())))) {
+				if (current.getChildren()[0] == null) {
+					break;
+				}
+				fragmentEnds[i] = current;
+				current = current.getChildren()[0];
+			}
+			if (fragmentEnds[i] != null) {
+				fragments++;
+			}
+		}
+		if (fragments < 2) {
+			return node;
+		}
+		ExchangeNode exchange = new ExchangeNode(getID());
+		exchange.setElements(node.getElements());
+		exchange.setEstimateNodeCardinality(node.getEstimateNodeCardinality());
+		exchange.setParallelism(parallelism);
+		for (int i = 0; i < node.getChildCount(); i++) {
+			RelationalNode end = fragmentEnds[i];
+			if (end != null) {
+				RelationalNode source = end.getChildren()[0];
+				ExchangeSourceNode exchangeSource = new ExchangeSourceNode(getID());
+				exchangeSource.setElements(source.getElements());
+				exchangeSource.setEstimateNodeCardinality(source.getEstimateNodeCardinality());
+				exchangeSource.addChild(source);
+				end.setChild(0, exchangeSource);
+			}
+			exchange.addChild(children[i]);
+		}
+		return exchange;
+	}
+	
+	/**
+	 * Determine if the expressions may be evaluated by a thread other than the processing thread.
+	 */
+	static boolean isParallelSafe(List<? extends LanguageObject> objs) {
+		ParallelSafeNavigator nav = new ParallelSafeNavigator();
+		for (LanguageObject obj : objs) {
+			obj.acceptVisitor(nav);
+			if (!nav.safe) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static class ParallelSafeNavigator extends PreOrPostOrderNavigator {
+		boolean safe = true;
+		
+		public ParallelSafeNavigator() {
+			super(new LanguageVisitor() {}, PreOrPostOrderNavigator.PRE_ORDER, false);
+		}
+		
+		@Override
+		protected void preVisitVisitor(LanguageObject obj) {
+			if (!isParallelSafe(obj)) {
+				safe = false;
+				getVisitor().setAbort(true);
+			}
+		}
+		
+		private static boolean isParallelSafe(LanguageObject obj) {
+			if (obj instanceof Function) {
+				Function f = (Function)obj;
+				FunctionDescriptor fd = f.getFunctionDescriptor();
+				return fd != null && !fd.requiresContext() && fd.getDeterministic() == Determinism.DETERMINISTIC
+						&& !f.getName().equalsIgnoreCase(FunctionLibrary.LOOKUP);
+			}
+			return obj instanceof ElementSymbol || obj instanceof Constant || obj instanceof ExpressionSymbol || obj instanceof AliasSymbol
+					|| obj instanceof CaseExpression || obj instanceof SearchedCaseExpression || obj instanceof Array
+					|| obj instanceof CompareCriteria || obj instanceof CompoundCriteria || obj instanceof NotCriteria
+					|| obj instanceof IsNullCriteria || obj instanceof MatchCriteria || obj instanceof SetCriteria;
+		}
+	}
+	
 	private RelationalNode convertPlan(PlanNode planNode)
 		throws TeiidComponentException, TeiidProcessingException {
 
@@ -272,6 +381,12 @@ public class PlanToProcessConverter {
                     List rightExpressions = (List) node.getProperty(NodeConstants.Info.RIGHT_EXPRESSIONS);
                     jnode.setJoinExpressions(leftExpressions, rightExpressions);
                     joinCrits = (List) node.getProperty(NodeConstants.Info.NON_EQUI_JOIN_CRITERIA);
+                } else if (stype == JoinStrategyType.HASH) {
+                	jnode.setJoinStrategy(new HashJoinStrategy());
+                    List leftExpressions = (List) node.getProperty(NodeConstants.Info.LEFT_EXPRESSIONS);
+                    List rightExpressions = (List) node.getProperty(NodeConstants.Info.RIGHT_EXPRESSIONS);
+                    jnode.setJoinExpressions(leftExpressions, rightExpressions);
+                    joinCrits = (List) node.getProperty(NodeConstants.Info.NON_EQUI_JOIN_CRITERIA);
                 } else if (stype == JoinStrategyType.NESTED_TABLE) {
                 	NestedTableJoinStrategy ntjStrategy = new NestedTableJoinStrategy();
                 	jnode.setJoinStrategy(ntjStrategy);
@@ -439,6 +554,7 @@ public class PlanToProcessConverter {
 				} else if (node.hasBooleanProperty(NodeConstants.Info.IS_DUP_REMOVAL)) {
 					sortNode.setMode(Mode.DUP_REMOVE_SORT);
 				}
+				sortNode.setLimitExpr((Expression)node.getProperty(NodeConstants.Info.MAX_TUPLE_LIMIT));
 
 				processNode = sortNode;
 				break;
@@ -447,6 +563,7 @@ public class PlanToProcessConverter {
 				SymbolMap groupingMap = (SymbolMap)node.getProperty(NodeConstants.Info.SYMBOL_MAP);
 				gnode.setOutputMapping(groupingMap);
 				gnode.setRemoveDuplicates(node.hasBooleanProperty(NodeConstants.Info.IS_DUP_REMOVAL));
+				gnode.setHashGrouping(node.hasBooleanProperty(NodeConstants.Info.IS_HASH_GROUP));
 				List<Expression> gCols = (List) node.getProperty(NodeConstants.Info.GROUP_COLS);
 				orderBy = (OrderBy) node.getProperty(Info.SORT_ORDER);
 				if (orderBy == null) {
@@ -51,6 +51,7 @@ import org.teiid.query.sql.lang.CompareCriteria;
 import org.teiid.query.sql.lang.Criteria;
 import org.teiid.query.sql.lang.JoinType;
 import org.teiid.query.sql.lang.OrderBy;
+import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.GroupSymbol;
@@ -119,6 +120,14 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
 
             List<Expression> leftExpressions = (List<Expression>) joinNode.getProperty(NodeConstants.Info.LEFT_EXPRESSIONS);
             List<Expression> rightExpressions = (List<Expression>) joinNode.getProperty(NodeConstants.Info.RIGHT_EXPRESSIONS);
+            
+            if (context != null && context.getOptions().isHashJoin() && useHashJoin(joinNode, leftExpressions, rightExpressions, metadata, capabilitiesFinder, context)) {
+            	insertProject(joinNode.getFirstChild(), leftExpressions, joinNode);
+            	insertProject(joinNode.getLastChild(), rightExpressions, joinNode);
+            	joinNode.setProperty(NodeConstants.Info.JOIN_STRATEGY, JoinStrategyType.HASH);
+            	continue;
+            }
+            
             int origExpressionCount = leftExpressions.size();
 
             //check index information on each side
@@ -204,6 +213,61 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
         return plan;
     }
 
+    /**
+     * Determine if a hash join should be used rather than a merge join.  The hash join is used
+     * only when neither side can have its sort performed without processing cost and the cost estimates 
+     * do not show both sides to be trivially small.
+     */
+    static boolean useHashJoin(PlanNode joinNode, List<Expression> leftExpressions, List<Expression> rightExpressions, 
+    		QueryMetadataInterface metadata, CapabilitiesFinder capFinder, CommandContext context) throws QueryMetadataException, TeiidComponentException {
+    	JoinType joinType = (JoinType)joinNode.getProperty(NodeConstants.Info.JOIN_TYPE);
+    	if (joinType == JoinType.JOIN_CROSS || joinType == JoinType.JOIN_RIGHT_OUTER 
+    			|| joinNode.getProperty(NodeConstants.Info.DEPENDENT_VALUE_SOURCE) != null 
+    			|| Constant.COLLATION_LOCALE != null) {
+    		return false;
+    	}
+    	float leftCost = NewCalculateCostUtil.computeCostForTree(joinNode.getFirstChild(), metadata);
+    	float rightCost = NewCalculateCostUtil.computeCostForTree(joinNode.getLastChild(), metadata);
+    	if (leftCost != NewCalculateCostUtil.UNKNOWN_VALUE && rightCost != NewCalculateCostUtil.UNKNOWN_VALUE 
+    			&& leftCost <= context.getProcessorBatchSize() && rightCost <= context.getProcessorBatchSize()) {
+    		return false; //the sorts will be in memory
+    	}
+    	return !isSortFree(joinNode.getFirstChild(), leftExpressions, metadata, capFinder) 
+    			&& !isSortFree(joinNode.getLastChild(), rightExpressions, metadata, capFinder);
+    }
+    
+    /**
+     * @return true if the child can be sorted by the source or is already sorted
+     */
+    private static boolean isSortFree(PlanNode childNode, List<Expression> expressions, QueryMetadataInterface metadata, CapabilitiesFinder capFinder) throws QueryMetadataException, TeiidComponentException {
+    	PlanNode sourceNode = FrameUtil.findJoinSourceNode(childNode);
+    	if (sourceNode.getType() == NodeConstants.Types.GROUP) {
+    		return true;
+    	}
+    	if (sourceNode.getType() != NodeConstants.Types.ACCESS) {
+    		return false;
+    	}
+    	Set<Expression> outputSymbols = new LinkedHashSet<Expression>((List<Expression>)childNode.getProperty(NodeConstants.Info.OUTPUT_COLS));
+    	outputSymbols.addAll(expressions);
+    	PlanNode sortNode = createSortNode(new ArrayList<Expression>(new LinkedHashSet<Expression>(expressions)), outputSymbols);
+    	return RuleRaiseAccess.canRaiseOverSort(sourceNode, metadata, capFinder, sortNode, null, false);
+    }
+    
+    /**
+     * Insert a project node under the join if the child does not already project the join expressions 
+     */
+    static void insertProject(PlanNode childNode, List<Expression> expressions, PlanNode joinNode) {
+    	Set<Expression> outputSymbols = new LinkedHashSet<Expression>((List<Expression>)childNode.getProperty(NodeConstants.Info.OUTPUT_COLS));
+    	int oldSize = outputSymbols.size();
+    	outputSymbols.addAll(expressions);
+    	if (outputSymbols.size() > oldSize) {
+            PlanNode projectNode = NodeFactory.getNewNode(NodeConstants.Types.PROJECT);
+            projectNode.setProperty(NodeConstants.Info.PROJECT_COLS, new ArrayList<Expression>(outputSymbols));
+            childNode.addAsParent(projectNode);
+            correctOutputElements(joinNode, outputSymbols, projectNode);
+    	}
+    }
+
     /**
      * Insert a sort node under the merge join node.  If necessary, also insert a project
      * node to handle function evaluation.  
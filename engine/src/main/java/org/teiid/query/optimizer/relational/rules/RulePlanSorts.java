@@ -44,6 +44,7 @@ import org.teiid.query.sql.lang.OrderByItem;
 import org.teiid.query.sql.lang.SetQuery;
 import org.teiid.query.sql.symbol.AggregateSymbol;
 import org.teiid.query.sql.symbol.AliasSymbol;
+import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.ExpressionSymbol;
@@ -165,12 +166,16 @@ public class RulePlanSorts implements OptimizerRule {
 					}
 				}
 			}
+			if (context != null && context.getOptions().isHashAggregation() && canHashGroup(node, map)) {
+				node.setProperty(NodeConstants.Info.IS_HASH_GROUP, true);
+			}
 			//TODO: check the join interesting order
 			parentBlocking = true;
 			break;
 		case NodeConstants.Types.JOIN:
 			if (node.getProperty(NodeConstants.Info.JOIN_STRATEGY) == JoinStrategyType.NESTED_LOOP 
-					|| node.getProperty(NodeConstants.Info.JOIN_STRATEGY) == JoinStrategyType.NESTED_TABLE) {
+					|| node.getProperty(NodeConstants.Info.JOIN_STRATEGY) == JoinStrategyType.NESTED_TABLE
+					|| node.getProperty(NodeConstants.Info.JOIN_STRATEGY) == JoinStrategyType.HASH) {
 				break;
 			}
 			/*
@@ -211,6 +216,36 @@ public class RulePlanSorts implements OptimizerRule {
 		return root;
 	}
 
+	/**
+	 * Hash grouping may be used if the output does not need to be ordered and 
+	 * the aggregate state for each group is bounded.
+	 */
+	static boolean canHashGroup(PlanNode node, SymbolMap map) {
+		if (node.getProperty(Info.SORT_ORDER) != null 
+				|| node.hasBooleanProperty(Info.IS_DUP_REMOVAL) 
+				|| Constant.COLLATION_LOCALE != null) {
+			return false;
+		}
+		for (Expression ex : map.asMap().values()) {
+			if (!(ex instanceof AggregateSymbol)) {
+				continue;
+			}
+			AggregateSymbol agg = (AggregateSymbol)ex;
+			if (agg.isDistinct() || agg.getOrderBy() != null) {
+				return false;
+			}
+			switch (agg.getAggregateFunction()) {
+			case XMLAGG:
+			case TEXTAGG:
+			case ARRAY_AGG:
+			case JSONARRAY_AGG:
+			case USER_DEFINED:
+				return false;
+			}
+		}
+		return true;
+	}
+
 	private PlanNode checkForProjectOptimization(PlanNode node, PlanNode root, 
 			QueryMetadataInterface metadata, CapabilitiesFinder capFinder, AnalysisRecord record, CommandContext context) throws QueryMetadataException, TeiidComponentException, QueryPlannerException {
 		PlanNode projectNode = node.getFirstChild();
@@ -103,6 +103,7 @@ public class RulePushLimit implements OptimizerRule {
             }
             
             if (NodeEditor.findAllNodes(limitNode, NodeConstants.Types.ACCESS).isEmpty()) {
+            	setSortLimit(limitNode, metadata);
                 limitNodes.remove(limitNode);
                 continue;
             }
@@ -113,6 +114,7 @@ public class RulePushLimit implements OptimizerRule {
                 limitNode.setProperty(Info.OUTPUT_COLS, limitNode.getFirstChild().getProperty(Info.OUTPUT_COLS));
             }
             
+            setSortLimit(limitNode, metadata);
             limitNodes.remove(limitNode);
             
             if (limitNode.hasBooleanProperty(Info.IS_COPIED)) {
@@ -230,6 +232,20 @@ public class RulePushLimit implements OptimizerRule {
         }
     }
 
+    /**
+     * If the limit could not be pushed past a sort, then let the sort know how many rows
+     * are needed so that it may perform a top n sort.
+     */
+    static void setSortLimit(PlanNode limitNode, QueryMetadataInterface metadata) {
+    	PlanNode child = limitNode.getFirstChild();
+    	Expression limit = (Expression)limitNode.getProperty(NodeConstants.Info.MAX_TUPLE_LIMIT);
+    	if (child == null || child.getType() != NodeConstants.Types.SORT || limit == null) {
+    		return;
+    	}
+    	Expression offset = (Expression)limitNode.getProperty(NodeConstants.Info.OFFSET_TUPLE_COUNT);
+    	child.setProperty(NodeConstants.Info.MAX_TUPLE_LIMIT, op(SourceSystemFunctions.ADD_OP, limit, offset, metadata.getFunctionLibrary()));
+    }
+
 	private static PlanNode newLimit(PlanNode limitNode) {
 		PlanNode newLimit = NodeFactory.getNewNode(NodeConstants.Types.TUPLE_LIMIT);
 		if (limitNode.hasBooleanProperty(Info.IS_NON_STRICT)) {
@@ -174,6 +174,17 @@ public class QueryParser implements Parser {
         }        
         return SQLParserUtil.getQueryCacheOption(sql);        
 	}	
+	
+	/**
+	 * Parse the degree of parallelism from a leading hint of the form <code>/*+ parallel(n) *&#47;</code>
+	 * @return the degree of parallelism or null if not specified
+	 */
+	public Integer parseParallelHint(String sql) {
+        if(sql == null || sql.length() == 0) {
+             return null;
+        }        
+        return SQLParserUtil.getQueryParallelOption(sql);        
+	}
 
     /**
      * Takes a SQL string representing an SQL criteria (i.e. just the WHERE
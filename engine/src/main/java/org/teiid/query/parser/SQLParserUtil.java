@@ -268,6 +268,19 @@ public class SQLParserUtil {
 	
 	private static Pattern CACHE_HINT = Pattern.compile("/\\*\\+?\\s*cache(\\(\\s*(pref_mem)?\\s*(ttl:\\d{1,19})?\\s*(updatable)?\\s*(scope:(session|vdb|user))?[^\\)]*\\))?[^\\*]*\\*\\/.*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL); //$NON-NLS-1$
     
+	private static Pattern PARALLEL_HINT = Pattern.compile("/\\*\\+?[^\\*]*\\bparallel\\(\\s*(\\d{1,9})\\s*\\)[^\\*]*\\*\\/.*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL); //$NON-NLS-1$
+	
+	/**
+	 * @return the value of a leading parallel(n) hint or null
+	 */
+	static Integer getQueryParallelOption(String query) {
+		Matcher match = PARALLEL_HINT.matcher(query);
+		if (match.matches()) {
+			return Integer.valueOf(match.group(1));
+		}
+		return null;
+	}
+	
 	static CacheHint getQueryCacheOption(String query) {
     	Matcher match = CACHE_HINT.matcher(query);
     	if (match.matches()) {
@@ -316,6 +316,9 @@ public class AccessNode extends SubqueryAwareRelationalNode {
 							}
 	                    	tuple = newTuple;
 	                    }
+	                    if (!acceptTuple(tuple)) {
+	                    	continue;
+	                    }
 	                    addBatchRow(tuple);
 	                    
 	                    if (isBatchFull()) {
@@ -370,6 +373,13 @@ public class AccessNode extends SubqueryAwareRelationalNode {
         return pullBatch();
 	}
 	
+	/**
+	 * @return true if the source tuple should be added to the output
+	 */
+	protected boolean acceptTuple(List<?> tuple) {
+		return true;
+	}
+	
 	@Override
 	protected void addBatchRow(List<?> row) {
 		if (this.getOutputElements().isEmpty()) {
@@ -0,0 +1,87 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.processor.relational;
+
+/**
+ * A simple Bloom filter over hashable values.  Used to reduce the rows 
+ * returned from a dependent source when the dependent criteria could not be pushed.
+ * <br/>
+ * There are no false negatives, so a value that is not contained was not added.
+ */
+class BloomFilter {
+	
+	private static final int BITS_PER_VALUE = 8;
+	private static final int HASHES = 4;
+	
+	private final long[] bits;
+	private final int size;
+	
+	/**
+	 * @param expectedValues the expected number of distinct values
+	 */
+	BloomFilter(int expectedValues) {
+		long bitCount = Math.max(64, (long)expectedValues * BITS_PER_VALUE);
+		bitCount = Math.min(bitCount, Integer.MAX_VALUE);
+		this.bits = new long[(int)((bitCount + 63) >>> 6)];
+		this.size = this.bits.length << 6;
+	}
+	
+	void add(Object value) {
+		int hash = value.hashCode();
+		int h1 = mix(hash);
+		int h2 = mix(h1 ^ hash) | 1;
+		for (int i = 0; i < HASHES; i++) {
+			int index = ((h1 + i * h2) & Integer.MAX_VALUE) % size;
+			bits[index >>> 6] |= 1L << index;
+		}
+	}
+	
+	/**
+	 * @return false if the value was definitely not added
+	 */
+	boolean mightContain(Object value) {
+		if (value == null) {
+			return false;
+		}
+		int hash = value.hashCode();
+		int h1 = mix(hash);
+		int h2 = mix(h1 ^ hash) | 1;
+		for (int i = 0; i < HASHES; i++) {
+			int index = ((h1 + i * h2) & Integer.MAX_VALUE) % size;
+			if ((bits[index >>> 6] & (1L << index)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+}
@@ -25,6 +25,7 @@ package org.teiid.query.processor.relational;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
@@ -34,6 +35,8 @@ import org.teiid.query.sql.lang.Criteria;
 import org.teiid.query.sql.lang.DependentSetCriteria;
 import org.teiid.query.sql.lang.Query;
 import org.teiid.query.sql.lang.QueryCommand;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.util.SymbolMap;
 
 
 /**
@@ -53,6 +56,8 @@ public class DependentAccessNode extends AccessNode {
     private DependentCriteriaProcessor criteriaProcessor;
     private Criteria dependentCrit;
     private boolean sort = true;
+    private int[] filterIndexes;
+    private BloomFilter[] filters;
     /**
      * Cached rewritten command to be used as the base for all dependent queries.
      */
@@ -79,6 +84,8 @@ public class DependentAccessNode extends AccessNode {
         dependentCrit = null;
         sort = true;
         rewrittenCommand = null;
+        filterIndexes = null;
+        filters = null;
     }
     
     @Override
@@ -162,6 +169,10 @@ public class DependentAccessNode extends AccessNode {
             dependentCrit = criteriaProcessor.prepareCriteria();
         }
         
+        if (this.filters == null) {
+        	initFilters(query);
+        }
+        
         query.setCriteria(dependentCrit);
         
         if (sort && query.getOrderBy() != null && criteriaProcessor.hasNextCommand()) {
@@ -191,6 +202,49 @@ public class DependentAccessNode extends AccessNode {
         return result;
     }
 
+    /**
+     * Determine the output positions of the dependent expressions that 
+     * will be filtered locally.  The positions are against the projected tuple, which 
+     * has the width of the original select even if the source query has been minimized.
+     */
+    private void initFilters(Query query) {
+    	Map<Expression, BloomFilter> filterMap = criteriaProcessor.getFilters();
+    	List<Expression> select = query.getSelect().getSymbols();
+    	Object[] projection = getProjection();
+    	if (projection != null && projection.length > 0 && getOriginalSelect() != null) {
+    		select = getOriginalSelect();
+    	}
+    	List<Integer> indexes = new ArrayList<Integer>(filterMap.size());
+    	List<BloomFilter> filterList = new ArrayList<BloomFilter>(filterMap.size());
+    	for (Map.Entry<Expression, BloomFilter> entry : filterMap.entrySet()) {
+    		for (int i = 0; i < select.size(); i++) {
+    			if (SymbolMap.getExpression(select.get(i)).equals(entry.getKey())) {
+    				indexes.add(i);
+    				filterList.add(entry.getValue());
+    				break;
+    			}
+    		}
+		}
+    	this.filterIndexes = new int[indexes.size()];
+    	for (int i = 0; i < filterIndexes.length; i++) {
+			filterIndexes[i] = indexes.get(i);
+		}
+    	this.filters = filterList.toArray(new BloomFilter[filterList.size()]);
+    }
+    
+    @Override
+    protected boolean acceptTuple(List<?> tuple) {
+    	if (filters == null) {
+    		return true;
+    	}
+    	for (int i = 0; i < filters.length; i++) {
+    		if (!filters[i].mightContain(tuple.get(filterIndexes[i]))) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+
     /**
      * @see org.teiid.query.processor.relational.AccessNode#hasNextCommand()
      */
@@ -67,6 +67,10 @@ public class DependentCriteriaProcessor {
         
         boolean overMax;
         
+        boolean filterable;
+        
+        BloomFilter filter;
+        
         long replacementSize() {
     		return replacement.size() * valueCount;
     	}
@@ -161,9 +165,30 @@ public class DependentCriteriaProcessor {
                 		setState.overMax = true;
                 	}
     			}
+            	for (SetState setState : dependentSetStates) {
+            		if (setState.overMax && setState.filterable && setState.filter == null) {
+            			buildFilter(setState);
+            		}
+            	}
             }
         }
         
+        /**
+         * Since the criteria will not be sent to the source, filter the
+         * dependent rows locally instead.
+         */
+        private void buildFilter(SetState setState) throws TeiidComponentException {
+        	BloomFilter filter = new BloomFilter(dvs.getTupleBuffer().getRowCount());
+        	ValueIterator vi = dvs.getValueIterator(setState.valueExpression);
+        	while (vi.hasNext()) {
+        		Object next = vi.next();
+        		if (next != null) {
+        			filter.add(next);
+        		}
+        	}
+        	setState.filter = filter;
+        }
+        
         public void close() {
             if (dvs != null) {
             	sortUtility = null;
@@ -247,6 +272,8 @@ public class DependentCriteriaProcessor {
                 }
                 ts.getDepedentSetStates().add(state);
                 state.maxNdv = dsc.getMaxNdv();
+                Class<?> type = state.valueExpression.getType();
+                state.filterable = !dsc.hasMultipleAttributes() && type == dsc.getExpression().getType() && DataTypeManager.isHashable(type);
             } 
         }        
     }
@@ -422,6 +449,22 @@ public class DependentCriteriaProcessor {
         return hasNextCommand;
     }
     
+    /**
+     * Get the filters for the dependent set criteria that were not applied
+     * to the source query.
+     * @return a map of dependent side expression to filter
+     */
+    Map<Expression, BloomFilter> getFilters() {
+    	Map<Expression, BloomFilter> result = new LinkedHashMap<Expression, BloomFilter>();
+    	for (Map.Entry<Integer, SetState> entry : setStates.entrySet()) {
+    		SetState state = entry.getValue();
+			if (state.overMax && state.filter != null) {
+				result.put(((AbstractSetCriteria)queryCriteria.get(entry.getKey())).getExpression(), state.filter);
+			}
+		}
+    	return result;
+    }
+    
     public Criteria replaceDependentCriteria(AbstractSetCriteria crit, SetState state) throws TeiidComponentException {
     	if (state.overMax) {
             DependentValueSource originalVs = (DependentValueSource)dependentNode.getContext().getVariableContext().getGlobalValue(((DependentSetCriteria)crit).getContextSymbol());
@@ -0,0 +1,321 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.processor.relational;
+
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferAccount;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.query.processor.ProcessorDataManager;
+import org.teiid.query.util.CommandContext;
+
+/**
+ * A union all that processes its children as independent plan fragments.
+ * <br/>
+ * Each child that has an {@link ExchangeSourceNode} in its chain is executed by the 
+ * {@link CommandContext#getExecutor()} up to the exchange parallelism.  The sources below 
+ * the {@link ExchangeSourceNode} are still read only by the processing thread and
+ * the results of each fragment are gathered through a bounded queue. 
+ * <br/>
+ * Like the {@link UnionAllNode} there is no guarantee of the order of results across children.
+ */
+public class ExchangeNode extends RelationalNode {
+	
+	private static class Fragment implements Callable<Void> {
+		RelationalNode top;
+		ExchangeSourceNode source;
+		Queue<TupleBatch> output = new ConcurrentLinkedQueue<TupleBatch>();
+		FutureTask<Void> task;
+		volatile boolean cancelled;
+		BufferManager bufferManager;
+		BufferAccount account;
+		
+		@Override
+		public Void call() throws Exception {
+			//charge reservations to the request, not the executing thread
+			BufferAccount previous = bufferManager.getBufferAccount();
+			bufferManager.setBufferAccount(account);
+			try {
+				while (!cancelled && output.size() < ExchangeSourceNode.MAX_QUEUED) {
+					TupleBatch batch = null;
+					try {
+						batch = top.nextBatch();
+					} catch (BlockedException e) {
+						break;
+					}
+					output.add(batch);
+					if (batch.getTerminationFlag()) {
+						break;
+					}
+				}
+			} finally {
+				bufferManager.setBufferAccount(previous);
+			}
+			return null;
+		}
+	}
+	
+	private int parallelism = 2;
+	
+	private Fragment[] fragments;
+	private boolean[] sourceDone;
+	private int outputRow = 1;
+	private int nextChild;
+	private int reserved;
+	private int schemaSize;
+
+	public ExchangeNode(int nodeID) {
+		super(nodeID);
+	}
+	
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+	
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	@Override
+	public void reset() {
+		super.reset();
+		fragments = null;
+		sourceDone = null;
+		outputRow = 1;
+		nextChild = 0;
+	}
+	
+	@Override
+	public void initialize(CommandContext context, BufferManager bufferManager,
+			ProcessorDataManager dataMgr) {
+		super.initialize(context, bufferManager, dataMgr);
+		this.schemaSize = getBufferManager().getSchemaSize(getOutputElements());
+	}
+	
+	@Override
+	public void open() throws TeiidComponentException,
+			TeiidProcessingException {
+		int childCount = getChildCount();
+		sourceDone = new boolean[childCount];
+		fragments = new Fragment[childCount];
+		RelationalNode[] children = getChildren();
+		for (int i = 0; i < childCount; i++) {
+			ExchangeSourceNode source = findSource(children[i]);
+			if (source != null) {
+				Fragment fragment = new Fragment();
+				fragment.top = children[i];
+				fragment.source = source;
+				fragment.bufferManager = getBufferManager();
+				fragment.account = getBufferManager().getBufferAccount();
+				fragments[i] = fragment;
+			}
+		}
+		if (reserved == 0) {
+			reserved = getBufferManager().reserveBuffers(childCount * schemaSize, BufferReserveMode.FORCE);
+		}
+		super.open();
+	}
+	
+	static ExchangeSourceNode findSource(RelationalNode node) {
+		while (node != null) {
+			if (node instanceof ExchangeSourceNode) {
+				return (ExchangeSourceNode)node;
+			}
+			node = node.getChildren()[0];
+		}
+		return null;
+	}
+	
+	private int getDegree() {
+		int degree = parallelism;
+		CommandContext context = getContext();
+		if (context.getUserRequestSourceConcurrency() > 0) {
+			degree = Math.min(degree, context.getUserRequestSourceConcurrency());
+		}
+		return Math.max(1, degree);
+	}
+	
+	@Override
+	protected TupleBatch nextBatchDirect() throws BlockedException,
+			TeiidComponentException, TeiidProcessingException {
+		RelationalNode[] children = getChildren();
+		int childCount = getChildCount();
+		int degree = getDegree();
+		while (true) {
+			int activeSources = 0;
+			int running = 0;
+			for (int i = 0; i < childCount; i++) {
+				Fragment fragment = fragments[i];
+				if (fragment != null && fragment.task != null) {
+					if (fragment.task.isDone()) {
+						getResult(fragment);
+					} else {
+						running++;
+					}
+				}
+			}
+			TupleBatch batch = null;
+			int batchIndex = -1;
+			for (int j = 0; j < childCount; j++) {
+				int i = (nextChild + j) % childCount;
+				if (sourceDone[i]) {
+					continue;
+				}
+				activeSources++;
+				Fragment fragment = fragments[i];
+				if (fragment == null) {
+					if (batch == null) {
+						try {
+							batch = children[i].nextBatch();
+							batchIndex = i;
+						} catch (BlockedException e) {
+							//try the next child
+						}
+					}
+					continue;
+				}
+				try {
+					fragment.source.fill();
+				} catch (BlockedException e) {
+					//the fragment may still have input
+				}
+				if (fragment.task == null && running < degree && fragment.source.hasInput() 
+						&& fragment.output.size() < ExchangeSourceNode.MAX_QUEUED) {
+					fragment.task = new FutureTask<Void>(fragment);
+					getContext().getExecutor().execute(fragment.task);
+					running++;
+				}
+				if (batch == null) {
+					batch = fragment.output.poll();
+					if (batch != null) {
+						batchIndex = i;
+					}
+				}
+			}
+			if (batch != null) {
+				nextChild = (batchIndex + 1) % childCount;
+				if (batch.getTerminationFlag()) {
+					sourceDone[batchIndex] = true;
+					activeSources--;
+					if (reserved > 0) {
+						getBufferManager().releaseBuffers(schemaSize);
+						reserved-=schemaSize;
+					}
+				}
+				TupleBatch outputBatch = new TupleBatch(outputRow, batch.getTuples());
+				outputBatch.setTerminationFlag(batch.getTerminationFlag() && activeSources == 0);
+				outputRow += outputBatch.getRowCount();
+				return outputBatch;
+			}
+			if (activeSources == 0) {
+				TupleBatch outputBatch = new TupleBatch(outputRow, Collections.EMPTY_LIST);
+				outputBatch.setTerminationFlag(true);
+				return outputBatch;
+			}
+			if (running == 0) {
+				throw BlockedException.block(getContext().getRequestId(), "Blocking on exchange source.", getID()); //$NON-NLS-1$
+			}
+			//wait for, or run in this thread, a fragment that has work
+			for (int i = 0; i < childCount; i++) {
+				Fragment fragment = fragments[i];
+				if (fragment != null && fragment.task != null) {
+					getResult(fragment);
+					break;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Get the fragment task result.  The task is run in the calling thread if 
+	 * the executor has not yet started it, so that progress does not depend
+	 * upon available threads. 
+	 */
+	private void getResult(Fragment fragment) throws TeiidComponentException, TeiidProcessingException {
+		FutureTask<Void> task = fragment.task;
+		fragment.task = null;
+		task.run();
+		try {
+			task.get();
+		} catch (InterruptedException e) {
+			throw new TeiidComponentException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof TeiidProcessingException) {
+				throw (TeiidProcessingException)e.getCause();
+			}
+			if (e.getCause() instanceof TeiidComponentException) {
+				throw (TeiidComponentException)e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			throw new TeiidComponentException(e.getCause());
+		}
+	}
+	
+	@Override
+	public void closeDirect() {
+		//the fragments must be quiesced before the children are closed
+		if (fragments != null) {
+			for (Fragment fragment : fragments) {
+				if (fragment != null && fragment.task != null) {
+					fragment.cancelled = true;
+					try {
+						getResult(fragment);
+					} catch (Exception e) {
+						//ignore
+					}
+				}
+			}
+		}
+		if (reserved > 0) {
+			getBufferManager().releaseBuffers(reserved);
+			reserved = 0;
+		}
+	}
+	
+	@Override
+	protected void getNodeString(StringBuffer str) {
+		super.getNodeString(str);
+		str.append("[parallelism=").append(parallelism).append("]"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	@Override
+	public Object clone() {
+		ExchangeNode clone = new ExchangeNode(getID());
+		clone.parallelism = this.parallelism;
+		copyTo(clone);
+		return clone;
+	}
+
+}
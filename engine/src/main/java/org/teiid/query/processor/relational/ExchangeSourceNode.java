@@ -0,0 +1,93 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.processor.relational;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+
+/**
+ * The boundary of a plan fragment executed by an {@link ExchangeNode}.
+ * <br/>
+ * The child is read by the {@link ExchangeNode} on the processing thread and the batches
+ * are handed to the fragment, which may be executing on another thread.  
+ */
+public class ExchangeSourceNode extends RelationalNode {
+	
+	static final int MAX_QUEUED = 2;
+	
+	private Queue<TupleBatch> batches = new ConcurrentLinkedQueue<TupleBatch>();
+	private boolean inputDone;
+	
+	public ExchangeSourceNode(int nodeID) {
+		super(nodeID);
+	}
+	
+	@Override
+	public void reset() {
+		super.reset();
+		batches.clear();
+		inputDone = false;
+	}
+	
+	/**
+	 * Read from the child until blocked or the queue is full.  Must be called from 
+	 * the processing thread. 
+	 */
+	void fill() throws BlockedException, TeiidComponentException, TeiidProcessingException {
+		while (!inputDone && batches.size() < MAX_QUEUED) {
+			TupleBatch batch = getChildren()[0].nextBatch();
+			batches.add(batch);
+			inputDone = batch.getTerminationFlag();
+		}
+	}
+	
+	/**
+	 * @return true if the fragment has input to process
+	 */
+	boolean hasInput() {
+		return !batches.isEmpty();
+	}
+	
+	@Override
+	protected TupleBatch nextBatchDirect() throws BlockedException,
+			TeiidComponentException, TeiidProcessingException {
+		TupleBatch batch = batches.poll();
+		if (batch == null) {
+			throw BlockedException.INSTANCE;
+		}
+		return batch;
+	}
+	
+	@Override
+	public Object clone() {
+		ExchangeSourceNode clone = new ExchangeSourceNode(getID());
+		copyTo(clone);
+		return clone;
+	}
+
+}
@@ -27,7 +27,10 @@ import static org.teiid.query.analysis.AnalysisRecord.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -36,12 +39,17 @@ import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.client.plan.PlanNode;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.common.buffer.TupleSource;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.language.SortSpecification.NullOrdering;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
 import org.teiid.query.eval.Evaluator;
 import org.teiid.query.function.aggregate.*;
 import org.teiid.query.processor.BatchCollector;
@@ -109,9 +117,23 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     private List<?> lastRow;
 	private List<?> currentGroupTuple;
 
+    // Hash group phase
+    private boolean hashGrouping;
+    private Map<HashJoinStrategy.HashKey, AggregateFunction[]> groups;
+    private Iterator<AggregateFunction[]> groupOutput;
+    private int maxGroups;
+    private int reserved;
+    private int level;
+    private TupleBuffer[] spillPartitions;
+    private LinkedList<TupleBuffer> pendingPartitions = new LinkedList<TupleBuffer>();
+    private LinkedList<Integer> pendingLevels = new LinkedList<Integer>();
+    private TupleBuffer currentPartition;
+
     private static final int COLLECTION = 1;
     private static final int SORT = 2;
     private static final int GROUP = 3;
+    private static final int HASH_GROUP = 4;
+    private static final int HASH_OUTPUT = 5;
 	private int[] indexes;
 
 	public GroupingNode(int nodeID) {
@@ -129,6 +151,8 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         lastRow = null;
         currentGroupTuple = null;
         
+        closeHashGrouping();
+        
         if (this.functions != null) {
 	    	for (AggregateFunction function : this.functions) {
 				function.reset();
@@ -139,6 +163,17 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     public void setRemoveDuplicates(boolean removeDuplicates) {
 		this.removeDuplicates = removeDuplicates;
 	}
+    
+    /**
+     * Use a hash table of the groups rather than a sort.  The output will not be ordered. 
+     */
+    public void setHashGrouping(boolean hashGrouping) {
+		this.hashGrouping = hashGrouping;
+	}
+    
+    public boolean isHashGrouping() {
+		return hashGrouping;
+	}
 
     public void setOrderBy(List<OrderByItem> orderBy) {
 		this.orderBy = orderBy;
@@ -176,7 +211,14 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         }
         
         // Construct aggregate function state accumulators
-        functions = new AggregateFunction[getElements().size()];
+        functions = createFunctions();
+    }
+	
+	/**
+	 * Create a new set of aggregate function state accumulators 
+	 */
+	private AggregateFunction[] createFunctions() {
+		AggregateFunction[] result = new AggregateFunction[getElements().size()];
         for(int i=0; i<getElements().size(); i++) {
             Expression symbol = getElements().get(i);
             if (this.outputMapping != null) {
@@ -185,14 +227,15 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
             Class<?> outputType = symbol.getType();
             if(symbol instanceof AggregateSymbol) {
             	AggregateSymbol aggSymbol = (AggregateSymbol) symbol;
-            	functions[i] = initAccumulator(aggSymbol, this, this.collectedExpressions);
+            	result[i] = initAccumulator(aggSymbol, this, this.collectedExpressions);
             } else {
-                functions[i] = new ConstantFunction();
-                functions[i].setArgIndexes(new int[] {this.collectedExpressions.get(symbol)});
-                functions[i].initialize(outputType, new Class<?>[]{symbol.getType()});
+                result[i] = new ConstantFunction();
+                result[i].setArgIndexes(new int[] {this.collectedExpressions.get(symbol)});
+                result[i].initialize(outputType, new Class<?>[]{symbol.getType()});
             }
         }
-    }
+        return result;
+	}
 	
 	static Integer getIndex(Expression ex, LinkedHashMap<Expression, Integer> expressionIndexes) {
 		Integer index = expressionIndexes.get(ex);
@@ -322,6 +365,10 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
             return groupPhase();
         }
         
+        if (this.phase == HASH_GROUP || this.phase == HASH_OUTPUT) {
+        	return hashGroupPhase();
+        }
+        
         this.terminateBatches();
         return pullBatch();
     }
@@ -362,8 +409,14 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         		sortIndexes[i] = i; 
         	}
         	this.indexes = Arrays.copyOf(sortIndexes, orderBy.size());
+        	if (this.hashGrouping && !this.removeDuplicates) {
+        		this.groupTupleSource = getCollectionTupleSource();
+        		this.phase = HASH_GROUP;
+        		return;
+        	}
             this.sortUtility = new SortUtility(getCollectionTupleSource(), removeDuplicates?Mode.DUP_REMOVE_SORT:Mode.SORT, getBufferManager(),
                     getConnectionID(), new ArrayList<Expression>(collectedExpressions.keySet()), sortTypes, nullOrdering, sortIndexes);
+            setSortParallelism(this.sortUtility);
             this.phase = SORT;
         }
     }
@@ -425,6 +478,154 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         return pullBatch();
     }
 
+    /**
+     * Aggregate into a hash table of groups.  If the groups exceed what can be reserved, 
+     * rows for new groups are spilled to partitions that are processed after the current
+     * groups are output. 
+     */
+    private TupleBatch hashGroupPhase() throws BlockedException, TeiidComponentException, TeiidProcessingException {
+    	while (true) {
+	    	if (this.phase == HASH_GROUP) {
+	    		if (this.groups == null) {
+	    			this.groups = new HashMap<HashJoinStrategy.HashKey, AggregateFunction[]>();
+	    		}
+	    		while (true) {
+		        	if (currentGroupTuple == null) {
+		        		currentGroupTuple = this.groupTupleSource.nextTuple();
+		        		if (currentGroupTuple == null) {
+		        			break;
+		        		}
+		        	}
+		        	HashJoinStrategy.HashKey key = new HashJoinStrategy.HashKey(currentGroupTuple, indexes);
+		        	AggregateFunction[] groupFunctions = this.groups.get(key);
+		        	if (groupFunctions == null) {
+		        		if (this.spillPartitions == null && this.groups.size() >= this.maxGroups && !reserveGroups()) {
+		        			createSpillPartitions();
+		        		}
+		        		if (this.spillPartitions != null) {
+		        			this.spillPartitions[HashJoinStrategy.partitionIndex(key.hashCode(), this.level, this.spillPartitions.length)].addTuple(currentGroupTuple);
+		        			currentGroupTuple = null;
+		        			continue;
+		        		}
+		        		groupFunctions = createFunctions();
+		        		this.groups.put(key, groupFunctions);
+		        	}
+		            // Update function accumulators with new row - can throw blocked exception
+		        	for (AggregateFunction function : groupFunctions) {
+						function.addInput(currentGroupTuple, getContext());
+					}
+		        	currentGroupTuple = null;
+	    		}
+	    		if (this.spillPartitions != null) {
+	    			for (int i = this.spillPartitions.length - 1; i >= 0; i--) {
+	    				TupleBuffer tb = this.spillPartitions[i];
+	    				tb.close();
+	    				if (tb.getRowCount() == 0) {
+	    					tb.remove();
+	    					continue;
+	    				}
+	    				this.pendingPartitions.addFirst(tb);
+	    				this.pendingLevels.addFirst(this.level + 1);
+					}
+	    			this.spillPartitions = null;
+	    		}
+	    		this.groupOutput = this.groups.values().iterator();
+	    		this.phase = HASH_OUTPUT;
+	    	}
+	    	while (this.groupOutput.hasNext()) {
+	    		AggregateFunction[] groupFunctions = this.groupOutput.next();
+	    		this.groupOutput.remove();
+	            List<Object> row = new ArrayList<Object>(groupFunctions.length);
+	            for(int i=0; i<groupFunctions.length; i++) {
+	                row.add( groupFunctions[i].getResult(getContext()) );
+	            }
+	            addBatchRow(row);
+	            if (this.isBatchFull()) {
+	            	return pullBatch();
+	            }
+	    	}
+	    	this.groups = null;
+	    	this.groupOutput = null;
+	    	if (this.currentPartition != null) {
+	    		this.currentPartition.remove();
+	    		this.currentPartition = null;
+	    	}
+	    	if (this.pendingPartitions.isEmpty()) {
+	    		break;
+	    	}
+	    	//process the next spilled partition
+	    	this.currentPartition = this.pendingPartitions.removeFirst();
+	    	this.level = this.pendingLevels.removeFirst();
+	    	this.groupTupleSource = this.currentPartition.createIndexedTupleSource();
+	    	this.phase = HASH_GROUP;
+    	}
+        this.terminateBatches();
+        return pullBatch();
+    }
+
+    /**
+     * Attempt to reserve space for another batch of groups.
+     * @return true if the groups may be increased 
+     */
+	private boolean reserveGroups() {
+		BufferManager bm = getBufferManager();
+		int schemaSize = bm.getSchemaSize(getOutputElements());
+		int toReserve = schemaSize;
+		BufferReserveMode mode = BufferReserveMode.NO_WAIT;
+		if (this.reserved + schemaSize <= bm.getMaxProcessingSize() || this.level >= HashJoinStrategy.MAX_PARTITION_LEVEL) {
+			mode = BufferReserveMode.FORCE;
+		}
+		int result = bm.reserveBuffers(toReserve, mode);
+		this.reserved += result;
+		if (result < toReserve) {
+			return false;
+		}
+		this.maxGroups += getBatchSize();
+		return true;
+	}
+	
+	private void createSpillPartitions() throws TeiidComponentException {
+		BufferManager bm = getBufferManager();
+		List<Expression> schema = new ArrayList<Expression>(collectedExpressions.keySet());
+		int schemaSize = bm.getSchemaSize(schema);
+		//each partition should be expected to fit in the same number of groups
+		int count = Math.max(2, Math.min(HashJoinStrategy.MAX_PARTITIONS, bm.getMaxProcessingSize()/Math.max(1, schemaSize)));
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "Hash grouping spilling to", count, "partitions after", this.groups.size(), "groups", getID()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		this.spillPartitions = new TupleBuffer[count];
+		for (int i = 0; i < count; i++) {
+			this.spillPartitions[i] = bm.createTupleBuffer(schema, getConnectionID(), TupleSourceType.PROCESSOR);
+			this.spillPartitions[i].setForwardOnly(true);
+		}
+	}
+	
+	private void closeHashGrouping() {
+		this.groups = null;
+		this.groupOutput = null;
+		this.maxGroups = 0;
+		this.level = 0;
+		if (this.reserved > 0) {
+			getBufferManager().releaseBuffers(this.reserved);
+			this.reserved = 0;
+		}
+		if (this.spillPartitions != null) {
+			for (TupleBuffer tb : this.spillPartitions) {
+				tb.remove();
+			}
+			this.spillPartitions = null;
+		}
+		if (this.currentPartition != null) {
+			this.currentPartition.remove();
+			this.currentPartition = null;
+		}
+		for (TupleBuffer tb : this.pendingPartitions) {
+			tb.remove();
+		}
+		this.pendingPartitions.clear();
+		this.pendingLevels.clear();
+	}
+
 	public static boolean sameGroup(int[] indexes, List<?> newTuple, List<?> oldTuple) {
 		if (indexes == null) {
 			return true;
@@ -441,10 +642,14 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     }
 
     public void closeDirect() {
+    	if (this.sortUtility != null) {
+    		this.sortUtility.remove();
+    	}
     	if (this.sortBuffer != null) {
     		this.sortBuffer.remove();
     		this.sortBuffer = null;
     	}
+    	closeHashGrouping();
     }
 
 	protected void getNodeString(StringBuffer str) {
@@ -461,6 +666,7 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
 		clonedNode.removeDuplicates = removeDuplicates;
 		clonedNode.outputMapping = outputMapping;
 		clonedNode.orderBy = orderBy;
+		clonedNode.hashGrouping = hashGrouping;
 		return clonedNode;
 	}
 
@@ -477,6 +683,9 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
             props.addProperty(PROP_GROUP_COLS, groupCols);
         }
         props.addProperty(PROP_SORT_MODE, String.valueOf(this.removeDuplicates));
+        if (hashGrouping) {
+        	props.addProperty(PROP_HASH_GROUPING, Boolean.TRUE.toString());
+        }
 
         return props;
     }
@@ -0,0 +1,581 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.processor.relational;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
+import org.teiid.common.buffer.IndexedTupleSource;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
+import org.teiid.query.function.FunctionMethods;
+import org.teiid.query.sql.lang.JoinType;
+
+
+/**
+ * Performs an equi-join by building an in memory hash table over one side
+ * and probing it with the other.  Neither side needs to be sorted.
+ *
+ * Supports Inner, Left Outer, Full Outer, Semi, and Anti-Semi Joins with generalized
+ * non-equi join criteria.  Only an inner join will build against the smaller side,
+ * all others will build against the right side.
+ *
+ * If the build side is not expected to fit in the memory that can be reserved,
+ * both sides are partitioned by key hash into {@link TupleBuffer}s and each pair of
+ * partitions is joined in turn (grace hash join).  Partitions that are still too
+ * large are repartitioned up to {@link #MAX_PARTITION_LEVEL} times.  If a partition 
+ * still does not fit, such as with a skewed key, its hash table is built and probed a 
+ * block of build rows at a time, which reads the probe partition once per block.
+ */
+public class HashJoinStrategy extends JoinStrategy {
+
+	static final int MAX_PARTITION_LEVEL = 3;
+	static final int MAX_PARTITIONS = 256;
+
+	private enum State {
+		PARTITION, BUILD, PROBE, OUTER, UNMATCHED
+	}
+
+	/**
+	 * Wraps the key values of a tuple with hashing that is consistent with
+	 * the comparison semantics of {@link MergeJoinStrategy#compareTuples(List, List, int[], int[], boolean)}.
+	 * Null values are considered equal, which is the grouping semantics - the join logic does not 
+	 * create keys with null values.
+	 */
+	static final class HashKey {
+		private final List<?> tuple;
+		private final int[] indexes;
+		private final int hash;
+
+		HashKey(List<?> tuple, int[] indexes) {
+			this.tuple = tuple;
+			this.indexes = indexes;
+			this.hash = hash(tuple, indexes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			}
+			if (!(obj instanceof HashKey)) {
+				return false;
+			}
+			HashKey other = (HashKey)obj;
+			return hash == other.hash && MergeJoinStrategy.compareTuples(tuple, other.tuple, indexes, other.indexes, true) == 0;
+		}
+
+		static int hash(List<?> tuple, int[] indexes) {
+			int result = 1;
+			for (int i : indexes) {
+				result = 31 * result + hashValue(tuple.get(i));
+			}
+			return result;
+		}
+
+		static int hashValue(Object value) {
+			if (value == null) {
+				return 0;
+			}
+			if (value instanceof String) {
+				if (DataTypeManager.PAD_SPACE) {
+					return FunctionMethods.rightTrim((String)value, ' ', false).hashCode();
+				}
+			} else if (value instanceof BigDecimal) {
+				//equal values with different scales must hash the same
+				BigDecimal bd = (BigDecimal)value;
+				if (bd.signum() == 0) {
+					return 0;
+				}
+				return bd.stripTrailingZeros().hashCode();
+			}
+			return value.hashCode();
+		}
+	}
+
+	/**
+	 * A build/probe pair of buffers to be joined.
+	 */
+	private static class Partition {
+		TupleBuffer build;
+		TupleBuffer probe;
+		int level;
+		boolean owned;
+
+		Partition(TupleBuffer build, TupleBuffer probe, int level, boolean owned) {
+			this.build = build;
+			this.probe = probe;
+			this.level = level;
+			this.owned = owned;
+		}
+
+		void remove() {
+			if (owned) {
+				build.remove();
+				probe.remove();
+			}
+		}
+	}
+
+	private State state = State.PARTITION;
+	private SourceState buildSource;
+	private SourceState probeSource;
+	private boolean buildLeft;
+	private int reserved;
+
+	private LinkedList<Partition> partitions = new LinkedList<Partition>();
+	private Partition currentPartition;
+
+	//partition processing state
+	private Map<HashKey, List<Integer>> table;
+	private List<List<?>> buildRows;
+	private BitSet buildMatched;
+	private TupleSource probeTs;
+	private List<?> probeTuple;
+	private List<Integer> matches;
+	private int matchIndex;
+	private boolean probeMatched;
+	private int outerIndex;
+	
+	//block processing state, used when the build partition cannot be held in memory at once
+	private int blockRows = -1;
+	private IndexedTupleSource buildTs;
+	private BitSet probeMatchedRows;
+	private int probeRow;
+
+	@Override
+	public void initialize(JoinNode joinNode) {
+		super.initialize(joinNode);
+		this.state = State.PARTITION;
+	}
+
+	@Override
+	public void close() {
+		if (joinNode == null) {
+			return;
+		}
+		super.close();
+		closePartition();
+		for (Partition p : this.partitions) {
+			p.remove();
+		}
+		this.partitions.clear();
+		releaseReserved();
+		this.buildSource = null;
+		this.probeSource = null;
+	}
+
+	private void releaseReserved() {
+		this.joinNode.getBufferManager().releaseBuffers(this.reserved);
+		this.reserved = 0;
+	}
+
+	@Override
+	protected void loadRight() throws TeiidComponentException,
+			TeiidProcessingException {
+		//both sides must be fully buffered to determine the build side
+		this.rightSource.getTupleBuffer();
+		this.leftSource.getTupleBuffer();
+		this.buildLeft = this.joinNode.getJoinType() == JoinType.JOIN_INNER && this.leftSource.getRowCount() < this.rightSource.getRowCount();
+		if (buildLeft) {
+			this.buildSource = this.leftSource;
+			this.probeSource = this.rightSource;
+		} else {
+			this.buildSource = this.rightSource;
+			this.probeSource = this.leftSource;
+		}
+	}
+
+	@Override
+	protected void process() throws TeiidComponentException,
+			TeiidProcessingException {
+		if (this.state == State.PARTITION) {
+			this.partitions.add(new Partition(this.buildSource.getTupleBuffer(), this.probeSource.getTupleBuffer(), 0, false));
+			this.state = State.BUILD;
+		}
+		while (true) {
+			if (this.state == State.BUILD) {
+				if (this.currentPartition == null) {
+					if (this.partitions.isEmpty()) {
+						return;
+					}
+					Partition p = this.partitions.removeFirst();
+					if (!reserve(p)) {
+						continue;
+					}
+					this.currentPartition = p;
+					if (this.blockRows > 0) {
+						startBlocks(p);
+					}
+				}
+				build(this.currentPartition.build);
+				this.probeTs = this.currentPartition.probe.createIndexedTupleSource(this.currentPartition.owned && this.blockRows < 0);
+				this.state = State.PROBE;
+			}
+			if (this.state == State.PROBE) {
+				probe();
+				this.state = State.OUTER;
+			}
+			if (this.state == State.OUTER) {
+				if (this.buildMatched != null) {
+					outer();
+				}
+				closeBlock();
+				if (this.buildTs != null) {
+					//join the next block of build rows
+					this.state = State.BUILD;
+					continue;
+				}
+				if (this.probeMatchedRows == null || this.joinNode.getJoinType() == JoinType.JOIN_SEMI) {
+					closePartition();
+					this.state = State.BUILD;
+					continue;
+				}
+				this.probeTs = this.currentPartition.probe.createIndexedTupleSource(this.currentPartition.owned);
+				this.state = State.UNMATCHED;
+			}
+			if (this.state == State.UNMATCHED) {
+				unmatched();
+				closePartition();
+				this.state = State.BUILD;
+			}
+		}
+	}
+	
+	/**
+	 * Prepare to join the partition a block of build rows at a time.
+	 * The probe partition will be read once per block and the matched probe rows are 
+	 * tracked across blocks.
+	 */
+	private void startBlocks(Partition p) {
+		if (p.owned) {
+			p.probe.setForwardOnly(false);
+		}
+		JoinType joinType = this.joinNode.getJoinType();
+		if (joinType.isOuter() || joinType == JoinType.JOIN_SEMI || joinType == JoinType.JOIN_ANTI_SEMI) {
+			this.probeMatchedRows = new BitSet();
+		}
+	}
+
+	/**
+	 * Reserve the memory needed for the partition hash table.
+	 * @return false if the partition was split instead
+	 */
+	private boolean reserve(Partition p) throws TeiidComponentException, TeiidProcessingException {
+		BufferManager bm = this.joinNode.getBufferManager();
+		int schemaSize = p.build.getBatchMemorySizeEstimate();
+		if (schemaSize <= 0) {
+			schemaSize = bm.getSchemaSize(this.buildSource.getSource().getOutputElements());
+		}
+		int batchSize = p.build.getBatchSize();
+		int rows = p.build.getRowCount();
+		long needed = (rows/batchSize + ((rows%batchSize)!=0?1:0))*(long)schemaSize;
+		if (needed > this.reserved) {
+			int toForce = (int)Math.min(needed, bm.getMaxProcessingSize()) - this.reserved;
+			if (toForce > 0) {
+				this.reserved += bm.reserveBuffers(toForce, BufferReserveMode.FORCE);
+			}
+			if (needed > this.reserved) {
+				this.reserved += bm.reserveBuffers((int)Math.min(needed - this.reserved, Integer.MAX_VALUE), BufferReserveMode.NO_WAIT);
+			}
+		}
+		if (needed <= this.reserved || rows <= batchSize) {
+			return true;
+		}
+		if (p.level >= MAX_PARTITION_LEVEL) {
+			//repartitioning is not effective, so build the hash table in blocks that fit the reservation
+			this.blockRows = Math.max(1, this.reserved/schemaSize)*batchSize;
+			if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+				LogManager.logDetail(LogConstants.CTX_DQP, "Hash join processing", rows, "build rows in blocks of", this.blockRows, "rows", this.joinNode.getID()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			return true;
+		}
+		int count = (int)Math.min(MAX_PARTITIONS, needed/Math.max(1, this.reserved) + 1);
+		partition(p, count);
+		return false;
+	}
+
+	/**
+	 * Split the partition into count partitions by the key hash.
+	 * The null key rows are placed in the first partition.
+	 */
+	private void partition(Partition p, int count) throws TeiidComponentException, TeiidProcessingException {
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "Hash join partitioning", p.build.getRowCount(), "build rows into", count, "partitions", this.joinNode.getID()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		TupleBuffer[] builds = new TupleBuffer[count];
+		TupleBuffer[] probes = new TupleBuffer[count];
+		for (int i = 0; i < count; i++) {
+			builds[i] = this.buildSource.createSourceTupleBuffer();
+			builds[i].setForwardOnly(true);
+			probes[i] = this.probeSource.createSourceTupleBuffer();
+			probes[i].setForwardOnly(true);
+		}
+		JoinType joinType = this.joinNode.getJoinType();
+		//unmatched build rows are only needed by a full outer join
+		boolean buildUnmatched = joinType == JoinType.JOIN_FULL_OUTER;
+		//unmatched probe rows are needed by outer and anti-semi joins
+		boolean probeUnmatched = joinType.isOuter() || joinType == JoinType.JOIN_ANTI_SEMI;
+		split(p.build, p.owned, this.buildSource.getExpressionIndexes(), builds, p.level, buildUnmatched);
+		split(p.probe, p.owned, this.probeSource.getExpressionIndexes(), probes, p.level, probeUnmatched);
+		for (int i = count - 1; i >= 0; i--) {
+			builds[i].close();
+			probes[i].close();
+			boolean empty = (probes[i].getRowCount() == 0 && (!buildUnmatched || builds[i].getRowCount() == 0))
+					|| (builds[i].getRowCount() == 0 && !probeUnmatched);
+			if (empty) {
+				builds[i].remove();
+				probes[i].remove();
+				continue;
+			}
+			this.partitions.addFirst(new Partition(builds[i], probes[i], p.level + 1, true));
+		}
+	}
+
+	private void split(TupleBuffer source, boolean singleUse, int[] indexes, TupleBuffer[] targets, int level, boolean keepNull)
+			throws TeiidComponentException, TeiidProcessingException {
+		TupleSource ts = source.createIndexedTupleSource(singleUse);
+		try {
+			List<?> tuple = null;
+			outer: while ((tuple = ts.nextTuple()) != null) {
+				for (int i : indexes) {
+					if (tuple.get(i) == null) {
+						if (keepNull) {
+							targets[0].addTuple(tuple);
+						}
+						continue outer;
+					}
+				}
+				targets[partitionIndex(HashKey.hash(tuple, indexes), level, targets.length)].addTuple(tuple);
+			}
+		} finally {
+			ts.closeSource();
+		}
+	}
+
+	/**
+	 * Use different bits of the hash at each level so that repartitioning is effective
+	 * and the hash table of each partition is not skewed.
+	 */
+	static int partitionIndex(int hash, int level, int count) {
+		int h = Integer.rotateLeft(hash * 0x9E3779B9, 16 - level * 5);
+		return (h & Integer.MAX_VALUE) % count;
+	}
+
+	/**
+	 * Build the hash table over the partition, or over the next block of the partition
+	 * if block processing is used.
+	 */
+	private void build(TupleBuffer buffer) throws TeiidComponentException, TeiidProcessingException {
+		int[] indexes = this.buildSource.getExpressionIndexes();
+		this.table = new HashMap<HashKey, List<Integer>>();
+		this.buildRows = new ArrayList<List<?>>(this.blockRows > 0 ? Math.min(this.blockRows, buffer.getRowCount()) : buffer.getRowCount());
+		boolean fullOuter = this.joinNode.getJoinType() == JoinType.JOIN_FULL_OUTER;
+		if (fullOuter) {
+			this.buildMatched = new BitSet();
+		}
+		if (this.buildTs == null) {
+			this.buildTs = buffer.createIndexedTupleSource(this.currentPartition.owned);
+		}
+		int count = 0;
+		List<?> tuple = null;
+		outer: while ((this.blockRows < 0 || count++ < this.blockRows) && (tuple = this.buildTs.nextTuple()) != null) {
+			for (int i : indexes) {
+				if (tuple.get(i) == null) {
+					if (fullOuter) {
+						this.buildRows.add(tuple);
+					}
+					continue outer;
+				}
+			}
+			HashKey key = new HashKey(tuple, indexes);
+			List<Integer> rows = this.table.get(key);
+			if (rows == null) {
+				rows = new ArrayList<Integer>(2);
+				this.table.put(key, rows);
+			}
+			rows.add(this.buildRows.size());
+			this.buildRows.add(tuple);
+		}
+		if (!this.buildTs.hasNext()) {
+			this.buildTs.closeSource();
+			this.buildTs = null;
+		}
+	}
+
+	private void probe() throws TeiidComponentException, TeiidProcessingException {
+		JoinType joinType = this.joinNode.getJoinType();
+		int[] indexes = this.probeSource.getExpressionIndexes();
+		while (true) {
+			if (this.probeTuple == null) {
+				this.probeTuple = this.probeTs.nextTuple();
+				if (this.probeTuple == null) {
+					return;
+				}
+				if (this.probeMatchedRows != null && joinType == JoinType.JOIN_SEMI && this.probeMatchedRows.get(this.probeRow)) {
+					//already output with a previous block
+					this.probeTuple = null;
+					this.probeRow++;
+					continue;
+				}
+				this.matches = null;
+				this.matchIndex = 0;
+				this.probeMatched = false;
+				boolean hasNull = false;
+				for (int i : indexes) {
+					if (this.probeTuple.get(i) == null) {
+						hasNull = true;
+						break;
+					}
+				}
+				if (!hasNull) {
+					this.matches = this.table.get(new HashKey(this.probeTuple, indexes));
+				}
+			}
+			if (this.matches != null) {
+				while (this.matchIndex < this.matches.size()) {
+					int buildIndex = this.matches.get(this.matchIndex);
+					List<?> buildTuple = this.buildRows.get(buildIndex);
+					List outputTuple = this.buildLeft?outputTuple(buildTuple, this.probeTuple):outputTuple(this.probeTuple, buildTuple);
+					boolean match = this.joinNode.matchesCriteria(outputTuple);
+					this.matchIndex++;
+					if (!match) {
+						continue;
+					}
+					this.probeMatched = true;
+					if (this.probeMatchedRows != null) {
+						this.probeMatchedRows.set(this.probeRow);
+					}
+					if (this.buildMatched != null) {
+						this.buildMatched.set(buildIndex);
+					}
+					if (joinType == JoinType.JOIN_SEMI || joinType == JoinType.JOIN_ANTI_SEMI) {
+						//only one match is needed
+						this.matchIndex = this.matches.size();
+						if (joinType == JoinType.JOIN_ANTI_SEMI) {
+							break;
+						}
+					}
+					this.joinNode.addBatchRow(outputTuple);
+				}
+			}
+			List<?> tuple = this.probeTuple;
+			this.probeTuple = null;
+			this.probeRow++;
+			//with block processing the unmatched rows are output once all blocks have been probed
+			if (!this.probeMatched && this.probeMatchedRows == null && (joinType.isOuter() || joinType == JoinType.JOIN_ANTI_SEMI)) {
+				this.joinNode.addBatchRow(outputTuple(tuple, this.buildSource.getOuterVals()));
+			}
+		}
+	}
+
+	/**
+	 * Output the unmatched build rows for a full outer join
+	 */
+	private void outer() {
+		while (true) {
+			this.outerIndex = this.buildMatched.nextClearBit(this.outerIndex);
+			if (this.outerIndex >= this.buildRows.size()) {
+				return;
+			}
+			List<?> tuple = this.buildRows.get(this.outerIndex++);
+			this.joinNode.addBatchRow(outputTuple(this.probeSource.getOuterVals(), tuple));
+		}
+	}
+
+	/**
+	 * Output the probe rows that were not matched by any block
+	 */
+	private void unmatched() throws TeiidComponentException, TeiidProcessingException {
+		while (true) {
+			List<?> tuple = this.probeTs.nextTuple();
+			if (tuple == null) {
+				return;
+			}
+			if (!this.probeMatchedRows.get(this.probeRow++)) {
+				this.joinNode.addBatchRow(outputTuple(tuple, this.buildSource.getOuterVals()));
+			}
+		}
+	}
+
+	private void closeBlock() {
+		if (this.probeTs != null) {
+			this.probeTs.closeSource();
+			this.probeTs = null;
+		}
+		this.table = null;
+		this.buildRows = null;
+		this.buildMatched = null;
+		this.probeTuple = null;
+		this.matches = null;
+		this.outerIndex = 0;
+		this.probeRow = 0;
+	}
+
+	private void closePartition() {
+		closeBlock();
+		if (this.buildTs != null) {
+			this.buildTs.closeSource();
+			this.buildTs = null;
+		}
+		if (this.currentPartition != null) {
+			this.currentPartition.remove();
+			this.currentPartition = null;
+		}
+		this.blockRows = -1;
+		this.probeMatchedRows = null;
+	}
+
+	@Override
+	public HashJoinStrategy clone() {
+		return new HashJoinStrategy();
+	}
+
+	public String getName() {
+		return "HASH JOIN"; //$NON-NLS-1$
+	}
+
+	@Override
+	public String toString() {
+		return getName();
+	}
+
+}
@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.client.plan.PlanNode;
@@ -37,6 +38,7 @@ import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.query.eval.CompiledExpression;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.processor.relational.SourceState.ImplicitBuffer;
 import org.teiid.query.sql.LanguageObject;
@@ -58,7 +60,8 @@ public class JoinNode extends SubqueryAwareRelationalNode {
 	    MERGE,
 	    ENHANCED_SORT,
 	    NESTED_LOOP,
-	    NESTED_TABLE
+	    NESTED_TABLE,
+	    HASH
 	}
         
     private enum State { LOAD_LEFT, LOAD_RIGHT, EXECUTE }    
@@ -73,6 +76,8 @@ public class JoinNode extends SubqueryAwareRelationalNode {
     private boolean leftDistinct;
     private boolean rightDistinct;
     private Criteria joinCriteria;
+    // Compiled join criteria shared between clones
+    private AtomicReference<CompiledExpression> compiledCriteria = new AtomicReference<CompiledExpression>();
     
     private Map combinedElementMap;
     private int[] projectionIndexes;
@@ -160,6 +165,7 @@ public class JoinNode extends SubqueryAwareRelationalNode {
         clonedNode.joinStrategy = this.joinStrategy.clone();
         
         clonedNode.joinCriteria = this.joinCriteria;
+        clonedNode.compiledCriteria = this.compiledCriteria;
         
         clonedNode.leftExpressions = leftExpressions;
         
@@ -327,7 +333,15 @@ public class JoinNode extends SubqueryAwareRelationalNode {
     }
     
     boolean matchesCriteria(List outputTuple) throws BlockedException, TeiidComponentException, ExpressionEvaluationException {
-		return (this.joinCriteria == null || getEvaluator(this.combinedElementMap).evaluate(this.joinCriteria, outputTuple));
+    	if (this.joinCriteria == null) {
+    		return true;
+    	}
+    	CompiledExpression compiled = this.compiledCriteria.get();
+    	if (compiled == null || compiled.getExpression() != this.joinCriteria) {
+    		compiled = CompiledExpression.compile(this.joinCriteria, this.combinedElementMap);
+    		this.compiledCriteria.set(compiled);
+    	}
+		return compiled.evaluateCriteria(getEvaluator(this.combinedElementMap), outputTuple);
     }
 
     public List getLeftExpressions() {
@@ -24,6 +24,7 @@ package org.teiid.query.processor.relational;
 
 import java.util.List;
 
+import org.teiid.common.buffer.ColumnarBatch;
 import org.teiid.language.SortSpecification.NullOrdering;
 import org.teiid.query.sql.symbol.Constant;
 
@@ -138,18 +139,40 @@ public class ListNestedSortComparator<T extends Comparable<? super T>> implement
     
     public int compare(java.util.List<T> list1, java.util.List<T> list2) {
         int compare = 0;
+        ColumnarBatch.Row row1 = null;
+        ColumnarBatch.Row row2 = null;
+        Object o1 = list1;
+        Object o2 = list2;
+        if (o1 instanceof ColumnarBatch.Row && o2 instanceof ColumnarBatch.Row) {
+        	row1 = (ColumnarBatch.Row)o1;
+        	row2 = (ColumnarBatch.Row)o2;
+        }
         for (int k = 0; k < sortParameters.length; k++) {
-        	if (list1.size() <= sortParameters[k]) {
+        	int index = sortParameters[k];
+        	if (list1.size() <= index) {
             	return 1;
             }
-            T param1 = list1.get(sortParameters[k]);
-            if (list2.size() <= sortParameters[k]) {
+            if (list2.size() <= index) {
             	return -1;
             }
-            T param2 = list2.get(sortParameters[k]);
+            T param1 = null;
+            T param2 = null;
+            boolean null1 = false;
+            boolean null2 = false;
+            //compare primitive columns without boxing
+            boolean primitive = row1 != null && row1.isPrimitiveComparable(row2, index);
+            if (primitive) {
+            	null1 = row1.isNull(index);
+            	null2 = row2.isNull(index);
+            } else {
+                param1 = list1.get(index);
+                param2 = list2.get(index);
+                null1 = param1 == null;
+                null2 = param2 == null;
+            }
 
-            if( param1 == null ) {
-				if(param2 == null ) {
+            if( null1 ) {
+				if( null2 ) {
 					// Both are null
 					compare = 0;
 				} else {
@@ -163,7 +186,7 @@ public class ListNestedSortComparator<T extends Comparable<? super T>> implement
 						return 1;
 					}
 				}
-            } else if( param2 == null ) {
+            } else if( null2 ) {
 				// param1 != null, param2 == null
 				compare = 1;
 				NullOrdering no = getNullOrdering(k);
@@ -173,7 +196,9 @@ public class ListNestedSortComparator<T extends Comparable<? super T>> implement
 				if (no == NullOrdering.LAST) {
 					return -1;
 				}
-            } else  {
+            } else if (primitive) {
+            	compare = row1.comparePrimitive(row2, index);
+            } else {
                 compare = Constant.COMPARATOR.compare(param1, param2);
             } 
             if (compare != 0) {
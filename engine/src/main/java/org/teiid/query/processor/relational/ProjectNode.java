@@ -30,6 +30,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.client.plan.PlanNode;
@@ -39,6 +40,7 @@ import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.query.analysis.AnalysisRecord;
+import org.teiid.query.eval.CompiledExpression;
 import org.teiid.query.sql.LanguageObject;
 import org.teiid.query.sql.symbol.AliasSymbol;
 import org.teiid.query.sql.symbol.Expression;
@@ -54,6 +56,8 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
     private boolean needsProject = true;
     private List<Expression> expressions;
     private int[] projectionIndexes;
+    // Compiled expressions shared between clones
+    private AtomicReference<CompiledExpression[]> compiledExpressions = new AtomicReference<CompiledExpression[]>();
 
     // Saved state when blocked on evaluating a row - must be reset
     private TupleBatch currentBatch;
@@ -85,6 +89,7 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
 	public void setSelectSymbols(List<? extends Expression> symbols) {
 		this.selectSymbols = symbols;
 		elementMap = Collections.emptyMap();
+		this.compiledExpressions = new AtomicReference<CompiledExpression[]>();
 		this.projectionIndexes = new int[this.selectSymbols.size()];
     	Arrays.fill(this.projectionIndexes, -1);
     	
@@ -104,6 +109,7 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
 		List<? extends Expression> childElements = getChildren()[0].getElements();
         // Create element lookup map for evaluating project expressions
         this.elementMap = createLookupMap(childElements);
+        this.compiledExpressions = new AtomicReference<CompiledExpression[]>();
 
         // Check whether project needed at all - this occurs if:
         // 1. outputMap == null (see previous block)
@@ -154,15 +160,15 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
             }
         }
 
+        CompiledExpression[] compiled = getCompiledExpressions();
         while (currentRow <= currentBatch.getEndRow() && !isBatchFull()) {
     		List<?> tuple = currentBatch.getTuple(currentRow);
 
 			List<Object> projectedTuple = new ArrayList<Object>(selectSymbols.size());
 
 			// Walk through symbols
-            for(int i=0; i<expressions.size(); i++) {
-				Expression symbol = expressions.get(i);
-				updateTuple(symbol, i, tuple, projectedTuple);
+            for(int i=0; i<compiled.length; i++) {
+				updateTuple(compiled[i], i, tuple, projectedTuple);
 			}
 
             // Add to batch
@@ -180,16 +186,30 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
     	return pullBatch();
 	}
 
-	private void updateTuple(Expression symbol, int projectionIndex, List<?> values, List<Object> tuple)
+	private void updateTuple(CompiledExpression symbol, int projectionIndex, List<?> values, List<Object> tuple)
 		throws BlockedException, TeiidComponentException, ExpressionEvaluationException {
 
         int index = this.projectionIndexes[projectionIndex];
         if(index != -1) {
 			tuple.add(values.get(index));
         } else { 
-			tuple.add(getEvaluator(this.elementMap).evaluate(symbol, values));
+			tuple.add(symbol.evaluate(getEvaluator(this.elementMap), values));
 		}
 	}
+	
+	private CompiledExpression[] getCompiledExpressions() {
+		CompiledExpression[] compiled = this.compiledExpressions.get();
+		if (compiled == null) {
+			compiled = new CompiledExpression[this.expressions.size()];
+			for (int i = 0; i < compiled.length; i++) {
+				if (this.projectionIndexes[i] == -1) {
+					compiled[i] = CompiledExpression.compile(this.expressions.get(i), this.elementMap);
+				}
+			}
+			this.compiledExpressions.set(compiled);
+		}
+		return compiled;
+	}
 
 	protected void getNodeString(StringBuffer str) {
 		super.getNodeString(str);
@@ -208,6 +228,7 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
         target.needsProject = needsProject;
         target.elementMap = elementMap;
         target.expressions = expressions;
+        target.compiledExpressions = compiledExpressions;
         target.projectionIndexes = projectionIndexes;
     }
 
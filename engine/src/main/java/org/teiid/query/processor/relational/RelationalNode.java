@@ -157,6 +157,19 @@ public abstract class RelationalNode implements Cloneable, BatchProducer {
     protected int getBatchSize() {
         return this.getProcessingState().batchSize;
     }
+    
+    /**
+     * Allow the sort to use worker threads up to the configured sort parallelism, 
+     * but no more than the request source concurrency. 
+     */
+    protected void setSortParallelism(SortUtility sortUtility) {
+    	CommandContext context = getContext();
+    	int parallelism = context.getOptions().getSortParallelism();
+    	if (context.getUserRequestSourceConcurrency() > 0) {
+    		parallelism = Math.min(parallelism, context.getUserRequestSourceConcurrency());
+    	}
+    	sortUtility.setParallelism(context.getExecutor(), parallelism);
+    }
 
     public void reset() {
         for(int i=0; i<children.length; i++) {
@@ -209,6 +222,14 @@ public abstract class RelationalNode implements Cloneable, BatchProducer {
         this.children[childCount++] = child;
     }
 
+    /**
+     * Replace the child at the given index
+     */
+    public void setChild(int index, RelationalNode child) {
+    	child.setParent(this);
+    	this.children[index] = child;
+    }
+
     protected void addBatchRow(List<?> row) {
         if(this.getProcessingState().batchRows == null) {
             this.getProcessingState().batchRows = new ArrayList(this.getProcessingState().batchSize / 4);
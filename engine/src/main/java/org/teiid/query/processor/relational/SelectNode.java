@@ -28,6 +28,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.teiid.client.plan.PlanNode;
 import org.teiid.common.buffer.BlockedException;
@@ -36,6 +37,7 @@ import org.teiid.common.buffer.TupleBatch;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.query.analysis.AnalysisRecord;
+import org.teiid.query.eval.CompiledExpression;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.sql.LanguageObject;
 import org.teiid.query.sql.lang.Criteria;
@@ -51,6 +53,8 @@ public class SelectNode extends SubqueryAwareRelationalNode {
     // Derived element lookup map
     private Map<Expression, Integer> elementMap; 
     private int[] projectionIndexes;
+    // Compiled criteria shared between clones
+    private AtomicReference<CompiledExpression> compiledCriteria = new AtomicReference<CompiledExpression>();
 	
     // State if blocked on evaluating a criteria
     private TupleBatch currentBatch;
@@ -94,6 +98,15 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         }
 	}
 	
+	private CompiledExpression getCompiledCriteria() {
+		CompiledExpression compiled = this.compiledCriteria.get();
+		if (compiled == null || compiled.getExpression() != this.criteria) {
+			compiled = CompiledExpression.compile(this.criteria, this.elementMap);
+			this.compiledCriteria.set(compiled);
+		}
+		return compiled;
+	}
+	
     /**
      * @see org.teiid.query.processor.relational.RelationalNode#nextBatchDirect()
      */
@@ -104,10 +117,11 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         	currentBatch = this.getChildren()[0].nextBatch();
         }
 
+        CompiledExpression compiled = getCompiledCriteria();
         while (currentRow <= currentBatch.getEndRow() && !isBatchFull()) {
     		List<?> tuple = currentBatch.getTuple(currentRow);
 
-            if(getEvaluator(this.elementMap).evaluate(this.criteria, tuple)) {
+            if(compiled.evaluateCriteria(getEvaluator(this.elementMap), tuple)) {
                 addBatchRow(projectTuple(this.projectionIndexes, tuple));
             }
             currentRow++;
@@ -138,6 +152,7 @@ public class SelectNode extends SubqueryAwareRelationalNode {
 		super.copyTo(target);
 		target.criteria = criteria;
 		target.elementMap = elementMap;
+		target.compiledCriteria = compiledCriteria;
 		target.projectionIndexes = projectionIndexes;
 		target.projectedExpressions = projectedExpressions;
 	}
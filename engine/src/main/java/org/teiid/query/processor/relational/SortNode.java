@@ -25,6 +25,7 @@ package org.teiid.query.processor.relational;
 import static org.teiid.query.analysis.AnalysisRecord.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.teiid.client.plan.PlanNode;
@@ -34,9 +35,11 @@ import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.common.buffer.TupleSource;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.query.eval.Evaluator;
 import org.teiid.query.processor.BatchIterator;
 import org.teiid.query.processor.relational.SortUtility.Mode;
 import org.teiid.query.sql.lang.OrderByItem;
+import org.teiid.query.sql.symbol.Expression;
 
 
 public class SortNode extends RelationalNode {
@@ -51,6 +54,9 @@ public class SortNode extends RelationalNode {
     private boolean usingOutput;
     
     private int rowLimit = -1;
+    
+    private Expression limitExpr;
+    private int limit = -1;
 
     private static final int SORT = 2;
     private static final int OUTPUT = 3;
@@ -84,6 +90,30 @@ public class SortNode extends RelationalNode {
 	public void setMode(Mode mode) {
 		this.mode = mode;
 	}
+	
+	/**
+	 * Set the expression for the number of rows (limit plus offset) needed
+	 * by the parent, which allows for a top n sort.
+	 */
+	public void setLimitExpr(Expression limitExpr) {
+		this.limitExpr = limitExpr;
+	}
+	
+	public Expression getLimitExpr() {
+		return limitExpr;
+	}
+	
+	@Override
+	public void open() throws TeiidComponentException, TeiidProcessingException {
+		limit = -1;
+		if (limitExpr != null) {
+			Integer limitVal = (Integer)new Evaluator(Collections.emptyMap(), getDataManager(), getContext()).evaluate(limitExpr, Collections.emptyList());
+			if (limitVal != null) {
+				limit = limitVal.intValue();
+			}
+		}
+		super.open();
+	}
 
 	public TupleBatch nextBatchDirect()
 		throws BlockedException, TeiidComponentException, TeiidProcessingException {
@@ -95,6 +125,10 @@ public class SortNode extends RelationalNode {
     }
 
     private void sortPhase() throws BlockedException, TeiidComponentException, TeiidProcessingException {
+    	int maxRows = limit;
+    	if (rowLimit >= 0 && (maxRows < 0 || rowLimit < maxRows)) {
+    		maxRows = rowLimit;
+    	}
     	if (this.sortUtility == null) {
     		TupleSource ts = null;
     		if (getChildren()[0].hasFinalBuffer()) {
@@ -104,15 +138,17 @@ public class SortNode extends RelationalNode {
     		}
 	        this.sortUtility = new SortUtility(ts, items, this.mode, getBufferManager(),
                     getConnectionID(), getChildren()[0].getElements());
+	        this.sortUtility.setLimit(maxRows);
+	        setSortParallelism(this.sortUtility);
 
 		}
 		this.output = this.sortUtility.sort();
 		if (this.outputTs == null) {
 			this.outputTs = this.output.createIndexedTupleSource();
 		}
-    	if (rowLimit >= 0) {
-			this.output.truncateTo(rowLimit);
-			if (!this.output.isFinal() && this.output.getRowCount() == rowLimit) {
+    	if (maxRows >= 0) {
+			this.output.truncateTo(maxRows);
+			if (!this.output.isFinal() && this.output.getRowCount() == maxRows) {
 				this.output.close();
 			}
 		}
@@ -148,6 +184,9 @@ public class SortNode extends RelationalNode {
     }
 
     public void closeDirect() {
+    	if (this.sortUtility != null) {
+    		this.sortUtility.remove();
+    	}
         if(this.output != null) {
         	if (!usingOutput) {
         		this.output.remove();
@@ -169,6 +208,7 @@ public class SortNode extends RelationalNode {
 		super.copyTo(target);
 		target.items = items;
 		target.mode = mode;
+		target.limitExpr = limitExpr;
 	}
 
 	public Object clone(){
@@ -186,6 +226,9 @@ public class SortNode extends RelationalNode {
         }
         
         props.addProperty(PROP_SORT_MODE, this.mode.toString());
+        if (this.limitExpr != null) {
+        	props.addProperty(PROP_ROW_LIMIT, String.valueOf(this.limitExpr));
+        }
         
         return props;
     }
@@ -193,7 +236,6 @@ public class SortNode extends RelationalNode {
     @Override
     public TupleBuffer getFinalBuffer(int maxRows) throws BlockedException, TeiidComponentException, TeiidProcessingException {
     	this.rowLimit = maxRows;
-    	//TODO: push limiting into the sort logic
     	if (this.output == null) {
     		sortPhase();
     	}
@@ -25,14 +25,23 @@ package org.teiid.query.processor.relational;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferAccount;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.BufferManager.BufferReserveMode;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.ColumnarBatch;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.common.buffer.TupleBuffer.TupleBufferTupleSource;
 import org.teiid.common.buffer.TupleSource;
@@ -88,6 +97,19 @@ public class SortUtility {
 		}
 	}
 
+	/**
+	 * entry for the bounded top-n set, the sequence preserves the stability of {@link Mode#SORT}
+	 */
+	private static class TopNEntry {
+		List<?> tuple;
+		long seq;
+		
+		public TopNEntry(List<?> tuple, long seq) {
+			this.tuple = tuple;
+			this.seq = seq;
+		}
+	}
+	
 	//constructor state
     private TupleSource source;
     private Mode mode;
@@ -114,6 +136,14 @@ public class SortUtility {
 	private TupleBuffer workingBuffer;
 	private boolean skipBuffer;
 	private int processingAttempts;
+	
+	private int limit = -1;
+	private TreeSet<TopNEntry> topN;
+	private long topNSeq;
+	private int topNReserved;
+	
+	private Executor executor;
+	private int parallelism = 1;
     
     public SortUtility(TupleSource sourceID, List<OrderByItem> items, Mode mode, BufferManager bufferMgr,
                         String groupName, List<? extends Expression> schema) {
@@ -186,7 +216,11 @@ public class SortUtility {
         throws TeiidComponentException, TeiidProcessingException {
 
         if(this.phase == INITIAL_SORT) {
-            initialSort(false);
+        	if (useTopN()) {
+        		topNSort();
+        	} else {
+        		initialSort(false);
+        	}
         }
         
         if(this.phase == MERGE) {
@@ -198,6 +232,27 @@ public class SortUtility {
         return this.activeTupleBuffers.get(0);
     }
     
+    /**
+     * Remove the intermediate buffers of an incomplete sort.  The result 
+     * of a completed sort is left to the caller.
+     */
+    public void remove() {
+    	releaseTopN();
+    	if (this.workingBuffer != null) {
+    		this.workingBuffer.remove();
+    		this.workingBuffer = null;
+    	}
+    	if (this.phase == DONE) {
+    		return;
+    	}
+    	for (TupleBuffer tb : this.activeTupleBuffers) {
+    		if (tb != this.output) {
+    			tb.remove();
+    		}
+    	}
+    	this.activeTupleBuffers.clear();
+    }
+    
     public List<TupleBuffer> onePassSort() throws TeiidComponentException, TeiidProcessingException {
     	assert this.mode != Mode.DUP_REMOVE;
     	
@@ -212,12 +267,98 @@ public class SortUtility {
     	return activeTupleBuffers;
     }
     
+    /**
+     * Set the maximum number of rows needed from the sort.  When the
+     * rows will fit in the processing memory, a single bounded pass is used instead
+     * of creating and merging sublists.
+     * @param limit the row limit or -1 if unbounded
+     */
+    public void setLimit(int limit) {
+		this.limit = limit;
+	}
+    
+    private boolean useTopN() {
+    	if (this.topN != null) {
+    		return true;
+    	}
+    	return limit >= 0 && mode != Mode.DUP_REMOVE && !this.skipBuffer 
+    		&& spaceNeeded(limit) <= bufferManager.getMaxProcessingSize();
+    }
+    
+    /**
+     * Read the source keeping only the lowest limit rows.
+     */
+    protected void topNSort() throws TeiidComponentException, TeiidProcessingException {
+    	if (this.topN == null) {
+    		final boolean stable = this.mode == Mode.SORT;
+    		this.topN = new TreeSet<TopNEntry>(new Comparator<TopNEntry>() {
+    			@Override
+    			public int compare(TopNEntry o1, TopNEntry o2) {
+    				int result = comparator.compare(o1.tuple, o2.tuple);
+    				if (result == 0 && stable) {
+    					return o1.seq < o2.seq ? -1 : (o1.seq == o2.seq ? 0 : 1);
+    				}
+    				return result;
+    			}
+			});
+    		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+    			LogManager.logDetail(LogConstants.CTX_DQP, "Using a top n sort for", limit, "rows"); //$NON-NLS-1$ //$NON-NLS-2$
+    		}
+    		//the retained rows are accounted for until the sort finishes or is removed
+    		this.topNReserved = bufferManager.reserveBuffers((int)spaceNeeded(limit), BufferReserveMode.FORCE);
+    	}
+    	boolean blocked = false;
+    	try {
+	    	while (true) {
+	    		List<?> tuple = source.nextTuple();
+	    		if (tuple == null) {
+	    			break;
+	    		}
+	    		if (topN.size() >= limit) {
+	    			if (limit == 0 || comparator.compare(tuple, topN.last().tuple) >= 0) {
+	    				continue;
+	    			}
+	    			if (topN.add(new TopNEntry(tuple, topNSeq++))) {
+	    				topN.pollLast();
+	    			}
+	    		} else {
+	    			topN.add(new TopNEntry(tuple, topNSeq++));
+	    		}
+	    	}
+	    	TupleBuffer sublist = createTupleBuffer();
+	    	for (TopNEntry entry : topN) {
+	    		sublist.addTuple(entry.tuple);
+	    	}
+	    	sublist.saveBatch();
+	    	activeTupleBuffers.add(sublist);
+	    	this.doneReading = true;
+	    	this.phase = MERGE;
+    	} catch (BlockedException e) {
+    		blocked = true;
+    		throw e;
+    	} finally {
+    		if (!blocked) {
+    			releaseTopN();
+    		}
+    	}
+    }
+    
+    private void releaseTopN() {
+    	this.topN = null;
+    	if (this.topNReserved > 0) {
+    		bufferManager.releaseBuffers(this.topNReserved);
+    		this.topNReserved = 0;
+    	}
+    }
+    
 	private TupleBuffer createTupleBuffer() throws TeiidComponentException {
 		TupleBuffer tb = bufferManager.createTupleBuffer(this.schema, this.groupName, TupleSourceType.PROCESSOR);
 		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
 			LogManager.logDetail(LogConstants.CTX_DQP, "Created intermediate sort buffer", tb); //$NON-NLS-1$
 		}
 		tb.setForwardOnly(true);
+		//the merge comparisons can read primitive columns directly
+		tb.setColumnar(true);
 		return tb;
 	}
     
@@ -315,6 +456,10 @@ public class SortUtility {
     			processed+=this.workingBuffer.getRowCount();
 				maxRows = Math.max(1, (totalReservedBuffers/schemaSize))*batchSize;
     		}
+            if (!resizable && parallelism > 1 && this.workingBuffer.getRowCount() > maxRows) {
+            	parallelInitialSort(ts, maxRows, totalReservedBuffers, this.workingBuffer.getRowCount());
+            	done = true;
+            }
             if (mode == Mode.SORT) {
             	workingTuples = new ArrayList<List<?>>();
             } else {
@@ -385,10 +530,176 @@ public class SortUtility {
         this.phase = MERGE;
     }
 
+	/**
+	 * Create the sorted sublists using concurrent tasks.  Each task beyond the 
+	 * first requires an additional reservation of the same working memory.
+	 */
+	private void parallelInitialSort(TupleSource ts, int maxRows, int reserved, int rowCount) throws TeiidComponentException, TeiidProcessingException {
+		int chunks = rowCount/maxRows + ((rowCount%maxRows)!=0?1:0);
+		int chunkSpace = Math.max(schemaSize, reserved);
+		int additional = bufferManager.reserveBuffers((int)Math.min(Integer.MAX_VALUE, (Math.min(parallelism, chunks) - 1) * (long)chunkSpace), BufferReserveMode.NO_WAIT);
+		int degree = 1 + additional/chunkSpace;
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "Sorting", chunks, "sublists with a parallelism of", degree); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		LinkedList<SortTask> pending = new LinkedList<SortTask>();
+		try {
+			boolean done = false;
+			while (!done) {
+				if (pending.size() >= degree) {
+					activeTupleBuffers.add(getResult(pending.removeFirst()));
+				}
+				final List<List<?>> chunk = new ArrayList<List<?>>(Math.min(maxRows, rowCount));
+				while (chunk.size() < maxRows) {
+					List<?> tuple = ts.nextTuple();
+					if (tuple == null) {
+						done = true;
+						break;
+					}
+					chunk.add(tuple);
+				}
+				if (chunk.isEmpty()) {
+					break;
+				}
+				pending.add(execute(new Callable<TupleBuffer>() {
+					@Override
+					public TupleBuffer call() throws Exception {
+						return createSublist(chunk);
+					}
+				}));
+			}
+			while (!pending.isEmpty()) {
+				activeTupleBuffers.add(getResult(pending.removeFirst()));
+			}
+		} finally {
+			for (SortTask task : pending) {
+				task.discard();
+			}
+			bufferManager.releaseBuffers(additional);
+		}
+	}
+	
+	private TupleBuffer createSublist(List<List<?>> chunk) throws TeiidComponentException {
+		Collection<List<?>> workingTuples = chunk;
+		if (this.mode == Mode.SORT) {
+			//perform a stable sort
+			Collections.sort(chunk, comparator);
+		} else {
+			workingTuples = new TreeSet<List<?>>(comparator);
+			workingTuples.addAll(chunk);
+		}
+		TupleBuffer sublist = createTupleBuffer();
+		boolean success = false;
+		try {
+			for (List<?> list : workingTuples) {
+				sublist.addTuple(list);
+			}
+			sublist.saveBatch();
+			success = true;
+			return sublist;
+		} finally {
+			if (!success) {
+				sublist.remove();
+			}
+		}
+	}
+	
+	/**
+	 * A task producing a {@link TupleBuffer} that is not yet tracked by the sort.
+	 * If the result is not used, the task is either prevented from starting or its
+	 * result is removed once it completes.
+	 */
+	private static class SortTask extends FutureTask<TupleBuffer> {
+		private AtomicBoolean started;
+		
+		public SortTask(Callable<TupleBuffer> callable, AtomicBoolean started) {
+			super(callable);
+			this.started = started;
+		}
+		
+		void discard() {
+			if (started.compareAndSet(false, true)) {
+				cancel(false);
+				return;
+			}
+			try {
+				TupleBuffer result = get();
+				if (result != null) {
+					result.remove();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				//the failed task has no result
+			}
+		}
+	}
+	
+	private SortTask execute(final Callable<TupleBuffer> callable) {
+		final BufferAccount account = bufferManager.getBufferAccount();
+		final AtomicBoolean started = new AtomicBoolean();
+		SortTask task = new SortTask(new Callable<TupleBuffer>() {
+			@Override
+			public TupleBuffer call() throws Exception {
+				if (!started.compareAndSet(false, true)) {
+					return null; //discarded
+				}
+				//charge the sublists to the request, not the executing thread
+				BufferAccount previous = bufferManager.getBufferAccount();
+				bufferManager.setBufferAccount(account);
+				try {
+					return callable.call();
+				} finally {
+					bufferManager.setBufferAccount(previous);
+				}
+			}
+		}, started);
+		this.executor.execute(task);
+		return task;
+	}
+	
+	/**
+	 * Get the task result.  The task is run in the calling thread if 
+	 * the executor has not yet started it, so that progress does not depend
+	 * upon available threads. 
+	 */
+	private TupleBuffer getResult(SortTask task) throws TeiidComponentException, TeiidProcessingException {
+		task.run();
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			throw new TeiidComponentException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof TeiidProcessingException) {
+				throw (TeiidProcessingException)e.getCause();
+			}
+			if (e.getCause() instanceof TeiidComponentException) {
+				throw (TeiidComponentException)e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			throw new TeiidComponentException(e.getCause());
+		}
+	}
+
 	private long spaceNeeded(int rows) {
 		return (rows/batchSize + ((rows%batchSize)!=0?1:0))*(long)schemaSize;
 	}
     
+    /**
+     * Allow the sublist creation and intermediate merge passes to use up to 
+     * the given number of concurrent tasks.  The actual parallelism is 
+     * further limited by the additional memory that can be reserved.
+     */
+    public void setParallelism(Executor executor, int parallelism) {
+    	if (executor == null) {
+    		parallelism = 1;
+    	}
+		this.executor = executor;
+		this.parallelism = Math.max(1, parallelism);
+	}
+    
     public void setSkipBuffer(boolean skipBuffer) {
 		this.skipBuffer = skipBuffer;
 	}
@@ -426,17 +737,24 @@ public class SortUtility {
         
         try {
         	while(this.activeTupleBuffers.size() > 1) {    		
-	    		ArrayList<SortedSublist> sublists = new ArrayList<SortedSublist>(activeTupleBuffers.size());
-	            
-	            TupleBuffer merged = createTupleBuffer();
-
-	            desiredSpace = activeTupleBuffers.size() * (long)schemaSize;
+	    		desiredSpace = activeTupleBuffers.size() * (long)schemaSize;
 	            if (desiredSpace < reserved) {
 	            	bufferManager.releaseBuffers(reserved - (int)desiredSpace);
 	            	reserved = (int)desiredSpace;
 	            }
 	            int maxSortIndex = Math.max(2, reserved / schemaSize); //always allow progress
 	            
+	            if (parallelism > 1 && this.output == null && parallelMergePass(maxSortIndex)) {
+	            	continue;
+	            }
+	            
+	            ArrayList<SortedSublist> sublists = new ArrayList<SortedSublist>(activeTupleBuffers.size());
+	            TupleBuffer merged = createTupleBuffer();
+	            if (maxSortIndex >= activeTupleBuffers.size()) {
+	            	//the final pass is read by the consumer of the sort
+	            	merged.setColumnar(false);
+	            }
+	            
             	if (LogManager.isMessageToBeRecorded(org.teiid.logging.LogConstants.CTX_DQP, MessageLevel.TRACE)) {
 	            	LogManager.logTrace(org.teiid.logging.LogConstants.CTX_DQP, "Merging", maxSortIndex, "sublists out of", activeTupleBuffers.size()); //$NON-NLS-1$ //$NON-NLS-2$
 	            }
@@ -456,9 +774,9 @@ public class SortUtility {
 	            // iteratively process the lowest tuple
 	            while (sublists.size() > 0) {
 	            	SortedSublist sortedSublist = sublists.remove(sublists.size() - 1);
-	        		merged.addTuple(sortedSublist.tuple);
+	        		addTuple(merged, sortedSublist.tuple);
 	                if (this.output != null && masterSortIndex < maxSortIndex && sortedSublist.index != masterSortIndex) {
-	                	this.output.addTuple(sortedSublist.tuple); //a new distinct row
+	                	addTuple(this.output, sortedSublist.tuple); //a new distinct row
 	            	}
 	            	incrementWorkingTuple(sublists, sortedSublist);
 	            }                
@@ -504,6 +822,95 @@ public class SortUtility {
     	this.phase = INITIAL_SORT;
     }
 
+	/**
+	 * Concurrently merge groups of sublists if there is enough memory to do so.
+	 * @return true if the pass was performed
+	 */
+	private boolean parallelMergePass(int maxSortIndex) throws TeiidComponentException, TeiidProcessingException {
+		int groups = Math.min(parallelism, activeTupleBuffers.size() / maxSortIndex);
+		if (groups < 2) {
+			return false;
+		}
+		int groupSpace = (int)Math.min(Integer.MAX_VALUE, maxSortIndex * (long)schemaSize);
+		int additional = bufferManager.reserveBuffers((int)Math.min(Integer.MAX_VALUE, (groups - 1) * (long)groupSpace), BufferReserveMode.NO_WAIT);
+		try {
+			groups = 1 + additional/groupSpace;
+			if (groups < 2) {
+				return false;
+			}
+			if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.TRACE)) {
+            	LogManager.logTrace(LogConstants.CTX_DQP, "Merging", groups, "groups of", maxSortIndex, "sublists out of", activeTupleBuffers.size()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            }
+			LinkedList<SortTask> tasks = new LinkedList<SortTask>();
+			try {
+				for (int i = 0; i < groups; i++) {
+					final List<TupleBuffer> group = new ArrayList<TupleBuffer>(activeTupleBuffers.subList(i * maxSortIndex, (i + 1) * maxSortIndex));
+					tasks.add(execute(new Callable<TupleBuffer>() {
+						@Override
+						public TupleBuffer call() throws Exception {
+							return mergeSublists(group);
+						}
+					}));
+				}
+				while (!tasks.isEmpty()) {
+					TupleBuffer merged = getResult(tasks.removeFirst());
+					//the merged sublists remain tracked until their merge has succeeded
+					List<TupleBuffer> toMerge = activeTupleBuffers.subList(0, maxSortIndex);
+					for (TupleBuffer tb : toMerge) {
+						tb.remove();
+					}
+					toMerge.clear();
+					activeTupleBuffers.add(merged);
+				}
+			} finally {
+				for (SortTask task : tasks) {
+					task.discard();
+				}
+			}
+			return true;
+		} finally {
+			bufferManager.releaseBuffers(additional);
+		}
+	}
+	
+	private TupleBuffer mergeSublists(List<TupleBuffer> toMerge) throws TeiidComponentException, TeiidProcessingException {
+		TupleBuffer merged = createTupleBuffer();
+		boolean success = false;
+		try {
+			ArrayList<SortedSublist> sublists = new ArrayList<SortedSublist>(toMerge.size());
+			for (int i = 0; i < toMerge.size(); i++) {
+				SortedSublist sortedSublist = new SortedSublist();
+				sortedSublist.its = toMerge.get(i).createIndexedTupleSource();
+				sortedSublist.its.setNoBlocking(true);
+				sortedSublist.index = i;
+				incrementWorkingTuple(sublists, sortedSublist);
+			}
+			while (sublists.size() > 0) {
+				SortedSublist sortedSublist = sublists.remove(sublists.size() - 1);
+				addTuple(merged, sortedSublist.tuple);
+				incrementWorkingTuple(sublists, sortedSublist);
+			}
+			merged.saveBatch();
+			success = true;
+			return merged;
+		} finally {
+			if (!success) {
+				merged.remove();
+			}
+		}
+	}
+
+	/**
+	 * A row read from a {@link ColumnarBatch} is a read only view that holds the 
+	 * whole batch, so it is copied if the target buffer holds rows.
+	 */
+	private static void addTuple(TupleBuffer target, List<?> tuple) throws TeiidComponentException {
+		if (tuple instanceof ColumnarBatch.Row && !target.isColumnar()) {
+			tuple = new ArrayList<Object>(tuple);
+		}
+		target.addTuple(tuple);
+	}
+
 	private void incrementWorkingTuple(ArrayList<SortedSublist> subLists, SortedSublist sortedSublist) throws TeiidComponentException, TeiidProcessingException {
 		while (true) {
 			sortedSublist.tuple = null;
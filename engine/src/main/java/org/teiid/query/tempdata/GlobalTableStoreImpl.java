@@ -22,12 +22,21 @@
 
 package org.teiid.query.tempdata;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -36,6 +45,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import org.teiid.api.exception.query.QueryMetadataException;
 import org.teiid.api.exception.query.QueryResolverException;
@@ -45,6 +55,7 @@ import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.util.ExecutorUtils;
 import org.teiid.language.SQLConstants;
 import org.teiid.language.SQLConstants.Reserved;
 import org.teiid.logging.LogConstants;
@@ -78,6 +89,8 @@ import org.teiid.query.tempdata.TempTableStore.TransactionMode;
 public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<String> {
 	
 	private static final String TEIID_FBI = "teiid:fbi"; //$NON-NLS-1$
+	private static final String SNAPSHOT_SUFFIX = ".snapshot"; //$NON-NLS-1$
+	private static final byte SNAPSHOT_VERSION = 3;
 
 	public enum MatState {
 		NEEDS_LOADING,
@@ -93,6 +106,7 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 		private long ttl = -1;
 		private boolean valid;
 		private boolean asynch; //sub state of loading
+		private boolean snapshotChecked;
 		
 		protected MatTableInfo() {}
 		
@@ -182,6 +196,9 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 	private BufferManager bufferManager;
 	private QueryMetadataInterface metadata;
 	private Serializable localAddress;
+	private File snapshotDirectory;
+	private Executor snapshotExecutor;
+	private Map<String, Boolean> pendingSnapshots = new ConcurrentHashMap<String, Boolean>();
 	
 	public GlobalTableStoreImpl(BufferManager bufferManager, QueryMetadataInterface metadata) {
 		this.bufferManager = bufferManager;
@@ -210,8 +227,191 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 	@Override
 	public boolean needsLoading(String matTableName, Serializable loadingAddress, boolean firstPass, boolean refresh, boolean invalidate) {
 		MatTableInfo info = getMatTableInfo(matTableName);
+		if (firstPass && !invalidate) {
+			restoreSnapshot(matTableName, info);
+		}
 		return info.shouldLoad(loadingAddress, firstPass, refresh, invalidate);
 	}
+	
+	/**
+	 * Set the directory used to persist a snapshot of each loaded table, 
+	 * which will be used in place of the initial load after a restart.
+	 * If null, the default, no snapshots are used.
+	 */
+	public void setSnapshotDirectory(File snapshotDirectory) {
+		this.snapshotDirectory = snapshotDirectory;
+		if (snapshotDirectory != null && this.snapshotExecutor == null) {
+			this.snapshotExecutor = ExecutorUtils.newFixedThreadPool(1, "Materialization Snapshot Writer"); //$NON-NLS-1$
+		}
+	}
+	
+	/**
+	 * Set the executor used to write snapshots.  By default a single background thread is used.
+	 */
+	public void setSnapshotExecutor(Executor snapshotExecutor) {
+		this.snapshotExecutor = snapshotExecutor;
+	}
+	
+	public File getSnapshotDirectory() {
+		return snapshotDirectory;
+	}
+	
+	private File getSnapshotFile(String matTableName) {
+		StringBuilder name = new StringBuilder(matTableName.length() + SNAPSHOT_SUFFIX.length());
+		for (int i = 0; i < matTableName.length(); i++) {
+			char c = matTableName.charAt(i);
+			if (Character.isLetterOrDigit(c) || c == '.' || c == '_' || c == '-') {
+				name.append(c);
+			} else {
+				name.append('_');
+			}
+		}
+		name.append(Integer.toHexString(matTableName.hashCode())).append(SNAPSHOT_SUFFIX);
+		return new File(snapshotDirectory, name.toString());
+	}
+	
+	/**
+	 * Write the snapshot off of the loading thread.  A write that is 
+	 * still pending will use the latest table, so it is not repeated.
+	 */
+	private void scheduleSnapshot(final String matTableName) {
+		if (snapshotDirectory == null || pendingSnapshots.put(matTableName, Boolean.TRUE) != null) {
+			return;
+		}
+		snapshotExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				pendingSnapshots.remove(matTableName);
+				writeSnapshot(matTableName);
+			}
+		});
+	}
+	
+	/**
+	 * Write the table to a temporary file then rename it over the last snapshot.
+	 * Only a loaded table is written - if a load is in progress its completion
+	 * will schedule another write.
+	 */
+	private void writeSnapshot(String matTableName) {
+		MatTableInfo info = getMatTableInfo(matTableName);
+		TempTable tempTable = null;
+		long updateTime = 0;
+		synchronized (info) {
+			if (info.state != MatState.LOADED || !info.valid) {
+				return;
+			}
+			tempTable = this.tableStore.getTempTable(matTableName);
+			updateTime = info.updateTime;
+		}
+		if (tempTable == null) {
+			return;
+		}
+		File snapshot = getSnapshotFile(matTableName);
+		File temp = null;
+		try {
+			snapshotDirectory.mkdirs();
+			temp = File.createTempFile(snapshot.getName(), ".tmp", snapshotDirectory); //$NON-NLS-1$
+			ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			try {
+				oos.writeByte(SNAPSHOT_VERSION);
+				oos.writeObject(matTableName);
+				oos.writeObject(getDefinitionHash(matTableName));
+				oos.writeLong(info.getTtl());
+				oos.writeLong(updateTime);
+				tempTable.writeTo(oos);
+			} finally {
+				oos.close();
+			}
+			if (!temp.renameTo(snapshot)) {
+				//not every platform will rename over an existing file
+				snapshot.delete();
+				if (!temp.renameTo(snapshot)) {
+					throw new IOException(temp.getAbsolutePath());
+				}
+			}
+			LogManager.logDetail(LogConstants.CTX_MATVIEWS, "wrote snapshot", snapshot.getAbsolutePath(), "for", matTableName); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (Exception e) {
+			if (temp != null) {
+				temp.delete();
+			}
+			LogManager.logWarning(LogConstants.CTX_MATVIEWS, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31137, matTableName, snapshot.getAbsolutePath()));
+		}
+	}
+	
+	/**
+	 * Load the last valid snapshot if the table has not yet been loaded.
+	 * The restored table is always considered loaded, the ttl will determine if
+	 * it should be reloaded.
+	 */
+	private void restoreSnapshot(String matTableName, MatTableInfo info) {
+		if (snapshotDirectory == null) {
+			return;
+		}
+		synchronized (info) {
+			if (info.snapshotChecked || info.state != MatState.NEEDS_LOADING) {
+				return;
+			}
+			info.snapshotChecked = true;
+			File snapshot = getSnapshotFile(matTableName);
+			if (!snapshot.exists()) {
+				return;
+			}
+			try {
+				ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(snapshot)));
+				try {
+					if (ois.readByte() != SNAPSHOT_VERSION || !matTableName.equals(ois.readObject())) {
+						throw new IOException("Unexpected snapshot header"); //$NON-NLS-1$
+					}
+					byte[] definitionHash = (byte[])ois.readObject();
+					long ttl = ois.readLong();
+					long updateTime = ois.readLong();
+					TempTable tempTable = createMatTable(matTableName);
+					if (!Arrays.equals(definitionHash, getDefinitionHash(matTableName))) {
+						throw new IOException("The snapshot does not match the current definition"); //$NON-NLS-1$
+					}
+					tempTable.readFrom(ois);
+					swapTempTable(matTableName, tempTable);
+					info.setState(MatState.LOADED, true);
+					info.updateTime = updateTime;
+					if (info.ttl < 0) {
+						info.ttl = ttl;
+					}
+					LogManager.logInfo(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31138, matTableName, tempTable.getRowCount(), new Timestamp(updateTime)));
+				} finally {
+					ois.close();
+				}
+			} catch (Exception e) {
+				this.tableStore.getTempTables().remove(matTableName);
+				info.setState(MatState.NEEDS_LOADING, false);
+				snapshot.delete();
+				LogManager.logWarning(LogConstants.CTX_MATVIEWS, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31139, matTableName, snapshot.getAbsolutePath()));
+			}
+		}
+	}
+	
+	/**
+	 * Hash the columns, key, and query of the table and the definition of the view it materializes
+	 * so that a snapshot is not restored after the view has changed.
+	 */
+	private byte[] getDefinitionHash(String matTableName) throws TeiidComponentException,
+			QueryMetadataException, NoSuchAlgorithmException {
+		TempMetadataID id = this.tableStore.getMetadataStore().getTempGroupID(matTableName);
+		StringBuilder definition = new StringBuilder();
+		List<TempMetadataID> columns = id.getElements();
+		for (TempMetadataID column : columns) {
+			definition.append(column.getName()).append(' ').append(DataTypeManager.getDataTypeName(column.getType())).append(',');
+		}
+		if (id.getPrimaryKey() != null) {
+			for (TempMetadataID column : id.getPrimaryKey()) {
+				definition.append(columns.indexOf(column)).append(',');
+			}
+		}
+		definition.append(id.getQueryNode().getQuery());
+		if (id.getOriginalMetadataID() != null) {
+			definition.append(';').append(metadata.getVirtualPlan(id.getOriginalMetadataID()).getQuery());
+		}
+		return MessageDigest.getInstance("SHA-256").digest(definition.toString().getBytes(Charset.forName("UTF-8"))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
 			
 	@Override
 	public TempMetadataID getGlobalTempTableMetadataId(Object viewId)
@@ -365,9 +565,12 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 	public void loaded(String matTableName, TempTable table) {
 		swapTempTable(matTableName, table);
 		this.getMatTableInfo(matTableName).setState(MatState.LOADED, true);
+		scheduleSnapshot(matTableName);
 	}
 	
 	private void swapTempTable(String tempTableName, TempTable tempTable) {
+		//the table is shared, so it is no longer charged to the request that loaded it
+		tempTable.setOwnerAccount(null);
     	this.tableStore.getTempTables().put(tempTableName, tempTable);
     }
 
@@ -386,6 +589,7 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 				if (clone) {
 					swapTempTable(matTableName, tempTable);
 				}
+				scheduleSnapshot(matTableName);
 				return result;
 			}
 		}
@@ -535,6 +739,22 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 		long updateTime = ois.readLong();
 		Serializable loadingAddress = (Serializable) ois.readObject();
 		MatState state = (MatState)ois.readObject();
+		TempTable tempTable = createMatTable(stateId);
+		tempTable.readFrom(ois);
+		MatTableInfo info = this.getMatTableInfo(stateId);
+		synchronized (info) {
+			swapTempTable(stateId, tempTable);
+			info.setState(state, true);
+			info.updateTime = updateTime;
+			info.loadingAddress = loadingAddress;
+		}
+	}
+	
+	/**
+	 * Create the table for the given state id, which is the mat or code table name 
+	 */
+	private TempTable createMatTable(String stateId) throws TeiidComponentException,
+			QueryMetadataException, TeiidProcessingException {
 		GroupSymbol group = new GroupSymbol(stateId);
 		if (stateId.startsWith(RelationalPlanner.MAT_PREFIX)) {
 			String viewName = stateId.substring(RelationalPlanner.MAT_PREFIX.length());
@@ -550,15 +770,7 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 			viewName = viewName.substring(0, index);
 			group.setMetadataID(getCodeTableMetadataId(viewName, returnElementName, keyElementName, stateId));
 		}
-		TempTable tempTable = this.createMatTable(stateId, group);
-		tempTable.readFrom(ois);
-		MatTableInfo info = this.getMatTableInfo(stateId);
-		synchronized (info) {
-			swapTempTable(stateId, tempTable);
-			info.setState(state, true);
-			info.updateTime = updateTime;
-			info.loadingAddress = loadingAddress;
-		}
+		return this.createMatTable(stateId, group);
 	}
 
 	@Override
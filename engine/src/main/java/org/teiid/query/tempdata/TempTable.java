@@ -41,6 +41,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferAccount;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.BufferManager.BufferReserveMode;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
@@ -848,6 +849,15 @@ public class TempTable implements Cloneable, SearchableTable {
 		this.tree.setPreferMemory(preferMemory);
 	}
 	
+	void setOwnerAccount(BufferAccount owner) {
+		this.tree.setOwnerAccount(owner);
+		if (this.indexTables != null) {
+			for (TempTable index : this.indexTables.values()) {
+				index.setOwnerAccount(owner);
+			}
+		}
+	}
+	
 	void setUpdatable(boolean updatable) {
 		this.updatable = updatable;
 		if (this.indexTables != null) {
@@ -145,6 +145,7 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	    private List<Exception> warnings = null;
 	    
 	    private Options options = null;
+	    private int exchangeParallelism;
 	    private boolean returnAutoGeneratedKeys;
 	    private GeneratedKeysImpl generatedKeys;
 	}
@@ -840,6 +841,21 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
     	this.globalState.options = options;
     }
     
+    /**
+     * @return the degree of parallelism for exchange plan fragments, 
+     * defaults to the {@link Options#getExchangeParallelism()}
+     */
+    public int getExchangeParallelism() {
+    	if (this.globalState.exchangeParallelism > 0) {
+    		return this.globalState.exchangeParallelism;
+    	}
+		return getOptions().getExchangeParallelism();
+	}
+    
+    public void setExchangeParallelism(int exchangeParallelism) {
+		this.globalState.exchangeParallelism = exchangeParallelism;
+	}
+    
 	@Override
 	public boolean isReturnAutoGeneratedKeys() {
 		return this.globalState.returnAutoGeneratedKeys;
@@ -33,12 +33,20 @@ public class Options {
 	public static final String PUSHDOWN_DEFAULT_NULL_ORDER = "org.teiid.pushdownDefaultNullOrder"; //$NON-NLS-1$
 	public static final String IMPLICIT_MULTISOURCE_JOIN = "org.teiid.implicitMultiSourceJoin"; //$NON-NLS-1$
 	public static final String JOIN_PREFETCH_BATCHES = "org.teiid.joinPrefetchBatches"; //$NON-NLS-1$
+	public static final String HASH_JOIN = "org.teiid.hashJoin"; //$NON-NLS-1$
+	public static final String HASH_AGGREGATION = "org.teiid.hashAggregation"; //$NON-NLS-1$
+	public static final String SORT_PARALLELISM = "org.teiid.sortParallelism"; //$NON-NLS-1$
+	public static final String EXCHANGE_PARALLELISM = "org.teiid.exchangeParallelism"; //$NON-NLS-1$
 
 	private Properties properties;
 	private boolean subqueryUnnestDefault;
 	private boolean pushdownDefaultNullOrder;
 	private boolean implicitMultiSourceJoin = true;
 	private int joinPrefetchBatches = 10;
+	private boolean hashJoin;
+	private boolean hashAggregation;
+	private int sortParallelism = 1;
+	private int exchangeParallelism = 1;
 	
 	public Properties getProperties() {
 		return properties;
@@ -99,5 +107,57 @@ public class Options {
 		this.joinPrefetchBatches = i;
 		return this;
 	}
+	
+	public boolean isHashJoin() {
+		return hashJoin;
+	}
+	
+	public void setHashJoin(boolean hashJoin) {
+		this.hashJoin = hashJoin;
+	}
+	
+	public Options hashJoin(boolean b) {
+		this.hashJoin = b;
+		return this;
+	}
+	
+	public boolean isHashAggregation() {
+		return hashAggregation;
+	}
+	
+	public void setHashAggregation(boolean hashAggregation) {
+		this.hashAggregation = hashAggregation;
+	}
+	
+	public Options hashAggregation(boolean b) {
+		this.hashAggregation = b;
+		return this;
+	}
+	
+	public int getSortParallelism() {
+		return sortParallelism;
+	}
+	
+	public void setSortParallelism(int sortParallelism) {
+		this.sortParallelism = sortParallelism;
+	}
+	
+	public Options sortParallelism(int i) {
+		this.sortParallelism = i;
+		return this;
+	}
+	
+	public int getExchangeParallelism() {
+		return exchangeParallelism;
+	}
+	
+	public void setExchangeParallelism(int exchangeParallelism) {
+		this.exchangeParallelism = exchangeParallelism;
+	}
+	
+	public Options exchangeParallelism(int i) {
+		this.exchangeParallelism = i;
+		return this;
+	}
 
 }
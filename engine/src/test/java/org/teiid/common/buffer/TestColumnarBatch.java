@@ -0,0 +1,136 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.impl.BufferManagerImpl;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.processor.relational.ListNestedSortComparator;
+import org.teiid.query.sql.symbol.ElementSymbol;
+
+@SuppressWarnings("nls")
+public class TestColumnarBatch {
+	
+	private static Class<?>[] TYPES = new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER, DataTypeManager.DefaultDataClasses.DOUBLE, DataTypeManager.DefaultDataClasses.STRING};
+
+	@Test public void testRowView() {
+		List<List<?>> tuples = new ArrayList<List<?>>();
+		tuples.add(Arrays.asList(1, 1.5, "a"));
+		tuples.add(Arrays.asList(null, 2.5, null));
+		tuples.add(Arrays.asList(3, null, "c"));
+		ColumnarBatch batch = ColumnarBatch.create(TYPES, tuples);
+		assertEquals(tuples, batch);
+		assertEquals(3, batch.getColumnCount());
+		assertTrue(batch.isPrimitive(0));
+		assertFalse(batch.isPrimitive(2));
+		assertTrue(batch.isNull(1, 0));
+		assertTrue(batch.isNull(1, 2));
+		assertFalse(batch.isNull(2, 0));
+		assertEquals(3, batch.getInt(2, 0));
+		assertEquals(3l, batch.getLong(2, 0));
+		assertEquals(2.5, batch.getDouble(1, 1), 0);
+		assertEquals(3, ((int[])batch.getVector(0))[2]);
+		assertNull(batch.getVector(2));
+		assertEquals(tuples.get(0).hashCode(), batch.get(0).hashCode());
+	}
+	
+	@Test public void testRowViewsNotReallocated() {
+		List<List<?>> tuples = new ArrayList<List<?>>();
+		for (int i = 0; i < 100; i++) {
+			tuples.add(Arrays.asList(i, (double)i, String.valueOf(i)));
+		}
+		ColumnarBatch batch = ColumnarBatch.create(TYPES, tuples);
+		List<ColumnarBatch.Row> views = new ArrayList<ColumnarBatch.Row>();
+		for (int i = 0; i < batch.size(); i++) {
+			views.add(batch.get(i));
+		}
+		for (int i = 0; i < batch.size(); i++) {
+			assertSame(views.get(i), batch.get(i));
+		}
+	}
+	
+	@Test public void testTupleBufferNotColumnarByDefault() throws Exception {
+		BufferManagerImpl bm = BufferManagerFactory.getTestBufferManager(0, 2);
+		bm.setColumnarBatches(true);
+		ElementSymbol x = new ElementSymbol("x");
+		x.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		TupleBuffer tb = bm.createTupleBuffer(Arrays.asList(x), "x", TupleSourceType.PROCESSOR);
+		tb.setBatchSize(2);
+		for (int i = 0; i < 4; i++) {
+			tb.addTuple(Arrays.asList(i));
+		}
+		tb.close();
+		assertNull(tb.getBatch(1).getColumnarBatch());
+		assertNull(tb.getBatch(3).getColumnarBatch());
+	}
+	
+	@Test public void testNonConforming() {
+		assertNull(ColumnarBatch.create(TYPES, Arrays.asList(Arrays.asList(1, 1))));
+		assertNull(ColumnarBatch.create(TYPES, Arrays.asList(Arrays.asList(1, 1, "a"))));
+	}
+	
+	@Test public void testCompare() {
+		List<List<?>> tuples = new ArrayList<List<?>>();
+		tuples.add(Arrays.asList(2, -1.0, "b"));
+		tuples.add(Arrays.asList(null, 2.5, "a"));
+		tuples.add(Arrays.asList(2, 1.0, "a"));
+		ColumnarBatch batch = ColumnarBatch.create(TYPES, tuples);
+		ListNestedSortComparator comparator = new ListNestedSortComparator(new int[] {0, 1});
+		assertTrue(comparator.compare(batch.get(0), batch.get(2)) < 0);
+		assertTrue(comparator.compare(batch.get(1), batch.get(0)) < 0);
+		assertEquals(0, comparator.compare(batch.get(0), batch.get(0)));
+		comparator = new ListNestedSortComparator(new int[] {2, 0}, false);
+		assertTrue(comparator.compare(batch.get(2), batch.get(1)) < 0);
+		//mixed row types
+		assertTrue(comparator.compare(tuples.get(2), batch.get(1)) < 0);
+	}
+	
+	@Test public void testTupleBuffer() throws Exception {
+		BufferManagerImpl bm = BufferManagerFactory.getTestBufferManager(0, 2);
+		bm.setColumnarBatches(true);
+		ElementSymbol x = new ElementSymbol("x");
+		x.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		ElementSymbol y = new ElementSymbol("y");
+		y.setType(DataTypeManager.DefaultDataClasses.LONG);
+		TupleBuffer tb = bm.createTupleBuffer(Arrays.asList(x, y), "x", TupleSourceType.PROCESSOR);
+		tb.setBatchSize(2);
+		tb.setColumnar(true);
+		for (int i = 0; i < 5; i++) {
+			tb.addTuple(Arrays.asList(i, i%2==0?null:(long)i));
+		}
+		tb.close();
+		for (int i = 1; i <= 5; i++) {
+			TupleBatch batch = tb.getBatch(i);
+			assertNotNull(batch.getColumnarBatch());
+			assertEquals(Arrays.asList(i - 1, i%2==1?null:(long)(i - 1)), batch.getTuple(i));
+		}
+	}
+
+}
@@ -24,6 +24,11 @@ package org.teiid.common.buffer;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.Timestamp;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -34,6 +39,7 @@ import org.teiid.common.buffer.impl.BufferFrontedFileStoreCache;
 import org.teiid.common.buffer.impl.BufferManagerImpl;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.DataTypeManager;
 import org.teiid.query.processor.CollectionTupleSource;
 import org.teiid.query.sql.symbol.ElementSymbol;
 
@@ -157,4 +163,105 @@ public class TestSTree {
 		}
 	}
 	
+	@Test public void testSlottedPages() throws TeiidComponentException, TeiidProcessingException {
+		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
+		bm.setProcessorBatchSize(32);
+		bm.setSlottedSTreePages(true);
+		
+		ElementSymbol e1 = new ElementSymbol("x");
+		e1.setType(Integer.class);
+		ElementSymbol e2 = new ElementSymbol("y");
+		e2.setType(String.class);
+		List<ElementSymbol> elements = Arrays.asList(e1, e2);
+		STree map = bm.createSTree(elements, "1", 1);
+		assertTrue(map.isSlottedPages());
+		
+		int size = 1<<14;
+		for (int i = 0; i < size; i++) {
+			assertNull(map.insert(Arrays.asList(i, String.valueOf(i)), InsertMode.NEW, -1));
+		}
+		int slottedPages = 0;
+		for (SPage page : map.pages.values()) {
+			if (page.children == null && page.getValues() instanceof SlottedPage) {
+				slottedPages++;
+			}
+		}
+		assertTrue(slottedPages > 0);
+		assertEquals(Arrays.asList(5, "5"), map.insert(Arrays.asList(5, "five"), InsertMode.UPDATE, -1));
+		assertEquals(Arrays.asList(5, "five"), map.find(Arrays.asList(5)));
+		assertNull(map.find(Arrays.asList(size)));
+		
+		TupleBrowser tb = new TupleBrowser(map, new CollectionTupleSource(Collections.singletonList(Arrays.asList(100)).iterator()), true);
+		assertEquals(Arrays.asList(100, "100"), tb.nextTuple());
+		
+		for (int i = 0; i < size; i+=2) {
+			assertNotNull(map.remove(Arrays.asList(i)));
+		}
+		assertEquals(size/2, map.getRowCount());
+		tb = new TupleBrowser(map, null, null, true);
+		int count = 0;
+		for (List<?> tuple = tb.nextTuple(); tuple != null; tuple = tb.nextTuple()) {
+			assertEquals(2*count + 1, tuple.get(0));
+			count++;
+		}
+		assertEquals(size/2, count);
+	}
+	
+	@Test public void testSlottedPagesStorageWrites() throws TeiidComponentException {
+		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
+		bm.setProcessorBatchSize(32);
+		bm.setMaxReserveKB(0);//force all to storage
+		bm.setSlottedSTreePages(true);
+		
+		ElementSymbol e1 = new ElementSymbol("x");
+		e1.setType(Integer.class);
+		ElementSymbol e2 = new ElementSymbol("y");
+		e2.setType(Timestamp.class);
+		List<ElementSymbol> elements = Arrays.asList(e1, e2);
+		STree map = bm.createSTree(elements, "1", 1);
+		
+		int size = 1<<12;
+		for (int i = 0; i < size; i++) {
+			assertNull(map.insert(Arrays.asList(i, i%3==0?null:new Timestamp(i)), InsertMode.NEW, -1));
+		}
+		for (int i = 0; i < size; i++) {
+			assertEquals(Arrays.asList(i, i%3==0?null:new Timestamp(i)), map.find(Arrays.asList(i)));
+		}
+	}
+	
+	@Test public void testSlottedPagesUnsupportedTypes() throws TeiidComponentException {
+		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
+		bm.setSlottedSTreePages(true);
+		
+		ElementSymbol e1 = new ElementSymbol("x");
+		e1.setType(Integer.class);
+		ElementSymbol e2 = new ElementSymbol("y");
+		e2.setType(DataTypeManager.DefaultDataClasses.OBJECT);
+		STree map = bm.createSTree(Arrays.asList(e1, e2), "1", 1);
+		assertFalse(map.isSlottedPages());
+	}
+	
+	@Test public void testWriteRead() throws Exception {
+		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
+		bm.setProcessorBatchSize(32);
+		
+		ElementSymbol e1 = new ElementSymbol("x");
+		e1.setType(Integer.class);
+		List<ElementSymbol> elements = Arrays.asList(e1);
+		STree map = bm.createSTree(elements, "1", 1);
+		int size = 1<<12;
+		for (int i = 0; i < size; i++) {
+			assertNull(map.insert(Arrays.asList(i), InsertMode.ORDERED, size));
+		}
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(baos);
+		map.writeValuesTo(oos);
+		oos.close();
+		
+		STree copy = bm.createSTree(elements, "1", 1);
+		copy.readValuesFrom(new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray())));
+		assertEquals(size, copy.getRowCount());
+		assertEquals(Arrays.asList(size - 1), copy.find(Arrays.asList(size - 1)));
+	}
+	
 }
@@ -0,0 +1,120 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.processor.relational.ListNestedSortComparator;
+
+@SuppressWarnings({"nls", "unchecked"})
+public class TestSlottedPage {
+	
+	private static Class<?>[] TYPES = new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER, DataTypeManager.DefaultDataClasses.STRING, DataTypeManager.DefaultDataClasses.BIG_DECIMAL};
+
+	private static List<List<?>> getTuples(int size) {
+		List<List<?>> tuples = new ArrayList<List<?>>();
+		for (int i = 0; i < size; i++) {
+			tuples.add(Arrays.asList(2*i, i%5==0?null:String.valueOf(i), BigDecimal.valueOf(i, 2)));
+		}
+		return tuples;
+	}
+	
+	@Test public void testTypes() {
+		Class<?>[] types = new Class<?>[] {DataTypeManager.DefaultDataClasses.LONG, DataTypeManager.DefaultDataClasses.DOUBLE, 
+				DataTypeManager.DefaultDataClasses.BOOLEAN, DataTypeManager.DefaultDataClasses.CHAR, DataTypeManager.DefaultDataClasses.DATE,
+				DataTypeManager.DefaultDataClasses.TIMESTAMP, DataTypeManager.DefaultDataClasses.BIG_INTEGER};
+		Timestamp ts = new Timestamp(1000);
+		ts.setNanos(123456789);
+		List<List<?>> tuples = new ArrayList<List<?>>();
+		tuples.add(Arrays.asList(-1l, 1.5, true, 'a', new Date(86400000), ts, new BigInteger("-123456789012345678901234567890")));
+		tuples.add(Arrays.asList(null, null, null, null, null, null, null));
+		SlottedPage page = SlottedPage.create(types, tuples);
+		assertEquals(tuples, page);
+		assertFalse(SlottedPage.isSupported(new Class<?>[] {DataTypeManager.DefaultDataClasses.OBJECT}));
+		assertNull(SlottedPage.create(TYPES, Arrays.asList(Arrays.asList(1, 1, null))));
+	}
+	
+	@Test public void testBinarySearch() {
+		List<List<?>> tuples = getTuples(100);
+		SlottedPage page = SlottedPage.create(TYPES, tuples);
+		ListNestedSortComparator comparator = new ListNestedSortComparator(new int[] {0});
+		for (int i = -1; i < 201; i++) {
+			List<Integer> key = Arrays.asList(i);
+			assertEquals(Collections.binarySearch(tuples, key, comparator), page.binarySearch(key, comparator));
+		}
+	}
+	
+	@Test public void testModifications() {
+		List<List<?>> tuples = getTuples(100);
+		SlottedPage page = SlottedPage.create(TYPES, tuples);
+		tuples = new ArrayList<List<?>>(tuples);
+		for (int i = 0; i < 50; i++) {
+			List<?> tuple = Arrays.asList(2*i, "x" + i, null);
+			assertEquals(tuples.set(i, tuple), page.set(i, tuple));
+			tuple = Arrays.asList(2*i + 1, null, BigDecimal.ONE);
+			tuples.add(2*i + 1, tuple);
+			page.add(2*i + 1, tuple);
+		}
+		assertEquals(tuples, page);
+		tuples.subList(10, 120).clear();
+		page.subList(10, 120).clear();
+		assertEquals(tuples.remove(5), page.remove(5));
+		assertEquals(tuples, page);
+		page.clear();
+		assertEquals(0, page.size());
+		page.add(Arrays.asList(1, "a", BigDecimal.TEN));
+		assertEquals(Arrays.asList(Arrays.asList(1, "a", BigDecimal.TEN)), page);
+	}
+	
+	@Test(expected=IllegalArgumentException.class) public void testNonConformingAdd() {
+		SlottedPage page = SlottedPage.create(TYPES, getTuples(1));
+		page.add(Arrays.asList(1, 1, null));
+	}
+	
+	@Test public void testSerialization() throws Exception {
+		SlottedPage page = SlottedPage.create(TYPES, getTuples(100));
+		page.subList(0, 30).clear();
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(baos);
+		page.writeTo(oos);
+		oos.close();
+		SlottedPage copy = SlottedPage.readFrom(new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray())), TYPES);
+		assertEquals(page, copy);
+	}
+
+}
@@ -31,6 +31,7 @@ import javax.sql.rowset.serial.SerialClob;
 
 import org.junit.Test;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.impl.BufferManagerImpl;
 import org.teiid.core.types.ClobType;
 import org.teiid.core.types.DataTypeManager;
 import org.teiid.query.sql.symbol.ElementSymbol;
@@ -98,4 +99,34 @@ public class TestTupleBuffer {
 		assertNotNull(tb.getLobReference(c.getReferenceStreamId()));
 	}
 	
+	@Test public void testAdaptiveBatchSize() throws Exception {
+		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
+		bm.setAdaptiveBatchSizing(true);
+		ElementSymbol x = new ElementSymbol("x"); //$NON-NLS-1$
+		x.setType(DataTypeManager.DefaultDataClasses.STRING);
+		List<ElementSymbol> schema = Arrays.asList(x);
+		int initial = bm.getProcessorBatchSize(schema);
+		TupleBuffer tb = bm.createTupleBuffer(schema, "x", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+		assertEquals(initial, tb.getBatchSize());
+		String value = new String(new char[20000]);
+		for (int i = 0; i < initial; i++) {
+			tb.addTuple(Arrays.asList(value));
+		}
+		//wide rows should reduce the batch size
+		assertTrue(tb.getBatchSize() < initial);
+		int rows = tb.getRowCount();
+		while (tb.getRowCount() < rows + 4 * tb.getBatchSize()) {
+			tb.addTuple(Arrays.asList(value));
+		}
+		tb.close();
+		//subsequent buffers should use the observed size
+		assertEquals(tb.getBatchSize(), bm.getProcessorBatchSize(schema));
+		for (int row = 1; row <= tb.getRowCount();) {
+			TupleBatch batch = tb.getBatch(row);
+			assertTrue(batch.getRowCount() > 0);
+			row = batch.getEndRow() + 1;
+		}
+		tb.remove();
+	}
+	
 }
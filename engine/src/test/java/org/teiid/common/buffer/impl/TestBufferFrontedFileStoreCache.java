@@ -30,6 +30,7 @@ import java.io.ObjectOutput;
 import java.lang.ref.WeakReference;
 
 import org.junit.Test;
+import org.teiid.common.buffer.BufferAccount;
 import org.teiid.common.buffer.CacheEntry;
 import org.teiid.common.buffer.Serializer;
 import org.teiid.core.TeiidComponentException;
@@ -51,6 +52,11 @@ public class TestBufferFrontedFileStoreCache {
 		public Long getId() {
 			return 1l;
 		}
+		
+		@Override
+		public BufferAccount getBufferAccount() {
+			return null;
+		}
 
 		@Override
 		public void serialize(Integer obj, ObjectOutput oos)
@@ -211,4 +217,22 @@ public class TestBufferFrontedFileStoreCache {
 		info.setSize(1 + (1<<13));
 	}
 	
+	@Test public void testCompression() throws Exception {
+		BufferFrontedFileStoreCache cache = createLayeredCache(1 << 26, 1 << 26);
+		cache.setCompress(true);
+		
+		CacheEntry ce = new CacheEntry(2l);
+		Serializer<Integer> s = new SimpleSerializer();
+		cache.createCacheGroup(s.getId());
+		Integer cacheObject = Integer.valueOf(80000);
+		ce.setObject(cacheObject);
+		cache.addToCacheGroup(s.getId(), ce.getId());
+		cache.add(ce, s);
+		
+		assertTrue(cache.getCompressionRatio() < .5);
+		
+		ce = get(cache, 2l, s);
+		assertEquals(cacheObject, ce.getObject());
+	}
+	
 }
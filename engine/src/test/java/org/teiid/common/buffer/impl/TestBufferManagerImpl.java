@@ -24,8 +24,24 @@ package org.teiid.common.buffer.impl;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
 import org.junit.Test;
+import org.teiid.client.BufferLimitExceededException;
+import org.teiid.common.buffer.BufferAccount;
+import org.teiid.common.buffer.BufferAccount.LimitPolicy;
+import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
 import org.teiid.common.buffer.BufferManager.BufferReserveMode;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.core.TeiidRuntimeException;
+import org.teiid.query.QueryPlugin;
+import org.teiid.query.sql.symbol.ElementSymbol;
 
 public class TestBufferManagerImpl {
 	
@@ -49,5 +65,208 @@ public class TestBufferManagerImpl {
         //the difference between 1mb and 1000k
         assertEquals(24576, bufferManager.reserveBuffers(1024000, BufferReserveMode.NO_WAIT));
     }
+    
+    @Test public void testReserveAccount() throws Exception {
+        final BufferManagerImpl bufferManager = new BufferManagerImpl();
+        bufferManager.setCache(new MemoryStorageManager());
+        bufferManager.setMaxProcessingKB(1024);
+        bufferManager.setMaxReserveKB(1024);
+        bufferManager.initialize();
+        bufferManager.setNominalProcessingMemoryMax(512000);
+        
+        final BufferAccount account = new BufferAccount();
+        bufferManager.setBufferAccount(account);
+        assertEquals(512000, bufferManager.reserveBuffersBlocking(512000, 0, false));
+        assertEquals(512000, account.getReservedBytes());
+        
+        //the same account on another thread is already at the nominal max
+        FutureTask<Integer> task = new FutureTask<Integer>(new Callable<Integer>() {
+        	@Override
+        	public Integer call() throws Exception {
+        		bufferManager.setBufferAccount(account);
+        		int result = bufferManager.reserveBuffersBlocking(1000, 0, false);
+        		bufferManager.releaseBuffers(512000);
+        		return result;
+        	}
+        });
+        new Thread(task).start();
+        assertEquals(Integer.valueOf(0), task.get());
+        assertEquals(0, account.getReservedBytes());
+        
+        //a different account is not restricted
+        bufferManager.setBufferAccount(new BufferAccount());
+        assertEquals(1000, bufferManager.reserveBuffersBlocking(1000, 0, false));
+    }
+    
+    @Test public void testConcurrentNoWaitReserve() throws Exception {
+        final BufferManagerImpl bufferManager = new BufferManagerImpl();
+        bufferManager.setCache(new MemoryStorageManager());
+        bufferManager.setMaxProcessingKB(1024);
+        bufferManager.setMaxReserveKB(1024);
+        bufferManager.initialize();
+        long initial = bufferManager.getReserveBatchBytes();
+        
+        List<FutureTask<Long>> tasks = new ArrayList<FutureTask<Long>>();
+        for (int i = 0; i < 8; i++) {
+        	FutureTask<Long> task = new FutureTask<Long>(new Callable<Long>() {
+            	@Override
+            	public Long call() throws Exception {
+            		bufferManager.setBufferAccount(new BufferAccount());
+            		long total = 0;
+            		int reserved = 0;
+            		while ((reserved = bufferManager.reserveBuffers(1000, BufferReserveMode.NO_WAIT)) > 0) {
+            			total += reserved;
+            		}
+            		return total;
+            	}
+            });
+        	tasks.add(task);
+        	new Thread(task).start();
+        }
+        long total = 0;
+        for (FutureTask<Long> task : tasks) {
+        	total += task.get();
+        }
+        //optional reservations never take the reserve below 0
+        assertEquals(initial, total);
+        assertEquals(0, bufferManager.getReserveBatchBytes());
+    }
+    
+    @Test public void testBackgroundEviction() throws Exception {
+    	BufferManagerImpl bufferManager = BufferManagerFactory.getTestBufferManager(20000, 10);
+    	bufferManager.setEvictionThreads(1);
+    	try {
+	    	ElementSymbol e1 = new ElementSymbol("x"); //$NON-NLS-1$
+	    	e1.setType(Integer.class);
+	    	TupleBuffer tb = bufferManager.createTupleBuffer(Arrays.asList(e1), "x", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+	    	for (int i = 0; i < 1000; i++) {
+	    		tb.addTuple(Arrays.asList(i));
+	    	}
+	    	tb.close();
+	    	for (int i = 0; i < 100 && bufferManager.getActiveBatchBytes() > bufferManager.getReserveBatchBytes(); i++) {
+	    		Thread.sleep(50);
+	    	}
+	    	assertTrue(bufferManager.getWriteCount() > 0);
+	    	assertTrue(bufferManager.getActiveBatchBytes() <= bufferManager.getReserveBatchBytes());
+	    	TupleSource ts = tb.createIndexedTupleSource();
+	    	for (int i = 0; i < 1000; i++) {
+	    		assertEquals(Arrays.asList(i), ts.nextTuple());
+	    	}
+	    	assertNull(ts.nextTuple());
+	    	tb.remove();
+    	} finally {
+    		bufferManager.shutdown();
+    	}
+    }
+
+    @Test public void testAccountStatistics() throws Exception {
+    	BufferManagerImpl bufferManager = BufferManagerFactory.getTestBufferManager(20000, 10);
+    	BufferAccount session = new BufferAccount();
+    	BufferAccount request = new BufferAccount(session);
+    	bufferManager.setBufferAccount(request);
+    	ElementSymbol e1 = new ElementSymbol("x"); //$NON-NLS-1$
+    	e1.setType(Integer.class);
+    	TupleBuffer tb = bufferManager.createTupleBuffer(Arrays.asList(e1), "x", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+    	for (int i = 0; i < 1000; i++) {
+    		tb.addTuple(Arrays.asList(i));
+    	}
+    	tb.close();
+    	long batchBytes = request.getBatchBytes();
+    	int reserved = bufferManager.reserveBuffers(1000, BufferReserveMode.FORCE);
+    	bufferManager.releaseBuffers(reserved);
+    	
+    	assertTrue(request.getBatchesWritten() > 0);
+    	assertEquals(request.getBatchesWritten(), session.getBatchesWritten());
+    	assertTrue(request.getPeakUsedBytes() >= 1000 + batchBytes);
+    	assertEquals(0, session.getReservedBytes());
+    	tb.remove();
+    }
+    
+    @Test public void testPeakUsedBytes() {
+    	BufferAccount session = new BufferAccount();
+    	BufferAccount request = new BufferAccount(session);
+    	request.addBatchBytes(500);
+    	request.addReservedBytes(1000);
+    	request.addBatchBytes(-500);
+    	request.addReservedBytes(200);
+    	assertEquals(1200, request.getUsedBytes());
+    	//the peak includes the batch memory held at the same time as the reservation
+    	assertEquals(1500, request.getPeakUsedBytes());
+    	assertEquals(1500, session.getPeakUsedBytes());
+    }
+    
+    @Test public void testAccountLimit() throws Exception {
+        BufferManagerImpl bufferManager = new BufferManagerImpl();
+        bufferManager.setCache(new MemoryStorageManager());
+        bufferManager.setMaxProcessingKB(1024);
+        bufferManager.setMaxReserveKB(1024);
+        bufferManager.initialize();
+        
+        BufferAccount user = new BufferAccount();
+        user.setLimit(10000, LimitPolicy.SPILL);
+        BufferAccount request = new BufferAccount(user);
+        bufferManager.setBufferAccount(request);
+        assertEquals(10000, bufferManager.reserveBuffers(50000, BufferReserveMode.NO_WAIT));
+        assertEquals(0, bufferManager.reserveBuffers(50000, BufferReserveMode.NO_WAIT));
+        
+        //over the limit new batches are written immediately
+        ElementSymbol e1 = new ElementSymbol("x"); //$NON-NLS-1$
+    	e1.setType(Integer.class);
+    	TupleBuffer tb = bufferManager.createTupleBuffer(Arrays.asList(e1), "x", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+    	for (int i = 0; i < 1000; i++) {
+    		tb.addTuple(Arrays.asList(i));
+    	}
+    	tb.close();
+    	assertTrue(request.getBatchesWritten() > 0);
+    	assertEquals(0, bufferManager.getActiveBatchBytes());
+    	tb.remove();
+    	
+    	request.setLimit(5000, LimitPolicy.FAIL);
+    	try {
+    		bufferManager.reserveBuffers(1, BufferReserveMode.FORCE);
+    		fail();
+    	} catch (TeiidRuntimeException e) {
+    		assertTrue(e.getCause() instanceof BufferLimitExceededException);
+    		assertEquals(QueryPlugin.Event.TEIID31136.name(), ((BufferLimitExceededException)e.getCause()).getCode());
+    	}
+    	bufferManager.releaseBuffers(10000);
+    	assertEquals(1000, bufferManager.reserveBuffers(1000, BufferReserveMode.FORCE));
+    }
+    
+    @Test public void testBatchBytesCharged() throws Exception {
+        BufferManagerImpl bufferManager = new BufferManagerImpl();
+        bufferManager.setCache(new MemoryStorageManager());
+        bufferManager.setMaxProcessingKB(1024);
+        bufferManager.setMaxReserveKB(1024);
+        bufferManager.initialize();
+        
+        BufferAccount user = new BufferAccount();
+        BufferAccount request = new BufferAccount(user);
+        bufferManager.setBufferAccount(request);
+        ElementSymbol e1 = new ElementSymbol("x"); //$NON-NLS-1$
+    	e1.setType(Integer.class);
+    	TupleBuffer tb = bufferManager.createTupleBuffer(Arrays.asList(e1), "x", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+    	for (int i = 0; i < 1000; i++) {
+    		tb.addTuple(Arrays.asList(i));
+    	}
+    	tb.close();
+    	assertEquals(0, request.getReservedBytes());
+    	assertTrue(request.getBatchBytes() > 0);
+    	assertEquals(request.getBatchBytes(), user.getUsedBytes());
+    	
+    	//batch bytes count against the limit
+    	user.setLimit(user.getUsedBytes(), LimitPolicy.FAIL);
+    	assertEquals(0, bufferManager.reserveBuffers(1000, BufferReserveMode.NO_WAIT));
+    	try {
+    		bufferManager.reserveBuffers(1, BufferReserveMode.FORCE);
+    		fail();
+    	} catch (TeiidRuntimeException e) {
+    		assertTrue(e.getCause() instanceof BufferLimitExceededException);
+    	}
+    	
+    	tb.remove();
+    	assertEquals(0, request.getBatchBytes());
+    	assertEquals(0, user.getUsedBytes());
+    }
 
 }
@@ -28,6 +28,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Random;
 
@@ -86,6 +87,56 @@ public class TestFileStorageManager {
         assertEquals(0, sm.getUsedBufferSpace());
     }
             
+    @Test public void testGatheringWrite() throws Exception {
+        FileStorageManager sm = getStorageManager(null, null);
+        SplittableStorageManager ssm = new SplittableStorageManager(sm);
+        ssm.setMaxFileSizeDirect(3000);
+        for (FileStore store : new FileStore[] {sm.createFileStore("0"), ssm.createFileStore("1")}) {
+        	byte[] expectedBytes = new byte[4096];
+        	r.nextBytes(expectedBytes);
+        	ByteBuffer direct = ByteBuffer.allocateDirect(2048);
+        	direct.put(expectedBytes, 2048, 2048);
+        	direct.flip();
+        	//the first write will span files for the splittable store
+        	store.write(1024, new ByteBuffer[] {ByteBuffer.wrap(expectedBytes, 0, 2048), direct});
+        	store.write(5120, new ByteBuffer[] {ByteBuffer.wrap(expectedBytes, 0, 512), ByteBuffer.wrap(expectedBytes, 512, 512)});
+        	assertEquals(6144, store.getLength());
+        	
+        	byte[] bytesRead = new byte[4096];        
+        	store.readFully(1024, bytesRead, 0, bytesRead.length);
+        	assertArrayEquals(expectedBytes, bytesRead);
+        	bytesRead = new byte[1024];
+        	store.readFully(5120, bytesRead, 0, bytesRead.length);
+        	assertArrayEquals(Arrays.copyOf(expectedBytes, 1024), bytesRead);
+        	store.remove();
+        }
+        assertEquals(0, sm.getUsedBufferSpace());
+    }
+            
+    @Test public void testInterruptedWrite() throws Exception {
+        FileStorageManager sm = getStorageManager(null, null);
+        FileStore store = sm.createFileStore("0"); //$NON-NLS-1$
+        byte[] expectedBytes = new byte[4096];
+        r.nextBytes(expectedBytes);
+        Thread.currentThread().interrupt();
+        try {
+        	//the gathering write is completed even though the interrupt closes the channel
+        	store.write(0, new ByteBuffer[] {ByteBuffer.wrap(expectedBytes, 0, 2048), ByteBuffer.wrap(expectedBytes, 2048, 2048)});
+        	byte[] bytesRead = new byte[4096];
+        	store.readFully(0, bytesRead, 0, bytesRead.length);
+        	assertArrayEquals(expectedBytes, bytesRead);
+        } finally {
+        	Thread.interrupted();
+        }
+        //the file is usable by others
+        store.write(4096, new ByteBuffer[] {ByteBuffer.wrap(expectedBytes)});
+        byte[] bytesRead = new byte[4096];
+        store.readFully(4096, bytesRead, 0, bytesRead.length);
+        assertArrayEquals(expectedBytes, bytesRead);
+        store.remove();
+        assertEquals(0, sm.getUsedBufferSpace());
+    }
+    
     @Test(expected=IOException.class) public void testMaxSpace() throws Exception {
     	FileStorageManager sm = getStorageManager(null, null); 
     	sm.setMaxBufferSpace(1);
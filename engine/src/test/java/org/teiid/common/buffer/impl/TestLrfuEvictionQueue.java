@@ -24,10 +24,15 @@ package org.teiid.common.buffer.impl;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
 import org.teiid.common.buffer.BaseCacheEntry;
+import org.teiid.common.buffer.CacheKey;
 
 public class TestLrfuEvictionQueue {
 	
@@ -41,4 +46,57 @@ public class TestLrfuEvictionQueue {
 		}
 	}
 
+	@Test public void testSampled() {
+		SampledLrfuEvictionQueue<BaseCacheEntry> q = new SampledLrfuEvictionQueue<BaseCacheEntry>(new AtomicLong());
+		Set<Long> ids = new HashSet<Long>();
+		for (long i = 0; i < 100; i++) {
+			assertTrue(q.add(new BaseCacheEntry(new CacheKey(i, i, i))));
+			ids.add(i);
+		}
+		assertEquals(100, q.getEvictionQueue().size());
+		int count = 0;
+		for (BaseCacheEntry entry : q.getEvictionQueue()) {
+			assertTrue(ids.contains(entry.getId()));
+			count++;
+		}
+		assertEquals(100, count);
+		BaseCacheEntry entry = null;
+		while ((entry = q.firstEntry(true)) != null) {
+			assertTrue(ids.remove(entry.getId()));
+		}
+		assertTrue(ids.isEmpty());
+		assertEquals(0, q.getEvictionQueue().size());
+	}
+	
+	@Test public void testSampledEvictsColdFirst() {
+		AtomicLong clock = new AtomicLong();
+		SampledLrfuEvictionQueue<BaseCacheEntry> q = new SampledLrfuEvictionQueue<BaseCacheEntry>(clock, 4);
+		List<BaseCacheEntry> hot = new ArrayList<BaseCacheEntry>();
+		for (long i = 0; i < 400; i++) {
+			BaseCacheEntry entry = new BaseCacheEntry(new CacheKey(i, i, i));
+			q.add(entry);
+			if (i % 20 == 0) {
+				hot.add(entry);
+			}
+		}
+		clock.set(10000);
+		for (int i = 0; i < 5; i++) {
+			clock.addAndGet(2 * LrfuEvictionQueue.MIN_INTERVAL);
+			for (BaseCacheEntry entry : hot) {
+				q.touch(entry);
+			}
+		}
+		//peeking should not change the queue
+		BaseCacheEntry first = q.firstEntry(false);
+		assertSame(first, q.firstEntry(false));
+		assertFalse(hot.contains(first));
+		assertEquals(400, q.getEvictionQueue().size());
+		
+		for (int i = 0; i < 200; i++) {
+			BaseCacheEntry entry = q.firstEntry(true);
+			assertFalse(hot.contains(entry));
+		}
+		assertEquals(200, q.getEvictionQueue().size());
+	}
+	
 }
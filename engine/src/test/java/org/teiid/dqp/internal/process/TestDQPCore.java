@@ -38,15 +38,19 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import org.teiid.adminapi.DataPolicy;
 import org.teiid.adminapi.impl.DataPolicyMetadata;
+import org.teiid.adminapi.impl.SessionMetadata;
 import org.teiid.api.exception.query.QueryResolverException;
 import org.teiid.cache.CacheConfiguration;
 import org.teiid.cache.DefaultCacheFactory;
+import org.teiid.client.BufferLimitExceededException;
 import org.teiid.client.RequestMessage;
 import org.teiid.client.RequestMessage.ResultsMode;
 import org.teiid.client.RequestMessage.StatementType;
 import org.teiid.client.ResultsMessage;
 import org.teiid.client.lob.LobChunk;
 import org.teiid.client.util.ResultsFuture;
+import org.teiid.common.buffer.BufferAccount;
+import org.teiid.common.buffer.BufferAccount.LimitPolicy;
 import org.teiid.common.buffer.BufferManagerFactory;
 import org.teiid.common.buffer.impl.BufferManagerImpl;
 import org.teiid.core.TeiidProcessingException;
@@ -348,6 +352,79 @@ public class TestDQPCore {
         assertEquals(item.resultsBuffer.getManagedRowCount(), 400); //should have the full results
     }
     
+    @Test public void testStreamingWindow() throws Exception {
+    	//the sql should return 400 rows
+        String sql = "SELECT A.IntKey FROM BQT1.SmallA as A, BQT1.SmallA as B, (select intkey from BQT1.SmallA limit 4) as C"; //$NON-NLS-1$
+        
+        RequestMessage reqMsg = exampleRequestMessage(sql);
+        reqMsg.setCursorType(ResultSet.TYPE_FORWARD_ONLY);
+        reqMsg.setStreamingWindow(16);
+        DQPWorkContext.getWorkContext().getSession().setSessionId("1"); //$NON-NLS-1$
+        DQPWorkContext.getWorkContext().getSession().setUserName("1"); //$NON-NLS-1$
+        ((BufferManagerImpl)core.getBufferManager()).setProcessorBatchSize(1);
+        Future<ResultsMessage> message = core.executeRequest(reqMsg.getExecutionId(), reqMsg);
+        ResultsMessage rm = message.get(500000, TimeUnit.MILLISECONDS);
+        assertNull(rm.getException());
+
+        int rowsPerBatch = 8;
+		assertEquals(rowsPerBatch, rm.getResultsList().size());
+        RequestWorkItem item = core.getRequestWorkItem(DQPWorkContext.getWorkContext().getRequestID(reqMsg.getExecutionId()));
+        assertEquals(16, item.getOutputBufferMaxRows());
+
+        message = core.processCursorRequest(reqMsg.getExecutionId(), 9, rowsPerBatch);
+        rm = message.get(500000, TimeUnit.MILLISECONDS);
+        assertNull(rm.getException());
+        assertEquals(rowsPerBatch, rm.getResultsList().size());
+        for (int i = 0; i < 10 && item.getThreadState() != ThreadState.IDLE; i++) {
+        	Thread.sleep(100);
+        }
+        assertEquals(ThreadState.IDLE, item.getThreadState());
+        //only the window should be buffered ahead of the client
+        assertTrue(item.resultsBuffer.getManagedRowCount() <= rowsPerBatch*4);
+        int start = 17;
+        while (true) {
+	        message = core.processCursorRequest(reqMsg.getExecutionId(), start, rowsPerBatch);
+	        rm = message.get(5000, TimeUnit.MILLISECONDS);
+	        assertNull(rm.getException());
+	        start += rm.getResultsList().size();
+	        if (rm.getFinalRow() == rm.getLastRow()) {
+	        	break;
+	        }
+        }
+        assertEquals(401, start);
+    }
+    
+    @Test public void testStreamingWindowLimited() throws Exception {
+        RequestMessage reqMsg = exampleRequestMessage("SELECT A.IntKey FROM BQT1.SmallA as A, BQT1.SmallA as B"); //$NON-NLS-1$
+        reqMsg.setCursorType(ResultSet.TYPE_FORWARD_ONLY);
+        reqMsg.setStreamingWindow(Integer.MAX_VALUE);
+        DQPWorkContext.getWorkContext().getSession().setSessionId("1"); //$NON-NLS-1$
+        DQPWorkContext.getWorkContext().getSession().setUserName("1"); //$NON-NLS-1$
+        Future<ResultsMessage> message = core.executeRequest(reqMsg.getExecutionId(), reqMsg);
+        ResultsMessage rm = message.get(500000, TimeUnit.MILLISECONDS);
+        assertNull(rm.getException());
+        RequestWorkItem item = core.getRequestWorkItem(DQPWorkContext.getWorkContext().getRequestID(reqMsg.getExecutionId()));
+        //the window is limited to the default output buffer size
+        assertEquals(20 * item.resultsBuffer.getBatchSize(), item.getOutputBufferMaxRows());
+    }
+    
+    @Test public void testStreamingWindowConfiguredMax() throws Exception {
+    	config.setMaxStreamingWindow(100000);
+        RequestMessage reqMsg = exampleRequestMessage("SELECT A.IntKey FROM BQT1.SmallA as A, BQT1.SmallA as B"); //$NON-NLS-1$
+        reqMsg.setCursorType(ResultSet.TYPE_FORWARD_ONLY);
+        reqMsg.setStreamingWindow(Integer.MAX_VALUE);
+        DQPWorkContext.getWorkContext().getSession().setSessionId("1"); //$NON-NLS-1$
+        DQPWorkContext.getWorkContext().getSession().setUserName("1"); //$NON-NLS-1$
+        Future<ResultsMessage> message = core.executeRequest(reqMsg.getExecutionId(), reqMsg);
+        ResultsMessage rm = message.get(500000, TimeUnit.MILLISECONDS);
+        assertNull(rm.getException());
+        RequestWorkItem item = core.getRequestWorkItem(DQPWorkContext.getWorkContext().getRequestID(reqMsg.getExecutionId()));
+        //the window may exceed the default up to the configured maximum
+        assertEquals(100000, item.getOutputBufferMaxRows());
+        reqMsg.setStreamingWindow(50000);
+        assertEquals(50000, item.getOutputBufferMaxRows());
+    }
+    
     @Test public void testBufferReuse() throws Exception {
     	//the sql should return 100 rows
         String sql = "SELECT A.IntKey FROM BQT1.SmallA as A, BQT1.SmallA as B ORDER BY A.IntKey"; //$NON-NLS-1$
@@ -717,6 +794,86 @@ public class TestDQPCore {
         assertEquals("[QueryValidatorException]Group does not exist: BQT3.SmallA", results.getException().toString()); //$NON-NLS-1$
 	}
 
+    @Test public void testUserBufferAccountRemoved() throws Exception {
+    	config.setMaxUserBufferSizeInKB(1024);
+    	RequestMessage reqMsg = exampleRequestMessage("SELECT IntKey FROM BQT1.SmallA"); //$NON-NLS-1$
+    	ResultsMessage rm = execute("A", 1, reqMsg);
+    	assertNull(rm.getException());
+    	assertNotNull(core.getUserBufferAccount("A"));
+    	core.closeRequest(reqMsg.getExecutionId());
+    	//the session may still hold buffers, such as temp tables
+    	assertSame(core.getUserBufferAccount("A"), core.getSessionBufferAccount("1").getParent());
+    	core.terminateSession("1");
+    	assertNull(core.getUserBufferAccount("A"));
+    }
+    
+    @Test public void testSessionBufferStatistics() throws Exception {
+    	RequestMessage reqMsg = exampleRequestMessage("SELECT IntKey FROM BQT1.SmallA ORDER BY StringKey"); //$NON-NLS-1$
+    	assertNull(execute("A", 1, reqMsg).getException());
+    	core.closeRequest(reqMsg.getExecutionId());
+    	SessionMetadata session = new SessionMetadata();
+    	session.setSessionId("1"); //$NON-NLS-1$
+    	core.setSessionBufferStatistics(session);
+    	BufferAccount account = core.getSessionBufferAccount("1"); //$NON-NLS-1$
+    	assertTrue(session.getPeakUsedBytes() > 0);
+    	assertEquals(account.getPeakUsedBytes(), session.getPeakUsedBytes());
+    	assertEquals(account.getBatchBytes(), session.getBatchBytes());
+    	assertEquals(account.getReservedBytes(), session.getReservedBytes());
+    }
+    
+    @Test public void testUserBufferAccountSharedBySessions() throws Exception {
+    	config.setMaxUserBufferSizeInKB(1024);
+    	RequestMessage reqMsg = exampleRequestMessage("SELECT IntKey FROM BQT1.SmallA"); //$NON-NLS-1$
+    	assertNull(execute("A", 1, reqMsg).getException());
+    	core.closeRequest(reqMsg.getExecutionId());
+    	BufferAccount user = core.getUserBufferAccount("A");
+    	assertEquals(1024 << 10, user.getLimit());
+    	
+    	reqMsg = exampleRequestMessage("SELECT IntKey FROM BQT1.SmallA"); //$NON-NLS-1$
+    	assertNull(execute("A", 2, reqMsg).getException());
+    	core.closeRequest(reqMsg.getExecutionId());
+    	//both sessions are limited by the same account
+    	assertSame(user, core.getUserBufferAccount("A"));
+    	assertSame(user, core.getSessionBufferAccount("1").getParent());
+    	assertSame(user, core.getSessionBufferAccount("2").getParent());
+    	
+    	core.terminateSession("1");
+    	assertSame(user, core.getUserBufferAccount("A"));
+    	core.terminateSession("2");
+    	assertNull(core.getUserBufferAccount("A"));
+    }
+    
+    @Test public void testUserBufferLimitFail() throws Exception {
+    	config.setMaxUserBufferSizeInKB(0);
+    	config.setBufferLimitPolicy(LimitPolicy.FAIL);
+    	RequestMessage reqMsg = exampleRequestMessage("SELECT IntKey FROM BQT1.SmallA ORDER BY StringKey"); //$NON-NLS-1$
+    	ResultsMessage rm = execute("A", 1, reqMsg);
+    	assertTrue(rm.getException() instanceof BufferLimitExceededException);
+    	core.closeRequest(reqMsg.getExecutionId());
+    	core.terminateSession("1");
+    	assertNull(core.getUserBufferAccount("A"));
+    }
+    
+    @Test public void testRequestBufferLimitFail() throws Exception {
+    	config.setMaxRequestBufferSizeInKB(0);
+    	config.setBufferLimitPolicy(LimitPolicy.FAIL);
+    	RequestMessage reqMsg = exampleRequestMessage("SELECT IntKey FROM BQT1.SmallA ORDER BY StringKey"); //$NON-NLS-1$
+    	ResultsMessage rm = execute("A", 1, reqMsg);
+    	assertTrue(rm.getException() instanceof BufferLimitExceededException);
+    	//only the request is limited
+    	assertNull(core.getUserBufferAccount("A"));
+    }
+    
+    @Test public void testRequestBufferLimitSpill() throws Exception {
+    	config.setMaxRequestBufferSizeInKB(0);
+    	config.setBufferLimitPolicy(LimitPolicy.SPILL);
+    	RequestMessage reqMsg = exampleRequestMessage("SELECT IntKey FROM BQT1.SmallA ORDER BY StringKey"); //$NON-NLS-1$
+    	ResultsMessage rm = execute("A", 1, reqMsg);
+    	//the request still completes when it exceeds the limit
+    	assertNull(rm.getException());
+    	assertEquals(10, rm.getResultsList().size());
+    }
+
     ///////////////////////////Helper method///////////////////////////////////
     private ResultsMessage helpExecute(String sql, String userName) throws Exception {
     	return helpExecute(sql, userName, 1, false);
@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.eval;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import org.teiid.api.exception.query.ExpressionEvaluationException;
+import org.teiid.language.Like.MatchMode;
+import org.teiid.query.sql.lang.MatchCriteria;
+
+@SuppressWarnings("nls")
+public class TestPatternMatcher {
+	
+	private static final MatchCriteria.PatternTranslator LIKE = new MatchCriteria.PatternTranslator(new char[] {'%', '_'}, new String[] {".*", "."},  Evaluator.REGEX_RESERVED, '\\', Pattern.DOTALL);
+	
+	private void helpTest(String pattern, char escape, MatchMode mode, String value) {
+		Boolean expected = null;
+		try {
+			Pattern p = (mode == MatchMode.LIKE?LIKE:Evaluator.SIMILAR_TO_REGEX).translate(pattern, escape);
+			expected = p.matcher(value).find();
+		} catch (ExpressionEvaluationException e) {
+		}
+		Boolean actual = null;
+		try {
+			actual = Evaluator.getMatcher(pattern, escape, mode).matches(value);
+		} catch (ExpressionEvaluationException e) {
+		}
+		assertEquals(mode + " " + pattern + " " + escape + " " + value, expected, actual);
+	}
+
+	@Test public void testWildcardForms() throws Exception {
+		assertTrue(PatternMatcher.createWildcardMatcher("a%g", MatchCriteria.NULL_ESCAPE_CHAR, new char[] {'%', '_'}, null) instanceof PatternMatcher.WildcardMatcher);
+		assertTrue(PatternMatcher.createWildcardMatcher("%abc%", '\\', new char[] {'%', '_'}, null) instanceof PatternMatcher.WildcardMatcher);
+		assertNull(PatternMatcher.createWildcardMatcher("a_c", '\\', new char[] {'%', '_'}, null));
+		assertNull(PatternMatcher.createWildcardMatcher("%", '\\', new char[] {'%', '_'}, null));
+		assertTrue(Evaluator.getMatcher("abcdefg", '\\', MatchMode.LIKE).matches("abcdefg"));
+		assertFalse(Evaluator.getMatcher("abcdefg", '\\', MatchMode.LIKE).matches("abcdef"));
+		assertTrue(Evaluator.getMatcher("a%g", '\\', MatchMode.LIKE).matches("abcdefg"));
+		assertTrue(Evaluator.getMatcher("%.com", '\\', MatchMode.LIKE).matches("x.com"));
+		assertFalse(Evaluator.getMatcher("%.com", '\\', MatchMode.LIKE).matches("xcom"));
+		assertTrue(Evaluator.getMatcher("%b\\%c%", '\\', MatchMode.LIKE).matches("ab%cd"));
+	}
+	
+	@Test public void testLineTerminators() throws Exception {
+		String[] values = {"ab\n", "ab\r\n", "ab\r", "ab\n\n", "ab ", "a\nb", "ab\u0085", "\n"};
+		String[] patterns = {"ab", "%b", "a%b", "a%", "%a%b", "%\n"};
+		for (String pattern : patterns) {
+			for (String value : values) {
+				helpTest(pattern, '\\', MatchMode.LIKE, value);
+				helpTest(pattern, '\\', MatchMode.SIMILAR, value);
+			}
+		}
+	}
+	
+	@Test public void testRandomPatterns() throws Exception {
+		Random r = new Random(1);
+		char[] patternChars = {'a', 'b', 'a', 'b', '%', '%', '_', '\\', '.', '+', '(', '\n', '\r'};
+		char[] valueChars = {'a', 'b', 'a', 'b', '%', '.', '+', '(', '\n', '\r', ' '};
+		for (int i = 0; i < 20000; i++) {
+			String pattern = randomString(r, patternChars, 6);
+			String value = randomString(r, valueChars, 8);
+			helpTest(pattern, '\\', MatchMode.LIKE, value);
+			helpTest(pattern, MatchCriteria.NULL_ESCAPE_CHAR, MatchMode.LIKE, value);
+			helpTest(pattern, '\\', MatchMode.SIMILAR, value);
+		}
+	}
+
+	private String randomString(Random r, char[] chars, int maxLength) {
+		StringBuilder sb = new StringBuilder();
+		int length = r.nextInt(maxLength + 1);
+		for (int j = 0; j < length; j++) {
+			sb.append(chars[r.nextInt(chars.length)]);
+		}
+		return sb.toString();
+	}
+	
+}
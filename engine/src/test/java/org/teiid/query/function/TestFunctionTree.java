@@ -40,6 +40,7 @@ import org.teiid.metadata.FunctionMethod.PushDown;
 import org.teiid.query.function.metadata.FunctionCategoryConstants;
 import org.teiid.query.function.source.SystemSource;
 import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.unittest.TimestampUtil;
 
 @SuppressWarnings("nls")
 public class TestFunctionTree {
@@ -75,6 +76,14 @@ public class TestFunctionTree {
     	return new String(bytes);
     }
     
+    public static int sum(Integer... vals) {
+    	int result = 0;
+    	for (Integer val : vals) {
+    		result += val;
+    	}
+    	return result;
+    }
+    
     @Test public void testLoadErrors() {
     	FunctionMethod method = new FunctionMethod(
     			"dummy", null, null, PushDown.CAN_PUSHDOWN, null, "noMethod",  //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ 
@@ -174,6 +183,35 @@ public class TestFunctionTree {
     	String hello = "hello";
     	assertEquals(hello, fd.invokeFunction(new Object[] {new BinaryType(hello.getBytes())}, null, null));
     }
+    
+    @Test public void testVarArgsInvocation() throws Exception {
+    	FunctionMethod method = new FunctionMethod(
+    			"dummy", null, null, PushDown.CANNOT_PUSHDOWN, TestFunctionTree.class.getName(), "sum",  //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ 
+	 	    	Arrays.asList(new FunctionParameter("in", DataTypeManager.DefaultDataTypes.INTEGER, null, true)), //$NON-NLS-1$ 
+	 	    	new FunctionParameter("output", DataTypeManager.DefaultDataTypes.INTEGER), //$NON-NLS-1$
+	 	    	true, Determinism.DETERMINISTIC);
+    	FunctionTree sys = RealMetadataFactory.SFM.getSystemFunctions();
+    	FunctionLibrary fl = new FunctionLibrary(sys, new FunctionTree("foo", new UDFSource(Arrays.asList(method)), true));
+    	FunctionDescriptor fd = fl.findFunction("dummy", new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER, DataTypeManager.DefaultDataClasses.INTEGER});
+    	assertEquals(3, fd.invokeFunction(new Object[] {1, 2}, null, null));
+    	assertEquals(6, fd.invokeFunction(new Object[] {1, 2, 3}, null, null));
+    	assertEquals(1, fd.invokeFunction(new Object[] {1}, null, null));
+    	assertEquals(6, fd.clone().invokeFunction(new Object[] {1, 2, 3}, null, null));
+    }
+    
+    @Test public void testFixedArityInvocation() throws Exception {
+    	FunctionLibrary fl = new FunctionLibrary(RealMetadataFactory.SFM.getSystemFunctions());
+    	FunctionDescriptor fd = fl.findFunction("concat", new Class<?>[] {DataTypeManager.DefaultDataClasses.STRING, DataTypeManager.DefaultDataClasses.STRING}); //$NON-NLS-1$
+    	assertEquals("ab", fd.invokeFunction(new Object[] {"a", "b"}, null, null)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    	assertEquals("cd", fd.invokeFunction(new Object[] {"c", "d"}, null, null)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    	assertNull(fd.invokeFunction(new Object[] {"c", null}, null, null)); //$NON-NLS-1$
+    	
+    	fd = fl.findFunction("substring", new Class<?>[] {DataTypeManager.DefaultDataClasses.STRING, DataTypeManager.DefaultDataClasses.INTEGER, DataTypeManager.DefaultDataClasses.INTEGER}); //$NON-NLS-1$
+    	assertEquals("ell", fd.invokeFunction(new Object[] {"hello", 2, 3}, null, null)); //$NON-NLS-1$ //$NON-NLS-2$
+    	
+    	fd = fl.findFunction("dayofmonth", new Class<?>[] {DataTypeManager.DefaultDataClasses.DATE}); //$NON-NLS-1$
+    	assertEquals(15, fd.invokeFunction(new Object[] {TimestampUtil.createDate(112, 5, 15)}, null, null));
+    }
 	
 /*
 
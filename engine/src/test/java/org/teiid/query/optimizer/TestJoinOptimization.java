@@ -45,12 +45,16 @@ import org.teiid.query.optimizer.capabilities.SourceCapabilities.Capability;
 import org.teiid.query.optimizer.relational.rules.JoinUtil;
 import org.teiid.query.parser.QueryParser;
 import org.teiid.query.processor.ProcessorPlan;
+import org.teiid.query.processor.relational.HashJoinStrategy;
+import org.teiid.query.processor.relational.MergeJoinStrategy;
 import org.teiid.query.resolver.QueryResolver;
 import org.teiid.query.resolver.util.ResolverVisitor;
 import org.teiid.query.sql.lang.Criteria;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.GroupSymbol;
 import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 import org.teiid.translator.SourceSystemFunctions;
 
 @SuppressWarnings("nls")
@@ -1062,4 +1066,49 @@ public class TestJoinOptimization {
 
     }
     
+    private static final Class<?>[] JOIN_STRATEGY_TYPES = new Class<?>[] {HashJoinStrategy.class, MergeJoinStrategy.class};
+    
+    private ProcessorPlan helpPlanHashJoin(String sql, QueryMetadataInterface metadata, CapabilitiesFinder capFinder, boolean hashJoin) throws Exception {
+    	CommandContext cc = new CommandContext();
+    	cc.setOptions(new Options().hashJoin(hashJoin));
+    	return TestOptimizer.getPlan(TestOptimizer.helpGetCommand(sql, metadata, null), metadata, capFinder, null, true, cc);
+    }
+    
+    @Test public void testHashJoin() throws Exception {
+    	String sql = "select a.intkey, b.stringkey from bqt1.smalla a, bqt2.smallb b where a.intkey = b.intkey"; //$NON-NLS-1$
+    	ProcessorPlan plan = helpPlanHashJoin(sql, RealMetadataFactory.exampleBQTCached(), TestOptimizer.getGenericFinder(false), true);
+    	TestOptimizer.checkNodeTypes(plan, new int[] {1, 0}, JOIN_STRATEGY_TYPES);
+    	
+    	//not used unless enabled
+    	plan = helpPlanHashJoin(sql, RealMetadataFactory.exampleBQTCached(), TestOptimizer.getGenericFinder(false), false);
+    	TestOptimizer.checkNodeTypes(plan, new int[] {0, 1}, JOIN_STRATEGY_TYPES);
+    }
+    
+    @Test public void testHashJoinLeftOuter() throws Exception {
+    	String sql = "select a.intkey, b.stringkey from bqt1.smalla a left outer join bqt2.smallb b on a.intkey = b.intkey"; //$NON-NLS-1$
+    	ProcessorPlan plan = helpPlanHashJoin(sql, RealMetadataFactory.exampleBQTCached(), TestOptimizer.getGenericFinder(false), true);
+    	TestOptimizer.checkNodeTypes(plan, new int[] {1, 0}, JOIN_STRATEGY_TYPES);
+    }
+    
+    /**
+     * The merge join is preferred if the sorts can be pushed to the sources
+     */
+    @Test public void testHashJoinNotUsedWithSortPushdown() throws Exception {
+    	String sql = "select a.intkey, b.stringkey from bqt1.smalla a, bqt2.smallb b where a.intkey = b.intkey"; //$NON-NLS-1$
+    	ProcessorPlan plan = helpPlanHashJoin(sql, RealMetadataFactory.exampleBQTCached(), TestOptimizer.getGenericFinder(), true);
+    	TestOptimizer.checkNodeTypes(plan, new int[] {0, 1}, JOIN_STRATEGY_TYPES);
+    }
+    
+    /**
+     * The merge join is preferred if both sides are known to fit in a batch
+     */
+    @Test public void testHashJoinNotUsedForSmallSides() throws Exception {
+    	String sql = "select a.intkey, b.stringkey from bqt1.smalla a, bqt2.smallb b where a.intkey = b.intkey"; //$NON-NLS-1$
+    	TransformationMetadata metadata = RealMetadataFactory.exampleBQT();
+    	RealMetadataFactory.setCardinality("bqt1.smalla", 10, metadata); //$NON-NLS-1$
+    	RealMetadataFactory.setCardinality("bqt2.smallb", 10, metadata); //$NON-NLS-1$
+    	ProcessorPlan plan = helpPlanHashJoin(sql, metadata, TestOptimizer.getGenericFinder(false), true);
+    	TestOptimizer.checkNodeTypes(plan, new int[] {0, 1}, JOIN_STRATEGY_TYPES);
+    }
+    
 }
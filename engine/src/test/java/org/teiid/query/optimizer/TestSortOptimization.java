@@ -32,11 +32,16 @@ import org.teiid.query.optimizer.capabilities.BasicSourceCapabilities;
 import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.FakeCapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities.Capability;
+import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.processor.ProcessorPlan;
+import org.teiid.query.processor.relational.GroupingNode;
 import org.teiid.query.processor.relational.LimitNode;
 import org.teiid.query.processor.relational.ProjectNode;
+import org.teiid.query.processor.relational.RelationalNode;
 import org.teiid.query.processor.relational.RelationalPlan;
 import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 
 
 public class TestSortOptimization {
@@ -322,4 +327,72 @@ public class TestSortOptimization {
         checkNodeTypes(plan, new int[] {0}, new Class[] {DupRemoveSortNode.class});
     }
 
+    public static GroupingNode getGroupingNode(ProcessorPlan plan) {
+    	return getGroupingNode(((RelationalPlan)plan).getRootNode());
+    }
+    
+    private static GroupingNode getGroupingNode(RelationalNode node) {
+    	if (node instanceof GroupingNode) {
+    		return (GroupingNode)node;
+    	}
+    	for (RelationalNode child : node.getChildren()) {
+    		if (child == null) {
+    			break;
+    		}
+    		GroupingNode result = getGroupingNode(child);
+    		if (result != null) {
+    			return result;
+    		}
+    	}
+    	return null;
+    }
+    
+    private GroupingNode helpPlanHashAggregation(String sql, boolean hashAggregation) throws Exception {
+        FakeCapabilitiesFinder capFinder = new FakeCapabilitiesFinder();
+        capFinder.addCapabilities("pm1", new BasicSourceCapabilities()); //$NON-NLS-1$
+        QueryMetadataInterface metadata = RealMetadataFactory.example1Cached();
+        CommandContext cc = new CommandContext();
+        cc.setOptions(new Options().hashAggregation(hashAggregation));
+        ProcessorPlan plan = TestOptimizer.getPlan(TestOptimizer.helpGetCommand(sql, metadata, null), metadata, capFinder, null, true, cc);
+        GroupingNode node = getGroupingNode(plan);
+        assertNotNull(node);
+        return node;
+    }
+    
+    @Test public void testHashAggregation() throws Exception {
+    	String sql = "select e1, count(e2), max(e3), avg(e4) from pm1.g1 group by e1"; //$NON-NLS-1$
+    	assertTrue(helpPlanHashAggregation(sql, true).isHashGrouping());
+    	
+    	//not used unless enabled
+    	assertFalse(helpPlanHashAggregation(sql, false).isHashGrouping());
+    }
+    
+    /**
+     * The sort is not folded into the grouping if it is on an aggregate value 
+     */
+    @Test public void testHashAggregationWithUnrelatedOrderBy() throws Exception {
+    	assertTrue(helpPlanHashAggregation("select e1, count(e2) as c from pm1.g1 group by e1 order by c", true).isHashGrouping()); //$NON-NLS-1$
+    }
+    
+    /**
+     * The ordering is produced by the grouping sort 
+     */
+    @Test public void testHashAggregationNotUsedWithOrderBy() throws Exception {
+    	assertFalse(helpPlanHashAggregation("select e1, count(e2) from pm1.g1 group by e1 order by e1", true).isHashGrouping()); //$NON-NLS-1$
+    }
+    
+    @Test public void testHashAggregationNotUsedWithDistinctAggregate() throws Exception {
+    	assertFalse(helpPlanHashAggregation("select e1, count(distinct e2) from pm1.g1 group by e1", true).isHashGrouping()); //$NON-NLS-1$
+    }
+    
+    @Test public void testHashAggregationNotUsedWithOrderedAggregate() throws Exception {
+    	assertFalse(helpPlanHashAggregation("select e1, array_agg(e2 order by e3) from pm1.g1 group by e1", true).isHashGrouping()); //$NON-NLS-1$
+    }
+    
+    @Test public void testHashAggregationNotUsedWithUnboundedAggregates() throws Exception {
+    	assertFalse(helpPlanHashAggregation("select e1, array_agg(e2) from pm1.g1 group by e1", true).isHashGrouping()); //$NON-NLS-1$
+    	assertFalse(helpPlanHashAggregation("select e1, textagg(for e2) from pm1.g1 group by e1", true).isHashGrouping()); //$NON-NLS-1$
+    	assertFalse(helpPlanHashAggregation("select e1, xmlagg(xmlelement(name x, e2)) from pm1.g1 group by e1", true).isHashGrouping()); //$NON-NLS-1$
+    }
+
 }
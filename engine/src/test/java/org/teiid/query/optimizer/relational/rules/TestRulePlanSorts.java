@@ -0,0 +1,76 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.query.optimizer.relational.rules;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.teiid.query.optimizer.relational.plantree.NodeConstants;
+import org.teiid.query.optimizer.relational.plantree.NodeFactory;
+import org.teiid.query.optimizer.relational.plantree.PlanNode;
+import org.teiid.query.optimizer.relational.plantree.NodeConstants.Info;
+import org.teiid.query.sql.lang.OrderBy;
+import org.teiid.query.sql.symbol.AggregateSymbol;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.util.SymbolMap;
+
+@SuppressWarnings("nls")
+public class TestRulePlanSorts {
+	
+	private static SymbolMap getGroupingMap(Expression agg) {
+		SymbolMap map = new SymbolMap();
+		map.addMapping(new ElementSymbol("gcol0"), new ElementSymbol("e1"));
+		map.addMapping(new ElementSymbol("agg0"), agg);
+		return map;
+	}
+	
+	@Test public void testCanHashGroup() {
+		PlanNode node = NodeFactory.getNewNode(NodeConstants.Types.GROUP);
+		assertTrue(RulePlanSorts.canHashGroup(node, getGroupingMap(new AggregateSymbol("SUM", false, new ElementSymbol("e2")))));
+	}
+	
+	/**
+	 * A parent order by or merge join sort folded into the grouping requires the sorted output
+	 */
+	@Test public void testCanHashGroupWithSortOrder() {
+		PlanNode node = NodeFactory.getNewNode(NodeConstants.Types.GROUP);
+		node.setProperty(Info.SORT_ORDER, new OrderBy(Arrays.asList(new ElementSymbol("e1"))));
+		assertFalse(RulePlanSorts.canHashGroup(node, getGroupingMap(new AggregateSymbol("SUM", false, new ElementSymbol("e2")))));
+	}
+	
+	@Test public void testCanHashGroupWithDupRemoval() {
+		PlanNode node = NodeFactory.getNewNode(NodeConstants.Types.GROUP);
+		node.setProperty(Info.IS_DUP_REMOVAL, true);
+		assertFalse(RulePlanSorts.canHashGroup(node, getGroupingMap(new AggregateSymbol("SUM", false, new ElementSymbol("e2")))));
+	}
+	
+	@Test public void testCanHashGroupWithDistinctAggregate() {
+		PlanNode node = NodeFactory.getNewNode(NodeConstants.Types.GROUP);
+		assertFalse(RulePlanSorts.canHashGroup(node, getGroupingMap(new AggregateSymbol("SUM", true, new ElementSymbol("e2")))));
+	}
+
+}
@@ -1002,6 +1002,15 @@ public class TestOptionsAndHints {
         TestParser.helpTest(sql, "/*+ cache(pref_mem ttl:2000) */ SELECT * FROM t1", query);         //$NON-NLS-1$
     }
     
+    @Test public void testParallelHint() {
+        QueryParser parser = QueryParser.getQueryParser();
+        assertEquals(Integer.valueOf(4), parser.parseParallelHint("/*+ parallel(4) */ SELECT * FROM t1")); //$NON-NLS-1$
+        assertEquals(Integer.valueOf(2), parser.parseParallelHint("/*+ cache(pref_mem) PARALLEL( 2 ) */ SELECT * FROM t1")); //$NON-NLS-1$
+        assertNotNull(parser.parseCacheHint("/*+ cache(pref_mem) parallel(2) */ SELECT * FROM t1")); //$NON-NLS-1$
+        assertNull(parser.parseParallelHint("/*+ cache */ SELECT * FROM t1")); //$NON-NLS-1$
+        assertNull(parser.parseParallelHint("SELECT * FROM t1 /*+ parallel(4) */")); //$NON-NLS-1$
+    }
+    
     @Test public void testCacheHintUnion() {
         String sql = "/*+ cache( pref_mem) */ SELECT * FROM t1 union select * from t2"; //$NON-NLS-1$
         
@@ -46,6 +46,7 @@ import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.TransformationMetadata;
 import org.teiid.query.optimizer.TestAggregatePushdown;
 import org.teiid.query.optimizer.TestOptimizer;
+import org.teiid.query.optimizer.TestSortOptimization;
 import org.teiid.query.optimizer.capabilities.BasicSourceCapabilities;
 import org.teiid.query.optimizer.capabilities.FakeCapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities.Capability;
@@ -53,6 +54,7 @@ import org.teiid.query.resolver.TestResolver;
 import org.teiid.query.sql.lang.Command;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 import org.teiid.query.validator.TestValidator;
 import org.teiid.translator.SourceSystemFunctions;
 
@@ -719,6 +721,27 @@ public class TestAggregateProcessing {
     	
     	helpProcess(plan, dataManager, expected);
     }
-
+    
+    @Test public void testHashAggregation() throws Exception {
+    	String sql = "select e1, count(*) as c, sum(e2) from pm1.g1 group by e1 order by c, e1"; //$NON-NLS-1$
+    	FakeCapabilitiesFinder capFinder = new FakeCapabilitiesFinder();
+    	capFinder.addCapabilities("pm1", new BasicSourceCapabilities()); //$NON-NLS-1$
+    	FakeDataManager dataManager = new FakeDataManager();
+    	sampleData1(dataManager);
+    	CommandContext cc = createCommandContext();
+    	cc.setOptions(new Options().hashAggregation(true));
+    	ProcessorPlan plan = helpGetPlan(helpParse(sql), RealMetadataFactory.example1Cached(), capFinder, cc);
+    	//the sort on the count is not produced by the grouping
+    	assertTrue(TestSortOptimization.getGroupingNode(plan).isHashGrouping());
+    	
+    	List[] expected = new List[] { 
+                Arrays.asList(null, 1, Long.valueOf(1)),
+                Arrays.asList("b", 1, Long.valueOf(2)), //$NON-NLS-1$
+                Arrays.asList("c", 1, Long.valueOf(1)), //$NON-NLS-1$
+                Arrays.asList("a", 3, Long.valueOf(3)) //$NON-NLS-1$
+            };    
+    	
+    	helpProcess(plan, cc, dataManager, expected);
+    }
 
 }
@@ -958,6 +958,49 @@ public class TestDependentJoins {
         TestProcessor.helpProcess(plan, dataManager, expected);
     }
 
+    /**
+     * The dependent set is over the max ndv, so the rows are filtered locally.  
+     * The dependent query projection is minimized, so the filter must use the full select positions.
+     */
+    @Test public void testOverMaxNdvFilterWithMinimizedProject() throws Exception {
+    	String sql = "SELECT v.c, v.e2, v.e1 FROM (SELECT DISTINCT 1 AS c, e2, e1 FROM pm1.g1) AS v, pm3.g1 WHERE v.e1=pm3.g1.e1"; //$NON-NLS-1$
+
+        HardcodedDataManager dataManager = new HardcodedDataManager();
+        dataManager.addData("SELECT pm3.g1.e1 FROM pm3.g1 ORDER BY pm3.g1.e1", new List<?>[] {Arrays.asList("a"), Arrays.asList("b"), Arrays.asList("c")});
+        dataManager.addData("SELECT DISTINCT pm1.g1.e2, pm1.g1.e1 FROM pm1.g1", new List<?>[] {Arrays.asList(1, "a"), Arrays.asList(2, "d")});
+
+        TransformationMetadata fakeMetadata = RealMetadataFactory.example4();
+        fakeMetadata.getGroupID("pm1.g1").getAccessPatterns().clear();
+        RealMetadataFactory.setCardinality("pm1.g1", 1000, fakeMetadata);
+    	fakeMetadata.getElementID("pm1.g1.e1").setDistinctValues(40);
+        RealMetadataFactory.setCardinality("pm3.g1", 1, fakeMetadata);
+    	fakeMetadata.getElementID("pm3.g1.e1").setDistinctValues(1);
+        FakeCapabilitiesFinder capFinder = new FakeCapabilitiesFinder();
+        BasicSourceCapabilities depcaps = new BasicSourceCapabilities();
+        depcaps.setCapabilitySupport(Capability.CRITERIA_IN, true);
+        depcaps.setCapabilitySupport(Capability.QUERY_ORDERBY, true);
+        depcaps.setCapabilitySupport(Capability.QUERY_SELECT_EXPRESSION, true);
+        depcaps.setCapabilitySupport(Capability.QUERY_SELECT_DISTINCT, true);
+        depcaps.setSourceProperty(Capability.QUERY_ORDERBY_DEFAULT_NULL_ORDER, NullOrder.HIGH);
+
+        BasicSourceCapabilities caps = new BasicSourceCapabilities();
+        caps.setCapabilitySupport(Capability.QUERY_ORDERBY, true);
+        caps.setSourceProperty(Capability.QUERY_ORDERBY_DEFAULT_NULL_ORDER, NullOrder.HIGH);
+
+        capFinder.addCapabilities("pm3", caps); //$NON-NLS-1$
+        capFinder.addCapabilities("pm1", depcaps); //$NON-NLS-1$
+
+        List<?>[] expected = new List<?>[] {
+            Arrays.asList(1, 1, "a")}; //$NON-NLS-1$
+
+        ProcessorPlan plan = TestOptimizer.helpPlan(sql, fakeMetadata, new String[] {
+        		"SELECT DISTINCT 1, pm1.g1.e2, pm1.g1.e1 FROM pm1.g1 WHERE pm1.g1.e1 IN (<dependent values>)", 
+        		"SELECT pm3.g1.e1 FROM pm3.g1 ORDER BY pm3.g1.e1"
+        }, capFinder, ComparisonMode.EXACT_COMMAND_STRING);
+
+        TestProcessor.helpProcess(plan, dataManager, expected);
+    }
+
 	private FakeDataManager helpTestBackoff(boolean setNdv) throws Exception,
 			QueryMetadataException, TeiidComponentException,
 			TeiidProcessingException {
@@ -27,24 +27,32 @@ import static org.junit.Assert.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.teiid.cache.DefaultCacheFactory;
+import org.teiid.common.buffer.BufferAccount;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.BufferManagerFactory;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.util.FileUtils;
+import org.teiid.core.util.UnitTestUtil;
 import org.teiid.dqp.internal.process.CachedResults;
 import org.teiid.dqp.internal.process.QueryProcessorFactoryImpl;
 import org.teiid.dqp.internal.process.SessionAwareCache;
+import org.teiid.metadata.Table;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.TempMetadataAdapter;
 import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
 import org.teiid.query.optimizer.relational.RelationalPlanner;
 import org.teiid.query.tempdata.GlobalTableStoreImpl;
+import org.teiid.query.tempdata.GlobalTableStoreImpl.MatState;
 import org.teiid.query.tempdata.TempTableDataManager;
 import org.teiid.query.tempdata.TempTableStore;
 import org.teiid.query.tempdata.GlobalTableStoreImpl.MatTableInfo;
@@ -61,11 +69,15 @@ public class TestMaterialization {
 	private GlobalTableStoreImpl globalStore;
 	private ProcessorPlan previousPlan;
 	private HardcodedDataManager hdm;
+	private QueryMetadataInterface actualMetadata;
+	private File snapshotDir;
+	private List<Runnable> snapshotWrites;
+	private Executor snapshotExecutor;
 	
 	@Before public void setUp() {
 		tempStore = new TempTableStore("1", TransactionMode.ISOLATE_WRITES); //$NON-NLS-1$
 	    BufferManager bm = BufferManagerFactory.getStandaloneBufferManager();
-	    QueryMetadataInterface actualMetadata = RealMetadataFactory.exampleMaterializedView();
+	    actualMetadata = RealMetadataFactory.exampleMaterializedView();
 	    globalStore = new GlobalTableStoreImpl(bm, actualMetadata);
 		metadata = new TempMetadataAdapter(actualMetadata, tempStore.getMetadataStore());
 		hdm = new HardcodedDataManager();
@@ -96,6 +108,30 @@ public class TestMaterialization {
 		assertEquals(1, hdm.getCommandHistory().size());
 	}
 	
+	@Test public void testSharedTableNotCharged() throws Exception {
+		List<?>[] rows = new List<?>[1000];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = Arrays.asList(String.valueOf(i));
+		}
+		hdm.addData("SELECT MatSrc.MatSrc.x FROM MatSrc.MatSrc", rows);
+		BufferManager bm = BufferManagerFactory.getStandaloneBufferManager();
+		BufferAccount previous = bm.getBufferAccount();
+		BufferAccount userA = new BufferAccount();
+		BufferAccount userB = new BufferAccount();
+		try {
+			bm.setBufferAccount(userA);
+			execute("SELECT * from vgroup2 where x = '1'", Arrays.asList("1"));
+			bm.setBufferAccount(userB);
+			execute("SELECT * from vgroup2 where x = '2'", Arrays.asList("2"));
+		} finally {
+			bm.setBufferAccount(previous);
+		}
+		assertEquals(1, hdm.getCommandHistory().size());
+		//the loaded table is shared, so neither the loading nor the reading user is charged for it
+		assertEquals(0, userA.getUsedBytes());
+		assertEquals(0, userB.getUsedBytes());
+	}
+	
 	@Test public void testReadWrite() throws Exception {
 		execute("SELECT * from vgroup3 where x = 'one'", Arrays.asList("one", "zne"));
 		ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -115,6 +151,109 @@ public class TestMaterialization {
 		this.globalStore.setState(codeTableName, new ByteArrayInputStream(baos.toByteArray()));
 	}
 	
+	/**
+	 * Write snapshots to an empty scratch directory.  The writes are captured
+	 * rather than run so that the test controls when they happen.
+	 */
+	private void useSnapshots() {
+		snapshotDir = new File(UnitTestUtil.getTestScratchPath(), "snapshot");
+		FileUtils.removeDirectoryAndChildren(snapshotDir);
+		snapshotWrites = new ArrayList<Runnable>();
+		snapshotExecutor = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				snapshotWrites.add(command);
+			}
+		};
+		globalStore.setSnapshotExecutor(snapshotExecutor);
+		globalStore.setSnapshotDirectory(snapshotDir);
+	}
+	
+	/**
+	 * Simulate a restart with a new global store using the same snapshots
+	 */
+	private void restart() {
+		globalStore = new GlobalTableStoreImpl(BufferManagerFactory.getStandaloneBufferManager(), actualMetadata);
+		globalStore.setSnapshotExecutor(snapshotExecutor);
+		globalStore.setSnapshotDirectory(snapshotDir);
+	}
+	
+	@Test public void testSnapshot() throws Exception {
+		useSnapshots();
+		execute("SELECT * from vgroup3 where x = 'one'", Arrays.asList("one", "zne"));
+		assertEquals(1, hdm.getCommandHistory().size());
+		String matTableName = RelationalPlanner.MAT_PREFIX + "MATVIEW.VGROUP3";
+		long time = globalStore.getMatTableInfo(matTableName).getUpdateTime();
+		
+		//the snapshot is not written by the loading thread
+		assertEquals(1, snapshotWrites.size());
+		assertFalse(snapshotDir.exists());
+		snapshotWrites.remove(0).run();
+		//only the snapshot remains after the temporary file is renamed
+		assertEquals(1, snapshotDir.list().length);
+		
+		restart();
+		execute("SELECT * from vgroup3 where x is null", Arrays.asList(null, null));
+		assertEquals(1, hdm.getCommandHistory().size());
+		assertEquals(time, globalStore.getMatTableInfo(matTableName).getUpdateTime());
+		
+		//without a snapshot the table is loaded
+		FileUtils.removeDirectoryAndChildren(snapshotDir);
+		restart();
+		execute("SELECT * from vgroup3 where x = 'one'", Arrays.asList("one", "zne"));
+		assertEquals(2, hdm.getCommandHistory().size());
+	}
+	
+	@Test public void testSnapshotNotWrittenWhileLoading() throws Exception {
+		useSnapshots();
+		execute("SELECT * from vgroup3 where x = 'one'", Arrays.asList("one", "zne"));
+		String matTableName = RelationalPlanner.MAT_PREFIX + "MATVIEW.VGROUP3";
+		
+		//a refresh starts before the write runs
+		assertTrue(globalStore.needsLoading(matTableName, globalStore.getAddress(), true, true, false));
+		assertTrue(globalStore.needsLoading(matTableName, globalStore.getAddress(), false, true, false));
+		assertEquals(MatState.LOADING, globalStore.getMatTableInfo(matTableName).getState());
+		snapshotWrites.remove(0).run();
+		assertFalse(snapshotDir.exists());
+		
+		//so the table is loaded after a restart
+		restart();
+		execute("SELECT * from vgroup3 where x = 'one'", Arrays.asList("one", "zne"));
+		assertEquals(2, hdm.getCommandHistory().size());
+	}
+	
+	@Test public void testSnapshotAfterRowUpdate() throws Exception {
+		useSnapshots();
+		execute("SELECT * from vgroup3 where x = 'one'", Arrays.asList("one", "zne"));
+		String matTableName = RelationalPlanner.MAT_PREFIX + "MATVIEW.VGROUP3";
+		snapshotWrites.remove(0).run();
+		
+		globalStore.updateMatViewRow(matTableName, Arrays.asList("one"), true);
+		assertEquals(1, snapshotWrites.size());
+		snapshotWrites.remove(0).run();
+		
+		//the restored table does not have the removed row
+		restart();
+		execute("SELECT * from vgroup3 where x = 'one'");
+		assertEquals(1, hdm.getCommandHistory().size());
+		assertEquals(MatState.LOADED, globalStore.getMatTableInfo(matTableName).getState());
+	}
+	
+	@Test public void testSnapshotNotRestoredAfterViewChange() throws Exception {
+		useSnapshots();
+		execute("SELECT * from vgroup3 where x = 'one'", Arrays.asList("one", "zne"));
+		snapshotWrites.remove(0).run();
+		
+		//the columns are the same, but the definition is not
+		actualMetadata = RealMetadataFactory.exampleMaterializedView();
+		Table vgroup3 = (Table)actualMetadata.getGroupID("MatView.VGroup3");
+		vgroup3.setSelectTransformation("SELECT x, 'y' || substring(x, 2) as y FROM matsrc");
+		metadata = new TempMetadataAdapter(actualMetadata, tempStore.getMetadataStore());
+		restart();
+		execute("SELECT * from vgroup3 where x = 'one'", Arrays.asList("one", "yne"));
+		assertEquals(2, hdm.getCommandHistory().size());
+	}
+	
     @Test(expected=TeiidProcessingException.class) public void testCodeTableResponseException() throws Exception {
     	//duplicate key
     	execute("select lookup('mattable.info', 'e2', 'e1', 'a')");
@@ -32,6 +32,8 @@ import java.sql.Clob;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 import org.teiid.cache.DefaultCacheFactory;
@@ -77,6 +79,7 @@ import org.teiid.query.optimizer.capabilities.FakeCapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities.Capability;
 import org.teiid.query.optimizer.relational.rules.RuleChooseDependent;
 import org.teiid.query.parser.QueryParser;
+import org.teiid.query.processor.relational.ExchangeNode;
 import org.teiid.query.processor.relational.JoinNode;
 import org.teiid.query.processor.relational.RelationalNode;
 import org.teiid.query.processor.relational.RelationalPlan;
@@ -7762,5 +7765,41 @@ public class TestProcessor {
         helpProcess(plan, fdm, new List[] {Arrays.asList(11)});
     }
     
+    @Test public void testUnionAllExchange() throws Exception {
+        String sql = "select e1, e2 + 1 from pm1.g1 where e2 >= 1 union all select e1, e2 * 2 from pm1.g2 union all select e1, e2 from pm1.g3 order by 1, 2"; //$NON-NLS-1$
+
+        CommandContext cc = createCommandContext();
+        cc.setExchangeParallelism(4);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        cc.setExecutor(executor);
+        try {
+	        ProcessorPlan plan = helpGetPlan(helpParse(sql), RealMetadataFactory.example1Cached(), new DefaultCapabilitiesFinder(new BasicSourceCapabilities()), cc);
+	        RelationalNode union = ((RelationalPlan)plan).getRootNode().getChildren()[0];
+	        assertTrue(union.toString(), union instanceof ExchangeNode);
+	        FakeDataManager fdm = new FakeDataManager();
+	        sampleData1(fdm);
+	        helpProcess(plan, cc, fdm, new List[] {
+	        		Arrays.asList(null, 1),
+	        		Arrays.asList(null, 2),
+	        		Arrays.asList(null, 2),
+	        		Arrays.asList("a", 0),
+	        		Arrays.asList("a", 0),
+	        		Arrays.asList("a", 0),
+	        		Arrays.asList("a", 0),
+	        		Arrays.asList("a", 3),
+	        		Arrays.asList("a", 4),
+	        		Arrays.asList("a", 6),
+	        		Arrays.asList("b", 2),
+	        		Arrays.asList("b", 3),
+	        		Arrays.asList("b", 4),
+	        		Arrays.asList("c", 1),
+	        		Arrays.asList("c", 2),
+	        		Arrays.asList("c", 2)
+	        });
+        } finally {
+        	executor.shutdownNow();
+        }
+    }
+    
     private static final boolean DEBUG = false;
 }
@@ -41,6 +41,7 @@ import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.eval.CompiledExpression;
 import org.teiid.query.eval.Evaluator;
 import org.teiid.query.function.FunctionDescriptor;
 import org.teiid.query.parser.QueryParser;
@@ -49,12 +50,14 @@ import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.resolver.TestFunctionResolving;
 import org.teiid.query.sql.lang.CollectionValueIterator;
 import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.Criteria;
 import org.teiid.query.sql.lang.IsNullCriteria;
 import org.teiid.query.sql.lang.Query;
 import org.teiid.query.sql.lang.QueryCommand;
 import org.teiid.query.sql.lang.SubqueryContainer;
 import org.teiid.query.sql.symbol.*;
 import org.teiid.query.sql.util.ValueIterator;
+import org.teiid.query.sql.visitor.ElementCollectorVisitor;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
 
@@ -484,4 +487,62 @@ public class TestExpressionEvaluator {
     	assertNull(new Evaluator(null, null, null).evaluateTVL(new CompareCriteria(new Array(DataTypeManager.DefaultDataClasses.INTEGER, Arrays.asList((Expression)new Constant(1))), CompareCriteria.EQ, new Array(DataTypeManager.DefaultDataClasses.INTEGER, Arrays.asList((Expression)new Constant(null)))), null));
     }
     
+    private Object helpTestCompiled(String sql, Object... values) throws Exception {
+    	Expression ex = TestFunctionResolving.getExpression(sql);
+    	Map<Expression, Integer> elements = new HashMap<Expression, Integer>();
+    	List<String> names = Arrays.asList("e1", "e2", "e3", "e4");
+    	for (ElementSymbol es : ElementCollectorVisitor.getElements(ex, true)) {
+    		elements.put(es, names.indexOf(es.getShortName()));
+    	}
+    	List<Object> tuple = Arrays.asList(values);
+    	Evaluator eval = new Evaluator(elements, null, new CommandContext());
+    	CompiledExpression compiled = CompiledExpression.compile(ex, elements);
+    	Object expected = null;
+    	try {
+    		expected = eval.evaluate(ex, tuple);
+    	} catch (ExpressionEvaluationException e) {
+    		try {
+    			compiled.evaluate(eval, tuple);
+    			fail();
+    		} catch (ExpressionEvaluationException e1) {
+    			assertEquals(e.getMessage(), e1.getMessage());
+    		}
+    		return e;
+    	}
+    	assertEquals(expected, compiled.evaluate(eval, tuple));
+    	if (ex instanceof Criteria) {
+    		assertEquals(eval.evaluate((Criteria)ex, tuple), compiled.evaluateCriteria(eval, tuple));
+    	}
+    	return expected;
+    }
+    
+    @Test public void testCompiledArithmetic() throws Exception {
+    	assertEquals(5, helpTestCompiled("pm1.g1.e2 + 2", null, 3, null, null));
+    	assertEquals(-6, helpTestCompiled("pm1.g1.e2 * -2", null, 3, null, null));
+    	assertEquals(Long.valueOf(1), helpTestCompiled("cast(pm1.g1.e2 as long) - 2", null, 3, null, null));
+    	assertNull(helpTestCompiled("pm1.g1.e2 - 2", null, null, null, null));
+    	assertEquals(1.5, helpTestCompiled("pm1.g1.e4 / 2", null, null, null, 3.0));
+    	assertEquals("ab", helpTestCompiled("concat(pm1.g1.e1, 'b')", "a", null, null, null));
+    }
+    
+    @Test public void testCompiledCriteria() throws Exception {
+    	assertEquals(Boolean.TRUE, helpTestCompiled("pm1.g1.e2 > 2 and pm1.g1.e1 = 'a'", "a", 3, null, null));
+    	assertEquals(Boolean.FALSE, helpTestCompiled("pm1.g1.e2 > 2 and pm1.g1.e1 = 'a'", null, 3, null, null));
+    	assertEquals(Boolean.TRUE, helpTestCompiled("pm1.g1.e2 > 2 or pm1.g1.e1 = 'a'", null, 3, null, null));
+    	assertEquals(Boolean.TRUE, helpTestCompiled("not(pm1.g1.e3) and pm1.g1.e1 is null", null, null, false, null));
+    	assertEquals(Boolean.FALSE, helpTestCompiled("not(pm1.g1.e2 = 1)", null, null, null, null));
+    	assertEquals(Boolean.TRUE, helpTestCompiled("pm1.g1.e1 like 'a%' or pm1.g1.e2 in (1, 2)", null, 2, null, null));
+    }
+    
+    @Test public void testCompiledCase() throws Exception {
+    	assertEquals("x", helpTestCompiled("case pm1.g1.e2 when 1 then 'x' else 'y' end", null, 1, null, null));
+    	assertEquals("y", helpTestCompiled("case when pm1.g1.e2 > 1 then 'x' else 'y' end", null, null, null, null));
+    	assertNull(helpTestCompiled("case when pm1.g1.e2 > 1 then 'x' end", null, 1, null, null));
+    }
+    
+    @Test public void testCompiledException() throws Exception {
+    	assertTrue(helpTestCompiled("pm1.g1.e2 / 0 = 1", null, 1, null, null) instanceof ExpressionEvaluationException);
+    	assertTrue(helpTestCompiled("pm1.g1.e2 / 0", null, 1, null, null) instanceof ExpressionEvaluationException);
+    }
+    
 }
@@ -28,8 +28,15 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.rewriter.QueryRewriter;
 import org.teiid.query.sql.lang.CompareCriteria;
 import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.DependentSetCriteria;
 import org.teiid.query.sql.lang.SetCriteria;
 import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
@@ -60,6 +67,36 @@ public class TestDependentCriteriaProcessor {
 		assertTrue(dcp.hasNextCommand());
 	}
 	
+	@Test public void testOverMaxFilter() throws Exception {
+		DependentAccessNode dan = new DependentAccessNode(0);
+		CommandContext cc = new CommandContext();
+		dan.setContext(cc);
+		BufferManager bm = BufferManagerFactory.getStandaloneBufferManager();
+		ElementSymbol x = new ElementSymbol("x"); //$NON-NLS-1$
+		x.setType(DataTypeManager.DefaultDataClasses.STRING);
+		TupleBuffer tb = bm.createTupleBuffer(Arrays.asList(x), "test", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+		for (String value : new String[] {"a", "b", "c"}) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			tb.addTuple(Arrays.asList(value));
+		}
+		tb.close();
+		DependentValueSource dvs = new DependentValueSource(tb);
+		dvs.setDistinct(true);
+		cc.getVariableContext().setGlobalValue("test", dvs); //$NON-NLS-1$
+		ElementSymbol e1 = new ElementSymbol("e1"); //$NON-NLS-1$
+		e1.setType(DataTypeManager.DefaultDataClasses.STRING);
+		DependentSetCriteria dsc = new DependentSetCriteria(e1, "test"); //$NON-NLS-1$
+		dsc.setValueExpression(x);
+		dsc.setMaxNdv(1);
+		DependentCriteriaProcessor dcp = new DependentCriteriaProcessor(1, -1, dan, dsc);
+		Criteria result = dcp.prepareCriteria();
+		assertEquals(QueryRewriter.TRUE_CRITERIA, result);
+		BloomFilter filter = dcp.getFilters().get(e1);
+		assertTrue(filter.mightContain("a")); //$NON-NLS-1$
+		assertTrue(filter.mightContain("c")); //$NON-NLS-1$
+		assertFalse(filter.mightContain("d")); //$NON-NLS-1$
+		assertFalse(filter.mightContain(null));
+	}
+	
 	@Test public void testEvaluatedSetCriteria() throws Exception {
 		DependentAccessNode dan = new DependentAccessNode(0);
 		CommandContext cc = new CommandContext();
@@ -27,6 +27,7 @@ import static org.junit.Assert.*;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -420,6 +421,76 @@ public class TestGroupingNode {
         helpProcess(mgr, node, context, expected, null);
     }
 
+    @Test public void testHashGrouping() throws Exception {
+    	helpTestHashGrouping(BufferManagerFactory.getStandaloneBufferManager());
+    }
+    
+    @Test public void testHashGroupingSpill() throws Exception {
+    	//force the groups to be partitioned
+    	BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(1, 2);
+        mgr.setTargetBytesPerRow(100);
+    	helpTestHashGrouping(mgr);
+    }
+
+	private void helpTestHashGrouping(BufferManager mgr) throws Exception {
+		GroupingNode node = new GroupingNode(1);
+        List outputElements = new ArrayList();
+        ElementSymbol col1 = new ElementSymbol("col1"); //$NON-NLS-1$
+        col1.setType(Integer.class);
+        ElementSymbol col2 = new ElementSymbol("col2"); //$NON-NLS-1$
+        col2.setType(Integer.class);
+        outputElements.add(col1);
+        outputElements.add(new AggregateSymbol("COUNT", false, col2)); //$NON-NLS-1$
+        outputElements.add(new AggregateSymbol("SUM", false, col2)); //$NON-NLS-1$
+        node.setElements(outputElements);
+        List groupingElements = new ArrayList();
+        groupingElements.add(col1); 
+        node.setOrderBy(new OrderBy(groupingElements).getOrderByItems());
+        node.setHashGrouping(true);
+        
+        CommandContext context = new CommandContext("pid", "test", null, null,  1);               //$NON-NLS-1$ //$NON-NLS-2$
+        FakeTupleSource dataSource = createTupleSource1();
+        RelationalNode dataNode = new FakeRelationalNode(0, dataSource, mgr.getProcessorBatchSize());
+        dataNode.setElements(dataSource.getSchema());            
+        node.addChild(dataNode);    
+        node.initialize(context, mgr, null);
+        node.open();
+        
+        //the output order is not defined, so compare as sorted strings
+        List<String> actual = new ArrayList<String>();
+        while(true) {
+            try {
+                TupleBatch batch = node.nextBatch();
+                for (List<?> tuple : batch.getTuples()) {
+                	actual.add(tuple.toString());
+                }
+                if(batch.getTerminationFlag()) {
+                    break;
+                }
+            } catch (BlockedException e) {
+                //ignore
+            }
+        }
+        Collections.sort(actual);
+        
+        List[] expected = new List[] {
+            Arrays.asList(null, 1, 3L),
+            Arrays.asList(0, 1, 4L),
+            Arrays.asList(1, 1, 2L),
+            Arrays.asList(2, 4, 5L),
+            Arrays.asList(3, 1, 0L),
+            Arrays.asList(4, 2, 5L),
+            Arrays.asList(5, 1, 3L),
+            Arrays.asList(6, 2, 7L)
+        };
+        List<String> expectedStrings = new ArrayList<String>();
+        for (List<?> tuple : expected) {
+        	expectedStrings.add(tuple.toString());
+        }
+        Collections.sort(expectedStrings);
+        assertEquals(expectedStrings, actual);
+	}
+
 	private GroupingNode getExampleGroupingNode() {
 		GroupingNode node = new GroupingNode(1);
         List outputElements = new ArrayList();
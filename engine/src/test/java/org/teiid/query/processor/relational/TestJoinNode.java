@@ -26,6 +26,7 @@ import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -830,5 +831,179 @@ public class TestJoinNode {
         this.join.setJoinStrategy(joinStrategy);
         helpTestJoinDirect(expected, 4, 1000);
     }
+    
+    private void helpTestHashJoin(List[] expectedResults, int batchSize, int processingBytes) throws TeiidComponentException, TeiidProcessingException {
+        helpCreateJoin();
+        this.joinStrategy = new HashJoinStrategy();
+        this.join.setJoinStrategy(joinStrategy);
+        BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(processingBytes, batchSize);
+        mgr.setTargetBytesPerRow(100);
+        CommandContext context = new CommandContext("pid", "test", null, null, 1);               //$NON-NLS-1$ //$NON-NLS-2$
+        
+        join.addChild(leftNode);
+        join.addChild(rightNode);
+        
+        leftNode.initialize(context, mgr, dataMgr);
+        rightNode.initialize(context, mgr, dataMgr);
+        join.initialize(context, mgr, dataMgr);
+        
+        join.open();
+        
+        //the output order is not defined, so compare as sorted strings
+        List<String> actual = new ArrayList<String>();
+        while(true) {
+            try {
+                TupleBatch batch = join.nextBatch();
+                for (List<?> tuple : batch.getTuples()) {
+                	actual.add(tuple.toString());
+                }
+                if(batch.getTerminationFlag()) {
+                    break;
+                }
+            } catch(BlockedException e) {
+                // ignore and retry
+            }
+        }
+        join.close();
+        List<String> expectedStrings = new ArrayList<String>();
+        for (List<?> tuple : expectedResults) {
+        	expectedStrings.add(tuple.toString());
+        }
+        Collections.sort(actual);
+        Collections.sort(expectedStrings);
+        assertEquals(expectedStrings, actual);
+    }
+    
+    @Test public void testHashJoin() throws Exception {
+    	this.joinType = JoinType.JOIN_INNER;
+        List[] expected = new List[] {
+        	Arrays.asList(1, 1),    
+            Arrays.asList(2, 2),    
+            Arrays.asList(2, 2),    
+            Arrays.asList(4, 4),    
+            Arrays.asList(4, 4),    
+            Arrays.asList(4, 4),    
+            Arrays.asList(4, 4)            
+        };
+        helpTestHashJoin(expected, 100, 100000);
+        helpTestHashJoin(expected, 1, 1);
+    }
+    
+    @Test public void testHashJoinLeftOuter() throws Exception {
+    	this.joinType = JoinType.JOIN_LEFT_OUTER;
+    	this.leftTuples = createTuples2();
+    	this.rightTuples = createTuples1();
+        List[] expected = new List[] {
+        	Arrays.asList(null, null),    
+            Arrays.asList(1, 1),    
+            Arrays.asList(2, 2),    
+            Arrays.asList(2, 2),    
+            Arrays.asList(4, 4),    
+            Arrays.asList(4, 4),            
+            Arrays.asList(4, 4),    
+            Arrays.asList(4, 4),    
+            Arrays.asList(6, null),
+            Arrays.asList(7, null),    
+            Arrays.asList(7, null)    
+        };
+        helpTestHashJoin(expected, 100, 100000);
+        helpTestHashJoin(expected, 2, 1);
+    }
+    
+    @Test public void testHashJoinFullOuter() throws Exception {
+        this.joinType = JoinType.JOIN_FULL_OUTER;
+        this.leftTuples = createTuples3();
+        this.rightTuples = createTuples4();
+        List[] expected = new List[] {
+           Arrays.asList(null, null),  
+           Arrays.asList(null, null),  
+           Arrays.asList(null, null), 
+           Arrays.asList(null, null),
+           Arrays.asList(null, null),
+           Arrays.asList(null, null),
+           Arrays.asList(1, 1), 
+           Arrays.asList(2, 2),
+           Arrays.asList(2, 2),
+           Arrays.asList(3, null),
+           Arrays.asList(null, 4),
+           Arrays.asList(null, 4),
+           Arrays.asList(5, 5),
+           Arrays.asList(null, 6),
+           Arrays.asList(null, 7),
+           Arrays.asList(9, 9),
+           Arrays.asList(9, 9),
+           Arrays.asList(9, 9),
+           Arrays.asList(10, 10),    
+           Arrays.asList(10, 10),    
+           Arrays.asList(15, null)
+        };
+        helpTestHashJoin(expected, 100, 100000);
+        helpTestHashJoin(expected, 1, 1);
+    }
+    
+    @Test public void testHashJoinAntiSemi() throws Exception {
+    	this.joinType = JoinType.JOIN_ANTI_SEMI;
+        List[] expected = new List[] {
+            Arrays.asList(3, null),    
+            Arrays.asList(5, null),    
+            Arrays.asList(10, null),            
+            Arrays.asList(11, null),    
+            Arrays.asList(11, null)            
+        };
+        helpTestHashJoin(expected, 100, 100000);
+        helpTestHashJoin(expected, 1, 1);
+    }
+    
+    private void setSkewedTuples() {
+    	this.leftTuples = new List[12];
+    	for (int i = 0; i < 10; i++) {
+    		this.leftTuples[i] = Arrays.asList(1);
+    	}
+    	this.leftTuples[10] = Arrays.asList(2);
+    	this.leftTuples[11] = Arrays.asList(3);
+    	this.rightTuples = new List[6];
+    	for (int i = 0; i < 5; i++) {
+    		this.rightTuples[i] = Arrays.asList(1);
+    	}
+    	this.rightTuples[5] = Arrays.asList(2);
+    }
+    
+    /**
+     * A single key cannot be split by partitioning, so the partition is joined in blocks
+     */
+    @Test public void testHashJoinSkewedKeys() throws Exception {
+    	this.joinType = JoinType.JOIN_LEFT_OUTER;
+    	setSkewedTuples();
+    	List[] expected = new List[52];
+    	for (int i = 0; i < 50; i++) {
+    		expected[i] = Arrays.asList(1, 1);
+    	}
+    	expected[50] = Arrays.asList(2, 2);
+    	expected[51] = Arrays.asList(3, null);
+        helpTestHashJoin(expected, 100, 100000);
+        helpTestHashJoin(expected, 1, 1);
+        
+        this.joinType = JoinType.JOIN_INNER;
+        expected = Arrays.copyOf(expected, 51);
+        helpTestHashJoin(expected, 100, 100000);
+        helpTestHashJoin(expected, 1, 1);
+    }
+    
+    @Test public void testHashJoinSemiSkewedKeys() throws Exception {
+    	this.joinType = JoinType.JOIN_SEMI;
+    	setSkewedTuples();
+    	List[] expected = new List[11];
+    	for (int i = 0; i < 10; i++) {
+    		expected[i] = Arrays.asList(1, 1);
+    	}
+    	expected[10] = Arrays.asList(2, 2);
+        helpTestHashJoin(expected, 100, 100000);
+        helpTestHashJoin(expected, 1, 1);
+        
+        this.joinType = JoinType.JOIN_ANTI_SEMI;
+        expected = new List[] {Arrays.asList(3, null)};
+        helpTestHashJoin(expected, 100, 100000);
+        helpTestHashJoin(expected, 1, 1);
+    }
 
 }
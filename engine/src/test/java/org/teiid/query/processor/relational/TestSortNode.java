@@ -24,19 +24,29 @@ package org.teiid.query.processor.relational;
 
 import static org.junit.Assert.*;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferAccount;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
 import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.ColumnarBatch;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.common.buffer.TupleSource;
+import org.teiid.common.buffer.impl.BufferFrontedFileStoreCache;
 import org.teiid.common.buffer.impl.BufferManagerImpl;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
@@ -44,7 +54,9 @@ import org.teiid.core.types.DataTypeManager;
 import org.teiid.language.SortSpecification.NullOrdering;
 import org.teiid.query.processor.relational.SortUtility.Mode;
 import org.teiid.query.sql.lang.OrderBy;
+import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.util.CommandContext;
 
 @SuppressWarnings("unchecked")
@@ -53,6 +65,10 @@ public class TestSortNode {
     public static final int BATCH_SIZE = 100;
     
     private void helpTestSort(List elements, List[] data, List sortElements, List sortTypes, List[] expected, Mode mode) throws TeiidComponentException, TeiidProcessingException {
+    	helpTestSort(elements, data, sortElements, sortTypes, expected, mode, null);
+    }
+    
+    private void helpTestSort(List elements, List[] data, List sortElements, List sortTypes, List[] expected, Mode mode, Expression limit) throws TeiidComponentException, TeiidProcessingException {
         BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(10000, BATCH_SIZE);
         long reserve = mgr.getReserveBatchBytes();
         CommandContext context = new CommandContext ("pid", "test", null, null, 1);               //$NON-NLS-1$ //$NON-NLS-2$
@@ -65,6 +81,7 @@ public class TestSortNode {
         SortNode sortNode = new SortNode(1);
     	sortNode.setSortElements(new OrderBy(sortElements, sortTypes).getOrderByItems());
         sortNode.setMode(mode);
+        sortNode.setLimitExpr(limit);
         sortNode.setElements(elements);
         sortNode.addChild(dataNode);        
         sortNode.initialize(context, mgr, null);    
@@ -96,6 +113,10 @@ public class TestSortNode {
      * 1 batch all in memory
      */
     private void helpTestBasicSort(List[] expected, Mode mode) throws Exception {
+    	helpTestBasicSort(expected, mode, null);
+    }
+    
+    private void helpTestBasicSort(List[] expected, Mode mode, Expression limit) throws Exception {
         ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
         es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
 
@@ -122,7 +143,7 @@ public class TestSortNode {
         List sortTypes = new ArrayList();
         sortTypes.add(new Boolean(OrderBy.ASC));
         
-        helpTestSort(elements, data, sortElements, sortTypes, expected, mode);
+        helpTestSort(elements, data, sortElements, sortTypes, expected, mode, limit);
     }
     
     private void helpTestAllSorts(int batches) throws Exception {
@@ -286,6 +307,91 @@ public class TestSortNode {
         helpTestBasicSort(expected, Mode.DUP_REMOVE_SORT);
     }   
     
+    @Test public void testTopNSort() throws Exception {
+        List[] expected = new List[] { 
+            Arrays.asList(new Object[] { new Integer(0), "0" }),    //$NON-NLS-1$
+            Arrays.asList(new Object[] { new Integer(0), "3" }),    //$NON-NLS-1$
+            Arrays.asList(new Object[] { new Integer(1), "2" }),    //$NON-NLS-1$
+            Arrays.asList(new Object[] { new Integer(1), "5" }),    //$NON-NLS-1$
+            Arrays.asList(new Object[] { new Integer(2), "1" }),    //$NON-NLS-1$
+        };
+        
+        helpTestBasicSort(expected, Mode.SORT, new Constant(5));
+    }
+    
+    @Test public void testTopNSortRemoveDupSort() throws Exception {
+    	List[] expected = new List[] { 
+                Arrays.asList(new Object[] { new Integer(0), "0" }),    //$NON-NLS-1$
+                Arrays.asList(new Object[] { new Integer(0), "3" }),    //$NON-NLS-1$
+                Arrays.asList(new Object[] { new Integer(1), "2" }),    //$NON-NLS-1$
+                Arrays.asList(new Object[] { new Integer(1), "5" }),    //$NON-NLS-1$
+                Arrays.asList(new Object[] { new Integer(2), "1" }),    //$NON-NLS-1$
+                Arrays.asList(new Object[] { new Integer(2), "4" }),    //$NON-NLS-1$
+                Arrays.asList(new Object[] { new Integer(3), "3" }),    //$NON-NLS-1$
+            };
+
+        helpTestBasicSort(expected, Mode.DUP_REMOVE_SORT, new Constant(7));
+    }
+    
+    @Test public void testTopNSortReservationWhileBlocked() throws Exception {
+    	ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        BufferManagerImpl bm = BufferManagerFactory.getTestBufferManager(10000, BATCH_SIZE);
+        BufferAccount previous = bm.getBufferAccount();
+        BufferAccount account = new BufferAccount();
+        bm.setBufferAccount(account);
+        try {
+	        TupleBuffer tsid = bm.createTupleBuffer(Arrays.asList(es1), "test", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+	        tsid.addTuple(Arrays.asList(2));
+	        tsid.addTuple(Arrays.asList(1));
+	    	SortUtility su = new SortUtility(tsid.createIndexedTupleSource(), Arrays.asList(es1), Arrays.asList(Boolean.TRUE), Mode.SORT, bm, "test", tsid.getSchema()); //$NON-NLS-1$
+	    	su.setLimit(1);
+	    	try {
+	    		su.sort();
+	    		fail();
+	    	} catch (BlockedException e) {
+	    		
+	    	}
+	    	//the retained rows stay accounted for between calls
+	    	long reserved = account.getReservedBytes();
+	    	assertTrue(reserved > 0);
+	    	try {
+	    		su.sort();
+	    		fail();
+	    	} catch (BlockedException e) {
+	    		
+	    	}
+	    	assertEquals(reserved, account.getReservedBytes());
+	    	tsid.addTuple(Arrays.asList(0));
+	    	tsid.close();
+	    	TupleBuffer out = su.sort();
+	    	assertEquals(0, account.getReservedBytes());
+	    	TupleSource ts = out.createIndexedTupleSource();
+	    	assertEquals(Arrays.asList(0), ts.nextTuple());
+	    	assertNull(ts.nextTuple());
+	    	out.remove();
+	    	
+	    	//an incomplete sort releases the reservation when removed
+	    	TupleBuffer blocking = bm.createTupleBuffer(Arrays.asList(es1), "test", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+	    	blocking.addTuple(Arrays.asList(1));
+	    	su = new SortUtility(blocking.createIndexedTupleSource(), Arrays.asList(es1), Arrays.asList(Boolean.TRUE), Mode.SORT, bm, "test", blocking.getSchema()); //$NON-NLS-1$
+	    	su.setLimit(1);
+	    	try {
+	    		su.sort();
+	    		fail();
+	    	} catch (BlockedException e) {
+	    		
+	    	}
+	    	assertTrue(account.getReservedBytes() > 0);
+	    	su.remove();
+	    	assertEquals(0, account.getReservedBytes());
+	    	blocking.remove();
+	    	tsid.remove();
+        } finally {
+        	bm.setBufferAccount(previous);
+        }
+    }
+    
     @Test public void testBiggerSort() throws Exception {
         helpTestAllSorts(100);
     }
@@ -348,5 +454,155 @@ public class TestSortNode {
 		assertNotNull(ts.nextTuple());
 		assertNull(ts.nextTuple());
     }
+    
+    @Test public void testColumnarSort() throws Exception {
+    	ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        ElementSymbol es2 = new ElementSymbol("e2"); //$NON-NLS-1$
+        es2.setType(DataTypeManager.DefaultDataClasses.STRING);
+        BufferManagerImpl bm = BufferManagerFactory.getTestBufferManager(10000, 2);
+        bm.setColumnarBatches(true);
+        TupleBuffer tsid = bm.createTupleBuffer(Arrays.asList(es1, es2), "test", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++) {
+        	Integer value = (i*51) % 101;
+        	tsid.addTuple(Arrays.asList(value, String.valueOf(value)));
+        	expected.add(value);
+        }
+        tsid.close();
+        Collections.sort(expected);
+    	SortUtility su = new SortUtility(tsid.createIndexedTupleSource(), Arrays.asList(es1), Arrays.asList(Boolean.TRUE), Mode.SORT, bm, "test", tsid.getSchema()); //$NON-NLS-1$
+    	TupleBuffer out = su.sort();
+    	assertFalse(out.isColumnar());
+    	TupleSource ts = out.createIndexedTupleSource();
+    	for (Integer value : expected) {
+    		List<?> tuple = ts.nextTuple();
+    		//the output holds copies rather than views of the columnar batches
+    		assertFalse(tuple instanceof ColumnarBatch.Row);
+    		assertEquals(Arrays.asList(value, String.valueOf(value)), tuple);
+    	}
+    	assertNull(ts.nextTuple());
+    }
+    
+    /**
+     * Limit the processing memory, but allow the additional reservations for parallel tasks
+     */
+    private BufferManagerImpl getParallelBufferManager() {
+    	BufferManagerImpl bm = new BufferManagerImpl();
+    	bm.setProcessorBatchSize(2);
+    	bm.setMaxProcessingKB(10);
+    	bm.setMaxReserveKB(10000);
+    	return BufferManagerFactory.initBufferManager(bm);
+    }
+    
+    private static class FailingValue implements Comparable<FailingValue>, Serializable {
+		private static final long serialVersionUID = 1L;
+		private int value;
+    	
+    	public FailingValue(int value) {
+			this.value = value;
+		}
+    	
+    	@Override
+    	public int compareTo(FailingValue o) {
+    		if (value < 0 || o.value < 0) {
+    			throw new IllegalStateException();
+    		}
+    		return value - o.value;
+    	}
+    }
+    
+    @Test public void testParallelSortFailure() throws Exception {
+    	ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.OBJECT);
+        BufferManagerImpl bm = getParallelBufferManager();
+        BufferFrontedFileStoreCache cache = (BufferFrontedFileStoreCache)bm.getCache();
+        int inodes = cache.getInodesInUse();
+        int entries = bm.getMemoryCacheEntries();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+	        TupleBuffer tsid = bm.createTupleBuffer(Arrays.asList(es1), "test", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+	        for (int i = 0; i < 10000; i++) {
+	        	tsid.addTuple(Arrays.asList(new FailingValue(i == 9000?-1:(i*51) % 101)));
+	        }
+	        tsid.close();
+	    	SortUtility su = new SortUtility(tsid.createIndexedTupleSource(), Arrays.asList(es1), Arrays.asList(Boolean.TRUE), Mode.SORT, bm, "test", tsid.getSchema()); //$NON-NLS-1$
+	    	su.setParallelism(executor, 4);
+	    	try {
+	    		su.sort();
+	    		fail();
+	    	} catch (IllegalStateException e) {
+	    		//expected
+	    	}
+	    	su.remove();
+	    	tsid.remove();
+        } finally {
+        	executor.shutdownNow();
+        }
+        //the sublists of the completed tasks are removed
+        assertEquals(inodes, cache.getInodesInUse());
+        assertEquals(entries, bm.getMemoryCacheEntries());
+    }
+    
+    @Test public void testParallelSort() throws Exception {
+    	ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        BufferManagerImpl bm = BufferManagerFactory.getTestBufferManager(10000, 2);
+        long reserve = bm.getReserveBatchBytes();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        BufferAccount previous = bm.getBufferAccount();
+        BufferAccount account = new BufferAccount();
+        bm.setBufferAccount(account);
+        try {
+	        for (Mode mode : new Mode[] {Mode.SORT, Mode.DUP_REMOVE_SORT}) {
+		        TupleBuffer tsid = bm.createTupleBuffer(Arrays.asList(es1), "test", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+		        TreeSet<Integer> distinct = new TreeSet<Integer>();
+		        List<Integer> expected = new ArrayList<Integer>();
+		        for (int i = 0; i < 1000; i++) {
+		        	Integer value = (i*51) % 101;
+		        	tsid.addTuple(Arrays.asList(value));
+		        	expected.add(value);
+		        	distinct.add(value);
+		        }
+		        tsid.close();
+		        if (mode == Mode.SORT) {
+		        	Collections.sort(expected);
+		        } else {
+		        	expected = new ArrayList<Integer>(distinct);
+		        }
+		    	SortUtility su = new SortUtility(tsid.createIndexedTupleSource(), Arrays.asList(es1), Arrays.asList(Boolean.TRUE), mode, bm, "test", tsid.getSchema()); //$NON-NLS-1$
+		    	su.setParallelism(executor, 4);
+		    	TupleBuffer out = su.sort();
+		    	TupleSource ts = out.createIndexedTupleSource();
+		    	for (Integer value : expected) {
+		    		assertEquals(Arrays.asList(value), ts.nextTuple());
+		    	}
+		    	assertNull(ts.nextTuple());
+		    	out.remove();
+		    	tsid.remove();
+	        }
+	        assertTrue(account.getBatchesWritten() > 0);
+	        //the work performed by the pool threads should not be charged to their own accounts
+	        final BufferManager manager = bm;
+	        final CyclicBarrier barrier = new CyclicBarrier(4);
+	        List<Callable<Long>> tasks = new ArrayList<Callable<Long>>();
+	        for (int i = 0; i < 4; i++) {
+	        	tasks.add(new Callable<Long>() {
+	        		@Override
+	        		public Long call() throws Exception {
+	        			barrier.await();
+	        			return manager.getBufferAccount().getBatchesWritten();
+	        		}
+	        	});
+	        }
+	        for (Future<Long> written : executor.invokeAll(tasks)) {
+	        	assertEquals(Long.valueOf(0), written.get());
+	        }
+        } finally {
+        	bm.setBufferAccount(previous);
+        	executor.shutdownNow();
+        }
+        assertEquals(reserve, bm.getReserveBatchBytes());
+    }
 
 }
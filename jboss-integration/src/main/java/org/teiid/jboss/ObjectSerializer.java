@@ -97,6 +97,13 @@ public class ObjectSerializer {
 		return new File(baseDirectory(vdb.getName()+"_"+vdb.getVersion()), vdb.getName()+"_"+vdb.getVersion()+"_"+modelName+ATTACHMENT_SUFFIX); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 	}
 	
+	/**
+	 * The directory for the snapshots of internal materialized views, which is removed with the other attachments on undeploy
+	 */
+	public File buildMaterializationSnapshotDirectory(VDBMetaData vdb) {
+		return new File(baseDirectory(vdb.getName()+"_"+vdb.getVersion()), "matviews"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
 	public boolean isStale(VDBMetaData vdb, long timeAfter) {
 		File cacheFile = buildVDBFile(vdb);
 		return (cacheFile.exists() && timeAfter > cacheFile.lastModified());
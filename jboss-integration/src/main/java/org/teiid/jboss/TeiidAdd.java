@@ -85,6 +85,7 @@ class TeiidAdd extends AbstractAddStepHandler implements DescriptionProvider {
 		Element.USER_REQUEST_SOURCE_CONCURRENCY_ELEMENT, 
 		Element.TIME_SLICE_IN_MILLI_ELEMENT, 
 		Element.MAX_ROWS_FETCH_SIZE_ELEMENT,
+		Element.MAX_STREAMING_WINDOW_ELEMENT,
 		Element.LOB_CHUNK_SIZE_IN_KB_ELEMENT,
 		Element.QUERY_THRESHOLD_IN_SECS_ELEMENT,
 		Element.MAX_SOURCE_ROWS_ELEMENT,
@@ -510,6 +511,9 @@ class TeiidAdd extends AbstractAddStepHandler implements DescriptionProvider {
     	if (Element.MAX_ROWS_FETCH_SIZE_ELEMENT.isDefined(node)) {
     		engine.setMaxRowsFetchSize(Element.MAX_ROWS_FETCH_SIZE_ELEMENT.asInt(node, context));
     	}
+    	if (Element.MAX_STREAMING_WINDOW_ELEMENT.isDefined(node)) {
+    		engine.setMaxStreamingWindow(Element.MAX_STREAMING_WINDOW_ELEMENT.asInt(node, context));
+    	}
     	if (Element.LOB_CHUNK_SIZE_IN_KB_ELEMENT.isDefined(node)) {
     		engine.setLobChunkSizeInKB(Element.LOB_CHUNK_SIZE_IN_KB_ELEMENT.asInt(node, context));
     	}
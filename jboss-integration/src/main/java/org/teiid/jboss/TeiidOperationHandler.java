@@ -229,6 +229,7 @@ class ListSessions extends TeiidOperationHandler{
 		for (TransportService t: this.transports) {
 			Collection<SessionMetadata> sessions = t.getActiveSessions();
 			for (SessionMetadata session:sessions) {
+				engine.setSessionBufferStatistics(session);
 				if (filter) {
 					if (session.getVDBName().equals(vdbName) && session.getVDBVersion() == version) {
 						VDBMetadataMapper.SessionMetadataMapper.INSTANCE.wrap(session, result.add());
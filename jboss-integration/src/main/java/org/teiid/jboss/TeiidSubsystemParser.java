@@ -64,6 +64,7 @@ class TeiidSubsystemParser implements XMLStreamConstants, XMLElementReader<List<
     	writeElement(writer, Element.USER_REQUEST_SOURCE_CONCURRENCY_ELEMENT, node);
     	writeElement(writer, Element.TIME_SLICE_IN_MILLI_ELEMENT, node);
     	writeElement(writer, Element.MAX_ROWS_FETCH_SIZE_ELEMENT, node);
+    	writeElement(writer, Element.MAX_STREAMING_WINDOW_ELEMENT, node);
     	writeElement(writer, Element.LOB_CHUNK_SIZE_IN_KB_ELEMENT, node);
     	writeElement(writer, Element.QUERY_THRESHOLD_IN_SECS_ELEMENT, node);
     	writeElement(writer, Element.MAX_SOURCE_ROWS_ELEMENT, node);
@@ -137,6 +138,7 @@ class TeiidSubsystemParser implements XMLStreamConstants, XMLElementReader<List<
     	writeAttribute(writer, Element.TRANSPORT_MAX_SOCKET_THREADS_ATTRIBUTE, node);
     	writeAttribute(writer, Element.TRANSPORT_IN_BUFFER_SIZE_ATTRIBUTE, node);
     	writeAttribute(writer, Element.TRANSPORT_OUT_BUFFER_SIZE_ATTRIBUTE, node);
+    	writeAttribute(writer, Element.TRANSPORT_COMPRESSION_THRESHOLD_ATTRIBUTE, node);
     	
     	// authentication
     	if (like(node, Element.AUTHENTICATION_ELEMENT)) {
@@ -282,6 +284,7 @@ class TeiidSubsystemParser implements XMLStreamConstants, XMLElementReader<List<
     				case USER_REQUEST_SOURCE_CONCURRENCY_ELEMENT:
     				case TIME_SLICE_IN_MILLI_ELEMENT:
     				case MAX_ROWS_FETCH_SIZE_ELEMENT:
+    				case MAX_STREAMING_WINDOW_ELEMENT:
     				case LOB_CHUNK_SIZE_IN_KB_ELEMENT:
     				case QUERY_THRESHOLD_IN_SECS_ELEMENT:
     				case MAX_SOURCE_ROWS_ELEMENT:
@@ -406,6 +409,9 @@ class TeiidSubsystemParser implements XMLStreamConstants, XMLElementReader<List<
     			case TRANSPORT_OUT_BUFFER_SIZE_ATTRIBUTE:
     				node.get(element.getModelName()).set(Integer.parseInt(attrValue));
     				break;
+    			case TRANSPORT_COMPRESSION_THRESHOLD_ATTRIBUTE:
+    				node.get(element.getModelName()).set(Integer.parseInt(attrValue));
+    				break;
                 default: 
                     throw ParseUtils.unexpectedAttribute(reader, i);    				
     			}
@@ -161,7 +161,11 @@ class VDBService extends AbstractVDBDeployer implements Service<RuntimeVDB> {
 				VDBMetaData vdbInstance = cvdb.getVDB();
 				if (vdbInstance.getStatus().equals(Status.ACTIVE)) {
 					// add object replication to temp/matview tables
-					GlobalTableStore gts = new GlobalTableStoreImpl(getBuffermanager(), vdbInstance.getAttachment(TransformationMetadata.class));
+					GlobalTableStoreImpl gtsImpl = new GlobalTableStoreImpl(getBuffermanager(), vdbInstance.getAttachment(TransformationMetadata.class));
+					if (Boolean.valueOf(vdbInstance.getPropertyValue("MaterializationSnapshots"))) { //$NON-NLS-1$
+						gtsImpl.setSnapshotDirectory(getSerializer().buildMaterializationSnapshotDirectory(vdbInstance));
+					}
+					GlobalTableStore gts = gtsImpl;
 					if (objectReplicatorInjector.getValue() != null) {
 						try {
 							gts = objectReplicatorInjector.getValue().replicate(name + version, GlobalTableStore.class, gts, 300000);
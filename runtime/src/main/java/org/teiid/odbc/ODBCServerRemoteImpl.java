@@ -425,10 +425,26 @@ public class ODBCServerRemoteImpl implements ODBCServerRemote {
 		
 		try {
 			for (int i = 0; i < paramCount; i++) {
-				previous.stmt.setObject(i+1, params[i]);
+				Object param = params[i];
+				if (param instanceof byte[]) {
+					//binary format - decode using the declared or inferred type
+					int paramType = 0;
+					if (previous.paramType != null && i < previous.paramType.length) {
+						paramType = previous.paramType[i];
+					}
+					if (paramType == 0) {
+						paramType = convertType(previous.stmt.getParameterMetaData().getParameterType(i+1));
+					}
+					param = fromBinary(paramType, (byte[])param);
+				}
+				previous.stmt.setObject(i+1, param);
 			}
 		} catch (SQLException e) {
 			errorOccurred(e);
+			return;
+		} catch (IOException e) {
+			errorOccurred(e);
+			return;
 		}
 		
 		this.portalMap.put(bindName, new Portal(bindName, prepareName, previous.sql, previous.stmt, resultColumnFormat));
@@ -488,6 +504,7 @@ public class ODBCServerRemoteImpl implements ODBCServerRemote {
                     	ResultsFuture<Integer> result = new ResultsFuture<Integer>();
 		                if (future.get()) {
 		                	List<PgColInfo> cols = getPgColInfo(stmt.getResultSet().getMetaData());
+		                	setFormats(cols, query.resultColumnFormat);
                             client.sendResults(query.sql, stmt.getResultSet(), cols, result, false);
 		                } else {
 		                	client.sendUpdateCount(query.sql, stmt.getUpdateCount());
@@ -723,9 +740,12 @@ public class ODBCServerRemoteImpl implements ODBCServerRemote {
 		else {
 			try {
 				List<PgColInfo> cols = getPgColInfo(query.stmt.getMetaData());
+				setFormats(cols, query.resultColumnFormat);
 				this.client.sendResultSetDescription(cols);
 			} catch (SQLException e) {
 				errorOccurred(e);
+			} catch (IOException e) {
+				errorOccurred(e);
 			}
 		}
 	}
@@ -21,7 +21,22 @@
  */
 package org.teiid.odbc;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.teiid.runtime.RuntimePlugin;
 
 public class PGUtil {
 
@@ -50,6 +65,15 @@ public class PGUtil {
 	public static final int PG_TYPE_TIMESTAMP_NO_TMZONE = 1114;
 	public static final int PG_TYPE_NUMERIC = 1700;
     //private static final int PG_TYPE_LO = 14939;
+	
+	public static final int PG_FORMAT_TEXT = 0;
+	public static final int PG_FORMAT_BINARY = 1;
+	
+	private static final int NUMERIC_NEG = 0x4000;
+	private static final int NUMERIC_NAN = 0xC000;
+	private static final BigInteger NUMERIC_BASE = BigInteger.valueOf(10000);
+	private static final long PG_EPOCH_MILLIS = 946684800000l; //2000-01-01 UTC
+	private static final long MILLIS_PER_DAY = 86400000l;
     
 	public static class PgColInfo {
 		public String name;
@@ -58,6 +82,248 @@ public class PGUtil {
 		public int type;
 		public int precision;
 		public int mod = -1;
+		public int format = PG_FORMAT_TEXT;
+	}
+	
+	/**
+	 * Set the column formats requested by a Bind message.  Columns with types
+	 * that do not have a binary representation remain in text format.
+	 * @throws IOException if the number of formats is not 0, 1, or the number of columns
+	 */
+	public static void setFormats(List<PgColInfo> cols, int[] resultColumnFormat) throws IOException {
+		if (cols == null || resultColumnFormat == null || resultColumnFormat.length == 0) {
+			return;
+		}
+		checkFormatCount(resultColumnFormat.length, cols.size());
+		for (int i = 0; i < cols.size(); i++) {
+			PgColInfo info = cols.get(i);
+			int format = resultColumnFormat.length == 1?resultColumnFormat[0]:resultColumnFormat[i];
+			if (format == PG_FORMAT_BINARY && isBinarySupported(info.type)) {
+				info.format = PG_FORMAT_BINARY;
+			}
+		}
+	}
+	
+	/**
+	 * A format code count must be 0 (all text), 1 (applies to all values), or the number of values
+	 */
+	public static void checkFormatCount(int formatCount, int valueCount) throws IOException {
+		if (formatCount > 1 && formatCount != valueCount) {
+			throw new IOException(RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40106, formatCount, valueCount));
+		}
+	}
+	
+	public static boolean isBinarySupported(int pgType) {
+		switch (pgType) {
+		case PG_TYPE_BOOL:
+		case PG_TYPE_BYTEA:
+		case PG_TYPE_INT2:
+		case PG_TYPE_INT4:
+		case PG_TYPE_INT8:
+		case PG_TYPE_FLOAT4:
+		case PG_TYPE_FLOAT8:
+		case PG_TYPE_NUMERIC:
+		case PG_TYPE_DATE:
+		case PG_TYPE_TIME:
+		case PG_TYPE_TIMESTAMP_NO_TMZONE:
+			return true;
+		default:
+			return false;
+		}
+	}
+	
+	/**
+	 * Convert a binary format parameter value.  Types without a binary representation 
+	 * are returned as the raw bytes.
+	 */
+	public static Object fromBinary(int pgType, byte[] bytes) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		switch (pgType) {
+		case PG_TYPE_BOOL:
+			checkLength(pgType, bytes, 1);
+			return bytes[0] != 0;
+		case PG_TYPE_INT2:
+			checkLength(pgType, bytes, 2);
+			return buffer.getShort();
+		case PG_TYPE_INT4:
+			checkLength(pgType, bytes, 4);
+			return buffer.getInt();
+		case PG_TYPE_INT8:
+			checkLength(pgType, bytes, 8);
+			return buffer.getLong();
+		case PG_TYPE_FLOAT4:
+			checkLength(pgType, bytes, 4);
+			return buffer.getFloat();
+		case PG_TYPE_FLOAT8:
+			checkLength(pgType, bytes, 8);
+			return buffer.getDouble();
+		case PG_TYPE_NUMERIC:
+			return fromPgNumeric(bytes);
+		case PG_TYPE_DATE:
+			checkLength(pgType, bytes, 4);
+			return fromPgDate(buffer.getInt());
+		case PG_TYPE_TIME:
+			checkLength(pgType, bytes, 8);
+			return fromPgTime(buffer.getDouble());
+		case PG_TYPE_TIMESTAMP_NO_TMZONE:
+			checkLength(pgType, bytes, 8);
+			return fromPgTimestamp(buffer.getDouble());
+		default:
+			return bytes;
+		}
+	}
+	
+	private static void checkLength(int pgType, byte[] bytes, int length) throws IOException {
+		if (bytes.length != length) {
+			throw new IOException(RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40107, bytes.length, pgType));
+		}
+	}
+	
+	/**
+	 * The binary numeric form is the number of base 10000 digits, the weight of the first digit, 
+	 * the sign, the display scale and then the digits - all as int2 values.
+	 */
+	public static byte[] toPgNumeric(BigDecimal value) throws IOException {
+		int dscale = Math.max(0, value.scale());
+		String digits = value.setScale(dscale).unscaledValue().abs().toString();
+		int intDigits = digits.length() - dscale;
+		StringBuilder sb = new StringBuilder();
+		//align on the decimal point
+		for (int i = 0; i < -intDigits; i++) {
+			sb.append('0');
+		}
+		intDigits = Math.max(0, intDigits);
+		int pad = (4 - intDigits%4)%4;
+		for (int i = 0; i < pad; i++) {
+			sb.insert(0, '0');
+		}
+		intDigits += pad;
+		sb.append(digits);
+		while (sb.length()%4 != 0) {
+			sb.append('0');
+		}
+		int start = 0;
+		int end = sb.length()/4;
+		int weight = intDigits/4 - 1;
+		while (start < end && isZeroGroup(sb, start)) {
+			start++;
+			weight--;
+		}
+		while (end > start && isZeroGroup(sb, end - 1)) {
+			end--;
+		}
+		if (start == end) {
+			weight = 0;
+		}
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(8 + (end - start)*2);
+		DataOutputStream out = new DataOutputStream(baos);
+		out.writeShort(end - start);
+		out.writeShort(weight);
+		out.writeShort(value.signum() < 0?NUMERIC_NEG:0);
+		out.writeShort(dscale);
+		for (int i = start; i < end; i++) {
+			out.writeShort(Integer.parseInt(sb.substring(i*4, i*4 + 4)));
+		}
+		out.flush();
+		return baos.toByteArray();
+	}
+
+	private static boolean isZeroGroup(StringBuilder sb, int group) {
+		for (int i = group*4; i < group*4 + 4; i++) {
+			if (sb.charAt(i) != '0') {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @throws IOException if the value is malformed or is NaN, which has no BigDecimal representation
+	 */
+	public static BigDecimal fromPgNumeric(byte[] bytes) throws IOException {
+		if (bytes.length < 8) {
+			throw new IOException(RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40107, bytes.length, PG_TYPE_NUMERIC));
+		}
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		int ndigits = in.readShort();
+		int weight = in.readShort();
+		int sign = in.readShort() & 0xffff;
+		int dscale = in.readShort();
+		if (sign == NUMERIC_NAN) {
+			throw new IOException(RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40108));
+		}
+		if (ndigits < 0 || bytes.length != 8 + ndigits*2 || (sign != 0 && sign != NUMERIC_NEG) || dscale < 0) {
+			throw new IOException(RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40107, bytes.length, PG_TYPE_NUMERIC));
+		}
+		BigInteger unscaled = BigInteger.ZERO;
+		for (int i = 0; i < ndigits; i++) {
+			unscaled = unscaled.multiply(NUMERIC_BASE).add(BigInteger.valueOf(in.readShort()));
+		}
+		if (sign == NUMERIC_NEG) {
+			unscaled = unscaled.negate();
+		}
+		BigDecimal result = new BigDecimal(unscaled, (ndigits - weight - 1)*4);
+		return result.setScale(dscale, BigDecimal.ROUND_HALF_UP);
+	}
+	
+	/**
+	 * Dates are sent as the int4 number of days since 2000-01-01
+	 */
+	public static int toPgDate(Date date) {
+		long millis = toLocalMillis(date.getTime()) - PG_EPOCH_MILLIS;
+		return (int)floorDiv(millis, MILLIS_PER_DAY);
+	}
+	
+	public static Date fromPgDate(int days) {
+		return new Date(fromLocalMillis(PG_EPOCH_MILLIS + days * MILLIS_PER_DAY));
+	}
+	
+	/**
+	 * Times are sent as float8 seconds since midnight, which matches integer_datetimes off
+	 */
+	public static double toPgTime(Time time) {
+		long millis = toLocalMillis(time.getTime());
+		return (millis - floorDiv(millis, MILLIS_PER_DAY) * MILLIS_PER_DAY) / 1000.0;
+	}
+	
+	public static Time fromPgTime(double seconds) {
+		return new Time(fromLocalMillis(Math.round(seconds * 1000)));
+	}
+	
+	/**
+	 * Timestamps are sent as float8 seconds since 2000-01-01, which matches integer_datetimes off
+	 */
+	public static double toPgTimestamp(Timestamp timestamp) {
+		long millis = toLocalMillis(timestamp.getTime()) - PG_EPOCH_MILLIS;
+		return millis / 1000.0 + (timestamp.getNanos() % 1000000) / 1000000000.0;
+	}
+	
+	public static Timestamp fromPgTimestamp(double seconds) {
+		double wholeSeconds = Math.floor(seconds);
+		Timestamp result = new Timestamp(fromLocalMillis(PG_EPOCH_MILLIS + (long)wholeSeconds * 1000));
+		result.setNanos((int)Math.min(999999, Math.round((seconds - wholeSeconds) * 1000000)) * 1000);
+		return result;
+	}
+	
+	/**
+	 * Values are sent without a time zone, so use the local wall clock time 
+	 */
+	private static long toLocalMillis(long millis) {
+		return millis + TimeZone.getDefault().getOffset(millis);
+	}
+	
+	private static long fromLocalMillis(long localMillis) {
+		TimeZone tz = TimeZone.getDefault();
+		long millis = localMillis - tz.getOffset(localMillis);
+		return localMillis - tz.getOffset(millis);
+	}
+	
+	private static long floorDiv(long x, long y) {
+		long result = x / y;
+		if ((x % y != 0) && ((x ^ y) < 0)) {
+			result--;
+		}
+		return result;
 	}
 		
 	/**
@@ -87,6 +87,7 @@ public class EmbeddedConfiguration extends DQPConfiguration {
 	private WorkManager workManager;
 	private boolean useDisk = true;
 	private String bufferDirectory;
+	private String materializationSnapshotDirectory;
 	private CacheFactory cacheFactory;
 	private int maxResultSetCacheStaleness = 60;
 	private String infinispanConfigFile = "infinispan-config.xml"; //$NON-NLS-1$
@@ -176,6 +177,19 @@ public class EmbeddedConfiguration extends DQPConfiguration {
 		return this.bufferDirectory;
 	}
 	
+	/**
+	 * Set the directory where snapshots of internal materialized views are kept, 
+	 * so that they may be restored rather than reloaded after a restart.
+	 * Unlike the buffer directory, the contents are not removed on shutdown.
+	 */
+	public void setMaterializationSnapshotDirectory(String dir) {
+		this.materializationSnapshotDirectory = dir;
+	}
+	
+	public String getMaterializationSnapshotDirectory() {
+		return materializationSnapshotDirectory;
+	}
+	
 	public String getInfinispanConfigFile() {
 		return infinispanConfigFile;
 	}
@@ -116,6 +116,9 @@ public class RuntimePlugin {
     	TEIID40102,
     	TEIID40103,
     	TEIID40104, 
-    	TEIID40105
+    	TEIID40105,
+    	TEIID40106,
+    	TEIID40107,
+    	TEIID40108
     }
 }
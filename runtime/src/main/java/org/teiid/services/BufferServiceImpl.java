@@ -63,9 +63,15 @@ public class BufferServiceImpl implements BufferService, Serializable {
     private int maxReserveKb = BufferManager.DEFAULT_RESERVE_BUFFER_KB;
     private long maxBufferSpace = FileStorageManager.DEFAULT_MAX_BUFFERSPACE>>20;
     private boolean inlineLobs = true;
+    private boolean columnarBatches;
+    private int evictionThreads;
     private long memoryBufferSpace = -1;
     private int maxStorageObjectSize = BufferFrontedFileStoreCache.DEFAuLT_MAX_OBJECT_SIZE;
     private boolean memoryBufferOffHeap;
+    private boolean compressStorage;
+    private boolean sampledEviction;
+    private boolean slottedSTreePages;
+    private boolean adaptiveBatchSizing;
 	private FileStorageManager fsm;
 	private BufferFrontedFileStoreCache fsc;
 	private int workingMaxReserveKb;
@@ -87,6 +93,11 @@ public class BufferServiceImpl implements BufferService, Serializable {
             this.bufferMgr.setMaxReserveKB(this.maxReserveKb);
             this.bufferMgr.setMaxProcessingKB(this.maxProcessingKb);
             this.bufferMgr.setInlineLobs(inlineLobs);
+            this.bufferMgr.setColumnarBatches(columnarBatches);
+            this.bufferMgr.setEvictionThreads(evictionThreads);
+            this.bufferMgr.setSampledEviction(sampledEviction);
+            this.bufferMgr.setSlottedSTreePages(slottedSTreePages);
+            this.bufferMgr.setAdaptiveBatchSizing(adaptiveBatchSizing);
             this.bufferMgr.initialize();
             
             // If necessary, add disk storage manager
@@ -108,6 +119,8 @@ public class BufferServiceImpl implements BufferService, Serializable {
                 fsc = new BufferFrontedFileStoreCache();
                 fsc.setMaxStorageObjectSize(maxStorageObjectSize);
                 fsc.setDirect(memoryBufferOffHeap);
+                fsc.setCompress(compressStorage);
+                fsc.setSampledEviction(sampledEviction);
                 int batchOverheadKB = (int)(this.memoryBufferSpace<0?(this.bufferMgr.getMaxReserveKB()<<8):this.memoryBufferSpace)>>20;
         		this.bufferMgr.setMaxReserveKB(Math.max(0, this.bufferMgr.getMaxReserveKB() - batchOverheadKB));
                 if (memoryBufferSpace < 0) {
@@ -183,6 +196,54 @@ public class BufferServiceImpl implements BufferService, Serializable {
 	public boolean isInlineLobs() {
 		return inlineLobs;
 	}
+	
+	public void setColumnarBatches(boolean columnarBatches) {
+		this.columnarBatches = columnarBatches;
+	}
+	
+	public boolean isColumnarBatches() {
+		return columnarBatches;
+	}
+	
+	public void setEvictionThreads(int evictionThreads) {
+		this.evictionThreads = evictionThreads;
+	}
+	
+	public int getEvictionThreads() {
+		return evictionThreads;
+	}
+	
+	public void setCompressStorage(boolean compressStorage) {
+		this.compressStorage = compressStorage;
+	}
+	
+	public boolean isCompressStorage() {
+		return compressStorage;
+	}
+	
+	public void setSampledEviction(boolean sampledEviction) {
+		this.sampledEviction = sampledEviction;
+	}
+	
+	public boolean isSampledEviction() {
+		return sampledEviction;
+	}
+	
+	public void setSlottedSTreePages(boolean slottedSTreePages) {
+		this.slottedSTreePages = slottedSTreePages;
+	}
+	
+	public boolean isSlottedSTreePages() {
+		return slottedSTreePages;
+	}
+	
+	public void setAdaptiveBatchSizing(boolean adaptiveBatchSizing) {
+		this.adaptiveBatchSizing = adaptiveBatchSizing;
+	}
+	
+	public boolean isAdaptiveBatchSizing() {
+		return adaptiveBatchSizing;
+	}
 
 	public int getProcessorBatchSize() {
 		return this.processorBatchSize;
@@ -265,6 +326,13 @@ public class BufferServiceImpl implements BufferService, Serializable {
     	return 0;
     }
     
+    public double getStorageCompressionRatio() {
+    	if (fsc != null) {
+    		return fsc.getCompressionRatio();
+    	}
+    	return 1;
+    }
+    
     public long getMemoryBufferUsedKB() {
     	if (fsc != null) {
     		return fsc.getMemoryInUseBytes() >> 10;
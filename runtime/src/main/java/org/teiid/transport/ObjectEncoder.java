@@ -28,6 +28,8 @@ import static org.jboss.netty.channel.Channels.*;
 import java.io.BufferedInputStream;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBufferOutputStream;
@@ -66,6 +68,7 @@ public class ObjectEncoder implements ChannelDownstreamHandler {
 	private static final int CHUNK_SIZE = (1 << 16) - 1;
 
     private final int estimatedLength;
+    private volatile int compressionThreshold = -1;
 
     /**
      * Creates a new encoder with the estimated length of 512 bytes.
@@ -93,6 +96,19 @@ public class ObjectEncoder implements ChannelDownstreamHandler {
         this.estimatedLength = estimatedLength;
     }
     
+    /**
+     * Set the serialized size in bytes at or above which objects will be compressed.
+     * Should only be set after the client has accepted compression.
+     * -1 disables compression.
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+		this.compressionThreshold = compressionThreshold;
+	}
+    
+    public int getCompressionThreshold() {
+		return compressionThreshold;
+	}
+    
     public void handleDownstream(
             final ChannelHandlerContext ctx, ChannelEvent evt) throws Exception {
         if (!(evt instanceof MessageEvent)) {
@@ -118,13 +134,50 @@ public class ObjectEncoder implements ChannelDownstreamHandler {
         oout.close();
 
         ChannelBuffer encoded = bout.buffer();
-        encoded.setInt(0, encoded.writerIndex() - 4);
+        int length = encoded.writerIndex() - 4;
+        int threshold = this.compressionThreshold;
+        ChannelBuffer compressed = null;
+        if (threshold >= 0 && length >= threshold) {
+        	compressed = compress(ctx, encoded, length);
+        }
+        if (compressed != null) {
+        	encoded = compressed;
+        } else {
+        	encoded.setInt(0, length);
+        }
         write(ctx, e.getFuture(), encoded, e.getRemoteAddress());
 		for (InputStream is : oout.getStreams()) {
 			Channels.write(ctx.getChannel(), new AnonymousChunkedStream(new BufferedInputStream(is, CHUNK_SIZE)));
 		}
     }
     
+    /**
+     * Compress the encoded object as a negative compressed length, 
+     * the uncompressed length, then the deflated bytes.
+     * @return the compressed buffer or null if the object did not compress
+     */
+    private ChannelBuffer compress(ChannelHandlerContext ctx, ChannelBuffer encoded, int length) throws Exception {
+    	ChannelBufferOutputStream cout = new ChannelBufferOutputStream(dynamicBuffer(
+    			length/2 + 8, ctx.getChannel().getConfig().getBufferFactory()));
+    	cout.write(LENGTH_PLACEHOLDER);
+    	cout.writeInt(length);
+    	Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    	try {
+	    	DeflaterOutputStream dos = new DeflaterOutputStream(cout, deflater);
+	    	encoded.getBytes(4, dos, length);
+	    	dos.finish();
+    	} finally {
+    		deflater.end();
+    	}
+    	ChannelBuffer result = cout.buffer();
+    	int compressedLength = result.writerIndex() - 4;
+    	if (compressedLength >= length) {
+    		return null;
+    	}
+    	result.setInt(0, -compressedLength);
+    	return result;
+    }
+    
     static class AnonymousChunkedStream extends ChunkedStream {
 
 		public AnonymousChunkedStream(InputStream in) {
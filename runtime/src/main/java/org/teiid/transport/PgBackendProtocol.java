@@ -29,12 +29,16 @@ import java.io.StreamCorruptedException;
 import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.math.BigDecimal;
 import java.nio.charset.Charset;
 import java.security.GeneralSecurityException;
 import java.sql.Blob;
+import java.sql.Date;
 import java.sql.ParameterMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.List;
 import java.util.Properties;
@@ -483,6 +487,10 @@ public class PgBackendProtocol implements ChannelDownstreamHandler, ODBCClientRe
 	}
 	
 	private void getContent(ResultSet rs, PgColInfo col, int column) throws SQLException, TeiidSQLException, IOException {
+		if (col.format == PG_FORMAT_BINARY) {
+			getBinaryContent(rs, col, column);
+			return;
+		}
 		switch (col.type) {
 			case PG_TYPE_BOOL:
 			case PG_TYPE_BPCHAR:
@@ -579,6 +587,86 @@ public class PgBackendProtocol implements ChannelDownstreamHandler, ODBCClientRe
 		}
 	}
 	
+	/**
+	 * Write the binary format value directly to the buffer, avoiding the text conversion on both ends.
+	 */
+	private void getBinaryContent(ResultSet rs, PgColInfo col, int column) throws SQLException, TeiidSQLException, IOException {
+		switch (col.type) {
+			case PG_TYPE_BOOL:
+				boolean b = rs.getBoolean(column);
+				if (!rs.wasNull()) {
+					write(b?1:0);
+				}
+				break;
+			case PG_TYPE_INT2:
+				short s = rs.getShort(column);
+				if (!rs.wasNull()) {
+					writeShort(s);
+				}
+				break;
+			case PG_TYPE_INT4:
+				int i = rs.getInt(column);
+				if (!rs.wasNull()) {
+					writeInt(i);
+				}
+				break;
+			case PG_TYPE_INT8:
+				long l = rs.getLong(column);
+				if (!rs.wasNull()) {
+					dataOut.writeLong(l);
+				}
+				break;
+			case PG_TYPE_FLOAT4:
+				float f = rs.getFloat(column);
+				if (!rs.wasNull()) {
+					dataOut.writeFloat(f);
+				}
+				break;
+			case PG_TYPE_FLOAT8:
+				double d = rs.getDouble(column);
+				if (!rs.wasNull()) {
+					dataOut.writeDouble(d);
+				}
+				break;
+			case PG_TYPE_NUMERIC:
+				BigDecimal bd = rs.getBigDecimal(column);
+				if (bd != null) {
+					write(toPgNumeric(bd));
+				}
+				break;
+			case PG_TYPE_DATE:
+				Date date = rs.getDate(column);
+				if (date != null) {
+					writeInt(toPgDate(date));
+				}
+				break;
+			case PG_TYPE_TIME:
+				Time time = rs.getTime(column);
+				if (time != null) {
+					dataOut.writeDouble(toPgTime(time));
+				}
+				break;
+			case PG_TYPE_TIMESTAMP_NO_TMZONE:
+				Timestamp ts = rs.getTimestamp(column);
+				if (ts != null) {
+					dataOut.writeDouble(toPgTimestamp(ts));
+				}
+				break;
+			case PG_TYPE_BYTEA:
+		    	Blob blob = rs.getBlob(column);
+		    	if (blob != null) {
+		    		try {
+		    			write(ObjectConverterUtil.convertToByteArray(blob.getBinaryStream(), this.maxLobSize));
+		    		} catch(OutOfMemoryError e) {
+		    			throw new StreamCorruptedException("data too big: " + e.getMessage()); //$NON-NLS-1$ 
+		    		}
+		    	}
+				break;
+		    default:
+		    	throw new TeiidSQLException("unknown datatype failed to convert"); 
+		}
+	}
+	
 	public static void escapeQuote(Writer sb, String s) throws IOException {
 		sb.append('"');
 		for (int i = 0; i < s.length(); i++) {
@@ -657,8 +745,8 @@ public class PgBackendProtocol implements ChannelDownstreamHandler, ODBCClientRe
 			writeShort(getTypeSize(info.type, info.precision));
 			// pg_attribute.atttypmod
 			writeInt(info.mod);
-			// text
-			writeShort(0);
+			// text or binary
+			writeShort(info.format);
 		}
 		sendMessage();
 	}
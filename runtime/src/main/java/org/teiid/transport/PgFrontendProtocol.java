@@ -43,6 +43,7 @@ import org.teiid.logging.LogManager;
 import org.teiid.logging.MessageLevel;
 import org.teiid.net.socket.ServiceInvocationStruct;
 import org.teiid.odbc.ODBCServerRemote;
+import org.teiid.odbc.PGUtil;
 
 /**
  * Represents the messages going from PG ODBC Client --> back end Server  
@@ -251,6 +252,12 @@ public class PgFrontendProtocol extends FrameDecoder {
         }
         
         int paramCount = data.readShort();
+        try {
+        	PGUtil.checkFormatCount(formatCodeCount, paramCount);
+        } catch (IOException e) {
+        	this.odbcProxy.unsupportedOperation(e.getMessage());
+        	return message;
+        }
         Object[] params = new Object[paramCount];
         for (int i = 0; i < paramCount; i++) {
             int paramLen = data.readInt();
@@ -258,7 +265,7 @@ public class PgFrontendProtocol extends FrameDecoder {
             data.readFully(paramdata);
             
             // the params can be either text or binary
-            if (formatCodeCount == 0 || (formatCodeCount == 1 && formatCodes[0] == 0) || formatCodes[i] == 0) {
+            if (formatCodeCount == 0 || formatCodes[formatCodeCount == 1?0:i] == PGUtil.PG_FORMAT_TEXT) {
             	params[i] = new String(paramdata, this.pgBackendProtocol.getEncoding());
             }
             else {
@@ -84,6 +84,16 @@ public class SSLAwareChannelHandler extends SimpleChannelHandler implements Chan
 			return channel.getRemoteAddress();
 		}
 		
+		/**
+		 * Compress objects at or above the given serialized size
+		 */
+		public void setCompressionThreshold(int compressionThreshold) {
+			ObjectEncoder encoder = channel.getPipeline().get(ObjectEncoder.class);
+			if (encoder != null) {
+				encoder.setCompressionThreshold(compressionThreshold);
+			}
+		}
+		
 		@Override
 		public Object read() throws IOException,
 				ClassNotFoundException {
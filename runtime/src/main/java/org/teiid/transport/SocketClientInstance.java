@@ -60,6 +60,7 @@ public class SocketClientInstance implements ChannelListener, ClientInstance {
     private boolean usingEncryption; 
     private DhKeyGenerator keyGen;
     private DQPWorkContext workContext = new DQPWorkContext();
+    private int compressionThreshold = -1;
         
     public SocketClientInstance(ObjectChannel objectSocket, ClientServiceRegistryImpl csr, boolean isClientEncryptionEnabled) {
         this.objectSocket = objectSocket;
@@ -74,6 +75,10 @@ public class SocketClientInstance implements ChannelListener, ClientInstance {
         }
     }
     
+    public void setCompressionThreshold(int compressionThreshold) {
+		this.compressionThreshold = compressionThreshold;
+	}
+    
     public void send(Message message, Serializable messageKey) {
     	message.setMessageKey(messageKey);
     	if (LogManager.isMessageToBeRecorded(LogConstants.CTX_TRANSPORT, MessageLevel.DETAIL)) {
@@ -96,6 +101,7 @@ public class SocketClientInstance implements ChannelListener, ClientInstance {
 	public void onConnection() throws CommunicationException {
         Handshake handshake = new Handshake();
         handshake.setAuthType(csr.getAuthenticationType());
+        handshake.setCompression(compressionThreshold >= 0);
         if (usingEncryption) {
             keyGen = new DhKeyGenerator();
             byte[] publicKey;
@@ -145,6 +151,10 @@ public class SocketClientInstance implements ChannelListener, ClientInstance {
         } else {
             this.cryptor = new NullCryptor();
         }
+		if (compressionThreshold >= 0 && handshake.isCompression() && this.objectSocket instanceof SSLAwareChannelHandler.ObjectChannelImpl) {
+			//the client has accepted, so subsequent messages may be compressed
+			((SSLAwareChannelHandler.ObjectChannelImpl)this.objectSocket).setCompressionThreshold(compressionThreshold);
+		}
 	}
 
 	public void receivedMessage(Object msg) throws CommunicationException {
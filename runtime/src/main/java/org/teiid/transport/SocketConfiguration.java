@@ -39,6 +39,7 @@ public class SocketConfiguration {
 	private String hostName;
 	private String name;
 	private String protocol = "teiid"; //$NON-NLS-1$
+	private int compressionThreshold = -1;
 	
 	public String getName() {
 		return name;
@@ -142,4 +143,16 @@ public class SocketConfiguration {
 	public void setProtocol(String protocol) {
 		this.protocol = protocol;
 	}
+	
+	/**
+	 * The serialized size in bytes at or above which messages sent to clients 
+	 * that accept compression will be compressed.  -1, the default, disables compression. 
+	 */
+	public int getCompressionThreshold() {
+		return compressionThreshold;
+	}
+	
+	public void setCompressionThreshold(int compressionThreshold) {
+		this.compressionThreshold = compressionThreshold;
+	}
 }
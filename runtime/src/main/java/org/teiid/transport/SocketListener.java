@@ -49,9 +49,11 @@ public class SocketListener implements ChannelListenerFactory {
     private boolean isClientEncryptionEnabled;
     private ExecutorService nettyPool;
     private ClientServiceRegistryImpl csr;
+    private int compressionThreshold = -1;
     
     public SocketListener(InetSocketAddress address, SocketConfiguration config, ClientServiceRegistryImpl csr, StorageManager storageManager) {
 		this(address, config.getInputBufferSize(), config.getOutputBufferSize(), config.getMaxSocketThreads(), config.getSSLConfiguration(), csr, storageManager);
+		this.compressionThreshold = config.getCompressionThreshold();
 		LogManager.logDetail(LogConstants.CTX_TRANSPORT, RuntimePlugin.Util.getString("SocketTransport.1", new Object[] {config.getHostAddress().getHostAddress(), String.valueOf(config.getPortNumber())})); //$NON-NLS-1$
     }
     
@@ -119,7 +121,13 @@ public class SocketListener implements ChannelListenerFactory {
     }
     
 	public ChannelListener createChannelListener(ObjectChannel channel) {
-		return new SocketClientInstance(channel, csr, this.isClientEncryptionEnabled);
+		SocketClientInstance instance = new SocketClientInstance(channel, csr, this.isClientEncryptionEnabled);
+		instance.setCompressionThreshold(this.compressionThreshold);
+		return instance;
+	}
+	
+	public void setCompressionThreshold(int compressionThreshold) {
+		this.compressionThreshold = compressionThreshold;
 	}
 	
 }
\ No newline at end of file
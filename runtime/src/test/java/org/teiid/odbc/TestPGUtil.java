@@ -0,0 +1,133 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.odbc;
+
+import static org.junit.Assert.*;
+import static org.teiid.odbc.PGUtil.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.odbc.PGUtil.PgColInfo;
+
+@SuppressWarnings("nls")
+public class TestPGUtil {
+	
+	private void helpTestNumeric(String value, int... expected) throws Exception {
+		byte[] bytes = toPgNumeric(new BigDecimal(value));
+		DataInputStream dis = new DataInputStream(new ByteArrayInputStream(bytes));
+		int[] actual = new int[bytes.length/2];
+		for (int i = 0; i < actual.length; i++) {
+			actual[i] = dis.readShort() & 0xffff;
+		}
+		assertArrayEquals(expected, actual);
+		assertEquals(new BigDecimal(value), fromPgNumeric(bytes));
+	}
+
+	@Test public void testNumeric() throws Exception {
+		helpTestNumeric("12345.678", 3, 1, 0, 3, 1, 2345, 6780);
+		helpTestNumeric("-0.0001", 1, 0xffff, 0x4000, 4, 1);
+		helpTestNumeric("0", 0, 0, 0, 0);
+		helpTestNumeric("0.00", 0, 0, 0, 2);
+		helpTestNumeric("100000000", 1, 2, 0, 0, 1);
+		helpTestNumeric("-98765432109876543210.0123456789", 8, 4, 0x4000, 10, 9876, 5432, 1098, 7654, 3210, 123, 4567, 8900);
+	}
+	
+	@Test public void testNumericNegativeScale() throws Exception {
+		byte[] bytes = toPgNumeric(new BigDecimal("1E+5"));
+		assertEquals(new BigDecimal("100000"), fromPgNumeric(bytes));
+	}
+	
+	@Test public void testDateTime() throws Exception {
+		assertEquals(0, toPgDate(Date.valueOf("2000-01-01")));
+		assertEquals(-1, toPgDate(Date.valueOf("1999-12-31")));
+		assertEquals(Date.valueOf("2012-02-29"), fromPgDate(toPgDate(Date.valueOf("2012-02-29"))));
+		
+		assertEquals(3601.0, toPgTime(Time.valueOf("01:00:01")), 0);
+		assertEquals(Time.valueOf("23:59:59"), fromPgTime(toPgTime(Time.valueOf("23:59:59"))));
+		
+		assertEquals(1.5, toPgTimestamp(Timestamp.valueOf("2000-01-01 00:00:01.5")), 0);
+		assertEquals(-86400.0, toPgTimestamp(Timestamp.valueOf("1999-12-31 00:00:00")), 0);
+		Timestamp ts = Timestamp.valueOf("2011-06-15 13:24:56.123456");
+		assertEquals(ts, fromPgTimestamp(toPgTimestamp(ts)));
+	}
+	
+	@Test public void testFromBinary() throws Exception {
+		assertEquals(Short.valueOf((short)3), fromBinary(PG_TYPE_INT2, ByteBuffer.allocate(2).putShort((short)3).array()));
+		assertEquals(5, fromBinary(PG_TYPE_INT4, ByteBuffer.allocate(4).putInt(5).array()));
+		assertEquals(6l, fromBinary(PG_TYPE_INT8, ByteBuffer.allocate(8).putLong(6).array()));
+		assertEquals(1.5d, fromBinary(PG_TYPE_FLOAT8, ByteBuffer.allocate(8).putDouble(1.5).array()));
+		assertEquals(Boolean.TRUE, fromBinary(PG_TYPE_BOOL, new byte[] {1}));
+		assertEquals(Date.valueOf("2000-01-02"), fromBinary(PG_TYPE_DATE, ByteBuffer.allocate(4).putInt(1).array()));
+		byte[] bytes = new byte[] {1, 2};
+		assertSame(bytes, fromBinary(PG_TYPE_BYTEA, bytes));
+	}
+	
+	@Test public void testSetFormats() throws Exception {
+		PgColInfo intCol = new PgColInfo();
+		intCol.type = PG_TYPE_INT4;
+		PgColInfo textCol = new PgColInfo();
+		textCol.type = PG_TYPE_VARCHAR;
+		List<PgColInfo> cols = Arrays.asList(intCol, textCol);
+		setFormats(cols, new int[] {PG_FORMAT_BINARY});
+		assertEquals(PG_FORMAT_BINARY, intCol.format);
+		assertEquals(PG_FORMAT_TEXT, textCol.format);
+		
+		intCol.format = PG_FORMAT_TEXT;
+		setFormats(cols, new int[] {PG_FORMAT_TEXT, PG_FORMAT_BINARY});
+		assertEquals(PG_FORMAT_TEXT, intCol.format);
+	}
+	
+	@Test(expected=IOException.class) public void testSetFormatsInvalidCount() throws Exception {
+		PgColInfo intCol = new PgColInfo();
+		intCol.type = PG_TYPE_INT4;
+		setFormats(Arrays.asList(intCol), new int[] {PG_FORMAT_BINARY, PG_FORMAT_BINARY});
+	}
+	
+	@Test(expected=IOException.class) public void testFromBinaryInvalidLength() throws Exception {
+		fromBinary(PG_TYPE_INT4, new byte[] {1, 2});
+	}
+	
+	@Test(expected=IOException.class) public void testFromBinaryEmptyBool() throws Exception {
+		fromBinary(PG_TYPE_BOOL, new byte[0]);
+	}
+	
+	@Test(expected=IOException.class) public void testNumericNaN() throws Exception {
+		fromPgNumeric(new byte[] {0, 0, 0, 0, (byte)0xc0, 0, 0, 0});
+	}
+	
+	@Test(expected=IOException.class) public void testNumericTruncated() throws Exception {
+		byte[] bytes = toPgNumeric(new BigDecimal("12345.678"));
+		fromPgNumeric(Arrays.copyOf(bytes, bytes.length - 2));
+	}
+
+}
@@ -30,6 +30,10 @@ import java.io.StringReader;
 import java.net.InetSocketAddress;
 import java.util.Properties;
 
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferInputStream;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.EncoderEmbedder;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -38,6 +42,7 @@ import org.teiid.client.security.ILogon;
 import org.teiid.common.buffer.BufferManagerFactory;
 import org.teiid.common.buffer.impl.MemoryStorageManager;
 import org.teiid.core.crypto.NullCryptor;
+import org.teiid.core.util.AccessibleBufferedInputStream;
 import org.teiid.core.util.ObjectConverterUtil;
 import org.teiid.dqp.service.SessionServiceException;
 import org.teiid.net.CommunicationException;
@@ -48,6 +53,7 @@ import org.teiid.net.socket.SocketServerConnection;
 import org.teiid.net.socket.SocketServerConnectionFactory;
 import org.teiid.net.socket.SocketUtil;
 import org.teiid.net.socket.UrlServerDiscovery;
+import org.teiid.netty.handler.codec.serialization.ObjectDecoderInputStream;
 import org.teiid.services.SessionServiceImpl;
 import org.teiid.transport.TestSocketRemoting.FakeService;
 
@@ -69,6 +75,9 @@ public class TestCommSockets {
 		if (listener != null) {
 			listener.stop();
 		}
+		if (sscf != null) {
+			sscf.shutdown();
+		}
 	}
 
 	@Test(expected=CommunicationException.class) public void testFailedConnect() throws Exception {
@@ -149,6 +158,65 @@ public class TestCommSockets {
 		conn.close();
 	}
 
+	@Test public void testCompression() throws Exception {
+		SocketServerConnection conn = helpEstablishConnection(false);
+		conn.close();
+		listener.setCompressionThreshold(0);
+		Properties p = new Properties();
+		p.setProperty("org.teiid.sockets.maxCachedInstances", String.valueOf(0)); //$NON-NLS-1$
+		sscf = null;
+		conn = helpEstablishConnection(false, new SSLConfiguration(), p);
+		FakeService fs = conn.getService(FakeService.class);
+		assertEquals("hello world", ObjectConverterUtil.convertToString(fs.getReader()));
+		assertEquals(5, fs.asynchResult().get().intValue());
+		String value = getCompressibleString();
+		assertEquals(value, fs.echo(value));
+		conn.close();
+	}
+	
+	@Test public void testCompressedFrame() throws Exception {
+		ObjectEncoder encoder = new ObjectEncoder();
+		encoder.setCompressionThreshold(1024);
+		EncoderEmbedder<ChannelBuffer> embedder = new EncoderEmbedder<ChannelBuffer>(encoder);
+		String value = getCompressibleString();
+		embedder.offer(value);
+		embedder.offer("small"); //$NON-NLS-1$
+		
+		//a negative length indicates a compressed frame
+		ChannelBuffer large = embedder.poll();
+		int length = large.getInt(0);
+		assertTrue(length < 0);
+		assertEquals(-length, large.readableBytes() - 4);
+		assertTrue(-length < value.length() / 10);
+		
+		//below the threshold the frame is not compressed
+		ChannelBuffer small = embedder.poll();
+		assertEquals(small.readableBytes() - 4, small.getInt(0));
+		
+		ObjectDecoderInputStream odis = new ObjectDecoderInputStream(new AccessibleBufferedInputStream(new ChannelBufferInputStream(ChannelBuffers.wrappedBuffer(large, small)), 1024), getClass().getClassLoader(), 1 << 20);
+		assertEquals(value, odis.readObject());
+		assertEquals("small", odis.readObject()); //$NON-NLS-1$
+	}
+
+	private String getCompressibleString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			sb.append("hello world "); //$NON-NLS-1$
+		}
+		return sb.toString();
+	}
+	
+	@Test public void testNio() throws Exception {
+		Properties p = new Properties();
+		p.setProperty("org.teiid.sockets.nio", Boolean.TRUE.toString()); //$NON-NLS-1$
+		p.setProperty("org.teiid.sockets.maxCachedInstances", String.valueOf(0)); //$NON-NLS-1$
+		SocketServerConnection conn = helpEstablishConnection(false, new SSLConfiguration(), p);
+		FakeService fs = conn.getService(FakeService.class);
+		assertEquals("hello world", ObjectConverterUtil.convertToString(fs.getReader()));
+		assertEquals(5, fs.asynchResult().get().intValue());
+		conn.close();
+	}
+	
 	private SocketServerConnection helpEstablishConnection(boolean secure) throws CommunicationException, ConnectionException {
 		return helpEstablishConnection(secure, new SSLConfiguration(), new Properties());
 	}
@@ -78,6 +78,8 @@ public class TestSocketRemoting {
 		
 		Reader getReader() throws IOException;
 		
+		String echo(String value);
+		
 	}
 	
 	static class FakeServiceImpl implements FakeService {
@@ -102,6 +104,11 @@ public class TestSocketRemoting {
 			return new StringReader("hello world"); //$NON-NLS-1$
 		}
 		
+		@Override
+		public String echo(String value) {
+			return value;
+		}
+		
 	}
 	
 	private static class FakeClientServerInstance extends SocketServerInstanceImpl implements ClientInstance {
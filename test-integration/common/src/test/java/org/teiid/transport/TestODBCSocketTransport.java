@@ -24,6 +24,10 @@ package org.teiid.transport;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -56,6 +60,7 @@ import org.teiid.core.util.UnitTestUtil;
 import org.teiid.jdbc.FakeServer;
 import org.teiid.jdbc.TestMMDatabaseMetaData;
 import org.teiid.net.socket.SocketUtil;
+import org.teiid.odbc.PGUtil;
 
 @SuppressWarnings("nls")
 public class TestODBCSocketTransport {
@@ -420,6 +425,191 @@ public static class AnonSSLSocketFactory extends SSLSocketFactory {
 		assertTrue(rs.next());
 	}
 	
+	/**
+	 * The pg driver always sends valid format counts, so the messages are written directly
+	 */
+	@Test public void testInvalidResultFormatCount() throws Exception {
+		Socket socket = new Socket(odbcServer.addr.getHostName(), odbcServer.odbcTransport.getPort());
+		try {
+			DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			DataInputStream in = new DataInputStream(socket.getInputStream());
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			DataOutputStream msg = new DataOutputStream(baos);
+			startSession(out, in, baos);
+			
+			writeString(msg, "");
+			writeString(msg, "select 1");
+			msg.writeShort(0);
+			sendMessage(out, 'P', baos);
+			
+			//one result column, but two result format codes
+			writeString(msg, "");
+			writeString(msg, "");
+			msg.writeShort(0);
+			msg.writeShort(0);
+			msg.writeShort(2);
+			msg.writeShort(1);
+			msg.writeShort(1);
+			sendMessage(out, 'B', baos);
+			
+			msg.write('P');
+			writeString(msg, "");
+			sendMessage(out, 'D', baos);
+			
+			sendMessage(out, 'S', baos);
+			
+			String error = readUntilReady(in);
+			assertNotNull(error);
+			assertTrue(error, error.contains("TEIID40106"));
+		} finally {
+			socket.close();
+		}
+	}
+	
+	/**
+	 * Bind a parameter and the results in the binary format
+	 */
+	@Test public void testBinaryFormat() throws Exception {
+		Socket socket = new Socket(odbcServer.addr.getHostName(), odbcServer.odbcTransport.getPort());
+		try {
+			DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			DataInputStream in = new DataInputStream(socket.getInputStream());
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			DataOutputStream msg = new DataOutputStream(baos);
+			startSession(out, in, baos);
+			
+			writeString(msg, "");
+			writeString(msg, "select cast(? as integer), cast('-1.5' as bigdecimal), cast('2000-01-01 00:00:01.5' as timestamp), X'0102'");
+			msg.writeShort(1);
+			msg.writeInt(PGUtil.PG_TYPE_INT4);
+			sendMessage(out, 'P', baos);
+			
+			writeString(msg, "");
+			writeString(msg, "");
+			msg.writeShort(1);
+			msg.writeShort(PGUtil.PG_FORMAT_BINARY);
+			msg.writeShort(1);
+			msg.writeInt(4);
+			msg.writeInt(-2);
+			msg.writeShort(4);
+			for (int i = 0; i < 4; i++) {
+				msg.writeShort(PGUtil.PG_FORMAT_BINARY);
+			}
+			sendMessage(out, 'B', baos);
+			
+			msg.write('P');
+			writeString(msg, "");
+			sendMessage(out, 'D', baos);
+			
+			writeString(msg, "");
+			msg.writeInt(0);
+			sendMessage(out, 'E', baos);
+			
+			sendMessage(out, 'S', baos);
+			
+			DataInputStream row = null;
+			DataInputStream description = null;
+			while (true) {
+				int type = in.read();
+				assertTrue(type != -1);
+				byte[] contents = new byte[in.readInt() - 4];
+				in.readFully(contents);
+				if (type == 'Z') {
+					break;
+				}
+				assertTrue(new String(contents, "UTF-8"), type != 'E');
+				if (type == 'T') {
+					description = new DataInputStream(new ByteArrayInputStream(contents));
+				} else if (type == 'D') {
+					assertNull(row);
+					row = new DataInputStream(new ByteArrayInputStream(contents));
+				}
+			}
+			
+			int[] types = new int[] {PGUtil.PG_TYPE_INT4, PGUtil.PG_TYPE_NUMERIC, PGUtil.PG_TYPE_TIMESTAMP_NO_TMZONE, PGUtil.PG_TYPE_BYTEA};
+			assertEquals(types.length, description.readShort());
+			for (int i = 0; i < types.length; i++) {
+				while (description.read() != 0) {
+					//column name
+				}
+				description.readInt();
+				description.readShort();
+				assertEquals(types[i], description.readInt());
+				description.readShort();
+				description.readInt();
+				assertEquals(PGUtil.PG_FORMAT_BINARY, description.readShort());
+			}
+			
+			assertEquals(types.length, row.readShort());
+			assertEquals(4, row.readInt());
+			assertEquals(-2, row.readInt());
+			//the base 10000 digits 0001 and 5000 with a weight of 0, negative, and a scale of 1
+			byte[] numeric = new byte[row.readInt()];
+			row.readFully(numeric);
+			assertArrayEquals(new byte[] {0, 2, 0, 0, 0x40, 0, 0, 1, 0, 1, 0x13, (byte)0x88}, numeric);
+			//seconds since 2000-01-01
+			assertEquals(8, row.readInt());
+			assertEquals(1.5, row.readDouble(), 0);
+			assertEquals(2, row.readInt());
+			assertEquals(1, row.read());
+			assertEquals(2, row.read());
+		} finally {
+			socket.close();
+		}
+	}
+	
+	/**
+	 * Send the startup and password messages
+	 */
+	private static void startSession(DataOutputStream out, DataInputStream in, ByteArrayOutputStream baos) throws IOException {
+		DataOutputStream msg = new DataOutputStream(baos);
+		msg.writeInt(196608);
+		writeString(msg, "user");
+		writeString(msg, "testuser");
+		writeString(msg, "database");
+		writeString(msg, "parts");
+		msg.write(0);
+		sendMessage(out, (char)0, baos);
+		
+		writeString(msg, "testpassword");
+		sendMessage(out, 'p', baos);
+		assertNull(readUntilReady(in));
+	}
+	
+	private static void writeString(DataOutputStream msg, String value) throws IOException {
+		msg.write(value.getBytes("UTF-8"));
+		msg.write(0);
+	}
+
+	private static void sendMessage(DataOutputStream out, char type, ByteArrayOutputStream baos) throws IOException {
+		if (type != 0) {
+			out.write(type);
+		}
+		out.writeInt(baos.size() + 4);
+		baos.writeTo(out);
+		out.flush();
+		baos.reset();
+	}
+	
+	/**
+	 * Read messages until ReadyForQuery and return the contents of the first error response
+	 */
+	private static String readUntilReady(DataInputStream in) throws IOException {
+		String error = null;
+		while (true) {
+			int type = in.read();
+			assertTrue(type != -1);
+			byte[] contents = new byte[in.readInt() - 4];
+			in.readFully(contents);
+			if (type == 'Z') {
+				return error;
+			}
+			if (type == 'E' && error == null) {
+				error = new String(contents, "UTF-8");
+			}
+		}
+	}
+	
 	/**
 	 * Ensures that the client is notified about the change.  However the driver will
 	 * throw an exception as it requires UTF8